@@ -21,11 +21,21 @@ public class KillrVideoConfiguration {
     @Value("${application.name: KillrVideo}")
     private String applicationName;
     
+    /** HMAC key signing session tokens, must be the same on all nodes (random per node if empty). */
+    @Value("${killrvideo.security.sessionSigningKey: }")
+    private String sessionSigningKey;
+    
+    /** Validity of session tokens. */
+    @Value("${killrvideo.security.sessionTtlSeconds: 3600}")
+    private long sessionTtlSeconds = 3600;
+    
     /** Use Spring profile to adapt behaviours. */
     public static final String PROFILE_MESSAGING_KAFKA   = "messaging_kafka";
     public static final String PROFILE_MESSAGING_MEMORY  = "messaging_memory";
     public static final String PROFILE_DISCOVERY_ETCD    = "discovery_etcd";
     public static final String PROFILE_DISCOVERY_STATIC  = "discovery_static";
+    public static final String PROFILE_SEARCH_LOCAL      = "search_local";
+    public static final String PROFILE_SUGGESTED_LOCAL   = "suggested_local";
     
     @Bean
     public Validator getBeanValidator() {
@@ -52,4 +62,24 @@ public class KillrVideoConfiguration {
         return applicationHost;
     }
 
+    /**
+     * Getter for attribute 'sessionSigningKey'.
+     *
+     * @return
+     *       current value of 'sessionSigningKey'
+     */
+    public String getSessionSigningKey() {
+        return sessionSigningKey;
+    }
+
+    /**
+     * Getter for attribute 'sessionTtlSeconds'.
+     *
+     * @return
+     *       current value of 'sessionTtlSeconds'
+     */
+    public long getSessionTtlSeconds() {
+        return sessionTtlSeconds;
+    }
+
 }
@@ -0,0 +1,150 @@
+package com.killrvideo.dse.dao;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import org.springframework.stereotype.Repository;
+import org.springframework.util.Assert;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.dse.DseSession;
+import com.killrvideo.utils.FutureUtils;
+
+/**
+ * Layout of playback counters, written by the statistics service and read by any service needing play counts.
+ *
+ * Shard 0 of a video is 'video_playback_stats' (and the hour and day bucket tables). A hot video also writes to the
+ * shards registered in 'video_playback_shards', stored in 'video_playback_stats_sharded' by unit ('LIFETIME', 'HOUR',
+ * 'DAY') and bucket; the lifetime counter uses bucket {@link #LIFETIME_BUCKET}. Readers sum shard 0 and the
+ * registered shards.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Repository
+public class PlaybackCounterDseDao extends DseDaoSupport {
+
+    /** Table Names. */
+    public static final String TABLENAME_PLAYBACK_STATS         = "video_playback_stats";
+    public static final String TABLENAME_PLAYBACK_STATS_SHARDED = "video_playback_stats_sharded";
+    public static final String TABLENAME_PLAYBACK_SHARDS        = "video_playback_shards";
+
+    /** Columns Names. */
+    public static final String COLUMN_VIDEOID = "videoid";
+    public static final String COLUMN_VIEWS   = "views";
+    public static final String COLUMN_SHARD   = "shard";
+    public static final String COLUMN_SHARDS  = "shards";
+    public static final String COLUMN_UNIT    = "unit";
+    public static final String COLUMN_BUCKET  = "bucket";
+
+    /** Lifetime counter is stored in sharded table with this unit and bucket. */
+    public static final String UNIT_LIFETIME   = "LIFETIME";
+    public static final Date   LIFETIME_BUCKET = new Date(0);
+
+    /** Precompile statements to speed up queries. */
+    private PreparedStatement findViews;
+    private PreparedStatement findShards;
+    private PreparedStatement findShardedViews;
+
+    /**
+     * Default constructor.
+     */
+    public PlaybackCounterDseDao() {
+        super();
+    }
+
+    /**
+     * Allow explicit intialization for test purpose.
+     */
+    public PlaybackCounterDseDao(DseSession dseSession) {
+        super(dseSession);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void initialize() {
+        findViews = dseSession.prepare(QueryBuilder
+                .select(COLUMN_VIEWS)
+                .from(KILLRVIDEO_KEYSPACE, TABLENAME_PLAYBACK_STATS)
+                .where(QueryBuilder.eq(COLUMN_VIDEOID, QueryBuilder.bindMarker())));
+        findViews.setConsistencyLevel(ConsistencyLevel.LOCAL_ONE);
+        findShards = dseSession.prepare(QueryBuilder
+                .select(COLUMN_SHARDS)
+                .from(KILLRVIDEO_KEYSPACE, TABLENAME_PLAYBACK_SHARDS)
+                .where(QueryBuilder.eq(COLUMN_VIDEOID, QueryBuilder.bindMarker())));
+        findShards.setConsistencyLevel(ConsistencyLevel.LOCAL_ONE);
+        findShardedViews = dseSession.prepare(QueryBuilder
+                .select(COLUMN_VIEWS)
+                .from(KILLRVIDEO_KEYSPACE, TABLENAME_PLAYBACK_STATS_SHARDED)
+                .where(QueryBuilder.eq(COLUMN_VIDEOID, QueryBuilder.bindMarker()))
+                .and(QueryBuilder.in(COLUMN_SHARD, QueryBuilder.bindMarker(COLUMN_SHARDS)))
+                .and(QueryBuilder.eq(COLUMN_UNIT, UNIT_LIFETIME))
+                .and(QueryBuilder.eq(COLUMN_BUCKET, LIFETIME_BUCKET)));
+        findShardedViews.setConsistencyLevel(ConsistencyLevel.LOCAL_ONE);
+    }
+
+    /**
+     * Shards of a video stored in the sharded table (shard 0 excluded), empty for videos never hot.
+     *
+     * @param videoId
+     *      current videoid
+     * @return
+     *      sorted shards
+     */
+    public CompletableFuture<List<Integer>> findExtraShardsAsync(UUID videoId) {
+        Assert.notNull(videoId, "videoid is required to read shards");
+        BoundStatement bound = findShards.bind().setUUID(COLUMN_VIDEOID, videoId);
+        return FutureUtils.asCompletableFuture(dseSession.executeAsync(bound)).thenApply(rs -> {
+            Row row = rs.one();
+            if (row == null) {
+                return Collections.<Integer>emptyList();
+            }
+            return row.getSet(COLUMN_SHARDS, Integer.class).stream()
+                      .filter(shard -> shard > 0)
+                      .sorted()
+                      .collect(Collectors.toList());
+        });
+    }
+
+    /**
+     * Lifetime playbacks of a video, shard 0 plus the registered shards of a hot video. Shard 0 and the registered
+     * shards are read in parallel, the shards are read only when some are registered: 2 or 3 reads per video.
+     *
+     * @param videoId
+     *      current videoid
+     * @return
+     *      number of playbacks, 0 if never played
+     */
+    public CompletableFuture<Long> findLifetimeViewsAsync(UUID videoId) {
+        Assert.notNull(videoId, "videoid is required to read playbacks");
+        final CompletableFuture<Long> futureBase = FutureUtils
+                .asCompletableFuture(dseSession.executeAsync(findViews.bind().setUUID(COLUMN_VIDEOID, videoId)))
+                .thenApply(rs -> {
+                    Row row = rs.one();
+                    return (row == null || row.isNull(COLUMN_VIEWS)) ? 0L : row.getLong(COLUMN_VIEWS);
+                });
+        return findExtraShardsAsync(videoId).thenCompose(shards -> {
+            if (shards.isEmpty()) {
+                return futureBase;
+            }
+            BoundStatement bound = findShardedViews.bind()
+                    .setUUID(COLUMN_VIDEOID, videoId)
+                    .setList(COLUMN_SHARDS, shards);
+            return FutureUtils.asCompletableFuture(dseSession.executeAsync(bound)).thenCombine(futureBase, (rs, views) -> {
+                long total = views;
+                for (Row row : rs) {
+                    total += row.getLong(COLUMN_VIEWS);
+                }
+                return total;
+            });
+        });
+    }
+
+}
@@ -1,5 +1,6 @@
 package com.killrvideo.messaging.conf;
 
+import static org.apache.kafka.clients.consumer.ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG;
 import static org.apache.kafka.clients.consumer.ConsumerConfig.GROUP_ID_CONFIG;
 import static org.apache.kafka.clients.consumer.ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG;
 import static org.apache.kafka.clients.consumer.ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG;
@@ -24,6 +25,7 @@ import org.springframework.context.annotation.Profile;
 
 import com.killrvideo.conf.KillrVideoConfiguration;
 import com.killrvideo.discovery.ServiceDiscoveryDao;
+import com.killrvideo.messaging.dao.KafkaBroadcastConsumer;
 
 /**
  * Use Kafka to exchange messages between services. 
@@ -105,6 +107,51 @@ public class KafkaConfiguration {
         return new KafkaConsumer<String,byte[]>(props);
     }
     
+    /**
+     * Snapshots exchanged between nodes must reach every node: no consumer group, see {@link KafkaBroadcastConsumer}.
+     */
+    @Bean("kafka.consumer.trendingSnapshot")
+    public KafkaConsumer<String, byte[]> trendingSnapshotConsumer() {
+        return broadcastConsumer();
+    }
+    
+    /**
+     * Every node caches user profiles and must see every user creation: no consumer group, see {@link KafkaBroadcastConsumer}.
+     */
+    @Bean("kafka.consumer.userProfileInvalidation")
+    public KafkaConsumer<String, byte[]> userProfileInvalidationConsumer() {
+        return broadcastConsumer();
+    }
+    
+    /**
+     * Every node holds its own query suggestions and local search index, and must see every new video: no consumer group, see {@link KafkaBroadcastConsumer}.
+     */
+    @Bean("kafka.consumer.searchIndex")
+    public KafkaConsumer<String, byte[]> searchIndexConsumer() {
+        return broadcastConsumer();
+    }
+    
+    /**
+     * Every node holds all ratings in memory with profile 'suggested_local' and must see every rating: no consumer group, see {@link KafkaBroadcastConsumer}.
+     */
+    @Bean("kafka.consumer.ratingIndex")
+    public KafkaConsumer<String, byte[]> ratingIndexConsumer() {
+        return broadcastConsumer();
+    }
+    
+    /**
+     * Consumer without group (partitions are assigned, offsets never committed): nothing is left on the brokers
+     * when a node stops, whatever the number of restarts.
+     */
+    private KafkaConsumer<String, byte[]> broadcastConsumer() {
+        Properties props = new Properties();
+        props.put(BOOTSTRAP_SERVERS_CONFIG,        getKafkaServerConnectionUrl());
+        props.put(ENABLE_AUTO_COMMIT_CONFIG,       "false");
+        props.put(KEY_DESERIALIZER_CLASS_CONFIG,   StringDeserializer.class.getName());
+        props.put(VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        return new KafkaConsumer<String,byte[]>(props);
+    }
+    
     @Bean("kafka.consumer.error")
     public KafkaConsumer<String, byte[]> errorConsumer() {
         Properties props = new Properties();
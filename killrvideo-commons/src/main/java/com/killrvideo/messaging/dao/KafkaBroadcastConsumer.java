@@ -0,0 +1,204 @@
+package com.killrvideo.messaging.dao;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.Assert;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Parser;
+import com.killrvideo.messaging.conf.KillrVideoThreadFactory;
+
+/**
+ * Deliver every event of a topic to this node, for state held by each node (caches, in-process indexes, snapshots).
+ *
+ * The consumer has no consumer group (see {@link com.killrvideo.messaging.conf.KafkaConfiguration}): all partitions
+ * of the topic are assigned and read from their end, so that no group (nor committed offset) is left behind by a node
+ * that stops. Events published while the node is down are not received, nodes load their state at startup. Partitions
+ * added to the topic later are not read until restart.
+ *
+ * A record that cannot be parsed or handled is logged and skipped, the polling thread never stops before {@link #stop()}.
+ *
+ * @param <T>
+ *      protobuf event
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class KafkaBroadcastConsumer<T> {
+
+    /** Loger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(KafkaBroadcastConsumer.class);
+
+    /** Wait before looking for partitions again, or polling again after an error. */
+    private static final long RETRY_DELAY_MILLIS = 1000;
+
+    /** Consumer without group, only used by the polling thread (wakeup excepted). */
+    private final KafkaConsumer<String, byte[]> consumer;
+
+    /** Topic to read. */
+    private final String topic;
+
+    /** Protobuf parser of events. */
+    private final Parser<T> parser;
+
+    /** Called for each event, on the polling thread. */
+    private final Consumer<T> handler;
+
+    /** Polling thread, events keep coming for the whole life of the node. */
+    private ExecutorService pollingThread;
+
+    /** Stop flag. */
+    private volatile boolean running = true;
+
+    /** Metrics. */
+    private final LongAdder receivedRecords = new LongAdder();
+    private final LongAdder failedRecords   = new LongAdder();
+
+    /**
+     * Constructor.
+     *
+     * @param consumer
+     *      consumer without group
+     * @param topic
+     *      topic to read
+     * @param parser
+     *      protobuf parser of events, e.g. 'UserCreated.parser()'
+     * @param handler
+     *      called for each event
+     */
+    public KafkaBroadcastConsumer(KafkaConsumer<String, byte[]> consumer, String topic, Parser<T> parser, Consumer<T> handler) {
+        Assert.notNull(consumer, "consumer is required");
+        Assert.hasLength(topic, "topic is required");
+        Assert.notNull(parser, "parser is required");
+        Assert.notNull(handler, "handler is required");
+        this.consumer = consumer;
+        this.topic    = topic;
+        this.parser   = parser;
+        this.handler  = handler;
+    }
+
+    /**
+     * Start polling thread.
+     */
+    public void start() {
+        LOGGER.info("Start consuming events from topic '{}' ..", topic);
+        pollingThread = Executors.newSingleThreadExecutor(new KillrVideoThreadFactory());
+        pollingThread.execute(this::pollUntilStopped);
+    }
+
+    /**
+     * Stop polling thread, the consumer is closed by the thread.
+     */
+    public void stop() {
+        running = false;
+        consumer.wakeup();
+        if (pollingThread != null) {
+            pollingThread.shutdown();
+        }
+    }
+
+    /**
+     * Assign all partitions then poll, errors are logged and never end the loop.
+     */
+    private void pollUntilStopped() {
+        try {
+            while (running && !assignAllPartitions()) {
+                TimeUnit.MILLISECONDS.sleep(RETRY_DELAY_MILLIS);
+            }
+            while (running) {
+                try {
+                    for (ConsumerRecord<String, byte[]> record : consumer.poll(Duration.ofSeconds(1L))) {
+                        handleRecord(record);
+                    }
+                } catch (WakeupException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    LOGGER.error("Cannot poll topic '{}', retrying", topic, e);
+                    TimeUnit.MILLISECONDS.sleep(RETRY_DELAY_MILLIS);
+                }
+            }
+        } catch (WakeupException | InterruptedException e) {
+            // Shutting down
+        } finally {
+            consumer.close();
+        }
+    }
+
+    /**
+     * Read every partition of the topic from its end.
+     *
+     * @return
+     *      false if the topic has no partition yet
+     */
+    private boolean assignAllPartitions() {
+        try {
+            List<PartitionInfo> infos = consumer.partitionsFor(topic);
+            if (infos == null || infos.isEmpty()) {
+                return false;
+            }
+            List<TopicPartition> partitions = infos.stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .collect(Collectors.toList());
+            consumer.assign(partitions);
+            consumer.seekToEnd(partitions);
+            LOGGER.info("Consuming {} partitions of topic '{}'", partitions.size(), topic);
+            return true;
+        } catch (WakeupException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Cannot read partitions of topic '{}', retrying", topic, e);
+            return false;
+        }
+    }
+
+    /**
+     * Parse and handle one record, failures are logged and the record skipped.
+     */
+    private void handleRecord(ConsumerRecord<String, byte[]> record) {
+        receivedRecords.increment();
+        try {
+            handler.accept(parser.parseFrom(record.value()));
+        } catch (InvalidProtocolBufferException e) {
+            failedRecords.increment();
+            LOGGER.error("Cannot parse record {}-{}@{}, skipping it", topic, record.partition(), record.offset(), e);
+        } catch (RuntimeException e) {
+            failedRecords.increment();
+            LOGGER.error("Cannot handle record {}-{}@{}, skipping it", topic, record.partition(), record.offset(), e);
+        }
+    }
+
+    /**
+     * Getter accessor for attribute 'topic'.
+     */
+    public String getTopic() {
+        return topic;
+    }
+
+    /**
+     * Records received, failed ones included.
+     */
+    public long getReceivedRecords() {
+        return receivedRecords.sum();
+    }
+
+    /**
+     * Records skipped because they cannot be parsed or handled.
+     */
+    public long getFailedRecords() {
+        return failedRecords.sum();
+    }
+
+}
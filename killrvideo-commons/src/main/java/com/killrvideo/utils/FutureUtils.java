@@ -1,6 +1,11 @@
 package com.killrvideo.utils;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
@@ -35,5 +40,87 @@ public class FutureUtils {
         });
         return completable;
     }
+    
+    /**
+     * Apply an asynchronous operation on each item of a list with at most 'maxConcurrency' operations
+     * running at the same time. Next operation is started when a previous one completes, no thread is blocked.
+     *
+     * @param items
+     *      input items
+     * @param maxConcurrency
+     *      maximum number of pending operations
+     * @param operation
+     *      asynchronous operation to apply
+     * @return
+     *      future for the list of results, same order as input
+     */
+    public static final <T, R> CompletableFuture<List<R>> mapWithBoundedConcurrency(
+            final List<T> items, int maxConcurrency, final Function<T, CompletableFuture<R>> operation) {
+        if (items.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        final List<CompletableFuture<R>> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            results.add(new CompletableFuture<R>());
+        }
+        final AtomicInteger nextIndex = new AtomicInteger(0);
+        for (int i = 0; i < Math.min(Math.max(1, maxConcurrency), items.size()); i++) {
+            startNext(items, results, nextIndex, operation);
+        }
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture[results.size()]))
+                .thenApply(v -> {
+                    List<R> list = new ArrayList<>(results.size());
+                    results.forEach(r -> list.add(r.join()));
+                    return list;
+                });
+    }
+    
+    /**
+     * Start operations on next items until one is pending, and chain the following one when it is done. Operations
+     * completed synchronously (cache hits, failed binds) are handled in the loop and do not grow the stack.
+     */
+    private static <T, R> void startNext(List<T> items, List<CompletableFuture<R>> results, 
+            AtomicInteger nextIndex, Function<T, CompletableFuture<R>> operation) {
+        while (true) {
+            final int idx = nextIndex.getAndIncrement();
+            if (idx >= items.size()) {
+                return;
+            }
+            CompletableFuture<R> current;
+            try {
+                current = operation.apply(items.get(idx));
+            } catch (RuntimeException e) {
+                current = new CompletableFuture<>();
+                current.completeExceptionally(e);
+            }
+            if (current.isDone()) {
+                completeResult(results.get(idx), current);
+                continue;
+            }
+            current.whenComplete((result, error) -> {
+                completeResult(results.get(idx), result, error);
+                startNext(items, results, nextIndex, operation);
+            });
+            return;
+        }
+    }
+    
+    /**
+     * Copy outcome of a completed operation.
+     */
+    private static <R> void completeResult(CompletableFuture<R> target, CompletableFuture<R> done) {
+        done.whenComplete((result, error) -> completeResult(target, result, error));
+    }
+    
+    /**
+     * Copy outcome of an operation.
+     */
+    private static <R> void completeResult(CompletableFuture<R> target, R result, Throwable error) {
+        if (error != null) {
+            target.completeExceptionally(error);
+        } else {
+            target.complete(result);
+        }
+    }
 
 }
@@ -0,0 +1,198 @@
+package com.killrvideo.utils;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Cardinality estimation with HyperLogLog (Flajolet et al).
+ *
+ * Memory is fixed at 2^precision registers of one byte (4 KB with default precision 12, about 1.6% standard
+ * error) whatever the number of distinct values. Sketches with the same precision can be merged, merge is
+ * idempotent so a sketch can be merged several times into another without changing the estimate.
+ *
+ * Serialized form is one byte holding the precision followed by the registers.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class HyperLogLog {
+
+    /** Default precision. */
+    public static final int DEFAULT_PRECISION = 12;
+
+    /** Number of bits used to pick the register. */
+    private final int precision;
+
+    /** Registers, holding the max rank seen. */
+    private final byte[] registers;
+
+    /**
+     * Default constructor.
+     */
+    public HyperLogLog() {
+        this(DEFAULT_PRECISION);
+    }
+
+    /**
+     * Constructor with precision.
+     *
+     * @param precision
+     *      between 4 and 16
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("Precision must be between 4 and 16");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Rebuild a sketch from its serialized form.
+     *
+     * @param buffer
+     *      serialized sketch
+     * @return
+     *      sketch
+     */
+    public static HyperLogLog fromBytes(ByteBuffer buffer) {
+        ByteBuffer source = buffer.duplicate();
+        if (!source.hasRemaining()) {
+            throw new IllegalArgumentException("Invalid serialized HyperLogLog, precision is missing");
+        }
+        HyperLogLog hll = new HyperLogLog(source.get());
+        if (source.remaining() != hll.registers.length) {
+            throw new IllegalArgumentException("Invalid serialized HyperLogLog, expecting "
+                    + hll.registers.length + " registers but was " + source.remaining());
+        }
+        source.get(hll.registers);
+        return hll;
+    }
+
+    /**
+     * Serialize the sketch.
+     *
+     * @return
+     *      buffer ready to be read
+     */
+    public synchronized ByteBuffer toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + registers.length);
+        buffer.put((byte) precision);
+        buffer.put(registers);
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Account a value.
+     *
+     * @param uuid
+     *      current value
+     * @return
+     *      if a register has been updated
+     */
+    public boolean offer(UUID uuid) {
+        return offerHash(mix64(uuid.getMostSignificantBits() ^ mix64(uuid.getLeastSignificantBits())));
+    }
+
+    /**
+     * Account a value already hashed on 64 bits.
+     *
+     * @param hash
+     *      well distributed hash
+     * @return
+     *      if a register has been updated
+     */
+    public synchronized boolean offerHash(long hash) {
+        int  index = (int) (hash >>> (64 - precision));
+        long rest  = (hash << precision) | (1L << (precision - 1));
+        byte rank  = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Merge another sketch into this one.
+     *
+     * @param other
+     *      sketch with same precision
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge HyperLogLog with different precisions");
+        }
+        byte[] otherRegisters;
+        synchronized (other) {
+            otherRegisters = other.registers.clone();
+        }
+        synchronized (this) {
+            for (int i = 0; i < registers.length; i++) {
+                if (otherRegisters[i] > registers[i]) {
+                    registers[i] = otherRegisters[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Estimated number of distinct values.
+     *
+     * @return
+     *      cardinality
+     */
+    public synchronized long cardinality() {
+        int    m     = registers.length;
+        double sum   = 0;
+        int    zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // Small range correction, linear counting
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Getter accessor for attribute 'precision'.
+     *
+     * @return
+     *       current value of 'precision'
+     */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /**
+     * Bias correction constant.
+     */
+    private static double alpha(int m) {
+        switch (m) {
+            case 16: return 0.673;
+            case 32: return 0.697;
+            case 64: return 0.709;
+            default: return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    /**
+     * Finalizer of MurmurHash3, spreads bits of the input.
+     */
+    private static long mix64(long value) {
+        long h = value;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+}
@@ -0,0 +1,192 @@
+package com.killrvideo.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Issue and verify signed, expiring session tokens without any database access.
+ *
+ * Token is 'payload.signature', both base64url encoded: payload holds the userid and the expiration time
+ * (epoch millis), signature is HMAC-SHA256 of the payload with a secret key shared by all nodes.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class SessionTokenSigner {
+
+    /** Algorithm. */
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    /** userid (16 bytes) and expiration (8 bytes). */
+    private static final int PAYLOAD_LENGTH = 24;
+
+    /** Encoders. */
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    /** Secret key. */
+    private final SecretKeySpec signingKey;
+
+    /** Validity of issued tokens. */
+    private final Duration ttl;
+
+    /** Mac is not thread-safe, one instance per thread. */
+    private final ThreadLocal<Mac> macs;
+
+    /**
+     * Constructor.
+     *
+     * @param signingKey
+     *      secret key, same on all nodes
+     * @param ttl
+     *      validity of issued tokens
+     */
+    public SessionTokenSigner(String signingKey, Duration ttl) {
+        if (signingKey == null || signingKey.length() < 16) {
+            throw new IllegalArgumentException("Session signing key must have at least 16 characters");
+        }
+        this.signingKey = new SecretKeySpec(signingKey.getBytes(StandardCharsets.UTF_8), HMAC_ALGORITHM);
+        this.ttl        = ttl;
+        this.macs       = ThreadLocal.withInitial(this::createMac);
+    }
+
+    /**
+     * Issue a token for a user.
+     *
+     * @param userid
+     *      authenticated user
+     * @param now
+     *      issue time
+     * @return
+     *      signed token
+     */
+    public String issue(UUID userid, Instant now) {
+        ByteBuffer payload = ByteBuffer.allocate(PAYLOAD_LENGTH);
+        payload.putLong(userid.getMostSignificantBits());
+        payload.putLong(userid.getLeastSignificantBits());
+        payload.putLong(now.plus(ttl).toEpochMilli());
+        byte[] payloadBytes = payload.array();
+        return ENCODER.encodeToString(payloadBytes) + "." + ENCODER.encodeToString(sign(payloadBytes));
+    }
+
+    /**
+     * Expiration time of a token issued now.
+     *
+     * @param now
+     *      issue time
+     * @return
+     *      expiration
+     */
+    public Instant expirationOf(Instant now) {
+        return now.plus(ttl);
+    }
+
+    /**
+     * Verify signature and expiration of a token.
+     *
+     * @param token
+     *      token issued by {@link #issue(UUID, Instant)}
+     * @param now
+     *      current time
+     * @return
+     *      session if the token is valid, empty if forged, malformed or expired
+     */
+    public Optional<Session> verify(String token, Instant now) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        int separator = token.indexOf('.');
+        if (separator <= 0) {
+            return Optional.empty();
+        }
+        byte[] payloadBytes;
+        byte[] signature;
+        try {
+            payloadBytes = DECODER.decode(token.substring(0, separator));
+            signature    = DECODER.decode(token.substring(separator + 1));
+        } catch (IllegalArgumentException invalidBase64) {
+            return Optional.empty();
+        }
+        // Constant time comparison, do not leak how many bytes matched
+        if (payloadBytes.length != PAYLOAD_LENGTH || !MessageDigest.isEqual(sign(payloadBytes), signature)) {
+            return Optional.empty();
+        }
+        ByteBuffer payload = ByteBuffer.wrap(payloadBytes);
+        UUID    userid     = new UUID(payload.getLong(), payload.getLong());
+        Instant expiresAt  = Instant.ofEpochMilli(payload.getLong());
+        if (!now.isBefore(expiresAt)) {
+            return Optional.empty();
+        }
+        return Optional.of(new Session(userid, expiresAt));
+    }
+
+    /**
+     * Compute signature.
+     */
+    private byte[] sign(byte[] payload) {
+        return macs.get().doFinal(payload);
+    }
+
+    /**
+     * Initialize Mac for current thread.
+     */
+    private Mac createMac() {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(signingKey);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialize " + HMAC_ALGORITHM, e);
+        }
+    }
+
+    /**
+     * Content of a valid token.
+     */
+    public static final class Session {
+
+        /** Authenticated user. */
+        private final UUID userid;
+
+        /** Expiration of the token. */
+        private final Instant expiresAt;
+
+        /**
+         * Constructor with parameters.
+         */
+        public Session(UUID userid, Instant expiresAt) {
+            this.userid    = userid;
+            this.expiresAt = expiresAt;
+        }
+
+        /**
+         * Getter for attribute 'userid'.
+         *
+         * @return
+         *       current value of 'userid'
+         */
+        public UUID getUserid() {
+            return userid;
+        }
+
+        /**
+         * Getter for attribute 'expiresAt'.
+         *
+         * @return
+         *       current value of 'expiresAt'
+         */
+        public Instant getExpiresAt() {
+            return expiresAt;
+        }
+    }
+
+}
@@ -0,0 +1,211 @@
+package com.killrvideo.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Heavy hitters (top-K) estimation with the Space-Saving algorithm (Metwally et al).
+ *
+ * At most 'capacity' counters are kept whatever the number of distinct keys offered. When a new key arrives
+ * and all counters are used, the smallest counter is reassigned to the new key: estimated counts are upper
+ * bounds, overestimated by at most the count of the evicted key (tracked as 'error').
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class SpaceSavingSketch<K> {
+
+    /** Maximum number of counters. */
+    private final int capacity;
+
+    /** Counters by key. */
+    private final Map<K, Counter<K>> counters;
+
+    /** Counters ordered by count, smallest first, to find eviction candidate. */
+    private final TreeSet<Counter<K>> ordered = new TreeSet<>(
+            Comparator.<Counter<K>>comparingLong(c -> c.count).thenComparingLong(c -> c.sequence));
+
+    /** Tie-breaker for counters with same count. */
+    private long sequence = 0;
+
+    /** Total of all increments offered. */
+    private long total = 0;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity
+     *      maximum number of counters kept in memory
+     */
+    public SpaceSavingSketch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be strictly positive");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Account one occurrence of a key.
+     *
+     * @param key
+     *      current key
+     */
+    public void offer(K key) {
+        offer(key, 1);
+    }
+
+    /**
+     * Account several occurrences of a key.
+     *
+     * @param key
+     *      current key
+     * @param increment
+     *      number of occurrences
+     */
+    public synchronized void offer(K key, long increment) {
+        if (increment <= 0) {
+            return;
+        }
+        total += increment;
+        Counter<K> counter = counters.get(key);
+        if (counter != null) {
+            ordered.remove(counter);
+            counter.count += increment;
+        } else if (counters.size() < capacity) {
+            counter = new Counter<>(key, increment, 0);
+            counters.put(key, counter);
+        } else {
+            // Evict smallest counter and reuse it for the new key
+            counter = ordered.pollFirst();
+            counters.remove(counter.key);
+            counter.key    = key;
+            counter.error  = counter.count;
+            counter.count += increment;
+            counters.put(key, counter);
+        }
+        counter.sequence = ++sequence;
+        ordered.add(counter);
+    }
+
+    /**
+     * Most frequent keys, highest estimation first.
+     *
+     * @param k
+     *      number of keys to return
+     * @return
+     *      keys with their estimated count
+     */
+    public synchronized Map<K, Long> top(int k) {
+        Map<K, Long> result = new LinkedHashMap<>();
+        for (Counter<K> counter : ordered.descendingSet()) {
+            if (result.size() >= k) {
+                break;
+            }
+            result.put(counter.key, counter.count);
+        }
+        return result;
+    }
+
+    /**
+     * Estimated count for a key, 0 if not tracked.
+     *
+     * @param key
+     *      current key
+     * @return
+     *      estimated count
+     */
+    public synchronized long estimate(K key) {
+        Counter<K> counter = counters.get(key);
+        return counter == null ? 0 : counter.count;
+    }
+
+    /**
+     * Guaranteed count for a key (estimation minus the count inherited on eviction), 0 if not tracked.
+     *
+     * @param key
+     *      current key
+     * @return
+     *      lower bound of the real count
+     */
+    public synchronized long lowerBound(K key) {
+        Counter<K> counter = counters.get(key);
+        return counter == null ? 0 : counter.count - counter.error;
+    }
+
+    /**
+     * Sum of all increments offered to the sketch.
+     *
+     * @return
+     *      total
+     */
+    public synchronized long getTotal() {
+        return total;
+    }
+
+    /**
+     * Number of counters in use.
+     *
+     * @return
+     *      size
+     */
+    public synchronized int size() {
+        return counters.size();
+    }
+
+    /**
+     * Getter accessor for attribute 'capacity'.
+     *
+     * @return
+     *       current value of 'capacity'
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Merge estimations coming from several sketches (time slots, cluster nodes) by summing counts
+     * per key, and keep the 'k' highest.
+     *
+     * @param summaries
+     *      estimations to merge, as returned by {@link #top(int)}
+     * @param k
+     *      number of keys to return
+     * @return
+     *      merged keys with their estimated count, highest first
+     */
+    public static <K> Map<K, Long> mergeTop(Collection<Map<K, Long>> summaries, int k) {
+        Map<K, Long> merged = new HashMap<>();
+        for (Map<K, Long> summary : summaries) {
+            summary.forEach((key, count) -> merged.merge(key, count, Long::sum));
+        }
+        List<Map.Entry<K, Long>> entries = new ArrayList<>(merged.entrySet());
+        entries.sort(Map.Entry.<K, Long>comparingByValue().reversed());
+        return entries.stream().limit(k).collect(Collectors.toMap(
+                Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    /**
+     * A counter of the sketch.
+     */
+    private static final class Counter<K> {
+
+        private K    key;
+        private long count;
+        private long error;
+        private long sequence;
+
+        private Counter(K key, long count, long error) {
+            this.key   = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.killrvideo.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link FutureUtils#mapWithBoundedConcurrency}.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class FutureUtilsTest {
+
+    @Test
+    public void emptyListCompletesImmediately() {
+        CompletableFuture<List<Integer>> result = FutureUtils.mapWithBoundedConcurrency(
+                Collections.<Integer>emptyList(), 4, i -> CompletableFuture.completedFuture(i));
+        assertTrue(result.isDone());
+        assertTrue(result.join().isEmpty());
+    }
+
+    @Test
+    public void resultsKeepInputOrder() {
+        List<CompletableFuture<String>> pending = new ArrayList<>();
+        CompletableFuture<List<String>> result = FutureUtils.mapWithBoundedConcurrency(
+                Arrays.asList(1, 2, 3), 3, i -> {
+                    CompletableFuture<String> future = new CompletableFuture<>();
+                    pending.add(future);
+                    return future;
+                });
+        // Complete in reverse order
+        pending.get(2).complete("c");
+        pending.get(1).complete("b");
+        assertFalse(result.isDone());
+        pending.get(0).complete("a");
+        assertEquals(Arrays.asList("a", "b", "c"), result.join());
+    }
+
+    @Test
+    public void atMostMaxConcurrencyOperationsPending() {
+        List<CompletableFuture<Integer>> pending = new ArrayList<>();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Integer> items = IntStream.range(0, 10).boxed().collect(Collectors.toList());
+        CompletableFuture<List<Integer>> result = FutureUtils.mapWithBoundedConcurrency(items, 3, i -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            CompletableFuture<Integer> future = new CompletableFuture<>();
+            pending.add(future);
+            return future.whenComplete((r, e) -> running.decrementAndGet());
+        });
+        assertEquals(3, pending.size());
+        for (int i = 0; i < items.size(); i++) {
+            pending.get(i).complete(i * 10);
+        }
+        assertEquals(3, maxRunning.get());
+        assertEquals(items.stream().map(i -> i * 10).collect(Collectors.toList()), result.join());
+    }
+
+    @Test
+    public void synchronousOperationsDoNotOverflowStack() throws Exception {
+        List<Integer> items = IntStream.range(0, 200000).boxed().collect(Collectors.toList());
+        // A stack overflow in a callback is swallowed and the result would never complete
+        List<Integer> result = FutureUtils.mapWithBoundedConcurrency(items, 2,
+                i -> CompletableFuture.completedFuture(i + 1)).get(10, TimeUnit.SECONDS);
+        assertEquals(items.size(), result.size());
+        assertEquals(Integer.valueOf(200000), result.get(result.size() - 1));
+    }
+
+    @Test
+    public void failureIsPropagatedAndOtherItemsStillRun() {
+        IllegalStateException failure = new IllegalStateException("boom");
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<List<Integer>> result = FutureUtils.mapWithBoundedConcurrency(
+                Arrays.asList(1, 2, 3, 4), 1, i -> {
+                    calls.incrementAndGet();
+                    if (i == 2) {
+                        throw failure;
+                    }
+                    return CompletableFuture.completedFuture(i);
+                });
+        CompletionException error = assertThrows(CompletionException.class, result::join);
+        assertSame(failure, error.getCause());
+        assertEquals(4, calls.get());
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.killrvideo.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link HyperLogLog}.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class HyperLogLogTest {
+
+    /** Standard error at the default precision is 1.04 / sqrt(4096), about 1.6%, tolerate 3 of them. */
+    private static final double MAX_RELATIVE_ERROR = 0.05;
+
+    @Test
+    public void emptySketchIsZero() {
+        assertEquals(0, new HyperLogLog().cardinality());
+    }
+
+    @Test
+    public void estimateWithinErrorAtDefaultPrecision() {
+        Random random = new Random(42);
+        for (int distinct : new int[] { 100, 1000, 10000, 100000, 1000000 }) {
+            HyperLogLog hll = new HyperLogLog();
+            for (int i = 0; i < distinct; i++) {
+                hll.offer(new UUID(random.nextLong(), random.nextLong()));
+            }
+            double error = Math.abs(hll.cardinality() - distinct) / (double) distinct;
+            assertTrue(error < MAX_RELATIVE_ERROR, distinct + " distinct values estimated " + hll.cardinality());
+        }
+    }
+
+    @Test
+    public void duplicatesAreNotCounted() {
+        HyperLogLog hll = new HyperLogLog();
+        UUID viewer = UUID.randomUUID();
+        assertTrue(hll.offer(viewer));
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(hll.offer(viewer));
+        }
+        assertEquals(1, hll.cardinality());
+    }
+
+    @Test
+    public void mergeMatchesUnion() {
+        Random random = new Random(7);
+        HyperLogLog left  = new HyperLogLog();
+        HyperLogLog right = new HyperLogLog();
+        HyperLogLog union = new HyperLogLog();
+        // 20000 values on each side, 10000 of them on both sides
+        for (int i = 0; i < 30000; i++) {
+            UUID viewer = new UUID(random.nextLong(), random.nextLong());
+            if (i < 20000) {
+                left.offer(viewer);
+            }
+            if (i >= 10000) {
+                right.offer(viewer);
+            }
+            union.offer(viewer);
+        }
+        left.merge(right);
+        assertEquals(union.toBytes(), left.toBytes());
+        assertEquals(union.cardinality(), left.cardinality());
+        // Idempotent
+        left.merge(right);
+        assertEquals(union.toBytes(), left.toBytes());
+    }
+
+    @Test
+    public void mergeOfAnotherPrecisionIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(12).merge(new HyperLogLog(10)));
+    }
+
+    @Test
+    public void serializationRoundTrip() {
+        Random random = new Random(11);
+        HyperLogLog hll = new HyperLogLog(10);
+        for (int i = 0; i < 5000; i++) {
+            hll.offer(new UUID(random.nextLong(), random.nextLong()));
+        }
+        ByteBuffer bytes = hll.toBytes();
+        assertEquals(1 + 1024, bytes.remaining());
+        HyperLogLog copy = HyperLogLog.fromBytes(bytes);
+        assertEquals(10, copy.getPrecision());
+        assertEquals(hll.cardinality(), copy.cardinality());
+        assertEquals(bytes, copy.toBytes());
+        // Buffer of the caller is not consumed
+        assertEquals(1 + 1024, bytes.remaining());
+    }
+
+    @Test
+    public void invalidSerializedFormIsRejected() {
+        ByteBuffer bytes = new HyperLogLog(12).toBytes();
+        for (byte precision : new byte[] { 0, 3, 17, -1 }) {
+            ByteBuffer invalid = bytes.duplicate();
+            invalid.put(0, precision);
+            assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(invalid));
+        }
+        ByteBuffer truncated = bytes.duplicate();
+        truncated.limit(truncated.limit() - 1);
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(truncated));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(ByteBuffer.allocate(0)));
+    }
+
+    @Test
+    public void precisionOutOfRangeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(3));
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(17));
+    }
+
+}
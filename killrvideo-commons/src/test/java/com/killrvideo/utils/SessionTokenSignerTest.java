@@ -0,0 +1,117 @@
+package com.killrvideo.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.killrvideo.utils.SessionTokenSigner.Session;
+
+/**
+ * Unit tests of {@link SessionTokenSigner}.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class SessionTokenSignerTest {
+
+    private static final String   KEY = "0123456789abcdef-killrvideo";
+    private static final Duration TTL = Duration.ofHours(1);
+    private static final Instant  NOW = Instant.parse("2026-10-18T10:00:00Z");
+
+    private final SessionTokenSigner signer = new SessionTokenSigner(KEY, TTL);
+    private final UUID               userid = UUID.fromString("6741b34e-03c7-4d83-bf55-deed496d6e03");
+
+    @Test
+    public void roundTrip() {
+        String token = signer.issue(userid, NOW);
+        Optional<Session> session = signer.verify(token, NOW.plus(Duration.ofMinutes(59)));
+        assertTrue(session.isPresent());
+        assertEquals(userid, session.get().getUserid());
+        assertEquals(NOW.plus(TTL), session.get().getExpiresAt());
+        assertEquals(NOW.plus(TTL), signer.expirationOf(NOW));
+    }
+
+    @Test
+    public void tamperedSignatureIsRejected() {
+        String token = signer.issue(userid, NOW);
+        int separator = token.indexOf('.');
+        byte[] signature = Base64.getUrlDecoder().decode(token.substring(separator + 1));
+        signature[0] ^= 1;
+        String tampered = token.substring(0, separator + 1) + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        assertFalse(signer.verify(tampered, NOW).isPresent());
+    }
+
+    @Test
+    public void tamperedUseridIsRejected() {
+        UUID other = UUID.randomUUID();
+        assertFalse(signer.verify(withPayload(signer.issue(userid, NOW), other, NOW.plus(TTL)), NOW).isPresent());
+    }
+
+    @Test
+    public void tamperedExpirationIsRejected() {
+        String token = signer.issue(userid, NOW);
+        assertFalse(signer.verify(withPayload(token, userid, NOW.plus(Duration.ofDays(365))), NOW.plus(TTL)).isPresent());
+    }
+
+    @Test
+    public void expiredTokenIsRejected() {
+        String token = signer.issue(userid, NOW);
+        assertFalse(signer.verify(token, NOW.plus(TTL)).isPresent());
+        assertFalse(signer.verify(token, NOW.plus(Duration.ofDays(1))).isPresent());
+    }
+
+    @Test
+    public void truncatedTokenIsRejected() {
+        String token = signer.issue(userid, NOW);
+        int separator = token.indexOf('.');
+        assertFalse(signer.verify(token.substring(0, token.length() - 1), NOW).isPresent());
+        assertFalse(signer.verify(token.substring(0, separator + 1), NOW).isPresent());
+        assertFalse(signer.verify(token.substring(0, separator), NOW).isPresent());
+        assertFalse(signer.verify(token.substring(1), NOW).isPresent());
+    }
+
+    @Test
+    public void garbageIsRejected() {
+        assertFalse(signer.verify(null, NOW).isPresent());
+        assertFalse(signer.verify("", NOW).isPresent());
+        assertFalse(signer.verify(".", NOW).isPresent());
+        assertFalse(signer.verify("not a token", NOW).isPresent());
+        assertFalse(signer.verify("!!!.###", NOW).isPresent());
+        assertFalse(signer.verify("YWJj.ZGVm", NOW).isPresent());
+    }
+
+    @Test
+    public void shortKeyIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new SessionTokenSigner("0123456789abcde", TTL));
+        assertThrows(IllegalArgumentException.class, () -> new SessionTokenSigner(null, TTL));
+        new SessionTokenSigner("0123456789abcdef", TTL);
+    }
+
+    @Test
+    public void tokenOfAnotherKeyIsRejected() {
+        SessionTokenSigner otherSigner = new SessionTokenSigner("fedcba9876543210-killrvideo", TTL);
+        assertFalse(otherSigner.verify(signer.issue(userid, NOW), NOW).isPresent());
+        assertFalse(signer.verify(otherSigner.issue(userid, NOW), NOW).isPresent());
+    }
+
+    /**
+     * Same signature with another payload.
+     */
+    private static String withPayload(String token, UUID userid, Instant expiresAt) {
+        ByteBuffer payload = ByteBuffer.allocate(24);
+        payload.putLong(userid.getMostSignificantBits());
+        payload.putLong(userid.getLeastSignificantBits());
+        payload.putLong(expiresAt.toEpochMilli());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(payload.array()) + token.substring(token.indexOf('.'));
+    }
+
+}
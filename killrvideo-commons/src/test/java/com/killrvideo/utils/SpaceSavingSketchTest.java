@@ -0,0 +1,98 @@
+package com.killrvideo.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link SpaceSavingSketch}.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class SpaceSavingSketchTest {
+
+    @Test
+    public void exactCountsBelowCapacity() {
+        SpaceSavingSketch<String> sketch = new SpaceSavingSketch<>(3);
+        sketch.offer("a", 5);
+        sketch.offer("b");
+        sketch.offer("a");
+        assertEquals(6, sketch.estimate("a"));
+        assertEquals(6, sketch.lowerBound("a"));
+        assertEquals(1, sketch.estimate("b"));
+        assertEquals(0, sketch.estimate("c"));
+        assertEquals(7, sketch.getTotal());
+        assertEquals(2, sketch.size());
+    }
+
+    @Test
+    public void nonPositiveIncrementsAreIgnored() {
+        SpaceSavingSketch<String> sketch = new SpaceSavingSketch<>(2);
+        sketch.offer("a", 0);
+        sketch.offer("a", -3);
+        assertEquals(0, sketch.size());
+        assertEquals(0, sketch.getTotal());
+    }
+
+    @Test
+    public void evictionReusesSmallestCounterAndTracksError() {
+        SpaceSavingSketch<String> sketch = new SpaceSavingSketch<>(2);
+        sketch.offer("a", 10);
+        sketch.offer("b", 3);
+        sketch.offer("c", 1);
+        // 'b' evicted, 'c' inherits its count as error
+        assertEquals(2, sketch.size());
+        assertEquals(0, sketch.estimate("b"));
+        assertEquals(4, sketch.estimate("c"));
+        assertEquals(1, sketch.lowerBound("c"));
+        assertEquals(10, sketch.lowerBound("a"));
+    }
+
+    @Test
+    public void heavyHitterSurvivesManyDistinctKeys() {
+        SpaceSavingSketch<Integer> sketch = new SpaceSavingSketch<>(10);
+        for (int i = 0; i < 10000; i++) {
+            sketch.offer(-1);
+            sketch.offer(i);
+        }
+        assertEquals(10, sketch.size());
+        assertEquals(Integer.valueOf(-1), sketch.top(1).keySet().iterator().next());
+        assertTrue(sketch.lowerBound(-1) <= 10000);
+        assertTrue(sketch.estimate(-1) >= 10000);
+    }
+
+    @Test
+    public void topReturnsHighestFirst() {
+        SpaceSavingSketch<String> sketch = new SpaceSavingSketch<>(5);
+        sketch.offer("low", 1);
+        sketch.offer("high", 9);
+        sketch.offer("mid", 4);
+        assertIterableEquals(Arrays.asList("high", "mid"), sketch.top(2).keySet());
+    }
+
+    @Test
+    public void mergeTopSumsPerKey() {
+        Map<String, Long> first = new LinkedHashMap<>();
+        first.put("a", 5L);
+        first.put("b", 4L);
+        Map<String, Long> second = new LinkedHashMap<>();
+        second.put("b", 3L);
+        second.put("c", 6L);
+        Map<String, Long> merged = SpaceSavingSketch.mergeTop(Arrays.asList(first, second), 2);
+        assertIterableEquals(Arrays.asList("b", "c"), merged.keySet());
+        assertEquals(Long.valueOf(7), merged.get("b"));
+    }
+
+    @Test
+    public void capacityMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new SpaceSavingSketch<String>(0));
+    }
+
+}
@@ -0,0 +1,449 @@
+package com.killrvideo.service.search.dao;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import com.killrvideo.dse.dto.Video;
+
+/**
+ * In-memory inverted index of videos over 'name', 'tags' and 'description'.
+ *
+ * Matching follows the DSE Search query built by {@link SearchDseDao}: all the terms of the query must be found
+ * in the same field, the last term is a prefix ('term*'). A video scores the boost of each field matching the
+ * query (name 4, tags 2, description 1), ties are broken by most recent 'added_date' then video id. Pages are
+ * read after the sort key of the last video of previous page (keyset), not skipped with an offset.
+ *
+ * Searches share a read lock, indexing takes the write lock (videos are added far less often than searched).
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class LocalInvertedIndex {
+
+    /** Snapshot file format. */
+    private static final int SNAPSHOT_MAGIC   = 0x4B564958;
+    private static final int SNAPSHOT_VERSION = 1;
+
+    /** Anything which is not a letter or a digit separates terms. */
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /** Highest score first, then most recent, then video id. */
+    private static final Comparator<Hit> RANKING = Comparator.<Hit>comparingInt(h -> h.score).reversed()
+            .thenComparing(Comparator.<Hit>comparingLong(Hit::getAddedDate).reversed())
+            .thenComparing(h -> h.video.getVideoid());
+
+    /** Indexed fields with their boost. */
+    enum Field {
+        NAME(4), TAGS(2), DESCRIPTION(1);
+
+        private final int boost;
+
+        Field(int boost) {
+            this.boost = boost;
+        }
+    }
+
+    /** Stored videos, used to build results and to unindex a video updated. */
+    private final Map<UUID, Video> videos = new HashMap<>();
+
+    /** Term dictionary per field, sorted for prefix queries. */
+    private final Map<Field, TreeMap<String, Set<UUID>>> postings = new EnumMap<>(Field.class);
+
+    /** Searches in parallel, indexing alone. */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Default constructor.
+     */
+    public LocalInvertedIndex() {
+        for (Field field : Field.values()) {
+            postings.put(field, new TreeMap<>());
+        }
+    }
+
+    /**
+     * Add or replace a video.
+     *
+     * @param video
+     *      video with at least its id
+     */
+    public void index(Video video) {
+        lock.writeLock().lock();
+        try {
+            Video previous = videos.put(video.getVideoid(), video);
+            if (previous != null) {
+                for (Field field : Field.values()) {
+                    for (String term : terms(previous, field)) {
+                        Set<UUID> ids = postings.get(field).get(term);
+                        if (ids != null && ids.remove(previous.getVideoid()) && ids.isEmpty()) {
+                            postings.get(field).remove(term);
+                        }
+                    }
+                }
+            }
+            for (Field field : Field.values()) {
+                for (String term : terms(video, field)) {
+                    postings.get(field).computeIfAbsent(term, t -> new HashSet<>()).add(video.getVideoid());
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ranked videos matching a query, after a position (keyset): only the best 'limit' videos ranked after the
+     * cursor are kept, whatever the depth of the page.
+     *
+     * @param query
+     *      user query, terms separated by spaces
+     * @param after
+     *      sort key of the last video of previous page, null for first page
+     * @param limit
+     *      maximum number of results
+     * @return
+     *      page of results with their score
+     */
+    public List<Hit> search(String query, SearchCursor after, int limit) {
+        List<String> queryTerms = tokenize(query);
+        if (queryTerms.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            Map<UUID, Integer> scores = new HashMap<>();
+            for (Field field : Field.values()) {
+                Set<UUID> matches = matchAll(postings.get(field), queryTerms);
+                for (UUID videoid : matches) {
+                    scores.merge(videoid, field.boost, Integer::sum);
+                }
+            }
+            // Worst of the best 'limit' hits on top
+            PriorityQueue<Hit> best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+            for (Map.Entry<UUID, Integer> score : scores.entrySet()) {
+                Hit hit = new Hit(videos.get(score.getKey()), score.getValue());
+                if (after != null && compare(hit, after) <= 0) {
+                    continue;
+                }
+                if (best.size() < limit) {
+                    best.add(hit);
+                } else if (RANKING.compare(hit, best.peek()) < 0) {
+                    best.poll();
+                    best.add(hit);
+                }
+            }
+            List<Hit> results = new ArrayList<>(best);
+            results.sort(RANKING);
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Position of a hit relative to a cursor, with {@link #RANKING}.
+     */
+    private static int compare(Hit hit, SearchCursor cursor) {
+        int result = Integer.compare(cursor.getScore(), hit.score);
+        if (result == 0) {
+            result = Long.compare(cursor.getAddedDate(), hit.getAddedDate());
+        }
+        if (result == 0) {
+            result = hit.video.getVideoid().compareTo(cursor.getVideoid());
+        }
+        return result;
+    }
+
+    /**
+     * Terms of names and tags starting with a prefix.
+     *
+     * @param prefix
+     *      what the user typed so far
+     * @param limit
+     *      maximum number of suggestions
+     * @param ignoredWords
+     *      words never suggested
+     * @return
+     *      suggestions in alphabetical order
+     */
+    public TreeSet<String> suggest(String prefix, int limit, Set<String> ignoredWords) {
+        TreeSet<String> suggestions = new TreeSet<>();
+        String lowerPrefix = prefix.trim().toLowerCase();
+        if (lowerPrefix.isEmpty()) {
+            return suggestions;
+        }
+        lock.readLock().lock();
+        try {
+            for (Field field : new Field[] { Field.NAME, Field.TAGS }) {
+                int taken = 0;
+                for (String term : withPrefix(postings.get(field), lowerPrefix).keySet()) {
+                    if (taken >= limit) {
+                        break;
+                    }
+                    if (!ignoredWords.contains(term)) {
+                        suggestions.add(term);
+                        taken++;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // Names and tags are merged, keep the first terms alphabetically
+        while (suggestions.size() > limit) {
+            suggestions.pollLast();
+        }
+        return suggestions;
+    }
+
+    /**
+     * Number of indexed videos.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return videos.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write indexed videos to disk, the file is replaced atomically. Postings are rebuilt when loading.
+     *
+     * @param file
+     *      snapshot file
+     * @throws IOException
+     *      cannot write the file
+     */
+    public void writeSnapshot(Path file) throws IOException {
+        List<Video> copy;
+        lock.readLock().lock();
+        try {
+            copy = new ArrayList<>(videos.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(copy.size());
+            for (Video video : copy) {
+                writeUuid(out, video.getVideoid());
+                writeUuid(out, video.getUserid());
+                writeString(out, video.getName());
+                writeString(out, video.getDescription());
+                writeString(out, video.getPreviewImageLocation());
+                out.writeLong(video.getAddedDate() == null ? Long.MIN_VALUE : video.getAddedDate().getTime());
+                Set<String> tags = video.getTags() == null ? Collections.emptySet() : video.getTags();
+                out.writeInt(tags.size());
+                for (String tag : tags) {
+                    writeString(out, tag);
+                }
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Index the videos of a snapshot.
+     *
+     * @param file
+     *      snapshot file
+     * @return
+     *      number of videos loaded
+     * @throws IOException
+     *      cannot read the file or unknown format
+     */
+    public int loadSnapshot(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Unknown search index snapshot format in " + file);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                Video video = new Video();
+                video.setVideoid(readUuid(in));
+                video.setUserid(readUuid(in));
+                video.setName(readString(in));
+                video.setDescription(readString(in));
+                video.setPreviewImageLocation(readString(in));
+                long addedDate = in.readLong();
+                video.setAddedDate(addedDate == Long.MIN_VALUE ? null : new Date(addedDate));
+                int tagCount = in.readInt();
+                Set<String> tags = new HashSet<>();
+                for (int t = 0; t < tagCount; t++) {
+                    tags.add(readString(in));
+                }
+                video.setTags(tags);
+                index(video);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Videos having all the terms in a field, last term as a prefix.
+     */
+    private static Set<UUID> matchAll(TreeMap<String, Set<UUID>> dictionary, List<String> queryTerms) {
+        Set<UUID> matches = null;
+        for (int i = 0; i < queryTerms.size(); i++) {
+            String term = queryTerms.get(i);
+            Set<UUID> termMatches = new HashSet<>();
+            if (i == queryTerms.size() - 1) {
+                withPrefix(dictionary, term).values().forEach(termMatches::addAll);
+            } else {
+                termMatches.addAll(dictionary.getOrDefault(term, Collections.emptySet()));
+            }
+            if (matches == null) {
+                matches = termMatches;
+            } else {
+                matches.retainAll(termMatches);
+            }
+            if (matches.isEmpty()) {
+                break;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Terms starting with a prefix.
+     */
+    private static Map<String, Set<UUID>> withPrefix(TreeMap<String, Set<UUID>> dictionary, String prefix) {
+        return dictionary.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * Distinct terms of a field.
+     */
+    private static Set<String> terms(Video video, Field field) {
+        switch (field) {
+            case NAME:
+                return new LinkedHashSet<>(tokenize(video.getName()));
+            case TAGS:
+                Set<String> terms = new LinkedHashSet<>();
+                if (video.getTags() != null) {
+                    video.getTags().forEach(tag -> terms.addAll(tokenize(tag)));
+                }
+                return terms;
+            default:
+                return new LinkedHashSet<>(tokenize(video.getDescription()));
+        }
+    }
+
+    /**
+     * Lower case terms of a text.
+     */
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null) {
+            return terms;
+        }
+        for (String term : TOKEN_SEPARATOR.split(text.toLowerCase())) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Video matching a query with its score.
+     */
+    public static final class Hit {
+
+        private final Video video;
+        private final int score;
+
+        private Hit(Video video, int score) {
+            this.video = video;
+            this.score = score;
+        }
+
+        /**
+         * Getter for attribute 'video'.
+         */
+        public Video getVideo() {
+            return video;
+        }
+
+        /**
+         * Getter for attribute 'score'.
+         */
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * Added date (epoch millis), Long.MIN_VALUE if unknown so that it ranks last.
+         */
+        public long getAddedDate() {
+            return video.getAddedDate() == null ? Long.MIN_VALUE : video.getAddedDate().getTime();
+        }
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID uuid) throws IOException {
+        out.writeBoolean(uuid != null);
+        if (uuid != null) {
+            out.writeLong(uuid.getMostSignificantBits());
+            out.writeLong(uuid.getLeastSignificantBits());
+        }
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+    }
+
+    /**
+     * Length prefixed, 'writeUTF' is limited to 64KB.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
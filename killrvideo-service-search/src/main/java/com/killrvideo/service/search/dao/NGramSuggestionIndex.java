@@ -0,0 +1,327 @@
+package com.killrvideo.service.search.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Character trigram index of terms, to suggest words close to a misspelled prefix.
+ *
+ * Each term is indexed by its trigrams, padded at the start ("$$c", "$ca", "cas"...). A prefix within 'k' edits
+ * of the beginning of a term shares at least (distinct trigrams of the prefix - 4k) trigrams with it, an edit
+ * changes at most 3 trigrams (4 for a transposition). Only the terms above this threshold are scored, with an
+ * edit distance (adjacent transpositions count as one edit) between the prefix and the closest beginning of the
+ * term, abandoned above 'k'. Corrections are ranked by distance, then occurrences.
+ *
+ * Memory is bounded: once 'maxTerms' terms are indexed new terms are ignored, occurrences of known terms are
+ * still counted.
+ *
+ * Lookups share a read lock, insertions take the write lock.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class NGramSuggestionIndex {
+
+    /** Size of grams. */
+    private static final int GRAM_SIZE = 3;
+
+    /** Padding before the first char, never part of a term (terms are letters and digits). */
+    private static final String PADDING = "$$";
+
+    /** Rough JVM sizes used to report memory (bytes). */
+    private static final int TERM_OVERHEAD    = 100;
+    private static final int POSTING_OVERHEAD = 80;
+
+    /** Maximum number of indexed terms. */
+    private final int maxTerms;
+
+    /** Terms by id, and their occurrences. */
+    private final List<String> terms = new ArrayList<>();
+    private long[] counts = new long[16];
+
+    /** Ids by term. */
+    private final Map<String, Integer> termIds = new HashMap<>();
+
+    /** Ids of the terms containing a gram. */
+    private final Map<String, Postings> postings = new HashMap<>();
+
+    /** Estimated memory of terms and postings. */
+    private long estimatedBytes = 0;
+
+    /** Terms ignored because the index is full. */
+    private long rejectedTerms = 0;
+
+    /** Lookups in parallel, insertions alone. */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** Shared gram counters per term, reused by the lookups of a thread. */
+    private final ThreadLocal<Counters> counters = ThreadLocal.withInitial(Counters::new);
+
+    /**
+     * Constructor.
+     *
+     * @param maxTerms
+     *      maximum number of indexed terms
+     */
+    public NGramSuggestionIndex(int maxTerms) {
+        this.maxTerms = maxTerms;
+    }
+
+    /**
+     * Add occurrences of a term.
+     *
+     * @param term
+     *      lower case term
+     * @param occurrences
+     *      number of occurrences to add
+     */
+    public void add(String term, long occurrences) {
+        if (term == null || term.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer id = termIds.get(term);
+            if (id == null) {
+                if (terms.size() >= maxTerms) {
+                    rejectedTerms++;
+                    return;
+                }
+                id = terms.size();
+                terms.add(term);
+                termIds.put(term, id);
+                if (id == counts.length) {
+                    counts = Arrays.copyOf(counts, counts.length * 2);
+                }
+                estimatedBytes += TERM_OVERHEAD + 2L * term.length();
+                for (String gram : grams(term)) {
+                    Postings list = postings.get(gram);
+                    if (list == null) {
+                        list = new Postings();
+                        postings.put(gram, list);
+                        estimatedBytes += POSTING_OVERHEAD;
+                    }
+                    list.add(id);
+                    estimatedBytes += 4;
+                }
+            }
+            counts[id] += occurrences;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Terms beginning within 'maxEdits' edits of a prefix.
+     *
+     * @param prefix
+     *      lower case prefix, probably misspelled
+     * @param maxEdits
+     *      maximum edit distance
+     * @param limit
+     *      maximum number of corrections
+     * @return
+     *      terms, closest first then most frequent
+     */
+    public List<String> suggest(String prefix, int maxEdits, int limit) {
+        Set<String> prefixGrams = grams(prefix);
+        int threshold = Math.max(1, prefixGrams.size() - (GRAM_SIZE + 1) * maxEdits);
+        lock.readLock().lock();
+        try {
+            // Number of grams in common per term
+            Counters shared = counters.get();
+            shared.reset(terms.size());
+            for (String gram : prefixGrams) {
+                Postings list = postings.get(gram);
+                if (list != null) {
+                    for (int i = 0; i < list.size; i++) {
+                        shared.increment(list.ids[i]);
+                    }
+                }
+            }
+            List<Correction> corrections = new ArrayList<>();
+            for (int c = 0; c < shared.touchedCount; c++) {
+                int id = shared.touched[c];
+                if (shared.counts[id] >= threshold) {
+                    String term = terms.get(id);
+                    int distance = prefixDistance(prefix, term, maxEdits);
+                    if (distance <= maxEdits) {
+                        corrections.add(new Correction(term, distance, counts[id]));
+                    }
+                }
+            }
+            if (corrections.isEmpty()) {
+                return Collections.emptyList();
+            }
+            corrections.sort(Comparator.<Correction>comparingInt(c -> c.distance)
+                    .thenComparing(Comparator.<Correction>comparingLong(c -> c.count).reversed())
+                    .thenComparing(c -> c.term));
+            List<String> result = new ArrayList<>(Math.min(limit, corrections.size()));
+            for (int i = 0; i < corrections.size() && i < limit; i++) {
+                result.add(corrections.get(i).term);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of indexed terms.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Estimated memory of terms and postings, in bytes.
+     */
+    public long getEstimatedBytes() {
+        lock.readLock().lock();
+        try {
+            return estimatedBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of new terms ignored because the index was full.
+     */
+    public long getRejectedTerms() {
+        lock.readLock().lock();
+        try {
+            return rejectedTerms;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Distinct grams of a word, padded at the start.
+     */
+    static Set<String> grams(String word) {
+        String padded = PADDING + word;
+        Set<String> grams = new LinkedHashSet<>();
+        for (int i = 0; i + GRAM_SIZE <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+
+    /**
+     * Smallest edit distance between the prefix and a beginning of the term (optimal string alignment: insertion,
+     * deletion, substitution, transposition of adjacent chars), or maxEdits + 1 if above maxEdits.
+     */
+    static int prefixDistance(String prefix, String term, int maxEdits) {
+        final int m = prefix.length();
+        final int n = Math.min(term.length(), m + maxEdits);
+        int[] beforePrevious = new int[n + 1];
+        int[] previous       = new int[n + 1];
+        int[] current        = new int[n + 1];
+        for (int j = 0; j <= n; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= m; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= n; j++) {
+                int cost = prefix.charAt(i - 1) == term.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && prefix.charAt(i - 1) == term.charAt(j - 2) && prefix.charAt(i - 2) == term.charAt(j - 1)) {
+                    value = Math.min(value, beforePrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous       = current;
+            current        = recycled;
+        }
+        // Whole prefix against the closest beginning of the term
+        int best = maxEdits + 1;
+        for (int j = 0; j <= n; j++) {
+            best = Math.min(best, previous[j]);
+        }
+        return best;
+    }
+
+    /**
+     * Growable list of term ids.
+     */
+    private static final class Postings {
+
+        private int[] ids = new int[4];
+        private int size  = 0;
+
+        private void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    /**
+     * Counter per term id, only the touched ids are cleared between lookups.
+     */
+    private static final class Counters {
+
+        private int[] counts  = new int[0];
+        private int[] touched = new int[16];
+        private int touchedCount = 0;
+
+        private void reset(int termCount) {
+            for (int i = 0; i < touchedCount; i++) {
+                counts[touched[i]] = 0;
+            }
+            touchedCount = 0;
+            if (counts.length < termCount) {
+                counts = new int[Math.max(termCount, counts.length * 2)];
+            }
+        }
+
+        private void increment(int id) {
+            if (counts[id]++ == 0) {
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                }
+                touched[touchedCount++] = id;
+            }
+        }
+    }
+
+    /**
+     * Candidate with its score.
+     */
+    private static final class Correction {
+
+        private final String term;
+        private final int distance;
+        private final long count;
+
+        private Correction(String term, int distance, long count) {
+            this.term     = term;
+            this.distance = distance;
+            this.count    = count;
+        }
+    }
+
+}
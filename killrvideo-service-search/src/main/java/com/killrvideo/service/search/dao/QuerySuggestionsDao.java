@@ -0,0 +1,250 @@
+package com.killrvideo.service.search.dao;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TokenRange;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.mapping.Mapper;
+import com.google.common.reflect.TypeToken;
+import com.killrvideo.dse.dao.DseDaoSupport;
+import com.killrvideo.dse.dto.Video;
+import com.killrvideo.messaging.conf.KillrVideoThreadFactory;
+
+/**
+ * Query suggestions served from memory, no DSE call per keystroke.
+ *
+ * Words of video names and tags are kept in a {@link QuerySuggestionsTrie} with their number of occurrences,
+ * loaded at startup from tables 'tags_by_letter' and 'videos' and updated when a video is added. Suggestions
+ * are the most frequent words starting with what the user typed. When there are not enough of them (misspelled
+ * prefix), corrections close to the prefix are taken from a {@link NGramSuggestionIndex} fed with the same words.
+ * Until the first load completes {@link #isReady()} is false and callers keep using DSE Search.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Repository
+public class QuerySuggestionsDao extends DseDaoSupport {
+
+    /** Logger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(QuerySuggestionsDao.class);
+
+    /** Data model constants. */
+    public static final String TABLENAME_TAGS_BY_LETTER = "tags_by_letter";
+    public static final String COLUMN_TAG               = "tag";
+
+    @Value("#{'${killrvideo.search.ignoredWords}'.split(',')}")
+    private Set<String> ignoredWords = new HashSet<>();
+
+    @Value("${killrvideo.search.suggestions.enabled: true}")
+    private boolean enabled = true;
+
+    @Value("${killrvideo.search.suggestions.maxSuggestions: 10}")
+    private int maxSuggestions = 10;
+
+    @Value("${killrvideo.search.suggestions.scanPageSize: 1000}")
+    private int scanPageSize = 1000;
+
+    @Value("${killrvideo.search.suggestions.typoTolerance.enabled: true}")
+    private boolean typoToleranceEnabled = true;
+
+    @Value("${killrvideo.search.suggestions.typoTolerance.maxTerms: 200000}")
+    private int typoToleranceMaxTerms = 200000;
+
+    /** Shorter prefixes match too many words to be corrected. */
+    @Value("${killrvideo.search.suggestions.typoTolerance.minPrefixLength: 4}")
+    private int typoToleranceMinPrefixLength = 4;
+
+    /** Prefixes of this length or more accept 2 edits, 1 otherwise. */
+    @Value("${killrvideo.search.suggestions.typoTolerance.twoEditsPrefixLength: 8}")
+    private int typoToleranceTwoEditsPrefixLength = 8;
+
+    /** Mapper to ease queries. */
+    protected Mapper < Video > mapperVideo;
+
+    /** Precompile statements to speed up queries. */
+    private PreparedStatement scanTagsByLetter;
+    private PreparedStatement scanVideosByTokenRange;
+
+    /** Words with their occurrences. */
+    private QuerySuggestionsTrie trie;
+
+    /** Same words by trigrams, for misspelled prefixes. */
+    private NGramSuggestionIndex ngramIndex;
+
+    /** Loading thread. */
+    private ExecutorService loader;
+
+    /** False until the first load completed. */
+    private volatile boolean ready = false;
+
+    /**
+     * Default constructor.
+     */
+    public QuerySuggestionsDao() {
+        super();
+    }
+
+    /** {@inheritDoc} */
+    @PostConstruct
+    protected void initialize() {
+        mapperVideo = mappingManager.mapper(Video.class);
+        String keyspaceVideo = mapperVideo.getTableMetadata().getKeyspace().getName();
+        trie = new QuerySuggestionsTrie(maxSuggestions);
+        ngramIndex = new NGramSuggestionIndex(typoToleranceMaxTerms);
+        if (!enabled) {
+            LOGGER.info("Query suggestions from memory are disabled, using DSE Search");
+            return;
+        }
+        scanTagsByLetter = dseSession.prepare(QueryBuilder
+                .select(COLUMN_TAG).from(keyspaceVideo, TABLENAME_TAGS_BY_LETTER));
+        scanTagsByLetter.setConsistencyLevel(ConsistencyLevel.LOCAL_ONE);
+        scanVideosByTokenRange = dseSession.prepare(QueryBuilder
+                .select(Video.COLUMN_NAME, Video.COLUMN_TAGS)
+                .from(keyspaceVideo, mapperVideo.getTableMetadata().getName())
+                .where(QueryBuilder.gt(QueryBuilder.token(Video.COLUMN_VIDEOID), QueryBuilder.bindMarker()))
+                .and(QueryBuilder.lte(QueryBuilder.token(Video.COLUMN_VIDEOID), QueryBuilder.bindMarker())));
+        scanVideosByTokenRange.setConsistencyLevel(ConsistencyLevel.LOCAL_ONE);
+        loader = Executors.newSingleThreadExecutor(new KillrVideoThreadFactory());
+        loader.execute(this::load);
+    }
+
+    /**
+     * Most frequent words starting with a prefix, then closest corrections of the prefix.
+     *
+     * @param query
+     *      what the user typed so far
+     * @param limit
+     *      maximum number of suggestions (at most 'maxSuggestions')
+     * @return
+     *      words, most frequent first then corrections
+     */
+    public List<String> getQuerySuggestions(String query, int limit) {
+        String prefix = query.trim().toLowerCase();
+        List<String> suggestions = trie.suggest(prefix, limit);
+        if (!typoToleranceEnabled || suggestions.size() >= limit || prefix.length() < typoToleranceMinPrefixLength) {
+            return suggestions;
+        }
+        int maxEdits = prefix.length() >= typoToleranceTwoEditsPrefixLength ? 2 : 1;
+        Set<String> merged = new LinkedHashSet<>(suggestions);
+        for (String correction : ngramIndex.suggest(prefix, maxEdits, limit)) {
+            if (merged.size() >= limit) {
+                break;
+            }
+            merged.add(correction);
+        }
+        return new ArrayList<>(merged);
+    }
+
+    /**
+     * Account the words of a video added to the catalog.
+     *
+     * @param video
+     *      new video
+     */
+    public void onVideoAdded(Video video) {
+        if (enabled) {
+            addWords(video.getName(), video.getTags());
+        }
+    }
+
+    /**
+     * Tags known in 'tags_by_letter' (no occurrence), then words of all videos.
+     */
+    private void load() {
+        try {
+            long start = System.currentTimeMillis();
+            Statement tagsStmt = scanTagsByLetter.bind().setFetchSize(scanPageSize);
+            for (Row row : dseSession.execute(tagsStmt)) {
+                LocalInvertedIndex.tokenize(row.getString(COLUMN_TAG)).forEach(word -> addWord(word, 0));
+            }
+            long videoCount = 0;
+            for (TokenRange range : dseSession.getCluster().getMetadata().getTokenRanges()) {
+                // Range wrapping around the ring is split in two
+                for (TokenRange subRange : range.unwrap()) {
+                    Statement stmt = scanVideosByTokenRange.bind()
+                            .setToken(0, subRange.getStart())
+                            .setToken(1, subRange.getEnd())
+                            .setFetchSize(scanPageSize);
+                    for (Row row : dseSession.execute(stmt)) {
+                        addWords(row.getString(Video.COLUMN_NAME), row.getSet(Video.COLUMN_TAGS, TypeToken.of(String.class)));
+                        videoCount++;
+                    }
+                }
+            }
+            ready = true;
+            LOGGER.info("Query suggestions loaded with {} words from {} videos in {} millis",
+                    trie.size(), videoCount, System.currentTimeMillis() - start);
+            if (typoToleranceEnabled) {
+                LOGGER.info("Typo tolerance index holds {} words in about {} KB ({} words ignored above {})",
+                        ngramIndex.size(), ngramIndex.getEstimatedBytes() / 1024, ngramIndex.getRejectedTerms(), typoToleranceMaxTerms);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Cannot load query suggestions, using DSE Search", e);
+        }
+    }
+
+    private void addWords(String name, Set<String> tags) {
+        LocalInvertedIndex.tokenize(name).forEach(word -> addWord(word, 1));
+        if (tags != null) {
+            tags.forEach(tag -> LocalInvertedIndex.tokenize(tag).forEach(word -> addWord(word, 1)));
+        }
+    }
+
+    private void addWord(String word, long occurrences) {
+        if (word != null && !ignoredWords.contains(word)) {
+            trie.add(word, occurrences);
+            if (typoToleranceEnabled) {
+                ngramIndex.add(word, occurrences);
+            }
+        }
+    }
+
+    /**
+     * Stop loading thread.
+     */
+    @PreDestroy
+    public void stop() {
+        if (loader != null) {
+            loader.shutdownNow();
+        }
+    }
+
+    /**
+     * Number of words in the typo tolerance index.
+     */
+    public int getTypoToleranceSize() {
+        return ngramIndex.size();
+    }
+
+    /**
+     * Estimated memory of the typo tolerance index, in bytes.
+     */
+    public long getTypoToleranceEstimatedBytes() {
+        return ngramIndex.getEstimatedBytes();
+    }
+
+    /**
+     * Getter for attribute 'ready'.
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+}
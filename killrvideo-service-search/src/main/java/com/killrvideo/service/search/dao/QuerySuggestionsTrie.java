@@ -0,0 +1,250 @@
+package com.killrvideo.service.search.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Compressed prefix trie (radix tree) of terms with their frequency, for query suggestions.
+ *
+ * Edges are labeled with strings, a chain of single-child nodes is stored as one edge. Each node keeps the
+ * 'maxSuggestions' most frequent terms below it, updated on insertion: a lookup walks down at most
+ * length(prefix) nodes and copies a precomputed list, whatever the number of terms.
+ *
+ * Lookups share a read lock, insertions take the write lock.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class QuerySuggestionsTrie {
+
+    /** Number of suggestions kept per node. */
+    private final int maxSuggestions;
+
+    /** Root, empty label. */
+    private final Node root = new Node("");
+
+    /** Number of distinct terms. */
+    private int size = 0;
+
+    /** Lookups in parallel, insertions alone. */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Constructor.
+     *
+     * @param maxSuggestions
+     *      number of suggestions kept per prefix
+     */
+    public QuerySuggestionsTrie(int maxSuggestions) {
+        this.maxSuggestions = maxSuggestions;
+    }
+
+    /**
+     * Add occurrences of a term.
+     *
+     * @param term
+     *      lower case term
+     * @param occurrences
+     *      number of occurrences to add
+     */
+    public void add(String term, long occurrences) {
+        if (term == null || term.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            List<Node> path = new ArrayList<>();
+            Node node = root;
+            int i = 0;
+            path.add(node);
+            while (i < term.length()) {
+                int index = node.childIndex(term.charAt(i));
+                if (index < 0) {
+                    Node leaf = new Node(term.substring(i));
+                    node.addChild(-index - 1, leaf);
+                    node = leaf;
+                    path.add(node);
+                    break;
+                }
+                Node child = node.children[index];
+                int common = commonPrefixLength(child.label, term, i);
+                if (common < child.label.length()) {
+                    // Split the edge, the new node has the same completions as the child
+                    Node middle = new Node(child.label.substring(0, common));
+                    child.label = child.label.substring(common);
+                    middle.addChild(0, child);
+                    middle.top = Arrays.copyOf(child.top, child.top.length);
+                    node.children[index] = middle;
+                    child = middle;
+                }
+                node = child;
+                path.add(node);
+                i += common;
+            }
+            if (node.term == null) {
+                node.term = term;
+                size++;
+            }
+            node.count += occurrences;
+            for (Node onPath : path) {
+                onPath.offer(node, maxSuggestions);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Most frequent terms starting with a prefix.
+     *
+     * @param prefix
+     *      lower case prefix
+     * @param limit
+     *      maximum number of terms (at most 'maxSuggestions')
+     * @return
+     *      terms, most frequent first
+     */
+    public List<String> suggest(String prefix, int limit) {
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int i = 0;
+            while (i < prefix.length()) {
+                int index = node.childIndex(prefix.charAt(i));
+                if (index < 0) {
+                    return Collections.emptyList();
+                }
+                Node child = node.children[index];
+                int common = commonPrefixLength(child.label, prefix, i);
+                if (common < child.label.length() && i + common < prefix.length()) {
+                    // Prefix diverges in the middle of the edge
+                    return Collections.emptyList();
+                }
+                node = child;
+                i += common;
+            }
+            int count = Math.min(limit, node.top.length);
+            List<String> suggestions = new ArrayList<>(count);
+            for (int s = 0; s < count; s++) {
+                suggestions.add(node.top[s].term);
+            }
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of distinct terms.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of chars in common between a label and a term from an offset.
+     */
+    private static int commonPrefixLength(String label, String term, int offset) {
+        int max = Math.min(label.length(), term.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == term.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Node of the trie, children sorted by first char of their label.
+     */
+    private static final class Node {
+
+        private static final Node[] NO_NODES = new Node[0];
+
+        /** Label of the edge leading to this node. */
+        private String label;
+
+        /** Term ending at this node, null if none. */
+        private String term;
+
+        /** Occurrences of the term. */
+        private long count;
+
+        /** Children and the first char of their label, same order. */
+        private char[] firstChars = new char[0];
+        private Node[] children = NO_NODES;
+
+        /** Terminal nodes below, most frequent first. */
+        private Node[] top = NO_NODES;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        /**
+         * Binary search, negative (-(insertion point) - 1) if no child starts with this char.
+         */
+        private int childIndex(char c) {
+            return Arrays.binarySearch(firstChars, c);
+        }
+
+        private void addChild(int position, Node child) {
+            char[] newChars = new char[firstChars.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(firstChars, 0, newChars, 0, position);
+            System.arraycopy(children, 0, newChildren, 0, position);
+            newChars[position] = child.label.charAt(0);
+            newChildren[position] = child;
+            System.arraycopy(firstChars, position, newChars, position + 1, firstChars.length - position);
+            System.arraycopy(children, position, newChildren, position + 1, children.length - position);
+            firstChars = newChars;
+            children = newChildren;
+        }
+
+        /**
+         * Update most frequent terms after the count of a terminal node increased.
+         */
+        private void offer(Node terminal, int maxSuggestions) {
+            int position = -1;
+            for (int i = 0; i < top.length; i++) {
+                if (top[i] == terminal) {
+                    position = i;
+                    break;
+                }
+            }
+            if (position < 0) {
+                if (top.length < maxSuggestions) {
+                    top = Arrays.copyOf(top, top.length + 1);
+                    position = top.length - 1;
+                } else if (isBefore(terminal, top[top.length - 1])) {
+                    position = top.length - 1;
+                } else {
+                    return;
+                }
+                top[position] = terminal;
+            }
+            // Count only increases, move up
+            while (position > 0 && isBefore(top[position], top[position - 1])) {
+                Node swap = top[position - 1];
+                top[position - 1] = top[position];
+                top[position] = swap;
+                position--;
+            }
+        }
+
+        /**
+         * Most frequent first, then alphabetical.
+         */
+        private static boolean isBefore(Node a, Node b) {
+            return a.count > b.count || (a.count == b.count && a.term.compareTo(b.term) < 0);
+        }
+    }
+
+}
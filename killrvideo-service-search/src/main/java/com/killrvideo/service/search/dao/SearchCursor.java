@@ -0,0 +1,174 @@
+package com.killrvideo.service.search.dao;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque paging state of 'SearchVideos', bound to the query it was issued for.
+ *
+ * A keyset cursor holds the sort key of the last video returned (score, added date, video id): the next page is
+ * the best videos ranked strictly after it, the cost of a page does not depend on its depth. A driver cursor
+ * wraps the paging state of the DSE Search query (see {@link SearchDseDao}).
+ *
+ * Token is base64url: version, kind, hash of the normalized query, then the key or the driver paging state.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public final class SearchCursor {
+
+    /** Format. */
+    private static final byte VERSION = 1;
+    private static final byte KIND_KEYSET = 1;
+    private static final byte KIND_DRIVER = 2;
+
+    /** Encoders. */
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    /** Sort key of the last video, keyset cursor. */
+    private final int score;
+    private final long addedDate;
+    private final UUID videoid;
+
+    /** Paging state of the driver, driver cursor. */
+    private final String driverPagingState;
+
+    private SearchCursor(int score, long addedDate, UUID videoid, String driverPagingState) {
+        this.score             = score;
+        this.addedDate         = addedDate;
+        this.videoid           = videoid;
+        this.driverPagingState = driverPagingState;
+    }
+
+    /**
+     * Cursor after a video.
+     *
+     * @param score
+     *      score of the video for the query
+     * @param addedDate
+     *      added date (epoch millis), Long.MIN_VALUE if unknown
+     * @param videoid
+     *      video unique identifier
+     * @return
+     *      cursor
+     */
+    public static SearchCursor keyset(int score, long addedDate, UUID videoid) {
+        return new SearchCursor(score, addedDate, videoid, null);
+    }
+
+    /**
+     * Cursor wrapping a driver paging state.
+     *
+     * @param pagingState
+     *      paging state of the driver
+     * @return
+     *      cursor
+     */
+    public static SearchCursor driver(String pagingState) {
+        return new SearchCursor(0, 0, null, pagingState);
+    }
+
+    /**
+     * Token for the client.
+     *
+     * @param normalizedQuery
+     *      query the page was returned for
+     * @return
+     *      opaque token
+     */
+    public String encode(String normalizedQuery) {
+        ByteBuffer buffer;
+        if (isKeyset()) {
+            buffer = ByteBuffer.allocate(2 + 4 + 4 + 8 + 16);
+            buffer.put(VERSION).put(KIND_KEYSET).putInt(normalizedQuery.hashCode());
+            buffer.putInt(score).putLong(addedDate);
+            buffer.putLong(videoid.getMostSignificantBits()).putLong(videoid.getLeastSignificantBits());
+        } else {
+            byte[] state = driverPagingState.getBytes(StandardCharsets.UTF_8);
+            buffer = ByteBuffer.allocate(2 + 4 + state.length);
+            buffer.put(VERSION).put(KIND_DRIVER).putInt(normalizedQuery.hashCode()).put(state);
+        }
+        return ENCODER.encodeToString(buffer.array());
+    }
+
+    /**
+     * Read a token.
+     *
+     * @param token
+     *      token returned with the previous page
+     * @param normalizedQuery
+     *      current query
+     * @return
+     *      cursor
+     * @throws IllegalArgumentException
+     *      invalid token, or issued for another query
+     */
+    public static SearchCursor decode(String token, String normalizedQuery) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(DECODER.decode(token));
+            if (buffer.get() != VERSION) {
+                throw new IllegalArgumentException("Unknown paging state version");
+            }
+            byte kind = buffer.get();
+            if (buffer.getInt() != normalizedQuery.hashCode()) {
+                throw new IllegalArgumentException("Paging state was issued for another query");
+            }
+            if (kind == KIND_KEYSET) {
+                int score = buffer.getInt();
+                long addedDate = buffer.getLong();
+                UUID videoid = new UUID(buffer.getLong(), buffer.getLong());
+                if (buffer.hasRemaining()) {
+                    throw new IllegalArgumentException("Invalid paging state " + token);
+                }
+                return keyset(score, addedDate, videoid);
+            }
+            if (kind == KIND_DRIVER) {
+                byte[] state = new byte[buffer.remaining()];
+                buffer.get(state);
+                return driver(new String(state, StandardCharsets.UTF_8));
+            }
+            throw new IllegalArgumentException("Unknown paging state kind " + kind);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Invalid paging state " + token, e);
+        }
+    }
+
+    /**
+     * Keyset cursor or driver cursor.
+     */
+    public boolean isKeyset() {
+        return videoid != null;
+    }
+
+    /**
+     * Getter for attribute 'score'.
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Getter for attribute 'addedDate'.
+     */
+    public long getAddedDate() {
+        return addedDate;
+    }
+
+    /**
+     * Getter for attribute 'videoid'.
+     */
+    public UUID getVideoid() {
+        return videoid;
+    }
+
+    /**
+     * Getter for attribute 'driverPagingState'.
+     */
+    public String getDriverPagingState() {
+        return driverPagingState;
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.killrvideo.service.search.dao;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import com.killrvideo.dse.dto.ResultListPage;
+import com.killrvideo.dse.dto.Video;
+
+/**
+ * Search backend used by the gRPC service, DSE Search ({@link SearchDseDao}) by default or an in-process
+ * index ({@link SearchLocalDao}) with profile 'search_local'.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public interface SearchDao {
+
+    /**
+     * Search videos by name, tags and description.
+     *
+     * @param query
+     *      user query
+     * @param fetchSize
+     *      page size
+     * @param pagingState
+     *      paging state returned with previous page
+     * @return
+     *      page of videos
+     */
+    CompletableFuture < ResultListPage<Video> > searchVideosAsync(String query, int fetchSize, Optional<String> pagingState);
+
+    /**
+     * Search for words of names and tags starting with provided query string.
+     *
+     * @param query
+     *      pattern
+     * @param fetchSize
+     *      number of results to retrieve
+     * @return
+     *      words, best suggestions first
+     */
+    CompletableFuture < List< String > > getQuerySuggestionsAsync(String query, int fetchSize);
+
+}
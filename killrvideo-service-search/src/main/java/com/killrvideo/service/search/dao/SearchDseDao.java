@@ -1,18 +1,23 @@
 package com.killrvideo.service.search.dao;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import javax.annotation.PostConstruct;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
 import com.datastax.driver.core.BoundStatement;
@@ -26,6 +31,7 @@ import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.datastax.driver.dse.DseSession;
 import com.datastax.driver.mapping.Mapper;
 import com.google.common.reflect.TypeToken;
+import com.killrvideo.conf.KillrVideoConfiguration;
 import com.killrvideo.dse.dao.DseDaoSupport;
 import com.killrvideo.dse.dto.ResultListPage;
 import com.killrvideo.dse.dto.Video;
@@ -37,7 +43,8 @@ import com.killrvideo.utils.FutureUtils;
  * @author DataStax Developer Advocates team.
  */
 @Repository
-public class SearchDseDao extends DseDaoSupport {
+@Profile("!" + KillrVideoConfiguration.PROFILE_SEARCH_LOCAL)
+public class SearchDseDao extends DseDaoSupport implements SearchDao {
 
 	/** Logger for that class. */
     private static Logger LOGGER = LoggerFactory.getLogger(SearchDseDao.class);
@@ -50,6 +57,10 @@ public class SearchDseDao extends DseDaoSupport {
     
     private PreparedStatement findVideosByTags;
     
+    /** Suggestions from memory when loaded. */
+    @Autowired
+    private QuerySuggestionsDao querySuggestionsDao;
+    
     /**
      * Create a set of sentence conjunctions and other "undesirable"
      * words we will use later to exclude from search results.
@@ -59,6 +70,12 @@ public class SearchDseDao extends DseDaoSupport {
     @Value("#{'${killrvideo.search.ignoredWords}'.split(',')}")
     private Set<String> ignoredWords = new HashSet<>();
    
+    /** Ignored words as compared to suggestions, computed once. */
+    private Set<String> ignoredWordsLowerCase = new HashSet<>();
+    
+    /** Type of tags. */
+    private static final TypeToken<String> TYPE_STRING = TypeToken.of(String.class);
+   
     /**
      * Wrap search queries with "paging":"driver" to dynamically enable
      * paging to ensure we pull back all available results in the application.
@@ -67,6 +84,9 @@ public class SearchDseDao extends DseDaoSupport {
     final private String pagingDriverStart = "{\"q\":\"";
     final private String pagingDriverEnd = "\", \"paging\":\"driver\"}";
     
+    /** Separator of terms in a query. */
+    private static final Pattern MULTIPLE_SPACES = Pattern.compile("\\s+");
+    
     /**
      * Default constructor.
      */
@@ -85,6 +105,7 @@ public class SearchDseDao extends DseDaoSupport {
     @PostConstruct
     protected void initialize () {
     	mapperVideo = mappingManager.mapper(Video.class);
+    	ignoredWordsLowerCase = ignoredWords.stream().map(String::trim).map(String::toLowerCase).collect(Collectors.toSet());
     	
     	// Using Mapper and annotated bean to get constants value
         String keyspaceVideo   = mapperVideo.getTableMetadata().getKeyspace().getName();
@@ -113,11 +134,20 @@ public class SearchDseDao extends DseDaoSupport {
      * Notice the "paging":"driver" parameter.  This is to ensure we dynamically
      * enable pagination regardless of our nodes dse.yaml setting.
      * https://docs.datastax.com/en/dse/5.1/dse-dev/datastax_enterprise/search/cursorsDeepPaging.html#cursorsDeepPaging__srchCursorCQL
+     * The driver paging state carries the Solr cursor, it is returned to the client as an opaque {@link SearchCursor}.
      */
+    @Override
     public CompletableFuture < ResultListPage<Video> > searchVideosAsync(String query, int fetchSize, Optional<String> pagingState) {
-    	return FutureUtils.asCompletableFuture(dseSession.executeAsync(
-    	        createStatementToSearchVideos(query, fetchSize, pagingState)))
-    	        .thenApply(rs -> new ResultListPage<Video>(rs, mapperVideo));
+    	BoundStatement stmt;
+    	try {
+    	    stmt = createStatementToSearchVideos(query, fetchSize, pagingState);
+    	} catch (IllegalArgumentException e) {
+    	    CompletableFuture<ResultListPage<Video>> invalid = new CompletableFuture<>();
+    	    invalid.completeExceptionally(e);
+    	    return invalid;
+    	}
+    	return FutureUtils.asCompletableFuture(dseSession.executeAsync(stmt))
+    	        .thenApply(rs -> mapSearchPage(rs, query));
     }
     
     /**
@@ -134,7 +164,17 @@ public class SearchDseDao extends DseDaoSupport {
      */
     public ResultListPage<Video> searchVideos(String query, int fetchSize, Optional<String> pagingState) {
     	BoundStatement stmt = createStatementToSearchVideos(query, fetchSize, pagingState);
-    	return new ResultListPage<Video>(dseSession.execute(stmt), mapperVideo);
+    	return mapSearchPage(dseSession.execute(stmt), query);
+    }
+    
+    /**
+     * Map a page of search results, the driver paging state is wrapped in a {@link SearchCursor} bound to the query.
+     */
+    private ResultListPage<Video> mapSearchPage(ResultSet rs, String query) {
+        ResultListPage<Video> page = new ResultListPage<Video>(rs, mapperVideo);
+        String normalizedQuery = normalizeQuery(query);
+        page.setPagingState(page.getPagingState().map(state -> SearchCursor.driver(state).encode(normalizedQuery)));
+        return page;
     }
     
     /**
@@ -176,7 +216,8 @@ public class SearchDseDao extends DseDaoSupport {
     }
     
     /**
-     * Search for tags starting with provided query string (ASYNC).
+     * Search for tags starting with provided query string (ASYNC), served from memory once
+     * suggestions are loaded, with DSE Search otherwise.
      *
      * @param query
      * 		pattern
@@ -184,10 +225,14 @@ public class SearchDseDao extends DseDaoSupport {
      * 		numbner of results to retrieve
      * @return
      */
-    public CompletableFuture < TreeSet< String > > getQuerySuggestionsAsync(String query, int fetchSize) {
+    @Override
+    public CompletableFuture < List< String > > getQuerySuggestionsAsync(String query, int fetchSize) {
+        if (querySuggestionsDao.isReady()) {
+            return CompletableFuture.completedFuture(querySuggestionsDao.getQuerySuggestions(query, fetchSize));
+        }
     	BoundStatement stmt = createStatementToQuerySuggestions(query, fetchSize);
         ResultSetFuture resultSetFuture = dseSession.executeAsync(stmt);
-        return FutureUtils.asCompletableFuture(resultSetFuture).thenApplyAsync(rs -> mapTagSet(rs, query));
+        return FutureUtils.asCompletableFuture(resultSetFuture).thenApplyAsync(rs -> new ArrayList<>(mapTagSet(rs, query)));
     }
      
     /**
@@ -204,23 +249,19 @@ public class SearchDseDao extends DseDaoSupport {
      * @return
      * 		set of tags
      */
-    @SuppressWarnings("serial")
 	private TreeSet < String > mapTagSet(ResultSet rs, String requestQuery) {
-        final Pattern checkRegex = Pattern.compile("(?i)\\b" + requestQuery + "[a-z]*\\b");
+        final SuggestionExtractor extractor = new SuggestionExtractor(requestQuery, ignoredWordsLowerCase);
         TreeSet< String > suggestionSet = new TreeSet<>();
     	for (Row row : rs) {
     		/**
              * Since I simply want matches from both the name and tags fields
-             * concatenate them together, apply regex, and add any results into
+             * extract words from each of them and add any results into
              * our suggestionSet TreeSet.  The TreeSet will handle any duplicates.
              */
-            String name = row.getString(Video.COLUMN_NAME);
-            Set<String> tags = row.getSet(Video.COLUMN_TAGS, new TypeToken<String>() {});
-            Matcher regexMatcher = checkRegex.matcher(name.concat(tags.toString()));
-            while (regexMatcher.find()) {
-                suggestionSet.add(regexMatcher.group().toLowerCase());
+            extractor.extract(row.getString(Video.COLUMN_NAME), suggestionSet);
+            for (String tag : row.getSet(Video.COLUMN_TAGS, TYPE_STRING)) {
+                extractor.extract(tag, suggestionSet);
             }
-            suggestionSet.removeAll(ignoredWords);
     	}
     	 LOGGER.debug("TagSet resturned are {}", suggestionSet); 
     	return suggestionSet;
@@ -239,16 +280,12 @@ public class SearchDseDao extends DseDaoSupport {
      */
     private BoundStatement createStatementToSearchVideos(String query, int fetchSize, Optional<String> pagingState) {
         LOGGER.debug("Start searching videos by name, tag, and description");
-        // Escaping special characters for query
-    	final String replaceFind = " ";
-        final String replaceWith = " AND ";
         /**
          * Perform a query using DSE search to find videos. Query the
          * name, tags, and description columns in the videos table giving a boost to matches in the name and tags
          * columns as opposed to the description column.
          */
-        String requestQuery = query.trim()
-                                   .replaceAll(replaceFind, Matcher.quoteReplacement(replaceWith));
+        String requestQuery = normalizeQuery(query);
         
         /**
          * In this case we are using DSE Search to query across the name, tags, and
@@ -273,10 +310,29 @@ public class SearchDseDao extends DseDaoSupport {
                 .append(pagingDriverEnd);
         
         BoundStatement stmt = findVideosByTags.bind().setString("solr_query", solrQuery.toString());
-        pagingState.ifPresent( x -> stmt.setPagingState(PagingState.fromString(x)));
+        pagingState.map(token -> SearchCursor.decode(token, requestQuery))
+                   .ifPresent(cursor -> {
+                       if (cursor.isKeyset()) {
+                           throw new IllegalArgumentException("Paging state was not issued by DSE Search");
+                       }
+                       stmt.setPagingState(PagingState.fromString(cursor.getDriverPagingState()));
+                   });
         stmt.setFetchSize(fetchSize);
         LOGGER.debug("Executed query is {} with solr_query: {}", stmt.preparedStatement().getQueryString(),solrQuery);
         return stmt;
     }
   
+    /**
+     * Terms of the query joined with 'AND', as sent to DSE Search. Runs of spaces count as one separator,
+     * so that queries differing only by spaces are the same query (and the same cache key).
+     *
+     * @param query
+     *      query typed by the user
+     * @return
+     *      normalized query
+     */
+    public static String normalizeQuery(String query) {
+        return MULTIPLE_SPACES.matcher(query.trim()).replaceAll(Matcher.quoteReplacement(" AND "));
+    }
+  
 }
@@ -0,0 +1,47 @@
+package com.killrvideo.service.search.dao;
+
+import static com.killrvideo.service.search.grpc.SearchServiceGrpcMapper.mapVideoAddedtoVideo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.killrvideo.dse.dto.Video;
+
+import killrvideo.video_catalog.events.VideoCatalogEvents.YouTubeVideoAdded;
+
+/**
+ * Message processing for the in-memory search structures: query suggestions, and the local index
+ * with profile 'search_local'.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public abstract class SearchIndexMessagingDaoSupport {
+    
+    /** Loger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(SearchIndexMessagingDaoSupport.class);
+    
+    @Autowired(required = false)
+    protected SearchLocalDao searchLocalDao;
+    
+    @Autowired
+    protected QuerySuggestionsDao querySuggestionsDao;
+    
+    /**
+     * Message is consumed from specialized class but treatment is the same, indexing the video.
+     * 
+     * @param videoAdded
+     *      a video has been created
+     */
+    protected void onYoutubeVideoAddingMessage(YouTubeVideoAdded videoAdded) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("[VideoAddedEvent] Indexing video {}", videoAdded.getVideoId().getValue());
+        }
+        Video video = mapVideoAddedtoVideo(videoAdded);
+        querySuggestionsDao.onVideoAdded(video);
+        if (searchLocalDao != null) {
+            searchLocalDao.onVideoAdded(video);
+        }
+    }
+    
+}
@@ -0,0 +1,50 @@
+package com.killrvideo.service.search.dao;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import com.killrvideo.conf.KillrVideoConfiguration;
+import com.killrvideo.messaging.dao.KafkaBroadcastConsumer;
+
+import killrvideo.video_catalog.events.VideoCatalogEvents.YouTubeVideoAdded;
+
+/**
+ * Each node holds its own suggestions (and index): every node reads every partition without consumer group (see
+ * {@link KafkaBroadcastConsumer}) so that every node indexes every video.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Repository("killrvideo.search.dao.messaging")
+@Profile(KillrVideoConfiguration.PROFILE_MESSAGING_KAFKA)
+public class SearchIndexMessagingKafkaDao extends SearchIndexMessagingDaoSupport {
+    
+    @Value("${killrvideo.messaging.destinations.youTubeVideoAdded : topic-kv-videoCreation}")
+    private String topicVideoCreated;
+    
+    @Autowired
+    @Qualifier("kafka.consumer.searchIndex")
+    private KafkaConsumer<String, byte[]> consumerVideoCreatedProtobuf;
+    
+    /** Polling of video creations. */
+    private KafkaBroadcastConsumer<YouTubeVideoAdded> videoAddedConsumer;
+    
+    @PostConstruct
+    public void registerConsumerYoutubeVideoAdded() {
+        videoAddedConsumer = new KafkaBroadcastConsumer<>(consumerVideoCreatedProtobuf, 
+                topicVideoCreated, YouTubeVideoAdded.parser(), super::onYoutubeVideoAddingMessage);
+        videoAddedConsumer.start();
+    }
+    
+    @PreDestroy
+    public void stopConsumerYoutubeVideoAdded() {
+        videoAddedConsumer.stop();
+    }
+    
+}
@@ -0,0 +1,229 @@
+package com.killrvideo.service.search.dao;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.Assert;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TokenRange;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.mapping.Mapper;
+import com.killrvideo.conf.KillrVideoConfiguration;
+import com.killrvideo.dse.dao.DseDaoSupport;
+import com.killrvideo.dse.dto.ResultListPage;
+import com.killrvideo.dse.dto.Video;
+import com.killrvideo.messaging.conf.KillrVideoThreadFactory;
+
+/**
+ * Search videos in a {@link LocalInvertedIndex} instead of DSE Search, no Solr node is required.
+ *
+ * At startup the index is loaded from the last local snapshot (if any) so that searches are served immediately,
+ * then table 'videos' is scanned token range by token range to catch up. New videos are indexed when the event
+ * 'YouTubeVideoAdded' is received (see {@link SearchIndexMessagingDaoSupport}). The index is written to disk
+ * every 'snapshotIntervalMinutes' and at shutdown, 'snapshotFile' is required and must survive redeployments
+ * (not a temporary directory) or every start scans the whole table before serving complete results.
+ *
+ * Paging state is a keyset {@link SearchCursor}: sort key of the last video returned.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Repository
+@Profile(KillrVideoConfiguration.PROFILE_SEARCH_LOCAL)
+public class SearchLocalDao extends DseDaoSupport implements SearchDao {
+
+    /** Logger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(SearchLocalDao.class);
+
+    @Value("#{'${killrvideo.search.ignoredWords}'.split(',')}")
+    private Set<String> ignoredWords = new HashSet<>();
+
+    @Value("${killrvideo.search.local.snapshotFile}")
+    private String snapshotFile;
+
+    @Value("${killrvideo.search.local.snapshotIntervalMinutes: 10}")
+    private long snapshotIntervalMinutes = 10;
+
+    @Value("${killrvideo.search.local.scanPageSize: 1000}")
+    private int scanPageSize = 1000;
+
+    /** Mapper to ease queries. */
+    protected Mapper < Video > mapperVideo;
+
+    /** Precompile statements to speed up queries. */
+    private PreparedStatement scanVideosByTokenRange;
+
+    /** Index. */
+    private final LocalInvertedIndex index = new LocalInvertedIndex();
+
+    /** Suggestions ranked by frequency when loaded. */
+    @Autowired
+    private QuerySuggestionsDao querySuggestionsDao;
+
+    /** Loading and snapshots. */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Default constructor.
+     */
+    public SearchLocalDao() {
+        super();
+    }
+
+    /** {@inheritDoc} */
+    @PostConstruct
+    protected void initialize() {
+        Assert.hasText(snapshotFile, "killrvideo.search.local.snapshotFile is required (durable path)");
+        mapperVideo = mappingManager.mapper(Video.class);
+        scanVideosByTokenRange = dseSession.prepare(QueryBuilder
+                .select().all()
+                .from(mapperVideo.getTableMetadata().getKeyspace().getName(), mapperVideo.getTableMetadata().getName())
+                .where(QueryBuilder.gt(QueryBuilder.token(Video.COLUMN_VIDEOID), QueryBuilder.bindMarker()))
+                .and(QueryBuilder.lte(QueryBuilder.token(Video.COLUMN_VIDEOID), QueryBuilder.bindMarker())));
+        scanVideosByTokenRange.setConsistencyLevel(ConsistencyLevel.LOCAL_ONE);
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new KillrVideoThreadFactory());
+        scheduler.execute(this::loadIndex);
+        scheduler.scheduleWithFixedDelay(this::writeSnapshot, snapshotIntervalMinutes, snapshotIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public CompletableFuture < ResultListPage<Video> > searchVideosAsync(String query, int fetchSize, Optional<String> pagingState) {
+        long start = System.nanoTime();
+        String normalizedQuery = SearchDseDao.normalizeQuery(query);
+        SearchCursor after;
+        try {
+            after = pagingState.map(token -> SearchCursor.decode(token, normalizedQuery)).orElse(null);
+        } catch (IllegalArgumentException e) {
+            CompletableFuture<ResultListPage<Video>> invalid = new CompletableFuture<>();
+            invalid.completeExceptionally(e);
+            return invalid;
+        }
+        // One more result to know if there is a next page
+        List<LocalInvertedIndex.Hit> hits = index.search(query, after, fetchSize + 1);
+        ResultListPage<Video> page = new ResultListPage<>();
+        List<Video> videos = new ArrayList<>(Math.min(hits.size(), fetchSize));
+        for (int i = 0; i < hits.size() && i < fetchSize; i++) {
+            videos.add(hits.get(i).getVideo());
+        }
+        page.setresults(videos);
+        if (hits.size() > fetchSize) {
+            LocalInvertedIndex.Hit last = hits.get(fetchSize - 1);
+            SearchCursor next = SearchCursor.keyset(last.getScore(), last.getAddedDate(), last.getVideo().getVideoid());
+            page.setPagingState(Optional.of(next.encode(normalizedQuery)));
+        }
+        LOGGER.debug("Local search '{}' in {} micros", query, (System.nanoTime() - start) / 1000);
+        return CompletableFuture.completedFuture(page);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public CompletableFuture < List< String > > getQuerySuggestionsAsync(String query, int fetchSize) {
+        if (querySuggestionsDao.isReady()) {
+            return CompletableFuture.completedFuture(querySuggestionsDao.getQuerySuggestions(query, fetchSize));
+        }
+        return CompletableFuture.completedFuture(new ArrayList<>(index.suggest(query, fetchSize, ignoredWords)));
+    }
+
+    /**
+     * Index a video added to the catalog.
+     *
+     * @param video
+     *      new video
+     */
+    public void onVideoAdded(Video video) {
+        index.index(video);
+    }
+
+    /**
+     * Load last snapshot, then scan table 'videos'.
+     */
+    private void loadIndex() {
+        Path snapshot = Paths.get(snapshotFile);
+        if (Files.exists(snapshot)) {
+            long start = System.currentTimeMillis();
+            try {
+                int count = index.loadSnapshot(snapshot);
+                LOGGER.info("Search index loaded from snapshot '{}' with {} videos in {} millis", snapshot, count, System.currentTimeMillis() - start);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Cannot load search index snapshot '{}', rebuilding from table 'videos'", snapshot, e);
+            }
+        }
+        try {
+            long start = System.currentTimeMillis();
+            long count = 0;
+            for (TokenRange range : dseSession.getCluster().getMetadata().getTokenRanges()) {
+                // Range wrapping around the ring is split in two
+                for (TokenRange subRange : range.unwrap()) {
+                    Statement stmt = scanVideosByTokenRange.bind()
+                            .setToken(0, subRange.getStart())
+                            .setToken(1, subRange.getEnd())
+                            .setFetchSize(scanPageSize);
+                    for (Video video : mapperVideo.map(dseSession.execute(stmt))) {
+                        index.index(video);
+                        count++;
+                    }
+                }
+            }
+            LOGGER.info("Search index built from table 'videos' with {} videos in {} millis", count, System.currentTimeMillis() - start);
+            writeSnapshot();
+        } catch (RuntimeException e) {
+            LOGGER.error("Cannot scan table 'videos', search index only contains snapshot and new videos", e);
+        }
+    }
+
+    /**
+     * Write index to disk, errors are logged (exceptions would cancel the schedule).
+     */
+    private void writeSnapshot() {
+        try {
+            long start = System.currentTimeMillis();
+            index.writeSnapshot(Paths.get(snapshotFile));
+            LOGGER.debug("Search index snapshot written in {} millis", System.currentTimeMillis() - start);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Cannot write search index snapshot '{}'", snapshotFile, e);
+        }
+    }
+
+    /**
+     * Write a last snapshot for next start.
+     */
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            writeSnapshot();
+        }
+    }
+
+    /**
+     * Number of indexed videos.
+     */
+    public int getIndexSize() {
+        return index.size();
+    }
+
+}
@@ -0,0 +1,287 @@
+package com.killrvideo.service.search.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.killrvideo.messaging.conf.KillrVideoThreadFactory;
+import com.killrvideo.utils.SpaceSavingSketch;
+
+/**
+ * Most frequent searches and suggestion prefixes, with fixed memory.
+ *
+ * First pages of 'SearchVideos' (query and page size) and prefixes of 'GetQuerySuggestions' are counted in
+ * {@link SpaceSavingSketch}es of 'capacity' counters, searches served by {@link SearchResultCache} in a third one
+ * to estimate the hit ratio of each top query. Counts are estimations (upper bounds), they start from zero at
+ * each start.
+ *
+ * The top searches are written to table 'search_top_queries' every 'snapshotIntervalMinutes' and at shutdown, so
+ * that the next start (after a redeployment too, or on another node) can pre-warm the cache with them before any
+ * user search (see {@link SearchResultCache}).
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Component
+public class SearchQueryAnalytics {
+
+    /** Loger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(SearchQueryAnalytics.class);
+
+    @Value("${killrvideo.search.analytics.enabled: true}")
+    private boolean enabled = true;
+
+    @Value("${killrvideo.search.analytics.capacity: 1000}")
+    private int capacity = 1000;
+
+    @Value("${killrvideo.search.analytics.snapshotSize: 100}")
+    private int snapshotSize = 100;
+
+    @Value("${killrvideo.search.analytics.snapshotIntervalMinutes: 5}")
+    private long snapshotIntervalMinutes = 5;
+
+    /** Top searches of the previous runs. */
+    @Autowired
+    private SearchTopQueriesDseDao searchTopQueriesDseDao;
+
+    /** First pages searched. */
+    private SpaceSavingSketch<TopQuery> searches;
+
+    /** First pages served from cache (hit or coalesced). */
+    private SpaceSavingSketch<TopQuery> cachedSearches;
+
+    /** Prefixes typed for suggestions. */
+    private SpaceSavingSketch<String> suggestionPrefixes;
+
+    /** Top searches of the previous run, read at startup. */
+    private List<TopQuery> previousTopSearches = Collections.emptyList();
+
+    /** Snapshots. */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Create sketches and read the top searches of the previous run.
+     */
+    @PostConstruct
+    public void initialize() {
+        searches           = new SpaceSavingSketch<>(capacity);
+        cachedSearches     = new SpaceSavingSketch<>(capacity);
+        suggestionPrefixes = new SpaceSavingSketch<>(capacity);
+        if (enabled) {
+            previousTopSearches = readSnapshot();
+            scheduler = Executors.newSingleThreadScheduledExecutor(new KillrVideoThreadFactory());
+            scheduler.scheduleWithFixedDelay(this::writeSnapshot, snapshotIntervalMinutes, snapshotIntervalMinutes, TimeUnit.MINUTES);
+        }
+    }
+
+    /**
+     * Account a search of a first page.
+     *
+     * @param query
+     *      query typed by the user
+     * @param pageSize
+     *      page size
+     * @param fromCache
+     *      if the page was served by the cache
+     */
+    public void recordSearch(String query, int pageSize, boolean fromCache) {
+        if (!enabled) {
+            return;
+        }
+        TopQuery key = new TopQuery(StringUtils.normalizeSpace(query), pageSize, 0, 0);
+        searches.offer(key);
+        if (fromCache) {
+            cachedSearches.offer(key);
+        }
+    }
+
+    /**
+     * Account a prefix typed for suggestions.
+     *
+     * @param prefix
+     *      what the user typed
+     */
+    public void recordSuggestionPrefix(String prefix) {
+        if (enabled) {
+            suggestionPrefixes.offer(StringUtils.normalizeSpace(prefix).toLowerCase());
+        }
+    }
+
+    /**
+     * Most frequent searches since start, with their cache hit ratio.
+     *
+     * @param k
+     *      number of searches
+     * @return
+     *      searches, most frequent first
+     */
+    public List<TopQuery> getTopSearches(int k) {
+        List<TopQuery> result = new ArrayList<>();
+        if (enabled) {
+            for (Map.Entry<TopQuery, Long> top : searches.top(k).entrySet()) {
+                // Guaranteed hits against estimated searches: ratio is never overestimated
+                long hits = Math.min(cachedSearches.lowerBound(top.getKey()), top.getValue());
+                result.add(new TopQuery(top.getKey().getQuery(), top.getKey().getPageSize(), top.getValue(), hits));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Most frequent suggestion prefixes since start.
+     *
+     * @param k
+     *      number of prefixes
+     * @return
+     *      prefixes with their estimated count, most frequent first
+     */
+    public Map<String, Long> getTopSuggestionPrefixes(int k) {
+        return enabled ? suggestionPrefixes.top(k) : Collections.emptyMap();
+    }
+
+    /**
+     * Searches to pre-warm: top searches since start, or of the previous run if nothing was searched yet.
+     *
+     * @param k
+     *      number of searches
+     * @return
+     *      searches, most frequent first
+     */
+    public List<TopQuery> getSearchesToPrewarm(int k) {
+        List<TopQuery> current = getTopSearches(k);
+        if (!current.isEmpty()) {
+            return current;
+        }
+        return previousTopSearches.subList(0, Math.min(k, previousTopSearches.size()));
+    }
+
+    /**
+     * Read top searches of the previous runs, an error only disables pre-warming.
+     */
+    private List<TopQuery> readSnapshot() {
+        try {
+            List<TopQuery> topSearches = searchTopQueriesDseDao.findTopSearchesAsync(snapshotSize).join();
+            LOGGER.info("{} top searches of previous runs read from table '{}'", topSearches.size(),
+                    SearchTopQueriesDseDao.TABLENAME_SEARCH_TOP_QUERIES);
+            return topSearches;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Cannot read top searches, no pre-warming", e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Write current top searches, errors are logged (exceptions would cancel the schedule).
+     */
+    private void writeSnapshot() {
+        List<TopQuery> topSearches = getTopSearches(snapshotSize);
+        if (topSearches.isEmpty()) {
+            // Keep previous runs top searches until users search again
+            return;
+        }
+        try {
+            searchTopQueriesDseDao.saveTopSearchesAsync(topSearches).join();
+            LOGGER.debug("{} top searches written to table '{}'", topSearches.size(),
+                    SearchTopQueriesDseDao.TABLENAME_SEARCH_TOP_QUERIES);
+        } catch (RuntimeException e) {
+            LOGGER.error("Cannot write top searches", e);
+        }
+    }
+
+    /**
+     * Write a last snapshot for next start.
+     */
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            writeSnapshot();
+        }
+    }
+
+    /**
+     * Getter for attribute 'enabled'.
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * A search (query and page size, as cached) with its estimated counts.
+     */
+    public static final class TopQuery {
+
+        private final String query;
+        private final int pageSize;
+        private final long count;
+        private final long cacheHits;
+
+        TopQuery(String query, int pageSize, long count, long cacheHits) {
+            this.query     = query;
+            this.pageSize  = pageSize;
+            this.count     = count;
+            this.cacheHits = cacheHits;
+        }
+
+        /**
+         * Getter for attribute 'query'.
+         */
+        public String getQuery() {
+            return query;
+        }
+
+        /**
+         * Getter for attribute 'pageSize'.
+         */
+        public int getPageSize() {
+            return pageSize;
+        }
+
+        /**
+         * Getter for attribute 'count'.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Ratio of these searches served by the cache.
+         */
+        public double getCacheHitRatio() {
+            return count == 0 ? 0 : (double) cacheHits / count;
+        }
+
+        /** Counts are not part of the key in sketches. */
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof TopQuery)) {
+                return false;
+            }
+            TopQuery other = (TopQuery) o;
+            return pageSize == other.pageSize && query.equals(other.query);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int hashCode() {
+            return 31 * query.hashCode() + pageSize;
+        }
+    }
+
+}
@@ -0,0 +1,310 @@
+package com.killrvideo.service.search.dao;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.killrvideo.dse.dto.ResultListPage;
+import com.killrvideo.dse.dto.Video;
+import com.killrvideo.messaging.conf.KillrVideoThreadFactory;
+import com.killrvideo.service.search.dao.SearchQueryAnalytics.TopQuery;
+import com.killrvideo.utils.FutureUtils;
+
+/**
+ * Bounded cache of first result pages in front of {@link SearchDao}.
+ *
+ * Trending queries are typed by many users within seconds: the first page of results is kept 'ttlSeconds',
+ * keyed by the query as sent to DSE Search (see {@link SearchDseDao#normalizeQuery(String)}) and the page size.
+ * Concurrent misses for the same key share the same search. Next pages (with a paging state) are not cached.
+ *
+ * New videos show up in results once the entry expired, errors are never cached.
+ *
+ * After a start the 'prewarm.topK' most frequent searches ({@link SearchQueryAnalytics}, from the previous runs)
+ * are executed once, so that the first users do not all miss. Their pages are kept 'prewarm.ttlSeconds' (longer
+ * than 'ttlSeconds', new videos show up later in these results) so that the pre-warming outlives the first users.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Component
+@ManagedResource(objectName = "killrvideo:type=Search,name=SearchResultCache")
+public class SearchResultCache {
+
+    /** Loger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(SearchResultCache.class);
+
+    @Value("${killrvideo.search.resultCache.enabled: true}")
+    private boolean enabled = true;
+
+    @Value("${killrvideo.search.resultCache.maxSize: 1000}")
+    private int maxSize = 1000;
+
+    @Value("${killrvideo.search.resultCache.ttlSeconds: 30}")
+    private long ttlSeconds = 30;
+
+    @Value("${killrvideo.search.resultCache.prewarm.topK: 50}")
+    private int prewarmTopK = 50;
+
+    @Value("${killrvideo.search.resultCache.prewarm.delaySeconds: 10}")
+    private long prewarmDelaySeconds = 10;
+
+    @Value("${killrvideo.search.resultCache.prewarm.maxConcurrentSearches: 4}")
+    private int prewarmMaxConcurrentSearches = 4;
+
+    @Value("${killrvideo.search.resultCache.prewarm.ttlSeconds: 300}")
+    private long prewarmTtlSeconds = 300;
+
+    /** DSE Search, or local index with profile 'search_local'. */
+    @Autowired
+    private SearchDao searchDao;
+
+    /** Top searches, fed by this cache. */
+    @Autowired
+    private SearchQueryAnalytics searchQueryAnalytics;
+
+    /** Pre-warming. */
+    private ScheduledExecutorService scheduler;
+
+    /** First pages, least recently used first. */
+    private final Map<String, CachedPage> pages = new LinkedHashMap<String, CachedPage>(256, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedPage> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    /** Searches in progress, shared by concurrent misses. */
+    private final Map<String, CompletableFuture<ResultListPage<Video>>> inFlightSearches = new ConcurrentHashMap<>();
+
+    /** Metrics. */
+    private final LongAdder hits      = new LongAdder();
+    private final LongAdder misses    = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Default constructor.
+     */
+    public SearchResultCache() {
+        super();
+    }
+
+    /**
+     * Allow explicit intialization for test purpose.
+     */
+    SearchResultCache(SearchDao searchDao, SearchQueryAnalytics searchQueryAnalytics) {
+        this.searchDao            = searchDao;
+        this.searchQueryAnalytics = searchQueryAnalytics;
+    }
+
+    /**
+     * Schedule pre-warming, once backend is started.
+     */
+    @PostConstruct
+    public void initialize() {
+        if (enabled && prewarmTopK > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new KillrVideoThreadFactory());
+            scheduler.schedule(this::prewarm, prewarmDelaySeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Search videos, first page served from memory when possible.
+     *
+     * @param query
+     *      query typed by the user
+     * @param fetchSize
+     *      page size
+     * @param pagingState
+     *      paging state, empty for first page
+     * @return
+     *      page of results
+     */
+    public CompletableFuture<ResultListPage<Video>> searchVideosAsync(String query, int fetchSize, Optional<String> pagingState) {
+        if (pagingState.isPresent()) {
+            return searchDao.searchVideosAsync(query, fetchSize, pagingState);
+        }
+        if (!enabled) {
+            searchQueryAnalytics.recordSearch(query, fetchSize, false);
+            return searchDao.searchVideosAsync(query, fetchSize, pagingState);
+        }
+        return getFirstPage(query, fetchSize, true);
+    }
+
+    /**
+     * First page from memory, or search it.
+     */
+    private CompletableFuture<ResultListPage<Video>> getFirstPage(String query, int fetchSize, boolean userSearch) {
+        final String key = SearchDseDao.normalizeQuery(query) + "|" + fetchSize;
+        ResultListPage<Video> cached = getIfPresent(key, System.currentTimeMillis());
+        if (cached != null) {
+            if (userSearch) {
+                hits.increment();
+                searchQueryAnalytics.recordSearch(query, fetchSize, true);
+            }
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<ResultListPage<Video>> search = new CompletableFuture<>();
+        CompletableFuture<ResultListPage<Video>> existing = inFlightSearches.putIfAbsent(key, search);
+        if (existing != null) {
+            if (userSearch) {
+                coalesced.increment();
+                searchQueryAnalytics.recordSearch(query, fetchSize, true);
+            }
+            return existing;
+        }
+        if (userSearch) {
+            misses.increment();
+            searchQueryAnalytics.recordSearch(query, fetchSize, false);
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("First page of '{}' not cached, searching", key);
+        }
+        // thenCompose so that an exception raised by the DAO still completes the shared search
+        CompletableFuture.completedFuture(query)
+            .thenCompose(q -> searchDao.searchVideosAsync(q, fetchSize, Optional.empty()))
+            .whenComplete((page, error) -> {
+                if (error == null) {
+                    // Pre-warmed pages are pinned longer
+                    put(key, page, System.currentTimeMillis() + 1000 * (userSearch ? ttlSeconds : prewarmTtlSeconds));
+                }
+                // Cached before leaving the in flight searches: a request in between finds one or the other
+                inFlightSearches.remove(key, search);
+                if (error != null) {
+                    search.completeExceptionally(error);
+                } else {
+                    search.complete(page);
+                }
+            });
+        return search;
+    }
+
+    /**
+     * Search the top searches, not accounted as user searches.
+     */
+    private void prewarm() {
+        List<TopQuery> topSearches = searchQueryAnalytics.getSearchesToPrewarm(prewarmTopK);
+        if (topSearches.isEmpty()) {
+            return;
+        }
+        final long start = System.currentTimeMillis();
+        FutureUtils.mapWithBoundedConcurrency(topSearches, prewarmMaxConcurrentSearches,
+                    top -> getFirstPage(top.getQuery(), top.getPageSize(), false)
+                                .handle((page, error) -> error == null))
+                   .thenAccept(results -> LOGGER.info("Search cache pre-warmed with {}/{} top searches in {} millis",
+                           results.stream().filter(Boolean::booleanValue).count(), results.size(),
+                           System.currentTimeMillis() - start));
+    }
+
+    /**
+     * Stop pre-warming.
+     */
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Cached page if not expired.
+     */
+    private ResultListPage<Video> getIfPresent(String key, long now) {
+        synchronized (pages) {
+            CachedPage cached = pages.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (now > cached.expiresAt) {
+                pages.remove(key);
+                return null;
+            }
+            return cached.page;
+        }
+    }
+
+    /**
+     * Add a page, evicting the least recently used if full.
+     */
+    private void put(String key, ResultListPage<Video> page, long expiresAt) {
+        synchronized (pages) {
+            pages.put(key, new CachedPage(page, expiresAt));
+        }
+    }
+
+    /**
+     * Ratio of first pages served without a search of their own (coalesced requests are counted as hits).
+     */
+    @ManagedAttribute
+    public double getHitRatio() {
+        long served = hits.sum() + coalesced.sum();
+        long total  = served + misses.sum();
+        return total == 0 ? 0 : (double) served / total;
+    }
+
+    /**
+     * Number of cached pages.
+     */
+    @ManagedAttribute
+    public int getSize() {
+        synchronized (pages) {
+            return pages.size();
+        }
+    }
+
+    /**
+     * Getter for attribute 'hits'.
+     */
+    @ManagedAttribute
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Getter for attribute 'misses'.
+     */
+    @ManagedAttribute
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Getter for attribute 'coalesced'.
+     */
+    @ManagedAttribute
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Page with its expiration time.
+     */
+    private static final class CachedPage {
+
+        private final ResultListPage<Video> page;
+        private final long expiresAt;
+
+        private CachedPage(ResultListPage<Video> page, long expiresAt) {
+            this.page      = page;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+package com.killrvideo.service.search.dao;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.stereotype.Repository;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.dse.DseSession;
+import com.killrvideo.dse.dao.DseDaoSupport;
+import com.killrvideo.dse.dto.Video;
+import com.killrvideo.service.search.dao.SearchQueryAnalytics.TopQuery;
+import com.killrvideo.utils.FutureUtils;
+
+/**
+ * Top searches kept in table 'search_top_queries', so that they survive redeployments and are shared by all nodes
+ * (the last node to write wins, any node's top searches are good enough to pre-warm).
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Repository
+public class SearchTopQueriesDseDao extends DseDaoSupport {
+
+    /** Data model constants. */
+    public static final String TABLENAME_SEARCH_TOP_QUERIES = "search_top_queries";
+    public static final String COLUMN_SNAPSHOT              = "snapshot";
+    public static final String COLUMN_RANK                  = "rank";
+    public static final String COLUMN_QUERY                 = "query";
+    public static final String COLUMN_PAGE_SIZE             = "page_size";
+    public static final String COLUMN_COUNT                 = "search_count";
+    public static final String COLUMN_UPDATED_DATE          = "updated_date";
+
+    /** Single partition, replaced as a whole. */
+    public static final String SNAPSHOT_SEARCHES = "searches";
+
+    /** Precompile statements to speed up queries. */
+    private PreparedStatement findTopSearchesStatement;
+    private PreparedStatement deleteTopSearchesStatement;
+    private PreparedStatement insertTopSearchStatement;
+
+    /**
+     * Default constructor.
+     */
+    public SearchTopQueriesDseDao() {
+        super();
+    }
+
+    /**
+     * Allow explicit intialization for test purpose.
+     */
+    public SearchTopQueriesDseDao(DseSession dseSession) {
+        super(dseSession);
+    }
+
+    /** {@inheritDoc} */
+    @PostConstruct
+    protected void initialize() {
+        String keyspace = mappingManager.mapper(Video.class).getTableMetadata().getKeyspace().getName();
+        findTopSearchesStatement = dseSession.prepare(QueryBuilder
+                .select(COLUMN_QUERY, COLUMN_PAGE_SIZE, COLUMN_COUNT)
+                .from(keyspace, TABLENAME_SEARCH_TOP_QUERIES)
+                .where(QueryBuilder.eq(COLUMN_SNAPSHOT, QueryBuilder.bindMarker()))
+                .limit(QueryBuilder.bindMarker()));
+        findTopSearchesStatement.setConsistencyLevel(ConsistencyLevel.LOCAL_ONE);
+        // Older than the inserts of the same batch, which would win otherwise (a tombstone wins a tie)
+        deleteTopSearchesStatement = dseSession.prepare(QueryBuilder
+                .delete().from(keyspace, TABLENAME_SEARCH_TOP_QUERIES)
+                .using(QueryBuilder.timestamp(QueryBuilder.bindMarker()))
+                .where(QueryBuilder.eq(COLUMN_SNAPSHOT, QueryBuilder.bindMarker())));
+        insertTopSearchStatement = dseSession.prepare(QueryBuilder
+                .insertInto(keyspace, TABLENAME_SEARCH_TOP_QUERIES)
+                .value(COLUMN_SNAPSHOT,     QueryBuilder.bindMarker())
+                .value(COLUMN_RANK,         QueryBuilder.bindMarker())
+                .value(COLUMN_QUERY,        QueryBuilder.bindMarker())
+                .value(COLUMN_PAGE_SIZE,    QueryBuilder.bindMarker())
+                .value(COLUMN_COUNT,        QueryBuilder.bindMarker())
+                .value(COLUMN_UPDATED_DATE, QueryBuilder.bindMarker()));
+    }
+
+    /**
+     * Read the top searches.
+     *
+     * @param limit
+     *      maximum number of searches
+     * @return
+     *      searches, most frequent first (no cache hits)
+     */
+    public CompletableFuture < List < TopQuery > > findTopSearchesAsync(int limit) {
+        return FutureUtils.asCompletableFuture(dseSession.executeAsync(
+                findTopSearchesStatement.bind(SNAPSHOT_SEARCHES, limit))).thenApply(rs -> {
+            List<TopQuery> topSearches = new ArrayList<>();
+            for (Row row : rs) {
+                topSearches.add(new TopQuery(row.getString(COLUMN_QUERY), row.getInt(COLUMN_PAGE_SIZE), row.getLong(COLUMN_COUNT), 0));
+            }
+            return topSearches;
+        });
+    }
+
+    /**
+     * Replace the top searches, in one single partition batch (atomic and isolated).
+     *
+     * @param topSearches
+     *      searches, most frequent first
+     */
+    public CompletableFuture < Void > saveTopSearchesAsync(List < TopQuery > topSearches) {
+        long micros = System.currentTimeMillis() * 1000;
+        Date now = new Date();
+        BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+        batch.add(deleteTopSearchesStatement.bind(micros - 1, SNAPSHOT_SEARCHES));
+        for (int rank = 0; rank < topSearches.size(); rank++) {
+            TopQuery top = topSearches.get(rank);
+            batch.add(insertTopSearchStatement.bind(SNAPSHOT_SEARCHES, rank, top.getQuery(), top.getPageSize(), top.getCount(), now));
+        }
+        batch.setDefaultTimestamp(micros);
+        batch.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+        return FutureUtils.asCompletableFuture(dseSession.executeAsync(batch)).thenApply(rs -> null);
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.killrvideo.service.search.dao;
+
+import java.util.Set;
+
+/**
+ * Extract the words starting with what the user typed from names and tags returned by DSE Search.
+ *
+ * Same matches as the regular expression {@code (?i)\bquery[a-z]*\b} previously compiled for each request, without
+ * regular expression: the query is matched as plain text (no escaping issue) and text is scanned once, a string is
+ * only allocated for a matching word. One instance per request, reused for all the rows.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class SuggestionExtractor {
+
+    /** What the user typed. */
+    private final String query;
+
+    /** First char of the query in both cases, cheap test before matching the whole query. */
+    private final char firstLower;
+    private final char firstUpper;
+
+    /** Lower case words never suggested. */
+    private final Set<String> ignoredWords;
+
+    /**
+     * Constructor.
+     *
+     * @param query
+     *      what the user typed
+     * @param ignoredWords
+     *      lower case words never suggested
+     */
+    public SuggestionExtractor(String query, Set<String> ignoredWords) {
+        this.query        = query;
+        this.firstLower   = query.isEmpty() ? 0 : Character.toLowerCase(query.charAt(0));
+        this.firstUpper   = query.isEmpty() ? 0 : Character.toUpperCase(query.charAt(0));
+        this.ignoredWords = ignoredWords;
+    }
+
+    /**
+     * Add the lower case words of a text starting with the query.
+     *
+     * @param text
+     *      name or tag, ignored if null
+     * @param suggestions
+     *      target set
+     */
+    public void extract(String text, Set<String> suggestions) {
+        if (text == null || query.isEmpty()) {
+            return;
+        }
+        final int length      = text.length();
+        final int queryLength = query.length();
+        int i = 0;
+        while (i + queryLength <= length) {
+            char c = text.charAt(i);
+            if ((c != firstLower && c != firstUpper)
+                    || !isBoundary(text, i)
+                    || !text.regionMatches(true, i, query, 0, queryLength)) {
+                i++;
+                continue;
+            }
+            int end = i + queryLength;
+            while (end < length && isAsciiLetter(text.charAt(end))) {
+                end++;
+            }
+            // Word must end here, shorter matches as regex backtracking (only if the query ends with a non word char)
+            while (end > i + queryLength && !isBoundary(text, end)) {
+                end--;
+            }
+            if (end > i && isBoundary(text, end)) {
+                String word = text.substring(i, end).toLowerCase();
+                if (!ignoredWords.contains(word)) {
+                    suggestions.add(word);
+                }
+                i = end;
+            } else {
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Word boundary '\b': word char on one side only.
+     */
+    private static boolean isBoundary(String text, int position) {
+        boolean wordBefore = position > 0 && isWordChar(text.charAt(position - 1));
+        boolean wordAfter  = position < text.length() && isWordChar(text.charAt(position));
+        return wordBefore != wordAfter;
+    }
+
+    /**
+     * Same definition of word chars as '\b' in java.util.regex.
+     */
+    private static boolean isWordChar(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+
+    private static boolean isAsciiLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+}
@@ -1,13 +1,15 @@
 package com.killrvideo.service.search.grpc;
 
 import static com.killrvideo.service.search.grpc.SearchServiceGrpcValidator.validateGrpcRequest_GetQuerySuggestions;
+import static com.killrvideo.service.search.grpc.SearchServiceGrpcValidator.validateGrpcRequest_GetTopQueries;
 import static com.killrvideo.service.search.grpc.SearchServiceGrpcValidator.validateGrpcRequest_SearchVideos;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
-import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -18,13 +20,17 @@ import org.springframework.stereotype.Service;
 
 import com.killrvideo.dse.dto.ResultListPage;
 import com.killrvideo.dse.dto.Video;
-import com.killrvideo.service.search.dao.SearchDseDao;
+import com.killrvideo.service.search.dao.SearchDao;
+import com.killrvideo.service.search.dao.SearchQueryAnalytics;
+import com.killrvideo.service.search.dao.SearchResultCache;
 
 import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import killrvideo.search.SearchServiceGrpc.SearchServiceImplBase;
 import killrvideo.search.SearchServiceOuterClass.GetQuerySuggestionsRequest;
 import killrvideo.search.SearchServiceOuterClass.GetQuerySuggestionsResponse;
+import killrvideo.search.SearchServiceOuterClass.GetTopQueriesRequest;
+import killrvideo.search.SearchServiceOuterClass.GetTopQueriesResponse;
 import killrvideo.search.SearchServiceOuterClass.SearchVideosRequest;
 import killrvideo.search.SearchServiceOuterClass.SearchVideosResponse;
 
@@ -42,8 +48,17 @@ public class SearchServiceGrpc extends SearchServiceImplBase {
     @Value("${killrvideo.discovery.services.search : SearchService}")
     private String serviceKey;
    
+    /** DSE Search, or local index with profile 'search_local'. */
     @Autowired
-    private SearchDseDao dseSearchDao;
+    private SearchDao searchDao;
+    
+    /** First pages of results, in front of 'searchDao'. */
+    @Autowired
+    private SearchResultCache searchResultCache;
+    
+    /** Most frequent searches and suggestion prefixes. */
+    @Autowired
+    private SearchQueryAnalytics searchQueryAnalytics;
     
     /** {@inheritDoc} */
     @Override
@@ -61,7 +76,7 @@ public class SearchServiceGrpc extends SearchServiceImplBase {
         Optional<String> searchPagingState = Optional.ofNullable(grpcReq.getPagingState()).filter(StringUtils::isNotBlank);
         
         // Map Result back to GRPC
-        dseSearchDao
+        searchResultCache
             .searchVideosAsync(searchQuery, searchPageSize,searchPagingState)
             .whenComplete((resultPage, error) -> {
               if (error == null) {
@@ -71,7 +86,7 @@ public class SearchServiceGrpc extends SearchServiceImplBase {
                   
                } else {
                   traceError("searchVideos", starts, error);
-                  grpcResObserver.onError(Status.INTERNAL.withCause(error).asRuntimeException());
+                  grpcResObserver.onError(errorStatus(error).asRuntimeException());
                }
         });
     }
@@ -99,10 +114,11 @@ public class SearchServiceGrpc extends SearchServiceImplBase {
         // Mapping GRPC => Domain (Dao)
         String           searchQuery = grpcReq.getQuery();
         int              searchPageSize = grpcReq.getPageSize();
+        searchQueryAnalytics.recordSuggestionPrefix(searchQuery);
         
         // Invoke Dao (Async)
-        CompletableFuture<TreeSet<String>> futureDao = 
-                dseSearchDao.getQuerySuggestionsAsync(searchQuery, searchPageSize);
+        CompletableFuture<List<String>> futureDao = 
+                searchDao.getQuerySuggestionsAsync(searchQuery, searchPageSize);
         
         // Mapping back to GRPC beans
         futureDao.whenComplete((suggestionSet, error) -> {
@@ -116,11 +132,45 @@ public class SearchServiceGrpc extends SearchServiceImplBase {
               grpcResObserver.onCompleted();
           } else {
               traceError("getQuerySuggestions", starts, error);
-              grpcResObserver.onError(Status.INTERNAL.withCause(error).asRuntimeException());
+              grpcResObserver.onError(errorStatus(error).asRuntimeException());
           }             
         });
     }
     
+    /** {@inheritDoc} */
+    @Override
+    public void getTopQueries(GetTopQueriesRequest grpcReq, StreamObserver<GetTopQueriesResponse> grpcResObserver) {
+        
+        // Validate Parameters
+        validateGrpcRequest_GetTopQueries(LOGGER, grpcReq, grpcResObserver);
+        
+        // Stands as stopwatch for logging and messaging 
+        final Instant starts = Instant.now();
+        
+        // Sketches are in memory, no Dao call
+        final GetTopQueriesResponse.Builder builder = GetTopQueriesResponse.newBuilder();
+        searchQueryAnalytics.getTopSearches(grpcReq.getPageSize()).stream()
+                  .map(SearchServiceGrpcMapper::mapTopQuerytoTopSearch)
+                  .forEach(builder::addSearches);
+        searchQueryAnalytics.getTopSuggestionPrefixes(grpcReq.getPageSize())
+                  .forEach((prefix, count) -> builder.addSuggestionPrefixes(SearchServiceGrpcMapper.mapToTopSuggestionPrefix(prefix, count)));
+        builder.setCacheHitRatio(searchResultCache.getHitRatio());
+        traceSuccess("getTopQueries", starts);
+        grpcResObserver.onNext(builder.build());
+        grpcResObserver.onCompleted();
+    }
+    
+    /**
+     * Invalid request (e.g. a paging state tampered with or issued for another query) or server failure.
+     */
+    private Status errorStatus(Throwable error) {
+        Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+        if (cause instanceof IllegalArgumentException) {
+            return Status.INVALID_ARGUMENT.withDescription(cause.getMessage());
+        }
+        return Status.INTERNAL.withCause(error);
+    }
+    
     /**
      * Utility to TRACE.
      *
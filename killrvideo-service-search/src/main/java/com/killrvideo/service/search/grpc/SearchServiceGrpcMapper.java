@@ -1,10 +1,17 @@
 package com.killrvideo.service.search.grpc;
 
+import java.util.HashSet;
+import java.util.UUID;
+
 import com.killrvideo.dse.dto.Video;
+import com.killrvideo.service.search.dao.SearchQueryAnalytics.TopQuery;
 import com.killrvideo.utils.GrpcMappingUtils;
 
 import killrvideo.search.SearchServiceOuterClass.SearchResultsVideoPreview;
 import killrvideo.search.SearchServiceOuterClass.SearchResultsVideoPreview.Builder;
+import killrvideo.search.SearchServiceOuterClass.TopSearch;
+import killrvideo.search.SearchServiceOuterClass.TopSuggestionPrefix;
+import killrvideo.video_catalog.events.VideoCatalogEvents.YouTubeVideoAdded;
 
 
 /**
@@ -36,6 +43,41 @@ public class SearchServiceGrpcMapper {
         return builder.build();
     }
     
+    /**
+     * Mapping event to DTO, to be indexed locally.
+     */
+    public static Video mapVideoAddedtoVideo(YouTubeVideoAdded videoAdded) {
+        Video video = new Video();
+        video.setVideoid(UUID.fromString(videoAdded.getVideoId().getValue()));
+        video.setUserid(UUID.fromString(videoAdded.getUserId().getValue()));
+        video.setName(videoAdded.getName());
+        video.setDescription(videoAdded.getDescription());
+        video.setTags(new HashSet<String>(videoAdded.getTagsList()));
+        video.setPreviewImageLocation(videoAdded.getPreviewImageLocation());
+        video.setLocation(videoAdded.getLocation());
+        video.setAddedDate(GrpcMappingUtils.timestampToDate(videoAdded.getAddedDate()));
+        return video;
+    }
+    
+    /**
+     * Mapping top search to generated GPRC beans.
+     */
+    public static TopSearch mapTopQuerytoTopSearch(TopQuery topQuery) {
+        return TopSearch.newBuilder()
+                .setQuery(topQuery.getQuery())
+                .setPageSize(topQuery.getPageSize())
+                .setCount(topQuery.getCount())
+                .setCacheHitRatio(topQuery.getCacheHitRatio())
+                .build();
+    }
+    
+    /**
+     * Mapping top suggestion prefix to generated GPRC beans.
+     */
+    public static TopSuggestionPrefix mapToTopSuggestionPrefix(String prefix, long count) {
+        return TopSuggestionPrefix.newBuilder().setPrefix(prefix).setCount(count).build();
+    }
+    
     
     
 
@@ -9,6 +9,7 @@ import org.springframework.util.Assert;
 
 import io.grpc.stub.StreamObserver;
 import killrvideo.search.SearchServiceOuterClass.GetQuerySuggestionsRequest;
+import killrvideo.search.SearchServiceOuterClass.GetTopQueriesRequest;
 import killrvideo.search.SearchServiceOuterClass.SearchVideosRequest;
 
 public class SearchServiceGrpcValidator  {
@@ -51,6 +52,19 @@ public class SearchServiceGrpcValidator  {
         Assert.isTrue(validate(logger, streamObserver, errorMessage, isValid), "Invalid parameter for 'searchVideos'");
     }
     
+    /**
+     * Validation for top queries.
+     */
+    public static void validateGrpcRequest_GetTopQueries(Logger logger, GetTopQueriesRequest request, StreamObserver<?> streamObserver) {
+        final StringBuilder errorMessage = initErrorString(request);
+        boolean isValid = true;
+        if (request.getPageSize() <= 0) {
+            errorMessage.append("\t\tpage size should be strictly positive for get top queries request\n");
+            isValid = false;
+        }
+        Assert.isTrue(validate(logger, streamObserver, errorMessage, isValid), "Invalid parameter for 'getTopQueries'");
+    }
+    
     
    
     
@@ -0,0 +1,186 @@
+package com.killrvideo.service.search.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+import com.killrvideo.dse.dto.Video;
+import com.killrvideo.service.search.dao.LocalInvertedIndex.Hit;
+
+/**
+ * Unit tests of {@link LocalInvertedIndex}: matching, ranking, keyset pages, suggestions and snapshots.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class LocalInvertedIndexTest {
+
+    private final LocalInvertedIndex index = new LocalInvertedIndex();
+
+    @Test
+    public void allTermsInSameFieldLastOneAsPrefix() {
+        Video modeling = video("Data modeling with Cassandra", null, 1000);
+        Video split    = video("Data pipelines", "Cassandra", 2000, "spark");
+        index.index(modeling);
+        index.index(split);
+        assertEquals(Arrays.asList(modeling), videosOf(index.search("data cass", null, 10)));
+        assertEquals(Arrays.asList(split, modeling), videosOf(index.search("DATA", null, 10)));
+        assertEquals(Arrays.asList(split), videosOf(index.search("spa", null, 10)));
+        // Only the last term is a prefix
+        assertTrue(index.search("dat modeling", null, 10).isEmpty());
+        assertTrue(index.search("  ", null, 10).isEmpty());
+    }
+
+    @Test
+    public void fieldsAreBoostedThenMostRecentFirst() {
+        Video inName        = video("Cassandra basics", null, 1000);
+        Video inTags        = video("Basics", null, 3000, "cassandra");
+        Video inDescription = video("Basics", "All about Cassandra", 4000);
+        Video inNameLater   = video("Cassandra internals", "Cassandra storage engine", 2000);
+        for (Video video : Arrays.asList(inName, inTags, inDescription, inNameLater)) {
+            index.index(video);
+        }
+        List<Hit> hits = index.search("cassandra", null, 10);
+        assertEquals(Arrays.asList(inNameLater, inName, inTags, inDescription), videosOf(hits));
+        assertEquals(Arrays.asList(5, 4, 2, 1), hits.stream().map(Hit::getScore).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void reindexedVideoIsNotFoundByOldTerms() {
+        Video video = video("Cassandra basics", null, 1000);
+        index.index(video);
+        Video updated = video(video.getVideoid(), "Spark basics", null, 1000);
+        index.index(updated);
+        assertEquals(1, index.size());
+        assertTrue(index.search("cassandra", null, 10).isEmpty());
+        assertEquals(Arrays.asList(updated), videosOf(index.search("spark", null, 10)));
+        assertTrue(index.suggest("cas", 10, Collections.emptySet()).isEmpty());
+    }
+
+    @Test
+    public void keysetPagesCoverAllResultsOnce() {
+        Random random = new Random(42);
+        List<Video> expected = new ArrayList<>();
+        for (int i = 0; i < 95; i++) {
+            // Many ties on score and added date, broken by video id
+            Video video = video("Cassandra " + i, random.nextBoolean() ? "cassandra" : null, random.nextInt(5) * 1000L);
+            expected.add(video);
+            index.index(video);
+        }
+        List<Video> paged = new ArrayList<>();
+        SearchCursor cursor = null;
+        List<Hit> page;
+        do {
+            page = index.search("cassandra", cursor, 10);
+            paged.addAll(videosOf(page));
+            if (!page.isEmpty()) {
+                Hit last = page.get(page.size() - 1);
+                cursor = SearchCursor.keyset(last.getScore(), last.getAddedDate(), last.getVideo().getVideoid());
+            }
+        } while (page.size() == 10);
+        assertEquals(95, paged.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(paged));
+        assertEquals(videosOf(index.search("cassandra", null, 100)), paged);
+    }
+
+    @Test
+    public void unknownAddedDateRanksLast() {
+        Video undated = video("Cassandra", null, 0);
+        undated.setAddedDate(null);
+        Video dated = video("Cassandra", null, 1000);
+        index.index(undated);
+        index.index(dated);
+        List<Hit> hits = index.search("cassandra", null, 10);
+        assertEquals(Arrays.asList(dated, undated), videosOf(hits));
+        assertEquals(Long.MIN_VALUE, hits.get(1).getAddedDate());
+        Hit last = hits.get(0);
+        assertEquals(Arrays.asList(undated), videosOf(index.search("cassandra",
+                SearchCursor.keyset(last.getScore(), last.getAddedDate(), last.getVideo().getVideoid()), 10)));
+    }
+
+    @Test
+    public void suggestionsFromNamesAndTags() {
+        index.index(video("Cassandra data modeling", "castaway story", 1000, "cql", "castle"));
+        index.index(video("The Cassandra driver", null, 2000));
+        assertEquals(Arrays.asList("cassandra", "castle"),
+                new ArrayList<>(index.suggest("CAS", 10, Collections.emptySet())));
+        assertEquals(Arrays.asList("cassandra"), new ArrayList<>(index.suggest("cas", 1, Collections.emptySet())));
+        assertEquals(Arrays.asList("castle"),
+                new ArrayList<>(index.suggest("cas", 10, new HashSet<>(Arrays.asList("cassandra")))));
+        assertTrue(index.suggest(" ", 10, Collections.emptySet()).isEmpty());
+    }
+
+    @Test
+    public void snapshotRoundTrip() throws IOException {
+        Video video = video("Cassandra basics", "Data modeling", 1000, "cql");
+        Video sparse = new Video();
+        sparse.setVideoid(UUID.randomUUID());
+        sparse.setName("Cassandra");
+        index.index(video);
+        index.index(sparse);
+        Path dir = Files.createTempDirectory("search-index");
+        try {
+            Path file = dir.resolve("snapshots").resolve("index.bin");
+            index.writeSnapshot(file);
+            LocalInvertedIndex loaded = new LocalInvertedIndex();
+            assertEquals(2, loaded.loadSnapshot(file));
+            assertEquals(2, loaded.size());
+            List<Hit> hits = loaded.search("cql", null, 10);
+            assertEquals(1, hits.size());
+            Video copy = hits.get(0).getVideo();
+            assertEquals(video.getVideoid(), copy.getVideoid());
+            assertEquals(video.getUserid(), copy.getUserid());
+            assertEquals(video.getName(), copy.getName());
+            assertEquals(video.getDescription(), copy.getDescription());
+            assertEquals(video.getAddedDate(), copy.getAddedDate());
+            assertEquals(video.getTags(), copy.getTags());
+            Video sparseCopy = loaded.search("cassandra", null, 10).get(1).getVideo();
+            assertEquals(sparse.getVideoid(), sparseCopy.getVideoid());
+            assertNull(sparseCopy.getUserid());
+            assertNull(sparseCopy.getAddedDate());
+        } finally {
+            for (Path path : Files.walk(dir).sorted(Collections.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void unknownSnapshotFormatIsRejected() throws IOException {
+        Path file = Files.createTempFile("search-index", ".bin");
+        try {
+            Files.write(file, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+            assertThrows(IOException.class, () -> new LocalInvertedIndex().loadSnapshot(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static Video video(String name, String description, long addedDate, String... tags) {
+        return video(UUID.randomUUID(), name, description, addedDate, tags);
+    }
+
+    private static Video video(UUID videoid, String name, String description, long addedDate, String... tags) {
+        return new Video(videoid, UUID.randomUUID(), name, description, 0, new HashSet<>(Arrays.asList(tags)), new Date(addedDate));
+    }
+
+    private static List<Video> videosOf(List<Hit> hits) {
+        return hits.stream().map(Hit::getVideo).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.killrvideo.service.search.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link NGramSuggestionIndex}.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class NGramSuggestionIndexTest {
+
+    @Test
+    public void gramsArePaddedAndDistinct() {
+        assertEquals(Arrays.asList("$$c", "$ca", "cas"), new ArrayList<>(NGramSuggestionIndex.grams("cas")));
+        assertEquals(Arrays.asList("$$a", "$aa", "aaa"), new ArrayList<>(NGramSuggestionIndex.grams("aaaa")));
+    }
+
+    @Test
+    public void prefixDistanceAgainstClosestBeginning() {
+        assertEquals(0, NGramSuggestionIndex.prefixDistance("cass", "cassandra", 2));
+        // Substitution, insertion, deletion
+        assertEquals(1, NGramSuggestionIndex.prefixDistance("kass", "cassandra", 2));
+        assertEquals(1, NGramSuggestionIndex.prefixDistance("casss", "cassandra", 2));
+        assertEquals(1, NGramSuggestionIndex.prefixDistance("cssa", "cassandra", 2));
+        // Adjacent transposition is one edit
+        assertEquals(1, NGramSuggestionIndex.prefixDistance("acss", "cassandra", 2));
+        assertEquals(2, NGramSuggestionIndex.prefixDistance("kasa", "cassandra", 2));
+    }
+
+    @Test
+    public void prefixDistanceAbandonedAboveMaxEdits() {
+        assertEquals(2, NGramSuggestionIndex.prefixDistance("xyzw", "cassandra", 1));
+        assertEquals(3, NGramSuggestionIndex.prefixDistance("xyzw", "cassandra", 2));
+    }
+
+    @Test
+    public void closestFirstThenMostFrequent() {
+        NGramSuggestionIndex index = new NGramSuggestionIndex(100);
+        index.add("cassandra", 10);
+        index.add("casual", 50);
+        index.add("cassette", 50);
+        index.add("kafka", 100);
+        // 'cassa' begins 'cassandra', one edit from 'casse' and 'casua' (same occurrences, alphabetical)
+        assertEquals(Arrays.asList("cassandra", "cassette", "casual"), index.suggest("cassa", 1, 10));
+        assertEquals(Arrays.asList("cassandra", "cassette"), index.suggest("cassa", 1, 2));
+    }
+
+    @Test
+    public void occurrencesOfKnownTermsAreAddedUp() {
+        NGramSuggestionIndex index = new NGramSuggestionIndex(100);
+        index.add("spark", 1);
+        index.add("spare", 2);
+        assertEquals(Arrays.asList("spare", "spark"), index.suggest("spar", 1, 10));
+        index.add("spark", 5);
+        assertEquals(Arrays.asList("spark", "spare"), index.suggest("spar", 1, 10));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void newTermsIgnoredOnceFull() {
+        NGramSuggestionIndex index = new NGramSuggestionIndex(2);
+        index.add("graph", 1);
+        index.add("grape", 1);
+        long bytes = index.getEstimatedBytes();
+        index.add("gradle", 100);
+        index.add("graph", 10);
+        assertEquals(2, index.size());
+        assertEquals(1, index.getRejectedTerms());
+        assertEquals(bytes, index.getEstimatedBytes());
+        assertEquals(Arrays.asList("graph", "grape"), index.suggest("grap", 1, 10));
+    }
+
+    @Test
+    public void unknownPrefixHasNoCorrection() {
+        NGramSuggestionIndex index = new NGramSuggestionIndex(100);
+        index.add("cassandra", 1);
+        assertTrue(index.suggest("zookeeper", 2, 10).isEmpty());
+        assertTrue(new NGramSuggestionIndex(100).suggest("cass", 1, 10).isEmpty());
+    }
+
+    @Test
+    public void gramFilterMissesNoCorrection() {
+        Random random = new Random(3);
+        List<String> terms = new ArrayList<>();
+        NGramSuggestionIndex index = new NGramSuggestionIndex(10000);
+        for (int i = 0; i < 2000; i++) {
+            String term = randomWord(random, 4 + random.nextInt(8));
+            terms.add(term);
+            index.add(term, 1);
+        }
+        for (int round = 0; round < 300; round++) {
+            // Prefix of a known term with up to 2 random edits
+            String term = terms.get(random.nextInt(terms.size()));
+            StringBuilder prefix = new StringBuilder(term.substring(0, Math.min(term.length(), 5 + random.nextInt(4))));
+            for (int e = random.nextInt(3); e > 0 && prefix.length() > 1; e--) {
+                int position = random.nextInt(prefix.length());
+                switch (random.nextInt(3)) {
+                    case 0:  prefix.setCharAt(position, randomWord(random, 1).charAt(0)); break;
+                    case 1:  prefix.deleteCharAt(position); break;
+                    default: prefix.insert(position, randomWord(random, 1)); break;
+                }
+            }
+            for (int maxEdits = 1; maxEdits <= 2; maxEdits++) {
+                Set<String> expected = new HashSet<>();
+                for (String candidate : terms) {
+                    if (NGramSuggestionIndex.prefixDistance(prefix.toString(), candidate, maxEdits) <= maxEdits
+                            && !Collections.disjoint(NGramSuggestionIndex.grams(prefix.toString()), NGramSuggestionIndex.grams(candidate))) {
+                        expected.add(candidate);
+                    }
+                }
+                assertEquals(expected, new HashSet<>(index.suggest(prefix.toString(), maxEdits, Integer.MAX_VALUE)),
+                        prefix + " within " + maxEdits);
+            }
+        }
+    }
+
+    private static String randomWord(Random random, int length) {
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            // Small alphabet, many shared grams
+            word.append((char) ('a' + random.nextInt(6)));
+        }
+        return word.toString();
+    }
+
+}
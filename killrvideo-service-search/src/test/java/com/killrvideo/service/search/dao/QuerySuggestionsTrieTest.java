@@ -0,0 +1,124 @@
+package com.killrvideo.service.search.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link QuerySuggestionsTrie}.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class QuerySuggestionsTrieTest {
+
+    @Test
+    public void mostFrequentFirstThenAlphabetical() {
+        QuerySuggestionsTrie trie = new QuerySuggestionsTrie(10);
+        trie.add("cassandra", 5);
+        trie.add("cast", 2);
+        trie.add("cat", 2);
+        trie.add("car", 9);
+        assertEquals(Arrays.asList("car", "cassandra", "cast", "cat"), trie.suggest("ca", 10));
+    }
+
+    @Test
+    public void occurrencesAreAddedUp() {
+        QuerySuggestionsTrie trie = new QuerySuggestionsTrie(10);
+        trie.add("spark", 3);
+        trie.add("spring", 2);
+        trie.add("spring", 2);
+        assertEquals(Arrays.asList("spring", "spark"), trie.suggest("sp", 10));
+        assertEquals(2, trie.size());
+    }
+
+    @Test
+    public void splitEdgeKeepsCompletions() {
+        QuerySuggestionsTrie trie = new QuerySuggestionsTrie(10);
+        trie.add("database", 3);
+        trie.add("datastax", 4);
+        // 'data' is inserted in the middle of the edge 'data'+'base'
+        trie.add("data", 1);
+        assertEquals(Arrays.asList("datastax", "database", "data"), trie.suggest("data", 10));
+        assertEquals(Arrays.asList("datastax", "database", "data"), trie.suggest("d", 10));
+        assertEquals(Collections.singletonList("datastax"), trie.suggest("datas", 10));
+    }
+
+    @Test
+    public void prefixEndingInsideEdge() {
+        QuerySuggestionsTrie trie = new QuerySuggestionsTrie(10);
+        trie.add("kubernetes", 1);
+        assertEquals(Collections.singletonList("kubernetes"), trie.suggest("kub", 10));
+        assertEquals(Collections.singletonList("kubernetes"), trie.suggest("kubernetes", 10));
+    }
+
+    @Test
+    public void prefixDivergingInsideEdgeHasNoSuggestion() {
+        QuerySuggestionsTrie trie = new QuerySuggestionsTrie(10);
+        trie.add("kubernetes", 1);
+        assertTrue(trie.suggest("kubx", 10).isEmpty());
+        assertTrue(trie.suggest("kubernetess", 10).isEmpty());
+        assertTrue(trie.suggest("z", 10).isEmpty());
+    }
+
+    @Test
+    public void limitAndMaxSuggestions() {
+        QuerySuggestionsTrie trie = new QuerySuggestionsTrie(3);
+        for (int i = 0; i < 10; i++) {
+            trie.add("term" + i, i);
+        }
+        assertEquals(Arrays.asList("term9", "term8", "term7"), trie.suggest("term", 10));
+        assertEquals(Arrays.asList("term9", "term8"), trie.suggest("term", 2));
+        // A term outside the kept ones enters once more frequent
+        trie.add("term0", 100);
+        assertEquals(Arrays.asList("term0", "term9", "term8"), trie.suggest("term", 10));
+    }
+
+    @Test
+    public void emptyTermsAreIgnored() {
+        QuerySuggestionsTrie trie = new QuerySuggestionsTrie(10);
+        trie.add(null, 1);
+        trie.add("", 1);
+        assertEquals(0, trie.size());
+        assertTrue(trie.suggest("", 10).isEmpty());
+    }
+
+    @Test
+    public void sameAsBruteForce() {
+        Random random = new Random(42);
+        QuerySuggestionsTrie trie = new QuerySuggestionsTrie(5);
+        Map<String, Long> counts = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            // Short words on a small alphabet, many shared prefixes and splits
+            StringBuilder term = new StringBuilder();
+            int length = 1 + random.nextInt(6);
+            for (int c = 0; c < length; c++) {
+                term.append((char) ('a' + random.nextInt(4)));
+            }
+            long occurrences = 1 + random.nextInt(3);
+            trie.add(term.toString(), occurrences);
+            counts.merge(term.toString(), occurrences, Long::sum);
+        }
+        assertEquals(counts.size(), trie.size());
+        for (String prefix : Arrays.asList("", "a", "b", "ab", "cd", "dab", "abca", "ddddd")) {
+            List<String> expected = counts.entrySet().stream()
+                    .filter(e -> e.getKey().startsWith(prefix))
+                    .sorted(Comparator.<Map.Entry<String, Long>>comparingLong(Map.Entry::getValue).reversed()
+                            .thenComparing(Map.Entry::getKey))
+                    .limit(5)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+            assertEquals(expected, trie.suggest(prefix, 5), prefix);
+        }
+    }
+
+}
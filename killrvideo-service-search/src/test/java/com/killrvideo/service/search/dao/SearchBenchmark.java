@@ -0,0 +1,105 @@
+package com.killrvideo.service.search.dao;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.dse.DseCluster;
+import com.datastax.driver.dse.DseSession;
+import com.datastax.driver.mapping.Mapper;
+import com.datastax.driver.mapping.MappingManager;
+import com.killrvideo.dse.dto.ResultListPage;
+import com.killrvideo.dse.dto.Video;
+
+/**
+ * Compare first pages of {@link LocalInvertedIndex} (profile 'search_local') with DSE Search ({@link SearchDseDao})
+ * on the same table 'videos': latency percentiles and share of DSE results also returned locally.
+ *
+ * Requires a DSE node with Search enabled and the KillrVideo schema, e.g.
+ * 'java SearchBenchmark localhost killrvideo 200 cassandra "data model" spark'.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class SearchBenchmark {
+
+    /** Results per page, as the web UI. */
+    private static final int FETCH_SIZE = 10;
+
+    /** Runs per query before measuring. */
+    private static final int WARMUP = 20;
+
+    public static void main(String[] args) {
+        String contactPoint = args.length > 0 ? args[0] : "localhost";
+        String keyspace     = args.length > 1 ? args[1] : "killrvideo";
+        int iterations      = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        List<String> queries = args.length > 3 ?
+                Arrays.asList(args).subList(3, args.length) :
+                Arrays.asList("cassandra", "data model", "spark", "graph", "datastax enterprise");
+
+        try (DseCluster cluster = DseCluster.builder().addContactPoint(contactPoint).build()) {
+            DseSession session = cluster.connect(keyspace);
+
+            long start = System.currentTimeMillis();
+            Mapper<Video> mapperVideo = new MappingManager(session).mapper(Video.class);
+            LocalInvertedIndex index = new LocalInvertedIndex();
+            mapperVideo.map(session.execute(QueryBuilder.select().all()
+                    .from(keyspace, mapperVideo.getTableMetadata().getName())
+                    .setFetchSize(1000))).forEach(index::index);
+            System.out.println(String.format("Local index loaded with %d videos in %d millis",
+                    index.size(), System.currentTimeMillis() - start));
+
+            SearchDseDao dseSearch = new SearchDseDao(session);
+            System.out.println(String.format("%-24s %12s %12s %12s %12s %8s",
+                    "query", "dse p50 us", "dse p99 us", "local p50 us", "local p99 us", "overlap"));
+            for (String query : queries) {
+                for (int i = 0; i < WARMUP; i++) {
+                    dseSearch.searchVideos(query, FETCH_SIZE, Optional.empty());
+                    index.search(query, null, FETCH_SIZE);
+                }
+                long[] dseMicros   = new long[iterations];
+                long[] localMicros = new long[iterations];
+                ResultListPage<Video> dsePage = null;
+                List<LocalInvertedIndex.Hit> localPage = null;
+                for (int i = 0; i < iterations; i++) {
+                    long t0 = System.nanoTime();
+                    dsePage = dseSearch.searchVideos(query, FETCH_SIZE, Optional.empty());
+                    long t1 = System.nanoTime();
+                    localPage = index.search(query, null, FETCH_SIZE);
+                    long t2 = System.nanoTime();
+                    dseMicros[i]   = (t1 - t0) / 1000;
+                    localMicros[i] = (t2 - t1) / 1000;
+                }
+                System.out.println(String.format("%-24s %12d %12d %12d %12d %7.0f%%", query,
+                        percentile(dseMicros, 50), percentile(dseMicros, 99),
+                        percentile(localMicros, 50), percentile(localMicros, 99),
+                        100 * overlap(dsePage.getResults(), localPage)));
+            }
+        }
+    }
+
+    /**
+     * Value below which 'percent' of the samples fall.
+     */
+    private static long percentile(long[] samples, int percent) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+    }
+
+    /**
+     * Share of DSE results also in the local page (ranking differs, Solr scores are not reproduced).
+     */
+    private static double overlap(List<Video> dseResults, List<LocalInvertedIndex.Hit> localHits) {
+        if (dseResults.isEmpty()) {
+            return localHits.isEmpty() ? 1 : 0;
+        }
+        Set<UUID> local = localHits.stream().map(hit -> hit.getVideo().getVideoid()).collect(Collectors.toSet());
+        long found = dseResults.stream().filter(video -> local.contains(video.getVideoid())).count();
+        return (double) found / dseResults.size();
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.killrvideo.service.search.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link SearchCursor}: round trips and tokens rejected with {@link IllegalArgumentException}.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class SearchCursorTest {
+
+    private static final String QUERY = "cassandra AND data";
+
+    @Test
+    public void keysetRoundTrip() {
+        UUID videoid = UUID.randomUUID();
+        String token = SearchCursor.keyset(42, 1546300800000L, videoid).encode(QUERY);
+        SearchCursor cursor = SearchCursor.decode(token, QUERY);
+        assertTrue(cursor.isKeyset());
+        assertEquals(42, cursor.getScore());
+        assertEquals(1546300800000L, cursor.getAddedDate());
+        assertEquals(videoid, cursor.getVideoid());
+    }
+
+    @Test
+    public void unknownAddedDateRoundTrip() {
+        String token = SearchCursor.keyset(-1, Long.MIN_VALUE, UUID.randomUUID()).encode(QUERY);
+        assertEquals(Long.MIN_VALUE, SearchCursor.decode(token, QUERY).getAddedDate());
+    }
+
+    @Test
+    public void driverRoundTrip() {
+        String pagingState = "001000100a7e3f";
+        SearchCursor cursor = SearchCursor.decode(SearchCursor.driver(pagingState).encode(QUERY), QUERY);
+        assertFalse(cursor.isKeyset());
+        assertEquals(pagingState, cursor.getDriverPagingState());
+    }
+
+    @Test
+    public void tokenIsUrlSafe() {
+        String token = SearchCursor.keyset(Integer.MAX_VALUE, -1L, new UUID(-1L, -1L)).encode(QUERY);
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+    }
+
+    @Test
+    public void otherQueryIsRejected() {
+        String token = SearchCursor.keyset(1, 2, UUID.randomUUID()).encode(QUERY);
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode(token, "cassandra AND spark"));
+    }
+
+    @Test
+    public void notBase64IsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode("not a token!", QUERY));
+    }
+
+    @Test
+    public void truncatedTokenIsRejected() {
+        byte[] bytes = decode(SearchCursor.keyset(1, 2, UUID.randomUUID()).encode(QUERY));
+        for (int length = 0; length < bytes.length; length++) {
+            String truncated = Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(bytes, length));
+            assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode(truncated, QUERY), "length " + length);
+        }
+    }
+
+    @Test
+    public void trailingBytesAreRejected() {
+        byte[] bytes = decode(SearchCursor.keyset(1, 2, UUID.randomUUID()).encode(QUERY));
+        String extended = Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(bytes, bytes.length + 1));
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode(extended, QUERY));
+    }
+
+    @Test
+    public void tamperedHeaderIsRejected() {
+        byte[] bytes = decode(SearchCursor.keyset(1, 2, UUID.randomUUID()).encode(QUERY));
+        // Version, kind, then each byte of the query hash
+        for (int position = 0; position < 6; position++) {
+            byte[] tampered = bytes.clone();
+            tampered[position] ^= 0x40;
+            String token = Base64.getUrlEncoder().withoutPadding().encodeToString(tampered);
+            assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode(token, QUERY), "byte " + position);
+        }
+    }
+
+    private static byte[] decode(String token) {
+        return Base64.getUrlDecoder().decode(token);
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.killrvideo.service.search.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.killrvideo.dse.dto.ResultListPage;
+import com.killrvideo.dse.dto.Video;
+
+/**
+ * Unit tests of {@link SearchResultCache}: concurrent misses share one search, results are cached, errors are not.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class SearchResultCacheTest {
+
+    /** Searches sent to the DAO, completed by the tests. */
+    private final List<String> searchedQueries = new ArrayList<>();
+    private final List<CompletableFuture<ResultListPage<Video>>> pendingSearches = new ArrayList<>();
+
+    private SearchResultCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        SearchDao searchDao = new SearchDao() {
+            @Override
+            public CompletableFuture<ResultListPage<Video>> searchVideosAsync(String query, int fetchSize, Optional<String> pagingState) {
+                CompletableFuture<ResultListPage<Video>> search = new CompletableFuture<>();
+                searchedQueries.add(query + "|" + fetchSize + "|" + pagingState.orElse(""));
+                pendingSearches.add(search);
+                return search;
+            }
+            @Override
+            public CompletableFuture<List<String>> getQuerySuggestionsAsync(String query, int fetchSize) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        SearchQueryAnalytics analytics = new SearchQueryAnalytics() {
+            @Override
+            public void recordSearch(String query, int pageSize, boolean fromCache) {
+                // Not accounted
+            }
+        };
+        cache = new SearchResultCache(searchDao, analytics);
+    }
+
+    @Test
+    public void concurrentMissesShareOneSearch() {
+        CompletableFuture<ResultListPage<Video>> first  = cache.searchVideosAsync("cassandra", 10, Optional.empty());
+        // Same query once normalized
+        CompletableFuture<ResultListPage<Video>> second = cache.searchVideosAsync(" cassandra ", 10, Optional.empty());
+        assertEquals(1, searchedQueries.size());
+        assertSame(first, second);
+        assertFalse(first.isDone());
+
+        ResultListPage<Video> page = new ResultListPage<>();
+        pendingSearches.get(0).complete(page);
+        assertSame(page, first.join());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getCoalesced());
+    }
+
+    @Test
+    public void completedSearchIsCached() {
+        CompletableFuture<ResultListPage<Video>> first = cache.searchVideosAsync("spark", 10, Optional.empty());
+        ResultListPage<Video> page = new ResultListPage<>();
+        pendingSearches.get(0).complete(page);
+        first.join();
+
+        CompletableFuture<ResultListPage<Video>> next = cache.searchVideosAsync("spark", 10, Optional.empty());
+        assertTrue(next.isDone());
+        assertSame(page, next.join());
+        assertEquals(1, searchedQueries.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getSize());
+        assertEquals(0.5, cache.getHitRatio(), 0.001);
+    }
+
+    @Test
+    public void callersSearchingAgainAreServedFromCache() {
+        CompletableFuture<ResultListPage<Video>> first = cache.searchVideosAsync("graph", 10, Optional.empty());
+        List<Boolean> servedFromCache = new ArrayList<>();
+        // Callers of the shared search search again as soon as it completes
+        first.thenRun(() -> servedFromCache.add(cache.searchVideosAsync("graph", 10, Optional.empty()).isDone()));
+        pendingSearches.get(0).complete(new ResultListPage<>());
+        assertEquals(1, servedFromCache.size());
+        assertTrue(servedFromCache.get(0));
+        assertEquals(1, searchedQueries.size());
+    }
+
+    @Test
+    public void errorsAreSharedAndNotCached() {
+        CompletableFuture<ResultListPage<Video>> first  = cache.searchVideosAsync("dse", 10, Optional.empty());
+        CompletableFuture<ResultListPage<Video>> second = cache.searchVideosAsync("dse", 10, Optional.empty());
+        IllegalStateException failure = new IllegalStateException("Solr unavailable");
+        pendingSearches.get(0).completeExceptionally(failure);
+        assertSame(failure, assertThrows(CompletionException.class, first::join).getCause());
+        assertSame(failure, assertThrows(CompletionException.class, second::join).getCause());
+
+        // Next request searches again
+        cache.searchVideosAsync("dse", 10, Optional.empty());
+        assertEquals(2, searchedQueries.size());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void exceptionRaisedByDaoCompletesSharedSearch() {
+        SearchResultCache failingCache = new SearchResultCache(new SearchDao() {
+            @Override
+            public CompletableFuture<ResultListPage<Video>> searchVideosAsync(String query, int fetchSize, Optional<String> pagingState) {
+                throw new IllegalArgumentException("Invalid query");
+            }
+            @Override
+            public CompletableFuture<List<String>> getQuerySuggestionsAsync(String query, int fetchSize) {
+                throw new UnsupportedOperationException();
+            }
+        }, new SearchQueryAnalytics() {
+            @Override
+            public void recordSearch(String query, int pageSize, boolean fromCache) {
+                // Not accounted
+            }
+        });
+        CompletableFuture<ResultListPage<Video>> search = failingCache.searchVideosAsync("(", 10, Optional.empty());
+        assertTrue(search.isCompletedExceptionally());
+        assertTrue(assertThrows(CompletionException.class, search::join).getCause() instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void pageSizesAndNextPagesAreNotShared() {
+        cache.searchVideosAsync("kafka", 10, Optional.empty());
+        cache.searchVideosAsync("kafka", 20, Optional.empty());
+        cache.searchVideosAsync("kafka", 10, Optional.of("cursor"));
+        cache.searchVideosAsync("kafka", 10, Optional.of("cursor"));
+        assertEquals(4, searchedQueries.size());
+        assertEquals("kafka|10|cursor", searchedQueries.get(3));
+        assertEquals(2, cache.getMisses());
+    }
+
+}
@@ -0,0 +1,86 @@
+package com.killrvideo.service.search.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link SuggestionExtractor}.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class SuggestionExtractorTest {
+
+    private static Set<String> extract(String query, Set<String> ignoredWords, String... texts) {
+        SuggestionExtractor extractor = new SuggestionExtractor(query, ignoredWords);
+        Set<String> suggestions = new TreeSet<>();
+        for (String text : texts) {
+            extractor.extract(text, suggestions);
+        }
+        return suggestions;
+    }
+
+    @Test
+    public void wordsStartingWithQueryInLowerCase() {
+        assertEquals(new TreeSet<>(Arrays.asList("cassandra", "cass", "cast")),
+                extract("cas", Collections.emptySet(), "Cassandra and CASS", "Podcast, cast", null));
+    }
+
+    @Test
+    public void onlyAtWordStart() {
+        assertTrue(extract("data", Collections.emptySet(), "bigdata metadata_store").isEmpty());
+        assertEquals(Collections.singleton("datastax"), extract("data", Collections.emptySet(), "(datastax)"));
+    }
+
+    @Test
+    public void wordEndsAtFirstNonLetter() {
+        // Digits are word chars: 'spark2' is one word not matching 'spark[a-z]*'
+        assertTrue(extract("spark", Collections.emptySet(), "spark2").isEmpty());
+        assertEquals(Collections.singleton("spark"), extract("spark", Collections.emptySet(), "spark-streaming"));
+    }
+
+    @Test
+    public void ignoredWordsAreSkipped() {
+        assertEquals(Collections.singleton("thing"),
+                extract("th", new HashSet<>(Arrays.asList("the", "this")), "The thing this"));
+    }
+
+    @Test
+    public void emptyQueryHasNoSuggestion() {
+        assertTrue(extract("", Collections.emptySet(), "anything").isEmpty());
+    }
+
+    @Test
+    public void sameMatchesAsRegularExpression() {
+        Random random = new Random(7);
+        char[] alphabet = { 'a', 'b', 'A', 'B', '1', '_', ' ', '-', '.', 'e' };
+        for (int round = 0; round < 2000; round++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = random.nextInt(30); i > 0; i--) {
+                text.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            StringBuilder query = new StringBuilder();
+            for (int i = 1 + random.nextInt(3); i > 0; i--) {
+                query.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            Set<String> expected = new TreeSet<>();
+            Matcher regex = Pattern.compile("(?i)\\b" + Pattern.quote(query.toString()) + "[a-z]*\\b").matcher(text);
+            while (regex.find()) {
+                expected.add(regex.group().toLowerCase());
+            }
+            assertEquals(expected, extract(query.toString(), Collections.emptySet(), text.toString()),
+                    "'" + query + "' in '" + text + "'");
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.killrvideo.service.statistic.dao;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import com.killrvideo.utils.SpaceSavingSketch;
+
+/**
+ * Detect videos receiving more plays than a threshold per second.
+ *
+ * Plays are counted before aggregation (a mutation of N aggregated plays counts N), so that the threshold keeps
+ * its meaning whatever the flush interval of {@link PlaybackCounterAggregator}. Plays of the current second are
+ * counted in a {@link SpaceSavingSketch}, memory is bounded whatever the number of videos. A video above the threshold stays hot during 'retentionMillis' after it was last seen
+ * above the threshold, to avoid flapping between sharded and non sharded writes.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class HotVideoDetector {
+
+    /** Size of a counting window. */
+    private static final long WINDOW_MILLIS = 1000;
+
+    /** Plays per second to become hot. */
+    private final long threshold;
+
+    /** Time a video stays hot after last detection. */
+    private final long retentionMillis;
+
+    /** Number of videos tracked per window. */
+    private final int capacity;
+
+    /** Plays of current window. */
+    private volatile SpaceSavingSketch<UUID> currentWindow;
+
+    /** Start of current window. */
+    private volatile long currentWindowStart;
+
+    /** Hot videos with expiration time. */
+    private final Map<UUID, Long> hotVideos = new ConcurrentHashMap<>();
+
+    /** Current time in millis. */
+    private final LongSupplier clock;
+
+    /**
+     * Constructor.
+     *
+     * @param threshold
+     *      plays per second to become hot
+     * @param retentionMillis
+     *      time a video stays hot after last detection
+     * @param capacity
+     *      number of videos tracked per window
+     */
+    public HotVideoDetector(long threshold, long retentionMillis, int capacity) {
+        this(threshold, retentionMillis, capacity, System::currentTimeMillis);
+    }
+
+    /**
+     * Allow explicit clock for test purpose.
+     */
+    HotVideoDetector(long threshold, long retentionMillis, int capacity, LongSupplier clock) {
+        this.threshold          = threshold;
+        this.retentionMillis    = retentionMillis;
+        this.capacity           = capacity;
+        this.clock              = clock;
+        this.currentWindow      = new SpaceSavingSketch<>(capacity);
+        this.currentWindowStart = clock.getAsLong();
+    }
+
+    /**
+     * Account plays of a video.
+     *
+     * @param videoId
+     *      current video
+     * @param plays
+     *      number of plays, several when aggregated
+     * @return
+     *      if the video is hot
+     */
+    public boolean recordPlays(UUID videoId, long plays) {
+        long now = clock.getAsLong();
+        if (now - currentWindowStart >= WINDOW_MILLIS) {
+            rollWindow(now);
+        }
+        SpaceSavingSketch<UUID> window = currentWindow;
+        window.offer(videoId, plays);
+        if (window.lowerBound(videoId) >= threshold) {
+            hotVideos.put(videoId, now + retentionMillis);
+            return true;
+        }
+        Long hotUntil = hotVideos.get(videoId);
+        if (hotUntil == null) {
+            return false;
+        }
+        if (hotUntil < now) {
+            hotVideos.remove(videoId, hotUntil);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Start a new window, and forget videos which are not hot anymore.
+     */
+    private synchronized void rollWindow(long now) {
+        if (now - currentWindowStart >= WINDOW_MILLIS) {
+            currentWindow      = new SpaceSavingSketch<>(capacity);
+            currentWindowStart = now;
+            hotVideos.values().removeIf(hotUntil -> hotUntil < now);
+        }
+    }
+
+    /**
+     * Number of videos currently hot.
+     */
+    public int getHotVideoCount() {
+        return hotVideos.size();
+    }
+
+}
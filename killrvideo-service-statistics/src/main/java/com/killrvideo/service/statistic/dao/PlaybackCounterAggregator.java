@@ -0,0 +1,453 @@
+package com.killrvideo.service.statistic.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import com.datastax.driver.core.exceptions.BusyPoolException;
+import com.datastax.driver.core.exceptions.NoHostAvailableException;
+import com.datastax.driver.core.exceptions.OverloadedException;
+import com.datastax.driver.core.exceptions.UnavailableException;
+import com.killrvideo.messaging.conf.KillrVideoThreadFactory;
+
+/**
+ * Write-behind aggregation of playback counters.
+ *
+ * Each play is added to an in-memory striped counter ({@link LongAdder}) keyed by videoid, and the
+ * accumulated deltas are flushed to DSE on a fixed interval as a single increment per video. A hot video
+ * played thousands of times per second then costs one counter mutation per interval instead of one per play.
+ *
+ * The number of videos tracked between two flushes is bounded, when the map is full the play is written
+ * through to DSE directly and an early flush is requested. Pending deltas are flushed on shutdown.
+ *
+ * Counter increments are not idempotent. A delta is sent again on next flush only when its mutation was
+ * certainly not applied (no replica available, coordinator overloaded, no connection), up to 'maxKeys' videos
+ * waiting for a retry. Other failures, write timeouts first, may have been applied: the delta is dropped and
+ * counted rather than counted twice.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Component
+@ManagedResource(objectName = "killrvideo:type=Statistics,name=PlaybackCounterAggregator")
+public class PlaybackCounterAggregator {
+
+    /** Loger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(PlaybackCounterAggregator.class);
+
+    @Value("${killrvideo.statistics.aggregator.enabled: true}")
+    private boolean enabled = true;
+
+    @Value("${killrvideo.statistics.aggregator.flushIntervalMillis: 1000}")
+    private long flushIntervalMillis = 1000;
+
+    @Value("${killrvideo.statistics.aggregator.maxKeys: 100000}")
+    private int maxKeys = 100000;
+
+    @Value("${killrvideo.statistics.aggregator.maxInFlight: 256}")
+    private int maxInFlight = 256;
+
+    @Value("${killrvideo.statistics.aggregator.shutdownTimeoutMillis: 10000}")
+    private long shutdownTimeoutMillis = 10000;
+
+    @Autowired
+    private StatisticsDseDao statisticsDseDao;
+
+    /** Pending plays per video, since last flush. */
+    private final Map<UUID, LongAdder> pendingPlays = new ConcurrentHashMap<>();
+
+    /**
+     * Counters removed from the map during previous flush. A thread may still hold a reference and increment
+     * it right after removal, those late plays are drained during next flush.
+     */
+    private List<LongAdder> retiredCounters = new ArrayList<>();
+    private List<UUID>      retiredVideoIds = new ArrayList<>();
+
+    /** Deltas of mutations certainly not applied, sent again on next flush, at most 'maxKeys' videos. */
+    private final Map<UUID, Long> retryPlays = new ConcurrentHashMap<>();
+
+    /** Notified once with each aggregated delta (videoid, plays), retries excluded. */
+    private final List<BiConsumer<UUID, Long>> flushListeners = new CopyOnWriteArrayList<>();
+
+    /** Bound number of concurrent counter mutations sent to DSE by a flush. */
+    private Semaphore inFlight;
+
+    /** Flushing thread. */
+    private ScheduledExecutorService scheduler;
+
+    /** Avoid stacking flushes when an early flush is requested. */
+    private final AtomicBoolean earlyFlushRequested = new AtomicBoolean(false);
+
+    /** Metrics. */
+    private final LongAdder  totalPlaysRecorded       = new LongAdder();
+    private final LongAdder  totalPlaysWrittenThrough = new LongAdder();
+    private final LongAdder  totalMutationsSent       = new LongAdder();
+    private final LongAdder  totalMutationsFailed     = new LongAdder();
+    private final LongAdder  totalPlaysUnknownOutcome = new LongAdder();
+    private final LongAdder  totalPlaysDropped        = new LongAdder();
+    private final AtomicLong lastFlushVideoCount      = new AtomicLong();
+    private final AtomicLong lastFlushPlayCount       = new AtomicLong();
+    private final AtomicLong lastFlushDurationMillis  = new AtomicLong();
+    private final AtomicLong lastFlushTimestamp       = new AtomicLong(System.currentTimeMillis());
+
+    /**
+     * Default constructor.
+     */
+    public PlaybackCounterAggregator() {
+    }
+
+    /**
+     * Explicit initialization for test purpose.
+     */
+    PlaybackCounterAggregator(StatisticsDseDao statisticsDseDao, int maxKeys, long flushIntervalMillis) {
+        this.statisticsDseDao    = statisticsDseDao;
+        this.maxKeys             = maxKeys;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    /**
+     * Start the flushing thread.
+     */
+    @PostConstruct
+    public void start() {
+        inFlight = new Semaphore(maxInFlight);
+        if (enabled) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new KillrVideoThreadFactory());
+            scheduler.scheduleWithFixedDelay(this::flushSafely, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+            LOGGER.info("Playback counters aggregated in memory and flushed every {} millis (maxKeys={})", flushIntervalMillis, maxKeys);
+        }
+    }
+
+    /**
+     * Record a play for a video. Returned future completes as soon as the play is accounted in memory.
+     *
+     * @param videoId
+     *      current videoid
+     * @return
+     *      future completed when the play has been recorded
+     */
+    public CompletableFuture<Void> recordPlaybackStarted(UUID videoId) {
+        return recordPlaybacks(videoId, 1);
+    }
+
+    /**
+     * Record several plays for a video at once.
+     *
+     * @param videoId
+     *      current videoid
+     * @param plays
+     *      number of plays to add
+     * @return
+     *      future completed when the plays have been recorded
+     */
+    public CompletableFuture<Void> recordPlaybacks(UUID videoId, long plays) {
+        Assert.notNull(videoId, "videoid is required to update statistics");
+        Assert.isTrue(plays > 0, "number of plays must be strictly positive to update statistics");
+        if (!enabled) {
+            notifyFlushListeners(videoId, plays);
+            return statisticsDseDao.incrementPlaybacksAsync(videoId, plays);
+        }
+        totalPlaysRecorded.add(plays);
+        LongAdder counter = pendingPlays.get(videoId);
+        if (counter == null) {
+            if (pendingPlays.size() >= maxKeys) {
+                // Bounded memory, do not track a new key and ask for a flush to free slots
+                totalPlaysWrittenThrough.add(plays);
+                requestEarlyFlush();
+                notifyFlushListeners(videoId, plays);
+                return statisticsDseDao.incrementPlaybacksAsync(videoId, plays);
+            }
+            counter = pendingPlays.computeIfAbsent(videoId, k -> new LongAdder());
+        }
+        counter.add(plays);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Flush all pending deltas as one increment per video.
+     *
+     * @return
+     *      future completed when all mutations have been acknowledged
+     */
+    public synchronized CompletableFuture<Void> flush() {
+        long top = System.currentTimeMillis();
+        List<CompletableFuture<Void>> mutations = new ArrayList<>();
+        long videoCount = 0;
+        long playCount  = 0;
+
+        // Mutations which failed during previous flush
+        for (UUID videoId : retryPlays.keySet()) {
+            Long delta = retryPlays.remove(videoId);
+            if (delta != null) {
+                mutations.add(sendIncrement(videoId, delta));
+                videoCount++;
+                playCount += delta;
+            }
+        }
+
+        // Late increments on counters removed during previous flush
+        for (int idx = 0; idx < retiredCounters.size(); idx++) {
+            long delta = retiredCounters.get(idx).sumThenReset();
+            if (delta > 0) {
+                notifyFlushListeners(retiredVideoIds.get(idx), delta);
+                mutations.add(sendIncrement(retiredVideoIds.get(idx), delta));
+                videoCount++;
+                playCount += delta;
+            }
+        }
+        retiredCounters = new ArrayList<>();
+        retiredVideoIds = new ArrayList<>();
+
+        for (Map.Entry<UUID, LongAdder> entry : pendingPlays.entrySet()) {
+            long delta = entry.getValue().sumThenReset();
+            if (delta > 0) {
+                notifyFlushListeners(entry.getKey(), delta);
+                mutations.add(sendIncrement(entry.getKey(), delta));
+                videoCount++;
+                playCount += delta;
+            } else if (pendingPlays.remove(entry.getKey(), entry.getValue())) {
+                // No play during the interval, release the slot
+                retiredCounters.add(entry.getValue());
+                retiredVideoIds.add(entry.getKey());
+            }
+        }
+
+        lastFlushVideoCount.set(videoCount);
+        lastFlushPlayCount.set(playCount);
+        return CompletableFuture.allOf(mutations.toArray(new CompletableFuture[mutations.size()]))
+                .whenComplete((v, error) -> {
+                    lastFlushDurationMillis.set(System.currentTimeMillis() - top);
+                    lastFlushTimestamp.set(System.currentTimeMillis());
+                    if (LOGGER.isDebugEnabled()) {
+                        LOGGER.debug("Flushed {} plays for {} videos in {} millis",
+                                lastFlushPlayCount.get(), lastFlushVideoCount.get(), lastFlushDurationMillis.get());
+                    }
+                });
+    }
+
+    /**
+     * Send one increment to DSE, if it certainly failed the delta is put back to be retried on next flush.
+     */
+    private CompletableFuture<Void> sendIncrement(UUID videoId, long delta) {
+        inFlight.acquireUninterruptibly();
+        totalMutationsSent.increment();
+        return statisticsDseDao.incrementPlaybacksAsync(videoId, delta).whenComplete((v, error) -> {
+            inFlight.release();
+            if (error != null) {
+                totalMutationsFailed.increment();
+                onFailedIncrement(videoId, delta, error);
+            }
+        });
+    }
+
+    /**
+     * Retry a delta only if its mutation was not applied, the retries are bounded like pending plays.
+     */
+    private void onFailedIncrement(UUID videoId, long delta, Throwable error) {
+        Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+        if (!isNotApplied(cause)) {
+            // Write timeout (or unexpected error), the increment may have been applied: never count it twice
+            totalPlaysUnknownOutcome.add(delta);
+            LOGGER.error("Outcome of {} plays for video {} is unknown, not retried", delta, videoId, cause);
+        } else if (retryPlays.size() >= maxKeys && !retryPlays.containsKey(videoId)) {
+            totalPlaysDropped.add(delta);
+            LOGGER.error("Cannot flush {} plays for video {}, too many videos waiting for a retry, dropped", delta, videoId, cause);
+        } else {
+            LOGGER.warn("Cannot flush {} plays for video {}, will retry on next flush", delta, videoId, cause);
+            retryPlays.merge(videoId, delta, Long::sum);
+        }
+    }
+
+    /**
+     * Failures where the coordinator did not apply the mutation (or it was never sent), safe to retry.
+     */
+    static boolean isNotApplied(Throwable cause) {
+        return cause instanceof UnavailableException
+                || cause instanceof NoHostAvailableException
+                || cause instanceof OverloadedException
+                || cause instanceof BusyPoolException;
+    }
+
+    /**
+     * Register a component interested in aggregated plays (trending, sketches...). Listeners are invoked
+     * from the flushing thread and must not block.
+     *
+     * @param listener
+     *      callback receiving videoid and number of plays
+     */
+    public void addFlushListener(BiConsumer<UUID, Long> listener) {
+        flushListeners.add(listener);
+    }
+
+    /**
+     * Invoke listeners, a failing listener does not prevent the flush.
+     */
+    private void notifyFlushListeners(UUID videoId, long plays) {
+        for (BiConsumer<UUID, Long> listener : flushListeners) {
+            try {
+                listener.accept(videoId, plays);
+            } catch (RuntimeException e) {
+                LOGGER.warn("Flush listener failed for video {}", videoId, e);
+            }
+        }
+    }
+
+    /**
+     * Scheduled flush, exceptions would cancel the schedule.
+     */
+    private void flushSafely() {
+        earlyFlushRequested.set(false);
+        try {
+            flush().join();
+        } catch (RuntimeException e) {
+            LOGGER.error("Error during flush of playback counters", e);
+        }
+    }
+
+    /**
+     * Map is full, flush without waiting for the next interval.
+     */
+    private void requestEarlyFlush() {
+        if (!scheduler.isShutdown() && earlyFlushRequested.compareAndSet(false, true)) {
+            scheduler.execute(this::flushSafely);
+        }
+    }
+
+    /**
+     * Stop flushing thread and force a flush of everything pending.
+     */
+    @PreDestroy
+    public void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        LOGGER.info("Flushing playback counters before shutdown");
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS);
+            // Twice to drain counters retired by the previous flush
+            flush().get(shutdownTimeoutMillis, TimeUnit.MILLISECONDS);
+            flush().get(shutdownTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            LOGGER.error("Timeout while flushing playback counters, some plays may be lost", e);
+        } catch (Exception e) {
+            LOGGER.error("Error while flushing playback counters, some plays may be lost", e);
+        }
+    }
+
+    /**
+     * Number of videos with pending plays.
+     */
+    @ManagedAttribute
+    public int getPendingVideoCount() {
+        return pendingPlays.size() + retryPlays.size();
+    }
+
+    /**
+     * Time elapsed since last completed flush (lag of the counters in DSE).
+     */
+    @ManagedAttribute
+    public long getFlushLagMillis() {
+        return System.currentTimeMillis() - lastFlushTimestamp.get();
+    }
+
+    /**
+     * Getter for attribute 'lastFlushVideoCount'.
+     */
+    @ManagedAttribute
+    public long getLastFlushVideoCount() {
+        return lastFlushVideoCount.get();
+    }
+
+    /**
+     * Getter for attribute 'lastFlushPlayCount'.
+     */
+    @ManagedAttribute
+    public long getLastFlushPlayCount() {
+        return lastFlushPlayCount.get();
+    }
+
+    /**
+     * Getter for attribute 'lastFlushDurationMillis'.
+     */
+    @ManagedAttribute
+    public long getLastFlushDurationMillis() {
+        return lastFlushDurationMillis.get();
+    }
+
+    /**
+     * Getter for attribute 'totalPlaysRecorded'.
+     */
+    @ManagedAttribute
+    public long getTotalPlaysRecorded() {
+        return totalPlaysRecorded.sum();
+    }
+
+    /**
+     * Getter for attribute 'totalPlaysWrittenThrough'.
+     */
+    @ManagedAttribute
+    public long getTotalPlaysWrittenThrough() {
+        return totalPlaysWrittenThrough.sum();
+    }
+
+    /**
+     * Getter for attribute 'totalMutationsSent'.
+     */
+    @ManagedAttribute
+    public long getTotalMutationsSent() {
+        return totalMutationsSent.sum();
+    }
+
+    /**
+     * Getter for attribute 'totalMutationsFailed'.
+     */
+    @ManagedAttribute
+    public long getTotalMutationsFailed() {
+        return totalMutationsFailed.sum();
+    }
+
+    /**
+     * Plays of failed mutations that may have been applied (write timeouts), not retried.
+     */
+    @ManagedAttribute
+    public long getTotalPlaysUnknownOutcome() {
+        return totalPlaysUnknownOutcome.sum();
+    }
+
+    /**
+     * Plays of failed mutations not retried because 'maxKeys' videos were already waiting for a retry.
+     */
+    @ManagedAttribute
+    public long getTotalPlaysDropped() {
+        return totalPlaysDropped.sum();
+    }
+
+}
@@ -1,23 +1,54 @@
 package com.killrvideo.service.statistic.dao;
 
+import static com.killrvideo.dse.dao.PlaybackCounterDseDao.COLUMN_SHARD;
+import static com.killrvideo.dse.dao.PlaybackCounterDseDao.COLUMN_SHARDS;
+import static com.killrvideo.dse.dao.PlaybackCounterDseDao.COLUMN_UNIT;
+import static com.killrvideo.dse.dao.PlaybackCounterDseDao.LIFETIME_BUCKET;
+import static com.killrvideo.dse.dao.PlaybackCounterDseDao.UNIT_LIFETIME;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
 
+import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.RegularStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.datastax.driver.dse.DseSession;
 import com.datastax.driver.mapping.Mapper;
 import com.killrvideo.dse.dao.DseDaoSupport;
+import com.killrvideo.dse.dao.PlaybackCounterDseDao;
+import com.killrvideo.service.statistic.dto.PlaybackWindow;
 import com.killrvideo.service.statistic.dto.VideoPlaybackStats;
+import com.killrvideo.service.statistic.dto.VideoUniqueViewers;
+import com.killrvideo.service.statistic.dto.WindowedPlaybackStats;
 import com.killrvideo.utils.FutureUtils;
+import com.killrvideo.utils.HyperLogLog;
 
 /**
  * Implementations of operation for Videos.
@@ -27,14 +58,86 @@ import com.killrvideo.utils.FutureUtils;
 @Repository
 public class StatisticsDseDao extends DseDaoSupport {
 
+    /** Loger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(StatisticsDseDao.class);
+
     /** Table Names. */
-    public static final String TABLENAME_PLAYBACK_STATS = "video_playback_stats";
+    public static final String TABLENAME_PLAYBACK_STATS         = PlaybackCounterDseDao.TABLENAME_PLAYBACK_STATS;
+    public static final String TABLENAME_PLAYBACK_STATS_BY_HOUR = "video_playback_stats_by_hour";
+    public static final String TABLENAME_PLAYBACK_STATS_BY_DAY  = "video_playback_stats_by_day";
+    public static final String TABLENAME_UNIQUE_VIEWERS         = "video_unique_viewers";
+    public static final String TABLENAME_PLAYBACK_STATS_SHARDED = PlaybackCounterDseDao.TABLENAME_PLAYBACK_STATS_SHARDED;
+    public static final String TABLENAME_PLAYBACK_SHARDS        = PlaybackCounterDseDao.TABLENAME_PLAYBACK_SHARDS;
+    
+    /** Number of videos tracked each second to detect hot videos, and of registrations of shards kept. */
+    private static final int HOT_VIDEOS_CAPACITY = 1000;
+
+    /** Number of videos (and shards) whose expired hour buckets are tracked as purged for the current day. */
+    private static final int PURGED_HOUR_BUCKETS_CAPACITY = 100000;
+
+    /** Maximum number of partitions read at the same time for a windowed query. */
+    @Value("${killrvideo.statistics.windowed.maxConcurrentReads: 8}")
+    private int maxConcurrentWindowedReads = 8;
+    
+    /** Hour buckets older than this are deleted, counters cannot be written with a TTL. */
+    @Value("${killrvideo.statistics.windowed.hourRetentionHours: 192}")
+    private int hourRetentionHours = 192;
+    
+    /** Spread increments of hot videos over several partitions. */
+    @Value("${killrvideo.statistics.sharding.enabled: true}")
+    private boolean shardingEnabled = true;
+    
+    /** Plays per second (on this node, before aggregation) for a video to be considered hot. */
+    @Value("${killrvideo.statistics.sharding.hotPlaysPerSecond: 50}")
+    private long hotPlaysPerSecond = 50;
+    
+    /** Time a video stays sharded after it was last seen hot. */
+    @Value("${killrvideo.statistics.sharding.hotRetentionMillis: 600000}")
+    private long hotRetentionMillis = 600000;
+    
+    /** Number of shards for a hot video, shard 0 included. */
+    @Value("${killrvideo.statistics.sharding.shards: 8}")
+    private int shardCount = 8;
+    
+    /** Layout of sharded counters, shared with readers of other services. */
+    @Autowired
+    private PlaybackCounterDseDao playbackCounterDseDao;
+    
+    /** Detect hot videos. */
+    private HotVideoDetector hotVideoDetector;
+    
+    /**
+     * Registration of shards by hot video, writes go to shard 0 until registration is acknowledged. Least recently
+     * used registrations are evicted, an evicted video hot again is registered again (set union is idempotent).
+     */
+    private final Map<UUID, CompletableFuture<Void>> registeredShards = Collections.synchronizedMap(
+            new LinkedHashMap<UUID, CompletableFuture<Void>>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<UUID, CompletableFuture<Void>> eldest) {
+                    return size() > HOT_VIDEOS_CAPACITY;
+                }
+            });
+    
+    /** Partitions (video and shard) whose expired hour buckets have been deleted today, replaced as a whole each day. */
+    private final AtomicReference<PurgedHourBuckets> purgedHourBuckets =
+            new AtomicReference<>(new PurgedHourBuckets(new Date(0)));
     
     /** Mapper to ease queries. */
     protected  Mapper< VideoPlaybackStats > mappervideoPlaybackStats;
     
     /** Precompile statements to speed up queries. */
     private PreparedStatement incrRecordPlayBacks;
+    private Map < PlaybackWindow, PreparedStatement > incrRecordPlayBacksByWindow = new EnumMap<>(PlaybackWindow.class);
+    private Map < PlaybackWindow, PreparedStatement > findPlayBacksByWindow       = new EnumMap<>(PlaybackWindow.class);
+    private PreparedStatement findUniqueViewers;
+    private PreparedStatement findUniqueViewersByWriter;
+    private PreparedStatement insertUniqueViewers;
+    private PreparedStatement incrShardedPlayBacks;
+    private PreparedStatement findShardedPlayBacksByWindow;
+    private PreparedStatement registerShards;
+    private PreparedStatement deleteExpiredHourBuckets;
+    private PreparedStatement deleteExpiredShardedHourBuckets;
     
     /**
      * Default constructor.
@@ -48,6 +151,7 @@ public class StatisticsDseDao extends DseDaoSupport {
      */
     public StatisticsDseDao(DseSession dseSession) {
         super(dseSession);
+        this.playbackCounterDseDao = new PlaybackCounterDseDao(dseSession);
     }
 
     /** {@inheritDoc} */
@@ -62,10 +166,102 @@ public class StatisticsDseDao extends DseDaoSupport {
         String tableNamePlayback = mappervideoPlaybackStats.getTableMetadata().getName();
         RegularStatement queryIncPaylBack = QueryBuilder
                 .update(keyspacePlayback, tableNamePlayback)
-                .with(QueryBuilder.incr(VideoPlaybackStats.COLUMN_VIEWS))
+                .with(QueryBuilder.incr(VideoPlaybackStats.COLUMN_VIEWS, QueryBuilder.bindMarker(VideoPlaybackStats.COLUMN_VIEWS)))
                 .where(QueryBuilder.eq(VideoPlaybackStats.COLUMN_VIDEOID, QueryBuilder.bindMarker()));
         incrRecordPlayBacks = dseSession.prepare(queryIncPaylBack);
         incrRecordPlayBacks.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+
+        // Same increment on time buckets, and range reads of the latest buckets
+        for (PlaybackWindow window : PlaybackWindow.values()) {
+            RegularStatement queryIncWindow = QueryBuilder
+                    .update(keyspacePlayback, window.getTableName())
+                    .with(QueryBuilder.incr(VideoPlaybackStats.COLUMN_VIEWS, QueryBuilder.bindMarker(VideoPlaybackStats.COLUMN_VIEWS)))
+                    .where(QueryBuilder.eq(VideoPlaybackStats.COLUMN_VIDEOID, QueryBuilder.bindMarker()))
+                    .and(QueryBuilder.eq(WindowedPlaybackStats.COLUMN_BUCKET, QueryBuilder.bindMarker()));
+            PreparedStatement psIncWindow = dseSession.prepare(queryIncWindow);
+            psIncWindow.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+            incrRecordPlayBacksByWindow.put(window, psIncWindow);
+
+            RegularStatement queryFindWindow = QueryBuilder
+                    .select(WindowedPlaybackStats.COLUMN_BUCKET, VideoPlaybackStats.COLUMN_VIEWS)
+                    .from(keyspacePlayback, window.getTableName())
+                    .where(QueryBuilder.eq(VideoPlaybackStats.COLUMN_VIDEOID, QueryBuilder.bindMarker()))
+                    .and(QueryBuilder.gte(WindowedPlaybackStats.COLUMN_BUCKET, QueryBuilder.bindMarker()));
+            PreparedStatement psFindWindow = dseSession.prepare(queryFindWindow);
+            psFindWindow.setConsistencyLevel(ConsistencyLevel.LOCAL_ONE);
+            findPlayBacksByWindow.put(window, psFindWindow);
+        }
+        
+        // Unique viewers sketches
+        RegularStatement queryFindUniqueViewers = QueryBuilder
+                .select(VideoUniqueViewers.COLUMN_VIEWERS_HLL)
+                .from(keyspacePlayback, TABLENAME_UNIQUE_VIEWERS)
+                .where(QueryBuilder.eq(VideoUniqueViewers.COLUMN_VIDEOID, QueryBuilder.bindMarker()));
+        findUniqueViewers = dseSession.prepare(queryFindUniqueViewers);
+        findUniqueViewers.setConsistencyLevel(ConsistencyLevel.LOCAL_ONE);
+        RegularStatement queryFindUniqueViewersByWriter = QueryBuilder
+                .select(VideoUniqueViewers.COLUMN_VIEWERS_HLL)
+                .from(keyspacePlayback, TABLENAME_UNIQUE_VIEWERS)
+                .where(QueryBuilder.eq(VideoUniqueViewers.COLUMN_VIDEOID, QueryBuilder.bindMarker()))
+                .and(QueryBuilder.eq(VideoUniqueViewers.COLUMN_WRITER, QueryBuilder.bindMarker()));
+        findUniqueViewersByWriter = dseSession.prepare(queryFindUniqueViewersByWriter);
+        findUniqueViewersByWriter.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+        RegularStatement queryInsertUniqueViewers = QueryBuilder
+                .insertInto(keyspacePlayback, TABLENAME_UNIQUE_VIEWERS)
+                .value(VideoUniqueViewers.COLUMN_VIDEOID,      QueryBuilder.bindMarker())
+                .value(VideoUniqueViewers.COLUMN_WRITER,       QueryBuilder.bindMarker())
+                .value(VideoUniqueViewers.COLUMN_VIEWERS_HLL,  QueryBuilder.bindMarker())
+                .value(VideoUniqueViewers.COLUMN_UPDATED_DATE, QueryBuilder.bindMarker());
+        insertUniqueViewers = dseSession.prepare(queryInsertUniqueViewers);
+        insertUniqueViewers.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+        
+        // Sharded counters of hot videos
+        hotVideoDetector = new HotVideoDetector(hotPlaysPerSecond, hotRetentionMillis, HOT_VIDEOS_CAPACITY);
+        RegularStatement queryIncSharded = QueryBuilder
+                .update(keyspacePlayback, TABLENAME_PLAYBACK_STATS_SHARDED)
+                .with(QueryBuilder.incr(VideoPlaybackStats.COLUMN_VIEWS, QueryBuilder.bindMarker(VideoPlaybackStats.COLUMN_VIEWS)))
+                .where(QueryBuilder.eq(VideoPlaybackStats.COLUMN_VIDEOID, QueryBuilder.bindMarker()))
+                .and(QueryBuilder.eq(COLUMN_SHARD, QueryBuilder.bindMarker()))
+                .and(QueryBuilder.eq(COLUMN_UNIT, QueryBuilder.bindMarker()))
+                .and(QueryBuilder.eq(WindowedPlaybackStats.COLUMN_BUCKET, QueryBuilder.bindMarker()));
+        incrShardedPlayBacks = dseSession.prepare(queryIncSharded);
+        incrShardedPlayBacks.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+        RegularStatement queryFindShardedByWindow = QueryBuilder
+                .select(WindowedPlaybackStats.COLUMN_BUCKET, VideoPlaybackStats.COLUMN_VIEWS)
+                .from(keyspacePlayback, TABLENAME_PLAYBACK_STATS_SHARDED)
+                .where(QueryBuilder.eq(VideoPlaybackStats.COLUMN_VIDEOID, QueryBuilder.bindMarker()))
+                .and(QueryBuilder.in(COLUMN_SHARD, QueryBuilder.bindMarker(COLUMN_SHARDS)))
+                .and(QueryBuilder.eq(COLUMN_UNIT, QueryBuilder.bindMarker()))
+                .and(QueryBuilder.gte(WindowedPlaybackStats.COLUMN_BUCKET, QueryBuilder.bindMarker()));
+        findShardedPlayBacksByWindow = dseSession.prepare(queryFindShardedByWindow);
+        findShardedPlayBacksByWindow.setConsistencyLevel(ConsistencyLevel.LOCAL_ONE);
+        // Set union is idempotent and commutative, no need for lightweight transaction
+        RegularStatement queryRegisterShards = QueryBuilder
+                .update(keyspacePlayback, TABLENAME_PLAYBACK_SHARDS)
+                .with(QueryBuilder.addAll(COLUMN_SHARDS, QueryBuilder.bindMarker(COLUMN_SHARDS)))
+                .where(QueryBuilder.eq(VideoPlaybackStats.COLUMN_VIDEOID, QueryBuilder.bindMarker()));
+        registerShards = dseSession.prepare(queryRegisterShards);
+        registerShards.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+        
+        // Expired hour buckets, a single range tombstone per partition
+        Assert.isTrue(hourRetentionHours > PlaybackWindow.HOUR.getMaxBuckets(), 
+                "killrvideo.statistics.windowed.hourRetentionHours must be greater than " + PlaybackWindow.HOUR.getMaxBuckets());
+        RegularStatement queryDeleteHourBuckets = QueryBuilder
+                .delete()
+                .from(keyspacePlayback, TABLENAME_PLAYBACK_STATS_BY_HOUR)
+                .where(QueryBuilder.eq(VideoPlaybackStats.COLUMN_VIDEOID, QueryBuilder.bindMarker()))
+                .and(QueryBuilder.lt(WindowedPlaybackStats.COLUMN_BUCKET, QueryBuilder.bindMarker()));
+        deleteExpiredHourBuckets = dseSession.prepare(queryDeleteHourBuckets);
+        deleteExpiredHourBuckets.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+        RegularStatement queryDeleteShardedHourBuckets = QueryBuilder
+                .delete()
+                .from(keyspacePlayback, TABLENAME_PLAYBACK_STATS_SHARDED)
+                .where(QueryBuilder.eq(VideoPlaybackStats.COLUMN_VIDEOID, QueryBuilder.bindMarker()))
+                .and(QueryBuilder.eq(COLUMN_SHARD, QueryBuilder.bindMarker()))
+                .and(QueryBuilder.eq(COLUMN_UNIT, QueryBuilder.bindMarker()))
+                .and(QueryBuilder.lt(WindowedPlaybackStats.COLUMN_BUCKET, QueryBuilder.bindMarker()));
+        deleteExpiredShardedHourBuckets = dseSession.prepare(queryDeleteShardedHourBuckets);
+        deleteExpiredShardedHourBuckets.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
     }
     
     /**
@@ -75,9 +271,149 @@ public class StatisticsDseDao extends DseDaoSupport {
      *      current videoid.
      */
     public CompletableFuture<Void> recordPlaybackStartedAsync(UUID videoId) {
+        return incrementPlaybacksAsync(videoId, 1);
+    }
+    
+    /**
+     * Increment counter in DB with several plays at once (Async). Used by the aggregator
+     * to turn many single increments into a single mutation per video.
+     *
+     * @param videoId
+     *      current videoid.
+     * @param delta
+     *      number of plays to add
+     */
+    public CompletableFuture<Void> incrementPlaybacksAsync(UUID videoId, long delta) {
+        return incrementPlaybacksAsync(videoId, delta, Instant.now());
+    }
+
+    /**
+     * Increment lifetime counter and the hour and day buckets holding 'playedAt' (Async). All tables
+     * share the same partition key, the counter batch is applied on a single replica set. For a hot video
+     * the batch goes to a random shard, spreading the load over several replica sets. The first increment of the
+     * day of a partition also deletes its hour buckets older than 'hourRetentionHours'.
+     *
+     * @param videoId
+     *      current videoid.
+     * @param delta
+     *      number of plays to add
+     * @param playedAt
+     *      time used to pick the buckets
+     */
+    public CompletableFuture<Void> incrementPlaybacksAsync(UUID videoId, long delta, Instant playedAt) {
         Assert.notNull(videoId, "videoid is required to update statistics");
-        BoundStatement bound = incrRecordPlayBacks.bind().setUUID(VideoPlaybackStats.COLUMN_VIDEOID, videoId);
-        return FutureUtils.asCompletableFuture(dseSession.executeAsync(bound)).<Void>thenApply(c -> null);
+        Assert.isTrue(delta > 0, "delta must be strictly positive to update statistics");
+        Assert.notNull(playedAt, "playedAt is required to update statistics");
+        BatchStatement batch = new BatchStatement(BatchStatement.Type.COUNTER);
+        int shard = pickShard(videoId, delta);
+        if (shard == 0) {
+            batch.add(incrRecordPlayBacks.bind()
+                    .setUUID(VideoPlaybackStats.COLUMN_VIDEOID, videoId)
+                    .setLong(VideoPlaybackStats.COLUMN_VIEWS, delta));
+            for (PlaybackWindow window : PlaybackWindow.values()) {
+                batch.add(incrRecordPlayBacksByWindow.get(window).bind()
+                        .setUUID(VideoPlaybackStats.COLUMN_VIDEOID, videoId)
+                        .setTimestamp(WindowedPlaybackStats.COLUMN_BUCKET, window.bucketOf(playedAt))
+                        .setLong(VideoPlaybackStats.COLUMN_VIEWS, delta));
+            }
+        } else {
+            batch.add(bindShardedIncrement(videoId, shard, UNIT_LIFETIME, LIFETIME_BUCKET, delta));
+            for (PlaybackWindow window : PlaybackWindow.values()) {
+                batch.add(bindShardedIncrement(videoId, shard, window.name(), window.bucketOf(playedAt), delta));
+            }
+        }
+        batch.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+        purgeExpiredHourBuckets(videoId, shard, playedAt);
+        return FutureUtils.asCompletableFuture(dseSession.executeAsync(batch)).<Void>thenApply(c -> null);
+    }
+    
+    /**
+     * Delete hour buckets older than the retention, once a day per partition and node. Counters cannot expire with a
+     * TTL; buckets older than the retention are never incremented again so the range tombstone is safe.
+     */
+    private void purgeExpiredHourBuckets(UUID videoId, int shard, Instant playedAt) {
+        Date today = PlaybackWindow.DAY.bucketOf(playedAt);
+        PurgedHourBuckets purged = purgedHourBuckets.get();
+        if (today.after(purged.day)) {
+            // First thread crossing midnight wins, others use its set
+            PurgedHourBuckets next = new PurgedHourBuckets(today);
+            purged = purgedHourBuckets.compareAndSet(purged, next) ? next : purgedHourBuckets.get();
+        }
+        if (!today.equals(purged.day)) {
+            // Late play of the previous day, purged with the partition of the current day
+            return;
+        }
+        if (purged.partitions.size() >= PURGED_HOUR_BUCKETS_CAPACITY || !purged.partitions.add(videoId + ":" + shard)) {
+            return;
+        }
+        Date cutoff = Date.from(playedAt.truncatedTo(ChronoUnit.HOURS).minus(hourRetentionHours, ChronoUnit.HOURS));
+        BoundStatement bound;
+        if (shard == 0) {
+            bound = deleteExpiredHourBuckets.bind()
+                    .setUUID(VideoPlaybackStats.COLUMN_VIDEOID, videoId)
+                    .setTimestamp(WindowedPlaybackStats.COLUMN_BUCKET, cutoff);
+        } else {
+            bound = deleteExpiredShardedHourBuckets.bind()
+                    .setUUID(VideoPlaybackStats.COLUMN_VIDEOID, videoId)
+                    .setInt(COLUMN_SHARD, shard)
+                    .setString(COLUMN_UNIT, PlaybackWindow.HOUR.name())
+                    .setTimestamp(WindowedPlaybackStats.COLUMN_BUCKET, cutoff);
+        }
+        FutureUtils.asCompletableFuture(dseSession.executeAsync(bound)).whenComplete((rs, error) -> {
+            if (error != null) {
+                // Retried next day
+                LOGGER.warn("Cannot delete expired hour buckets of video {} (shard {})", videoId, shard, error);
+            }
+        });
+    }
+    
+    /**
+     * Shard to write to, always 0 unless the video is hot and its shards have been registered.
+     */
+    private int pickShard(UUID videoId, long plays) {
+        if (!shardingEnabled || shardCount <= 1 || !hotVideoDetector.recordPlays(videoId, plays)) {
+            return 0;
+        }
+        CompletableFuture<Void> registration = registeredShards.computeIfAbsent(videoId, this::registerShardsAsync);
+        if (registration.isCompletedExceptionally()) {
+            // Registration failed, retried with next mutation
+            registeredShards.remove(videoId, registration);
+            return 0;
+        }
+        if (!registration.isDone()) {
+            return 0;
+        }
+        return ThreadLocalRandom.current().nextInt(shardCount);
+    }
+    
+    /**
+     * Record shards of a video before writing to them, so that readers know which partitions to sum.
+     */
+    private CompletableFuture<Void> registerShardsAsync(UUID videoId) {
+        LOGGER.info("Video {} is hot, spreading its playback counters over {} shards", videoId, shardCount);
+        Set<Integer> shards = IntStream.range(0, shardCount).boxed().collect(Collectors.toSet());
+        BoundStatement bound = registerShards.bind()
+                .setSet(COLUMN_SHARDS, shards)
+                .setUUID(VideoPlaybackStats.COLUMN_VIDEOID, videoId);
+        return FutureUtils.asCompletableFuture(dseSession.executeAsync(bound))
+                .<Void>thenApply(rs -> null)
+                .whenComplete((v, error) -> {
+                    if (error != null) {
+                        LOGGER.warn("Cannot register shards of video {}, will retry", videoId, error);
+                    }
+                });
+    }
+    
+    /**
+     * Increment of a sharded counter.
+     */
+    private BoundStatement bindShardedIncrement(UUID videoId, int shard, String unit, Date bucket, long delta) {
+        return incrShardedPlayBacks.bind()
+                .setUUID(VideoPlaybackStats.COLUMN_VIDEOID, videoId)
+                .setInt(COLUMN_SHARD, shard)
+                .setString(COLUMN_UNIT, unit)
+                .setTimestamp(WindowedPlaybackStats.COLUMN_BUCKET, bucket)
+                .setLong(VideoPlaybackStats.COLUMN_VIEWS, delta);
     }
     
     /**
@@ -93,8 +429,7 @@ public class StatisticsDseDao extends DseDaoSupport {
         
         // Create a future for each entry
         final List<CompletableFuture<VideoPlaybackStats>> futureList = listOfVideoIds.stream()
-                      .map(mappervideoPlaybackStats::getAsync)
-                      .map(FutureUtils::asCompletableFuture)
+                      .map(this::getNumberOfPlaysAsync)
                       .collect(Collectors.toList());
 
         // List <Future> => Future<List> ! Amazing
@@ -103,5 +438,180 @@ public class StatisticsDseDao extends DseDaoSupport {
                                                           .map(CompletableFuture::join)
                                                           .collect(Collectors.toList()));
     }        
+    
+    /**
+     * Lifetime counter of a video, summing the shards of hot videos. The registered shards are read in parallel with
+     * shard 0: 2 reads per video, 3 for a video which has been hot.
+     */
+    private CompletableFuture<VideoPlaybackStats> getNumberOfPlaysAsync(UUID videoId) {
+        return playbackCounterDseDao.findLifetimeViewsAsync(videoId).thenApply(views -> {
+            VideoPlaybackStats stats = new VideoPlaybackStats();
+            stats.setVideoid(videoId);
+            stats.setViews(views);
+            return stats;
+        });
+    }
   
+    /**
+     * Read the last buckets for each videoid, with a bounded number of partitions read at the same time. As for
+     * lifetime counters, each video costs one more read for its registered shards (and a third one if it has been hot).
+     *
+     * @param listOfVideoIds
+     *      list of videoid
+     * @param window
+     *      size of buckets
+     * @param bucketCount
+     *      number of buckets to read, current bucket included
+     * @return
+     *      future for the list, same order as input
+     */
+    public CompletableFuture<List<WindowedPlaybackStats>> getWindowedNumberOfPlaysAsync(
+            List<UUID> listOfVideoIds, PlaybackWindow window, int bucketCount) {
+        Assert.notNull(listOfVideoIds, "videoid list cannot be null");
+        Assert.notNull(window, "window cannot be null");
+        Assert.isTrue(bucketCount > 0 && bucketCount <= window.getMaxBuckets(), "invalid number of buckets");
+        final Date windowStart = window.windowStart(Instant.now(), bucketCount);
+        return FutureUtils.mapWithBoundedConcurrency(listOfVideoIds, maxConcurrentWindowedReads, videoId -> {
+            BoundStatement bound = findPlayBacksByWindow.get(window).bind()
+                    .setUUID(VideoPlaybackStats.COLUMN_VIDEOID, videoId)
+                    .setTimestamp(WindowedPlaybackStats.COLUMN_BUCKET, windowStart);
+            final CompletableFuture<WindowedPlaybackStats> futureBase = FutureUtils
+                    .asCompletableFuture(dseSession.executeAsync(bound))
+                    .thenApply(rs -> addBuckets(new WindowedPlaybackStats(videoId, window), rs));
+            return playbackCounterDseDao.findExtraShardsAsync(videoId).thenCompose(shards -> {
+                if (shards.isEmpty()) {
+                    return futureBase;
+                }
+                BoundStatement boundSharded = findShardedPlayBacksByWindow.bind()
+                        .setUUID(VideoPlaybackStats.COLUMN_VIDEOID, videoId)
+                        .setList(COLUMN_SHARDS, shards)
+                        .setString(COLUMN_UNIT, window.name())
+                        .setTimestamp(WindowedPlaybackStats.COLUMN_BUCKET, windowStart);
+                return FutureUtils.asCompletableFuture(dseSession.executeAsync(boundSharded))
+                                  .thenCombine(futureBase, (rs, stats) -> addBuckets(stats, rs));
+            });
+        });
+    }
+
+    /**
+     * Read the unique viewers sketch of a video, merging the rows of all writers.
+     *
+     * @param videoId
+     *      current videoid
+     * @param precision
+     *      expected precision, sketches stored with another precision are ignored
+     * @return
+     *      sketch, empty if the video has not been viewed
+     */
+    public CompletableFuture<HyperLogLog> findUniqueViewersAsync(UUID videoId, int precision) {
+        Assert.notNull(videoId, "videoid is required to read unique viewers");
+        BoundStatement bound = findUniqueViewers.bind().setUUID(VideoUniqueViewers.COLUMN_VIDEOID, videoId);
+        return FutureUtils.asCompletableFuture(dseSession.executeAsync(bound)).thenApply(rs -> {
+            HyperLogLog merged = new HyperLogLog(precision);
+            for (Row row : rs) {
+                mapUniqueViewers(videoId, row, precision).ifPresent(merged::merge);
+            }
+            return merged;
+        });
+    }
+    
+    /**
+     * Read the unique viewers sketch written by one writer.
+     *
+     * @param videoId
+     *      current videoid
+     * @param writer
+     *      identifier of the writer
+     * @param precision
+     *      expected precision, a sketch stored with another precision is ignored
+     * @return
+     *      sketch if any
+     */
+    public CompletableFuture<Optional<HyperLogLog>> findUniqueViewersAsync(UUID videoId, String writer, int precision) {
+        Assert.notNull(videoId, "videoid is required to read unique viewers");
+        Assert.hasLength(writer, "writer is required to read unique viewers");
+        BoundStatement bound = findUniqueViewersByWriter.bind()
+                .setUUID(VideoUniqueViewers.COLUMN_VIDEOID, videoId)
+                .setString(VideoUniqueViewers.COLUMN_WRITER, writer);
+        return FutureUtils.asCompletableFuture(dseSession.executeAsync(bound))
+                .thenApply(rs -> {
+                    Row row = rs.one();
+                    return row == null ? Optional.<HyperLogLog>empty() : mapUniqueViewers(videoId, row, precision);
+                });
+    }
+    
+    /**
+     * Save the unique viewers sketch of one writer, it must include the sketch previously stored by this writer.
+     *
+     * @param videoId
+     *      current videoid
+     * @param writer
+     *      identifier of the writer
+     * @param sketch
+     *      merged sketch
+     */
+    public CompletableFuture<Void> saveUniqueViewersAsync(UUID videoId, String writer, HyperLogLog sketch) {
+        Assert.notNull(videoId, "videoid is required to save unique viewers");
+        Assert.hasLength(writer, "writer is required to save unique viewers");
+        Assert.notNull(sketch, "sketch is required to save unique viewers");
+        BoundStatement bound = insertUniqueViewers.bind()
+                .setUUID(VideoUniqueViewers.COLUMN_VIDEOID, videoId)
+                .setString(VideoUniqueViewers.COLUMN_WRITER, writer)
+                .setBytes(VideoUniqueViewers.COLUMN_VIEWERS_HLL, sketch.toBytes())
+                .setTimestamp(VideoUniqueViewers.COLUMN_UPDATED_DATE, new Date());
+        return FutureUtils.asCompletableFuture(dseSession.executeAsync(bound)).<Void>thenApply(c -> null);
+    }
+    
+    /**
+     * Deserialize a sketch, unreadable sketches or other precisions are skipped rather than failing the read.
+     */
+    private Optional<HyperLogLog> mapUniqueViewers(UUID videoId, Row row, int precision) {
+        if (row.isNull(VideoUniqueViewers.COLUMN_VIEWERS_HLL)) {
+            return Optional.empty();
+        }
+        try {
+            HyperLogLog hll = HyperLogLog.fromBytes(row.getBytes(VideoUniqueViewers.COLUMN_VIEWERS_HLL));
+            if (hll.getPrecision() != precision) {
+                LOGGER.warn("Ignoring unique viewers sketch of video {} with precision {} (expecting {})", 
+                        videoId, hll.getPrecision(), precision);
+                return Optional.empty();
+            }
+            return Optional.of(hll);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Ignoring invalid unique viewers sketch of video {}", videoId, e);
+            return Optional.empty();
+        }
+    }
+    
+    /**
+     * Map rows of a bucket table, rows of several shards are summed per bucket.
+     */
+    private WindowedPlaybackStats addBuckets(WindowedPlaybackStats stats, ResultSet rs) {
+        for (Row row : rs) {
+            stats.getViewsPerBucket().merge(
+                    row.getTimestamp(WindowedPlaybackStats.COLUMN_BUCKET),
+                    row.getLong(VideoPlaybackStats.COLUMN_VIEWS), Long::sum);
+        }
+        return stats;
+    }
+
+    /**
+     * Partitions purged during one day, the day never changes for a given set.
+     */
+    private static final class PurgedHourBuckets {
+        
+        /** Day bucket. */
+        private final Date day;
+        
+        /** Video and shard of purged partitions. */
+        private final Set<String> partitions = ConcurrentHashMap.newKeySet();
+        
+        /**
+         * Constructor with the day.
+         */
+        private PurgedHourBuckets(Date day) {
+            this.day = day;
+        }
+    }
+
 }
@@ -0,0 +1,259 @@
+package com.killrvideo.service.statistic.dao;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.killrvideo.messaging.conf.KillrVideoThreadFactory;
+import com.killrvideo.messaging.dao.MessagingDao;
+import com.killrvideo.utils.GrpcMappingUtils;
+import com.killrvideo.utils.SpaceSavingSketch;
+
+import killrvideo.statistics.events.StatisticsEvents.TrendingVideosSnapshot;
+import killrvideo.statistics.events.StatisticsEvents.VideoPlayCount;
+
+/**
+ * Most played videos over a sliding window, computed in memory.
+ *
+ * Plays are fed by the {@link PlaybackCounterAggregator} flush (no extra DSE write) into a ring of
+ * {@link SpaceSavingSketch}, one per time slot. Oldest slot is dropped on rotation so the window decays,
+ * memory is bounded by 'capacity' x 'slots' counters whatever the size of the catalog.
+ *
+ * Each node publishes its local top periodically through {@link MessagingDao}, and keeps the latest snapshot
+ * received from other nodes: any node can answer with a cluster-wide view.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Component
+public class TrendingVideosEngine {
+
+    /** Loger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(TrendingVideosEngine.class);
+
+    @Value("${killrvideo.statistics.trending.capacity: 1000}")
+    private int capacity = 1000;
+
+    @Value("${killrvideo.statistics.trending.slotMillis: 300000}")
+    private long slotMillis = 300000;
+
+    @Value("${killrvideo.statistics.trending.slots: 12}")
+    private int slotCount = 12;
+
+    @Value("${killrvideo.statistics.trending.publishIntervalMillis: 10000}")
+    private long publishIntervalMillis = 10000;
+
+    @Value("${killrvideo.statistics.trending.publishSize: 200}")
+    private int publishSize = 200;
+
+    @Value("${killrvideo.messaging.destinations.trendingSnapshot : topic-kv-trendingSnapshot}")
+    private String topicTrendingSnapshot;
+
+    @Autowired
+    private PlaybackCounterAggregator playbackCounterAggregator;
+
+    @Autowired
+    private MessagingDao messagingDao;
+
+    /** Identify snapshots of this node. */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    /** Sketches of the window, newest first. */
+    private final LinkedList<SpaceSavingSketch<UUID>> slots = new LinkedList<>();
+
+    /** Sketch of current slot. */
+    private volatile SpaceSavingSketch<UUID> currentSlot;
+
+    /** Latest snapshot per remote node. */
+    private final Map<String, RemoteSnapshot> remoteSnapshots = new ConcurrentHashMap<>();
+
+    /** Rotation and publication. */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Default constructor.
+     */
+    public TrendingVideosEngine() {
+    }
+
+    /**
+     * Explicit initialization for test purpose.
+     */
+    TrendingVideosEngine(PlaybackCounterAggregator playbackCounterAggregator, MessagingDao messagingDao,
+            int capacity, long slotMillis, int slotCount, long publishIntervalMillis) {
+        this.playbackCounterAggregator = playbackCounterAggregator;
+        this.messagingDao              = messagingDao;
+        this.topicTrendingSnapshot     = "topic-kv-trendingSnapshot";
+        this.capacity                  = capacity;
+        this.slotMillis                = slotMillis;
+        this.slotCount                 = slotCount;
+        this.publishIntervalMillis     = publishIntervalMillis;
+    }
+
+    /**
+     * Subscribe to aggregated plays and start rotation.
+     */
+    @PostConstruct
+    public void start() {
+        rotate();
+        playbackCounterAggregator.addFlushListener(this::recordPlaybacks);
+        scheduler = Executors.newSingleThreadScheduledExecutor(new KillrVideoThreadFactory());
+        scheduler.scheduleAtFixedRate(this::rotate, slotMillis, slotMillis, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::publishSnapshot, publishIntervalMillis, publishIntervalMillis, TimeUnit.MILLISECONDS);
+        LOGGER.info("Trending videos computed over {} slots of {} millis with {} counters each", slotCount, slotMillis, capacity);
+    }
+
+    /**
+     * Stop rotation and publication.
+     */
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Account plays of a video in current slot.
+     *
+     * @param videoId
+     *      current video
+     * @param plays
+     *      number of plays
+     */
+    public void recordPlaybacks(UUID videoId, long plays) {
+        currentSlot.offer(videoId, plays);
+    }
+
+    /**
+     * Most played videos for the whole cluster, highest first.
+     *
+     * @param limit
+     *      number of videos
+     * @return
+     *      videoid and estimated number of plays over the window
+     */
+    public Map<UUID, Long> getTrendingVideos(int limit) {
+        List<Map<UUID, Long>> summaries = new ArrayList<>();
+        summaries.add(getLocalTrendingVideos(capacity));
+        long expiredBefore = System.currentTimeMillis() - 3 * publishIntervalMillis;
+        remoteSnapshots.values().removeIf(snapshot -> snapshot.receivedAt < expiredBefore);
+        remoteSnapshots.values().forEach(snapshot -> summaries.add(snapshot.videos));
+        return SpaceSavingSketch.mergeTop(summaries, limit);
+    }
+
+    /**
+     * Most played videos seen by this node, highest first.
+     *
+     * @param limit
+     *      number of videos
+     * @return
+     *      videoid and estimated number of plays over the window
+     */
+    public Map<UUID, Long> getLocalTrendingVideos(int limit) {
+        List<Map<UUID, Long>> summaries = new ArrayList<>();
+        synchronized (slots) {
+            slots.forEach(slot -> summaries.add(slot.top(capacity)));
+        }
+        return SpaceSavingSketch.mergeTop(summaries, limit);
+    }
+
+    /**
+     * Merge a snapshot published by another node.
+     *
+     * @param snapshot
+     *      snapshot received from the bus
+     */
+    public void onTrendingVideosSnapshot(TrendingVideosSnapshot snapshot) {
+        if (nodeId.equals(snapshot.getNodeId())) {
+            return;
+        }
+        Map<UUID, Long> videos = new ConcurrentHashMap<>();
+        for (VideoPlayCount videoPlayCount : snapshot.getVideosList()) {
+            videos.put(UUID.fromString(videoPlayCount.getVideoId().getValue()), videoPlayCount.getPlays());
+        }
+        remoteSnapshots.put(snapshot.getNodeId(), new RemoteSnapshot(videos, System.currentTimeMillis()));
+    }
+
+    /**
+     * Open a new slot and drop the oldest one.
+     */
+    void rotate() {
+        synchronized (slots) {
+            SpaceSavingSketch<UUID> newSlot = new SpaceSavingSketch<>(capacity);
+            slots.addFirst(newSlot);
+            while (slots.size() > slotCount) {
+                slots.removeLast();
+            }
+            currentSlot = newSlot;
+        }
+    }
+
+    /**
+     * Send local top to other nodes.
+     */
+    void publishSnapshot() {
+        try {
+            Map<UUID, Long> localTop = getLocalTrendingVideos(publishSize);
+            if (localTop.isEmpty()) {
+                return;
+            }
+            TrendingVideosSnapshot.Builder snapshot = TrendingVideosSnapshot.newBuilder()
+                    .setNodeId(nodeId)
+                    .setTimestamp(GrpcMappingUtils.instantToTimeStamp(Instant.now()));
+            localTop.forEach((videoId, plays) -> snapshot.addVideos(VideoPlayCount.newBuilder()
+                    .setVideoId(GrpcMappingUtils.uuidToUuid(videoId))
+                    .setPlays(plays)));
+            messagingDao.sendEvent(topicTrendingSnapshot, snapshot.build());
+        } catch (RuntimeException e) {
+            LOGGER.warn("Cannot publish trending videos snapshot", e);
+        }
+    }
+
+    /**
+     * Getter accessor for attribute 'nodeId'.
+     *
+     * @return
+     *       current value of 'nodeId'
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Number of remote nodes contributing to the cluster-wide view.
+     */
+    public int getRemoteNodeCount() {
+        return remoteSnapshots.size();
+    }
+
+    /**
+     * Snapshot of another node.
+     */
+    private static final class RemoteSnapshot {
+
+        private final Map<UUID, Long> videos;
+        private final long receivedAt;
+
+        private RemoteSnapshot(Map<UUID, Long> videos, long receivedAt) {
+            this.videos     = videos;
+            this.receivedAt = receivedAt;
+        }
+    }
+
+}
@@ -0,0 +1,36 @@
+package com.killrvideo.service.statistic.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import killrvideo.statistics.events.StatisticsEvents.TrendingVideosSnapshot;
+
+/**
+ * Message processing for trending videos.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public abstract class TrendingVideosMessagingDaoSupport {
+    
+    /** Loger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(TrendingVideosMessagingDaoSupport.class);
+    
+    @Autowired
+    protected TrendingVideosEngine trendingVideosEngine;
+    
+    /**
+     * Message is consumed from specialized class but treatment is the same, merging snapshot.
+     * 
+     * @param snapshot
+     *      top videos of a node
+     */
+    protected void onTrendingVideosSnapshotMessage(TrendingVideosSnapshot snapshot) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("[TrendingSnapshotEvent] Processing snapshot of node {} with {} videos", 
+                    snapshot.getNodeId(), snapshot.getVideosCount());
+        }
+        trendingVideosEngine.onTrendingVideosSnapshot(snapshot);
+    }
+    
+}
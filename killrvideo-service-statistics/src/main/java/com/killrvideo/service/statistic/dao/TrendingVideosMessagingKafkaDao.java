@@ -0,0 +1,50 @@
+package com.killrvideo.service.statistic.dao;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import com.killrvideo.conf.KillrVideoConfiguration;
+import com.killrvideo.messaging.dao.KafkaBroadcastConsumer;
+
+import killrvideo.statistics.events.StatisticsEvents.TrendingVideosSnapshot;
+
+/**
+ * Snapshots are broadcasted: every node reads every partition without consumer group (see
+ * {@link KafkaBroadcastConsumer}) so that every node receives every snapshot.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Repository("killrvideo.statistic.dao.messaging")
+@Profile(KillrVideoConfiguration.PROFILE_MESSAGING_KAFKA)
+public class TrendingVideosMessagingKafkaDao extends TrendingVideosMessagingDaoSupport {
+    
+    @Value("${killrvideo.messaging.destinations.trendingSnapshot : topic-kv-trendingSnapshot}")
+    private String topicTrendingSnapshot;
+    
+    @Autowired
+    @Qualifier("kafka.consumer.trendingSnapshot")
+    private KafkaConsumer<String, byte[]> consumerTrendingSnapshotProtobuf;
+    
+    /** Polling of snapshots. */
+    private KafkaBroadcastConsumer<TrendingVideosSnapshot> trendingSnapshotConsumer;
+    
+    @PostConstruct
+    public void registerConsumerTrendingSnapshot() {
+        trendingSnapshotConsumer = new KafkaBroadcastConsumer<>(consumerTrendingSnapshotProtobuf, 
+                topicTrendingSnapshot, TrendingVideosSnapshot.parser(), super::onTrendingVideosSnapshotMessage);
+        trendingSnapshotConsumer.start();
+    }
+    
+    @PreDestroy
+    public void stopConsumerTrendingSnapshot() {
+        trendingSnapshotConsumer.stop();
+    }
+    
+}
@@ -0,0 +1,296 @@
+package com.killrvideo.service.statistic.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import com.killrvideo.messaging.conf.KillrVideoThreadFactory;
+import com.killrvideo.service.statistic.dto.VideoUniqueViewers;
+import com.killrvideo.utils.FutureUtils;
+import com.killrvideo.utils.HyperLogLog;
+
+/**
+ * Estimation of the number of distinct viewers per video with {@link HyperLogLog} sketches.
+ *
+ * Viewers are offered to an in-memory sketch per video, flushed periodically into table 'video_unique_viewers':
+ * the row of this instance (writer) is read, merged with the local sketch and written back. Only this instance
+ * writes its row, so there is no lost update between instances; readers merge the rows of all writers with
+ * the sketch not flushed yet. Storage is a few KB per video whatever the number of viewers.
+ *
+ * Number of sketches kept between two flushes is bounded, when the map is full new videos are not tracked
+ * (counted as dropped) until the next flush frees memory.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Component
+@ManagedResource(objectName = "killrvideo:type=Statistics,name=UniqueViewersAggregator")
+public class UniqueViewersAggregator {
+
+    /** Loger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(UniqueViewersAggregator.class);
+
+    @Value("${killrvideo.statistics.uniqueViewers.flushIntervalMillis: 10000}")
+    private long flushIntervalMillis = 10000;
+
+    @Value("${killrvideo.statistics.uniqueViewers.maxSketches: 10000}")
+    private int maxSketches = 10000;
+
+    @Value("${killrvideo.statistics.uniqueViewers.precision: 12}")
+    private int precision = HyperLogLog.DEFAULT_PRECISION;
+
+    @Value("${killrvideo.statistics.uniqueViewers.maxConcurrentQueries: 8}")
+    private int maxConcurrentQueries = 8;
+
+    @Value("${killrvideo.statistics.uniqueViewers.shutdownTimeoutMillis: 10000}")
+    private long shutdownTimeoutMillis = 10000;
+
+    /**
+     * Row of this instance in 'video_unique_viewers', required: it must be distinct per instance and stable across
+     * restarts, otherwise every restart leaves a row behind that readers keep merging.
+     */
+    @Value("${killrvideo.statistics.uniqueViewers.writerId}")
+    private String writerId;
+
+    @Autowired
+    private StatisticsDseDao statisticsDseDao;
+
+    /** Viewers per video, since last flush. */
+    private final Map<UUID, HyperLogLog> pendingViewers = new ConcurrentHashMap<>();
+
+    /** Flushing thread. */
+    private ScheduledExecutorService scheduler;
+
+    /** Avoid stacking flushes when an early flush is requested. */
+    private final AtomicBoolean earlyFlushRequested = new AtomicBoolean(false);
+
+    /** Metrics. */
+    private final LongAdder  totalViewersRecorded = new LongAdder();
+    private final LongAdder  totalViewersDropped  = new LongAdder();
+    private final LongAdder  totalFlushesFailed   = new LongAdder();
+    private final AtomicLong lastFlushVideoCount  = new AtomicLong();
+
+    /**
+     * Default constructor.
+     */
+    public UniqueViewersAggregator() {
+    }
+
+    /**
+     * Explicit initialization for test purpose.
+     */
+    UniqueViewersAggregator(StatisticsDseDao statisticsDseDao, String writerId, int maxSketches, long flushIntervalMillis) {
+        this.statisticsDseDao    = statisticsDseDao;
+        this.writerId            = writerId;
+        this.maxSketches         = maxSketches;
+        this.flushIntervalMillis = flushIntervalMillis;
+    }
+
+    /**
+     * Start the flushing thread.
+     */
+    @PostConstruct
+    public void start() {
+        Assert.hasText(writerId, "killrvideo.statistics.uniqueViewers.writerId is required (stable and distinct per instance)");
+        writerId = writerId.trim();
+        scheduler = Executors.newSingleThreadScheduledExecutor(new KillrVideoThreadFactory());
+        scheduler.scheduleWithFixedDelay(this::flushSafely, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        LOGGER.info("Unique viewers sketches (precision={}) flushed every {} millis as writer '{}'", precision, flushIntervalMillis, writerId);
+    }
+
+    /**
+     * Account a viewer of a video.
+     *
+     * @param videoId
+     *      current videoid
+     * @param viewerId
+     *      user or anonymous session watching the video
+     */
+    public void recordViewer(UUID videoId, UUID viewerId) {
+        Assert.notNull(videoId, "videoid is required to record a viewer");
+        Assert.notNull(viewerId, "viewerid is required to record a viewer");
+        if (!pendingViewers.containsKey(videoId) && pendingViewers.size() >= maxSketches) {
+            // Bounded memory, do not track a new video and ask for a flush to free sketches
+            totalViewersDropped.increment();
+            requestEarlyFlush();
+            return;
+        }
+        // Atomic with the removal done by flush, a viewer cannot be offered to a sketch already flushed
+        pendingViewers.compute(videoId, (id, hll) -> {
+            HyperLogLog sketch = (hll == null) ? new HyperLogLog(precision) : hll;
+            sketch.offer(viewerId);
+            return sketch;
+        });
+        totalViewersRecorded.increment();
+    }
+
+    /**
+     * Estimated number of distinct viewers, sketches of all writers merged with viewers not flushed yet.
+     *
+     * @param listOfVideoIds
+     *      videos
+     * @return
+     *      estimations in the same order
+     */
+    public CompletableFuture<List<VideoUniqueViewers>> getUniqueViewersAsync(List<UUID> listOfVideoIds) {
+        Assert.notNull(listOfVideoIds, "videoid list cannot be null");
+        return FutureUtils.mapWithBoundedConcurrency(listOfVideoIds, maxConcurrentQueries,
+                videoId -> statisticsDseDao.findUniqueViewersAsync(videoId, precision).thenApply(stored -> {
+                    HyperLogLog local = pendingViewers.get(videoId);
+                    if (local != null) {
+                        stored.merge(local);
+                    }
+                    return new VideoUniqueViewers(videoId, stored.cardinality());
+                }));
+    }
+
+    /**
+     * Merge all pending sketches into the rows of this writer.
+     *
+     * @return
+     *      future completed when all sketches have been written
+     */
+    public synchronized CompletableFuture<Void> flush() {
+        List<UUID> videoIds = new ArrayList<>(pendingViewers.keySet());
+        lastFlushVideoCount.set(videoIds.size());
+        return FutureUtils.mapWithBoundedConcurrency(videoIds, maxConcurrentQueries, this::flushSketch)
+                          .<Void>thenApply(list -> null);
+    }
+
+    /**
+     * Read-merge-write the row of this writer, on failure the sketch is put back to be retried on next flush.
+     */
+    private CompletableFuture<Void> flushSketch(UUID videoId) {
+        HyperLogLog delta = pendingViewers.remove(videoId);
+        if (delta == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return statisticsDseDao.findUniqueViewersAsync(videoId, writerId, precision)
+                .thenCompose(stored -> {
+                    stored.ifPresent(delta::merge);
+                    return statisticsDseDao.saveUniqueViewersAsync(videoId, writerId, delta);
+                })
+                .exceptionally(error -> {
+                    totalFlushesFailed.increment();
+                    LOGGER.warn("Cannot flush unique viewers for video {}, will retry on next flush", videoId, error);
+                    pendingViewers.merge(videoId, delta, (current, failed) -> {
+                        current.merge(failed);
+                        return current;
+                    });
+                    return null;
+                });
+    }
+
+    /**
+     * Scheduled flush, exceptions would cancel the schedule.
+     */
+    private void flushSafely() {
+        earlyFlushRequested.set(false);
+        try {
+            flush().join();
+        } catch (RuntimeException e) {
+            LOGGER.error("Error during flush of unique viewers", e);
+        }
+    }
+
+    /**
+     * Map is full, flush without waiting for the next interval.
+     */
+    private void requestEarlyFlush() {
+        if (!scheduler.isShutdown() && earlyFlushRequested.compareAndSet(false, true)) {
+            scheduler.execute(this::flushSafely);
+        }
+    }
+
+    /**
+     * Stop flushing thread and force a flush of everything pending.
+     */
+    @PreDestroy
+    public void stop() {
+        if (scheduler == null) {
+            return;
+        }
+        LOGGER.info("Flushing unique viewers before shutdown");
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS);
+            flush().get(shutdownTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            LOGGER.error("Timeout while flushing unique viewers, some viewers may be lost", e);
+        } catch (Exception e) {
+            LOGGER.error("Error while flushing unique viewers, some viewers may be lost", e);
+        }
+    }
+
+    /**
+     * Number of videos with viewers not flushed yet.
+     */
+    @ManagedAttribute
+    public int getPendingVideoCount() {
+        return pendingViewers.size();
+    }
+
+    /**
+     * Getter for attribute 'writerId'.
+     */
+    @ManagedAttribute
+    public String getWriterId() {
+        return writerId;
+    }
+
+    /**
+     * Getter for attribute 'lastFlushVideoCount'.
+     */
+    @ManagedAttribute
+    public long getLastFlushVideoCount() {
+        return lastFlushVideoCount.get();
+    }
+
+    /**
+     * Getter for attribute 'totalViewersRecorded'.
+     */
+    @ManagedAttribute
+    public long getTotalViewersRecorded() {
+        return totalViewersRecorded.sum();
+    }
+
+    /**
+     * Getter for attribute 'totalViewersDropped'.
+     */
+    @ManagedAttribute
+    public long getTotalViewersDropped() {
+        return totalViewersDropped.sum();
+    }
+
+    /**
+     * Getter for attribute 'totalFlushesFailed'.
+     */
+    @ManagedAttribute
+    public long getTotalFlushesFailed() {
+        return totalFlushesFailed.sum();
+    }
+
+}
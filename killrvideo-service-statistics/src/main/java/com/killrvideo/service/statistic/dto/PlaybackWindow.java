@@ -0,0 +1,86 @@
+package com.killrvideo.service.statistic.dto;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+import com.killrvideo.service.statistic.dao.StatisticsDseDao;
+
+/**
+ * Time buckets used to count playbacks over a sliding window.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public enum PlaybackWindow {
+    
+    /** One bucket per hour. */
+    HOUR(StatisticsDseDao.TABLENAME_PLAYBACK_STATS_BY_HOUR, ChronoUnit.HOURS, 168),
+    
+    /** One bucket per day (UTC). */
+    DAY(StatisticsDseDao.TABLENAME_PLAYBACK_STATS_BY_DAY, ChronoUnit.DAYS, 90);
+    
+    /** Table holding the counters. */
+    private final String tableName;
+    
+    /** Size of a bucket. */
+    private final ChronoUnit unit;
+    
+    /** Maximum number of buckets that can be read at once. */
+    private final int maxBuckets;
+    
+    /**
+     * Constructor.
+     */
+    private PlaybackWindow(String tableName, ChronoUnit unit, int maxBuckets) {
+        this.tableName  = tableName;
+        this.unit       = unit;
+        this.maxBuckets = maxBuckets;
+    }
+    
+    /**
+     * Start of the bucket holding this instant.
+     *
+     * @param instant
+     *      current instant
+     * @return
+     *      bucket start
+     */
+    public Date bucketOf(Instant instant) {
+        return Date.from(instant.truncatedTo(unit));
+    }
+    
+    /**
+     * Start of the oldest bucket of a window ending now.
+     *
+     * @param now
+     *      current instant
+     * @param bucketCount
+     *      number of buckets in the window (current bucket included)
+     * @return
+     *      oldest bucket start
+     */
+    public Date windowStart(Instant now, int bucketCount) {
+        return Date.from(now.truncatedTo(unit).minus(bucketCount - 1, unit));
+    }
+
+    /**
+     * Getter accessor for attribute 'tableName'.
+     *
+     * @return
+     *       current value of 'tableName'
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Getter accessor for attribute 'maxBuckets'.
+     *
+     * @return
+     *       current value of 'maxBuckets'
+     */
+    public int getMaxBuckets() {
+        return maxBuckets;
+    }
+    
+}
@@ -0,0 +1,80 @@
+package com.killrvideo.service.statistic.dto;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Estimated number of unique viewers of a video, table 'video_unique_viewers' holds the sketch.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class VideoUniqueViewers implements Serializable {
+
+    /** Serial. */
+    private static final long serialVersionUID = -2217594935302170735L;
+    
+    /** COLUNMNS NAMES. */
+    public static final String COLUMN_VIDEOID      = "videoid";
+    public static final String COLUMN_WRITER       = "writer";
+    public static final String COLUMN_VIEWERS_HLL  = "viewers_hll";
+    public static final String COLUMN_UPDATED_DATE = "updated_date";
+    
+    /** Video. */
+    private UUID videoid;
+    
+    /** Estimation. */
+    private long uniqueViewers;
+    
+    /**
+     * Default constructor.
+     */
+    public VideoUniqueViewers() {
+    }
+    
+    /**
+     * Constructor with parameters.
+     */
+    public VideoUniqueViewers(UUID videoid, long uniqueViewers) {
+        this.videoid       = videoid;
+        this.uniqueViewers = uniqueViewers;
+    }
+
+    /**
+     * Getter for attribute 'videoid'.
+     *
+     * @return
+     *       current value of 'videoid'
+     */
+    public UUID getVideoid() {
+        return videoid;
+    }
+
+    /**
+     * Setter for attribute 'videoid'.
+     * @param videoid
+     * 		new value for 'videoid '
+     */
+    public void setVideoid(UUID videoid) {
+        this.videoid = videoid;
+    }
+
+    /**
+     * Getter for attribute 'uniqueViewers'.
+     *
+     * @return
+     *       current value of 'uniqueViewers'
+     */
+    public long getUniqueViewers() {
+        return uniqueViewers;
+    }
+
+    /**
+     * Setter for attribute 'uniqueViewers'.
+     * @param uniqueViewers
+     * 		new value for 'uniqueViewers '
+     */
+    public void setUniqueViewers(long uniqueViewers) {
+        this.uniqueViewers = uniqueViewers;
+    }
+    
+}
@@ -0,0 +1,112 @@
+package com.killrvideo.service.statistic.dto;
+
+import java.io.Serializable;
+import java.util.Date;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Number of playbacks of a video per time bucket, over a window.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class WindowedPlaybackStats implements Serializable {
+
+    /** Serial. */
+    private static final long serialVersionUID = 4306017461271290387L;
+    
+    /** COLUNMNS NAMES. */
+    public static final String COLUMN_BUCKET = "bucket";
+    
+    /** Video. */
+    private UUID videoid;
+    
+    /** Bucket size. */
+    private PlaybackWindow window;
+    
+    /** Views per bucket start, only non empty buckets are present. */
+    private SortedMap<Date, Long> viewsPerBucket = new TreeMap<>();
+    
+    /**
+     * Default constructor.
+     */
+    public WindowedPlaybackStats() {
+    }
+    
+    /**
+     * Constructor with parameters.
+     */
+    public WindowedPlaybackStats(UUID videoid, PlaybackWindow window) {
+        this.videoid = videoid;
+        this.window  = window;
+    }
+    
+    /**
+     * Total number of views over the window.
+     *
+     * @return
+     *      sum of all buckets
+     */
+    public long getViews() {
+        return viewsPerBucket.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * Getter for attribute 'videoid'.
+     *
+     * @return
+     *       current value of 'videoid'
+     */
+    public UUID getVideoid() {
+        return videoid;
+    }
+
+    /**
+     * Setter for attribute 'videoid'.
+     * @param videoid
+     * 		new value for 'videoid '
+     */
+    public void setVideoid(UUID videoid) {
+        this.videoid = videoid;
+    }
+
+    /**
+     * Getter for attribute 'window'.
+     *
+     * @return
+     *       current value of 'window'
+     */
+    public PlaybackWindow getWindow() {
+        return window;
+    }
+
+    /**
+     * Setter for attribute 'window'.
+     * @param window
+     * 		new value for 'window '
+     */
+    public void setWindow(PlaybackWindow window) {
+        this.window = window;
+    }
+
+    /**
+     * Getter for attribute 'viewsPerBucket'.
+     *
+     * @return
+     *       current value of 'viewsPerBucket'
+     */
+    public SortedMap<Date, Long> getViewsPerBucket() {
+        return viewsPerBucket;
+    }
+
+    /**
+     * Setter for attribute 'viewsPerBucket'.
+     * @param viewsPerBucket
+     * 		new value for 'viewsPerBucket '
+     */
+    public void setViewsPerBucket(SortedMap<Date, Long> viewsPerBucket) {
+        this.viewsPerBucket = viewsPerBucket;
+    }
+    
+}
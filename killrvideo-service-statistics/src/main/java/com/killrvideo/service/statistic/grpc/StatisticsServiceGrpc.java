@@ -1,12 +1,24 @@
 package com.killrvideo.service.statistic.grpc;
 
 import static com.killrvideo.service.statistic.grpc.StatisticsServiceGrpcMapper.buildGetNumberOfPlayResponse;
+import static com.killrvideo.service.statistic.grpc.StatisticsServiceGrpcMapper.buildGetTrendingVideosResponse;
+import static com.killrvideo.service.statistic.grpc.StatisticsServiceGrpcMapper.buildGetUniqueViewersResponse;
+import static com.killrvideo.service.statistic.grpc.StatisticsServiceGrpcMapper.buildGetWindowedNumberOfPlayResponse;
+import static com.killrvideo.service.statistic.grpc.StatisticsServiceGrpcMapper.mapPlayWindowUnit;
 import static com.killrvideo.service.statistic.grpc.StatisticsServiceGrpcValidator.validateGrpcRequest_GetNumberPlays;
+import static com.killrvideo.service.statistic.grpc.StatisticsServiceGrpcValidator.validateGrpcRequest_GetTrendingVideos;
+import static com.killrvideo.service.statistic.grpc.StatisticsServiceGrpcValidator.validateGrpcRequest_GetUniqueViewers;
+import static com.killrvideo.service.statistic.grpc.StatisticsServiceGrpcValidator.validateGrpcRequest_GetWindowedNumberPlays;
+import static com.killrvideo.service.statistic.grpc.StatisticsServiceGrpcValidator.isValidGrpcRequest_RecordPlaybacks;
 import static com.killrvideo.service.statistic.grpc.StatisticsServiceGrpcValidator.validateGrpcRequest_RecordPlayback;
+import static com.killrvideo.service.statistic.grpc.StatisticsServiceGrpcValidator.validateGrpcRequest_RecordPlaybacks;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
@@ -17,8 +29,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import com.killrvideo.service.statistic.dao.PlaybackCounterAggregator;
 import com.killrvideo.service.statistic.dao.StatisticsDseDao;
+import com.killrvideo.service.statistic.dao.TrendingVideosEngine;
+import com.killrvideo.service.statistic.dao.UniqueViewersAggregator;
 import com.killrvideo.service.statistic.dto.VideoPlaybackStats;
+import com.killrvideo.service.statistic.dto.VideoUniqueViewers;
+import com.killrvideo.service.statistic.dto.WindowedPlaybackStats;
 
 import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
@@ -26,8 +43,16 @@ import killrvideo.common.CommonTypes.Uuid;
 import killrvideo.statistics.StatisticsServiceGrpc.StatisticsServiceImplBase;
 import killrvideo.statistics.StatisticsServiceOuterClass.GetNumberOfPlaysRequest;
 import killrvideo.statistics.StatisticsServiceOuterClass.GetNumberOfPlaysResponse;
+import killrvideo.statistics.StatisticsServiceOuterClass.GetTrendingVideosRequest;
+import killrvideo.statistics.StatisticsServiceOuterClass.GetTrendingVideosResponse;
+import killrvideo.statistics.StatisticsServiceOuterClass.GetUniqueViewersRequest;
+import killrvideo.statistics.StatisticsServiceOuterClass.GetUniqueViewersResponse;
+import killrvideo.statistics.StatisticsServiceOuterClass.GetWindowedNumberOfPlaysRequest;
+import killrvideo.statistics.StatisticsServiceOuterClass.GetWindowedNumberOfPlaysResponse;
 import killrvideo.statistics.StatisticsServiceOuterClass.RecordPlaybackStartedRequest;
 import killrvideo.statistics.StatisticsServiceOuterClass.RecordPlaybackStartedResponse;
+import killrvideo.statistics.StatisticsServiceOuterClass.RecordPlaybacksStartedRequest;
+import killrvideo.statistics.StatisticsServiceOuterClass.RecordPlaybacksStartedResponse;
 
 /**
  * Get statistics on a video.
@@ -46,9 +71,26 @@ public class StatisticsServiceGrpc extends StatisticsServiceImplBase {
     @Value("${killrvideo.discovery.services.statistic : StatisticsService}")
     private String serviceKey;
     
+    /** Distinct videos buffered by a stream before plays are applied. */
+    @Value("${killrvideo.statistics.streaming.flushThreshold: 1000}")
+    private int streamingFlushThreshold = 1000;
+    
+    /** Maximum number of plays carried by a single entry of a stream. */
+    @Value("${killrvideo.statistics.streaming.maxCountPerEntry: 10000}")
+    private int streamingMaxCountPerEntry = 10000;
+    
     @Autowired
     private StatisticsDseDao statisticsDseDao;
     
+    @Autowired
+    private PlaybackCounterAggregator playbackCounterAggregator;
+    
+    @Autowired
+    private TrendingVideosEngine trendingVideosEngine;
+    
+    @Autowired
+    private UniqueViewersAggregator uniqueViewersAggregator;
+    
     /** {@inheritDoc} */
     @Override
     public void recordPlaybackStarted(RecordPlaybackStartedRequest grpcReq, StreamObserver<RecordPlaybackStartedResponse> grpcResObserver) {
@@ -61,9 +103,12 @@ public class StatisticsServiceGrpc extends StatisticsServiceImplBase {
         
         // Mapping GRPC => Domain (Dao)
         final UUID videoId = UUID.fromString(grpcReq.getVideoId().getValue());
+        if (grpcReq.hasViewerId()) {
+            uniqueViewersAggregator.recordViewer(videoId, UUID.fromString(grpcReq.getViewerId().getValue()));
+        }
         
-        // Invoke DAO Async
-        CompletableFuture<Void> futureDao = statisticsDseDao.recordPlaybackStartedAsync(videoId);
+        // Accounted in memory, flushed to DSE by the aggregator
+        CompletableFuture<Void> futureDao = playbackCounterAggregator.recordPlaybackStarted(videoId);
         
         // Map Result back to GRPC
         futureDao.whenComplete((result, error) -> {
@@ -77,6 +122,134 @@ public class StatisticsServiceGrpc extends StatisticsServiceImplBase {
         });
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public StreamObserver<RecordPlaybacksStartedRequest> recordPlaybacksStarted(StreamObserver<RecordPlaybacksStartedResponse> grpcResObserver) {
+        return new RecordPlaybacksStreamObserver(grpcResObserver);
+    }
+    
+    /**
+     * Aggregate plays of a client stream per video, and apply one increment per distinct video
+     * when the stream ends or when the number of distinct videos reaches the flush threshold.
+     * gRPC calls onNext/onCompleted sequentially for a call, the buffer does not need synchronization.
+     * Plays received before the stream fails (invalid entry or client error) did happen and are applied.
+     */
+    private class RecordPlaybacksStreamObserver implements StreamObserver<RecordPlaybacksStartedRequest> {
+        
+        /** Stands as stopwatch for logging. */
+        private final Instant starts = Instant.now();
+        
+        /** Response. */
+        private final StreamObserver<RecordPlaybacksStartedResponse> grpcResObserver;
+        
+        /** Plays per video, not yet applied. */
+        private final Map<UUID, Long> bufferedPlays = new HashMap<>();
+        
+        /** Completes when all plays applied so far are, one future whatever the number of flushes. */
+        private CompletableFuture<Void> appliedPlays = CompletableFuture.completedFuture(null);
+        
+        /** Counters for the response. */
+        private long playsRecorded  = 0;
+        private int  videosRecorded = 0;
+        
+        /** Stream has been rejected, ignore next entries. */
+        private boolean failed = false;
+        
+        private RecordPlaybacksStreamObserver(StreamObserver<RecordPlaybacksStartedResponse> grpcResObserver) {
+            this.grpcResObserver = grpcResObserver;
+        }
+        
+        /** {@inheritDoc} */
+        @Override
+        public void onNext(RecordPlaybacksStartedRequest grpcReq) {
+            if (failed) {
+                return;
+            }
+            UUID videoId = null;
+            if (isValidGrpcRequest_RecordPlaybacks(grpcReq, streamingMaxCountPerEntry)) {
+                try {
+                    videoId = UUID.fromString(grpcReq.getVideoId().getValue());
+                } catch (IllegalArgumentException invalidUuid) {
+                    LOGGER.warn("Invalid video id '{}' in stream of playbacks: {}", grpcReq.getVideoId().getValue(), invalidUuid.getMessage());
+                }
+            }
+            if (videoId == null) {
+                failed = true;
+                LOGGER.warn("Stream of playbacks rejected, applying {} videos received", bufferedPlays.size());
+                applyBufferedPlays();
+                try {
+                    validateGrpcRequest_RecordPlaybacks(LOGGER, grpcReq, grpcResObserver, streamingMaxCountPerEntry);
+                    grpcResObserver.onError(Status.INVALID_ARGUMENT.withDescription(
+                            "Invalid video id " + grpcReq.getVideoId().getValue()).asRuntimeException());
+                } catch (IllegalArgumentException invalidRequest) {
+                    // Validator has already sent INVALID_ARGUMENT with the details
+                    LOGGER.debug("Invalid entry in stream of playbacks: {}", invalidRequest.getMessage());
+                }
+                return;
+            }
+            if (grpcReq.hasViewerId()) {
+                uniqueViewersAggregator.recordViewer(videoId, UUID.fromString(grpcReq.getViewerId().getValue()));
+            }
+            long plays = grpcReq.getCount() == 0 ? 1 : grpcReq.getCount();
+            bufferedPlays.merge(videoId, plays, Long::sum);
+            if (bufferedPlays.size() >= streamingFlushThreshold) {
+                applyBufferedPlays();
+            }
+        }
+        
+        /** {@inheritDoc} */
+        @Override
+        public void onError(Throwable t) {
+            if (failed) {
+                return;
+            }
+            failed = true;
+            LOGGER.warn("Stream of playbacks interrupted by client, applying {} videos received", bufferedPlays.size(), t);
+            applyBufferedPlays();
+        }
+        
+        /** {@inheritDoc} */
+        @Override
+        public void onCompleted() {
+            if (failed) {
+                return;
+            }
+            applyBufferedPlays();
+            appliedPlays.whenComplete((result, error) -> {
+                if (error != null) {
+                    traceError("recordPlaybacksStarted", starts, error);
+                    grpcResObserver.onError(Status.INTERNAL.withCause(error).asRuntimeException());
+                } else {
+                    traceSuccess("recordPlaybacksStarted", starts);
+                    grpcResObserver.onNext(RecordPlaybacksStartedResponse.newBuilder()
+                            .setPlaysRecorded(playsRecorded)
+                            .setVideosRecorded(videosRecorded)
+                            .build());
+                    grpcResObserver.onCompleted();
+                }
+            });
+        }
+        
+        /**
+         * One increment per distinct video.
+         */
+        private void applyBufferedPlays() {
+            if (bufferedPlays.isEmpty()) {
+                return;
+            }
+            List<CompletableFuture<Void>> flushed = new ArrayList<>(bufferedPlays.size());
+            bufferedPlays.forEach((videoId, plays) -> {
+                flushed.add(playbackCounterAggregator.recordPlaybacks(videoId, plays));
+                playsRecorded += plays;
+                videosRecorded++;
+            });
+            bufferedPlays.clear();
+            // Completed flushes are not referenced anymore
+            appliedPlays = CompletableFuture.allOf(appliedPlays, 
+                    CompletableFuture.allOf(flushed.toArray(new CompletableFuture[flushed.size()])));
+        }
+    }
+    
     /** {@inheritDoc} */
     @Override
     public void getNumberOfPlays(GetNumberOfPlaysRequest grpcReq, StreamObserver<GetNumberOfPlaysResponse> grpcResObserver) {
@@ -113,6 +286,95 @@ public class StatisticsServiceGrpc extends StatisticsServiceImplBase {
         });
     }
     
+    /** {@inheritDoc} */
+    @Override
+    public void getWindowedNumberOfPlays(GetWindowedNumberOfPlaysRequest grpcReq, StreamObserver<GetWindowedNumberOfPlaysResponse> grpcResObserver) {
+        
+        // Validate Parameters
+        validateGrpcRequest_GetWindowedNumberPlays(LOGGER, grpcReq, grpcResObserver);
+        
+        // Stands as stopwatch for logging and messaging 
+        final Instant starts = Instant.now();
+        
+        // Mapping GRPC => Domain (Dao)
+        List <UUID> listOfVideoId = grpcReq.getVideoIdsList()
+                                           .stream()
+                                           .map(Uuid::getValue)
+                                           .map(UUID::fromString)
+                                           .collect(Collectors.toList());
+        
+        // Invoke DAO Async
+        CompletableFuture<List<WindowedPlaybackStats>> futureDao = statisticsDseDao.getWindowedNumberOfPlaysAsync(
+                listOfVideoId, mapPlayWindowUnit(grpcReq.getUnit()), grpcReq.getWindowSize());
+        
+        // Map Result back to GRPC
+        futureDao.whenComplete((statsList, error) -> {
+            if (error != null ) {
+                traceError("getWindowedNumberOfPlays", starts, error);
+                grpcResObserver.onError(Status.INTERNAL.withCause(error).asRuntimeException());
+            } else {
+                traceSuccess("getWindowedNumberOfPlays", starts);
+                grpcResObserver.onNext(buildGetWindowedNumberOfPlayResponse(statsList));
+                grpcResObserver.onCompleted();
+            }
+        });
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    public void getTrendingVideos(GetTrendingVideosRequest grpcReq, StreamObserver<GetTrendingVideosResponse> grpcResObserver) {
+        
+        // Validate Parameters
+        validateGrpcRequest_GetTrendingVideos(LOGGER, grpcReq, grpcResObserver);
+        
+        // Stands as stopwatch for logging and messaging 
+        final Instant starts = Instant.now();
+        
+        // Computed in memory, no DSE call
+        try {
+            grpcResObserver.onNext(buildGetTrendingVideosResponse(trendingVideosEngine.getTrendingVideos(grpcReq.getPageSize())));
+            grpcResObserver.onCompleted();
+            traceSuccess("getTrendingVideos", starts);
+        } catch (RuntimeException error) {
+            traceError("getTrendingVideos", starts, error);
+            grpcResObserver.onError(Status.INTERNAL.withCause(error).asRuntimeException());
+        }
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    public void getUniqueViewers(GetUniqueViewersRequest grpcReq, StreamObserver<GetUniqueViewersResponse> grpcResObserver) {
+        
+        // Validate Parameters
+        validateGrpcRequest_GetUniqueViewers(LOGGER, grpcReq, grpcResObserver);
+        
+        // Stands as stopwatch for logging and messaging 
+        final Instant starts = Instant.now();
+        
+        // Mapping GRPC => Domain (Dao)
+        List <UUID> listOfVideoId = grpcReq.getVideoIdsList()
+                                           .stream()
+                                           .map(Uuid::getValue)
+                                           .map(UUID::fromString)
+                                           .collect(Collectors.toList());
+        
+        // Sketches read from DSE and merged with viewers not flushed yet
+        CompletableFuture<List<VideoUniqueViewers>> futureDao = 
+                uniqueViewersAggregator.getUniqueViewersAsync(listOfVideoId);
+        
+        // Map Result back to GRPC
+        futureDao.whenComplete((statsList, error) -> {
+            if (error != null ) {
+                traceError("getUniqueViewers", starts, error);
+                grpcResObserver.onError(Status.INTERNAL.withCause(error).asRuntimeException());
+            } else {
+                traceSuccess("getUniqueViewers", starts);
+                grpcResObserver.onNext(buildGetUniqueViewersResponse(statsList));
+                grpcResObserver.onCompleted();
+            }
+        });
+    }
+    
     /**
      * Utility to TRACE.
      *
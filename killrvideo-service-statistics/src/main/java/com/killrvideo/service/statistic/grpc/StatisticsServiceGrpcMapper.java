@@ -1,19 +1,32 @@
 package com.killrvideo.service.statistic.grpc;
 
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 import org.springframework.stereotype.Component;
 
+import com.killrvideo.service.statistic.dto.PlaybackWindow;
 import com.killrvideo.service.statistic.dto.VideoPlaybackStats;
+import com.killrvideo.service.statistic.dto.VideoUniqueViewers;
+import com.killrvideo.service.statistic.dto.WindowedPlaybackStats;
 import com.killrvideo.utils.GrpcMappingUtils;
 
 import killrvideo.common.CommonTypes.Uuid;
 import killrvideo.statistics.StatisticsServiceOuterClass.GetNumberOfPlaysRequest;
 import killrvideo.statistics.StatisticsServiceOuterClass.GetNumberOfPlaysResponse;
+import killrvideo.statistics.StatisticsServiceOuterClass.GetTrendingVideosResponse;
+import killrvideo.statistics.StatisticsServiceOuterClass.GetUniqueViewersResponse;
+import killrvideo.statistics.StatisticsServiceOuterClass.GetWindowedNumberOfPlaysResponse;
+import killrvideo.statistics.StatisticsServiceOuterClass.PlayBucket;
 import killrvideo.statistics.StatisticsServiceOuterClass.PlayStats;
+import killrvideo.statistics.StatisticsServiceOuterClass.PlayWindowUnit;
+import killrvideo.statistics.StatisticsServiceOuterClass.TrendingVideo;
+import killrvideo.statistics.StatisticsServiceOuterClass.UniqueViewersStats;
+import killrvideo.statistics.StatisticsServiceOuterClass.WindowedPlayStats;
 
 /**
  * Helper and mappers for DAO <=> GRPC Communications
@@ -44,6 +57,42 @@ public class StatisticsServiceGrpcMapper {
         return builder.build();
     }
     
+    public static GetWindowedNumberOfPlaysResponse buildGetWindowedNumberOfPlayResponse(List<WindowedPlaybackStats> statsList) {
+        final GetWindowedNumberOfPlaysResponse.Builder builder = GetWindowedNumberOfPlaysResponse.newBuilder();
+        for (WindowedPlaybackStats stats : statsList) {
+            WindowedPlayStats.Builder statsBuilder = WindowedPlayStats.newBuilder()
+                    .setVideoId(GrpcMappingUtils.uuidToUuid(stats.getVideoid()))
+                    .setViews(stats.getViews());
+            for (Map.Entry<Date, Long> bucket : stats.getViewsPerBucket().entrySet()) {
+                statsBuilder.addBuckets(PlayBucket.newBuilder()
+                        .setBucketStart(GrpcMappingUtils.dateToTimestamp(bucket.getKey()))
+                        .setViews(bucket.getValue()));
+            }
+            builder.addStats(statsBuilder);
+        }
+        return builder.build();
+    }
+    
+    public static GetTrendingVideosResponse buildGetTrendingVideosResponse(Map<UUID, Long> trendingVideos) {
+        final GetTrendingVideosResponse.Builder builder = GetTrendingVideosResponse.newBuilder();
+        trendingVideos.forEach((videoId, views) -> builder.addVideos(TrendingVideo.newBuilder()
+                .setVideoId(GrpcMappingUtils.uuidToUuid(videoId))
+                .setEstimatedViews(views)));
+        return builder.build();
+    }
+    
+    public static GetUniqueViewersResponse buildGetUniqueViewersResponse(List<VideoUniqueViewers> statsList) {
+        final GetUniqueViewersResponse.Builder builder = GetUniqueViewersResponse.newBuilder();
+        statsList.forEach(stats -> builder.addStats(UniqueViewersStats.newBuilder()
+                .setVideoId(GrpcMappingUtils.uuidToUuid(stats.getVideoid()))
+                .setUniqueViewers(stats.getUniqueViewers())));
+        return builder.build();
+    }
+    
+    public static PlaybackWindow mapPlayWindowUnit(PlayWindowUnit unit) {
+        return PlaybackWindow.valueOf(unit.name());
+    }
+    
     /**
      * Mapping to generated GPRC beans.
      */
@@ -2,17 +2,26 @@ package com.killrvideo.service.statistic.grpc;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
+import java.util.UUID;
+
 import org.slf4j.Logger;
 import org.springframework.util.Assert;
 
 import io.grpc.stub.StreamObserver;
 import killrvideo.common.CommonTypes;
 import killrvideo.statistics.StatisticsServiceOuterClass.GetNumberOfPlaysRequest;
+import killrvideo.statistics.StatisticsServiceOuterClass.GetTrendingVideosRequest;
+import killrvideo.statistics.StatisticsServiceOuterClass.GetUniqueViewersRequest;
+import killrvideo.statistics.StatisticsServiceOuterClass.GetWindowedNumberOfPlaysRequest;
+import killrvideo.statistics.StatisticsServiceOuterClass.PlayWindowUnit;
 import killrvideo.statistics.StatisticsServiceOuterClass.RecordPlaybackStartedRequest;
+import killrvideo.statistics.StatisticsServiceOuterClass.RecordPlaybacksStartedRequest;
 
 import static com.killrvideo.utils.ValidationUtils.initErrorString;
 import static com.killrvideo.utils.ValidationUtils.validate;
 
+import com.killrvideo.service.statistic.dto.PlaybackWindow;
+
 public class StatisticsServiceGrpcValidator {
 
     /**
@@ -41,6 +50,66 @@ public class StatisticsServiceGrpcValidator {
         Assert.isTrue(validate(logger, streamObserver, errorMessage, isValid), "Invalid parameter for 'getNumberPlays'");
     }
     
+    public static void validateGrpcRequest_GetWindowedNumberPlays(Logger logger, GetWindowedNumberOfPlaysRequest request, StreamObserver<?> streamObserver) {
+        final StringBuilder errorMessage = initErrorString(request);
+        boolean isValid = true;
+        if (request.getVideoIdsCount() <= 0) {
+            errorMessage.append("\t\tvideo ids should be provided for get windowed number of plays request\n");
+            isValid = false;
+        }
+        if (request.getVideoIdsCount() > 20) {
+            errorMessage.append("\t\tcannot do a get more than 20 videos at once for get windowed number of plays request\n");
+            isValid = false;
+        }
+        for (CommonTypes.Uuid uuid : request.getVideoIdsList()) {
+            if (uuid == null || isBlank(uuid.getValue())) {
+                errorMessage.append("\t\tprovided UUID values cannot be null or blank for get windowed number of plays request\n");
+                isValid = false;
+            }
+        }
+        if (request.getUnit() == PlayWindowUnit.UNRECOGNIZED) {
+            errorMessage.append("\t\tunit should be HOUR or DAY for get windowed number of plays request\n");
+            isValid = false;
+        } else {
+            int maxBuckets = PlaybackWindow.valueOf(request.getUnit().name()).getMaxBuckets();
+            if (request.getWindowSize() <= 0 || request.getWindowSize() > maxBuckets) {
+                errorMessage.append("\t\twindow size should be between 1 and " + maxBuckets + " for get windowed number of plays request\n");
+                isValid = false;
+            }
+        }
+        Assert.isTrue(validate(logger, streamObserver, errorMessage, isValid), "Invalid parameter for 'getWindowedNumberPlays'");
+    }
+    
+    public static void validateGrpcRequest_GetTrendingVideos(Logger logger, GetTrendingVideosRequest request, StreamObserver<?> streamObserver) {
+        final StringBuilder errorMessage = initErrorString(request);
+        boolean isValid = true;
+        if (request.getPageSize() <= 0 || request.getPageSize() > 100) {
+            errorMessage.append("\t\tpage size should be between 1 and 100 for get trending videos request\n");
+            isValid = false;
+        }
+        Assert.isTrue(validate(logger, streamObserver, errorMessage, isValid), "Invalid parameter for 'getTrendingVideos'");
+    }
+    
+    public static void validateGrpcRequest_GetUniqueViewers(Logger logger, GetUniqueViewersRequest request, StreamObserver<?> streamObserver) {
+        final StringBuilder errorMessage = initErrorString(request);
+        boolean isValid = true;
+        if (request.getVideoIdsCount() <= 0) {
+            errorMessage.append("\t\tvideo ids should be provided for get unique viewers request\n");
+            isValid = false;
+        }
+        if (request.getVideoIdsCount() > 20) {
+            errorMessage.append("\t\tcannot do a get more than 20 videos at once for get unique viewers request\n");
+            isValid = false;
+        }
+        for (CommonTypes.Uuid uuid : request.getVideoIdsList()) {
+            if (uuid == null || isBlank(uuid.getValue())) {
+                errorMessage.append("\t\tprovided UUID values cannot be null or blank for get unique viewers request\n");
+                isValid = false;
+            }
+        }
+        Assert.isTrue(validate(logger, streamObserver, errorMessage, isValid), "Invalid parameter for 'getUniqueViewers'");
+    }
+    
     public static void validateGrpcRequest_RecordPlayback(Logger logger, RecordPlaybackStartedRequest request, StreamObserver<?> streamObserver) {
         final StringBuilder errorMessage = initErrorString(request);
         boolean isValid = true;
@@ -49,6 +118,54 @@ public class StatisticsServiceGrpcValidator {
             errorMessage.append("\t\tvideo id should be provided for record playback started request\n");
             isValid = false;
         }
+        if (request.hasViewerId() && !isValidUuid(request.getViewerId())) {
+            errorMessage.append("\t\tviewer id should be a valid UUID when provided for record playback started request\n");
+            isValid = false;
+        }
         Assert.isTrue(validate(logger, streamObserver, errorMessage, isValid), "Invalid parameter for 'recordPlaybackStarted'");
     } 
+    
+    /**
+     * Called for each entry of a stream, error message is only built when the entry is invalid.
+     */
+    public static boolean isValidGrpcRequest_RecordPlaybacks(RecordPlaybacksStartedRequest request, int maxCountPerEntry) {
+        return request.getVideoId() != null 
+                && !isBlank(request.getVideoId().getValue())
+                && request.getCount() >= 0
+                && request.getCount() <= maxCountPerEntry
+                && (!request.hasViewerId() || isValidUuid(request.getViewerId()));
+    }
+    
+    public static void validateGrpcRequest_RecordPlaybacks(Logger logger, RecordPlaybacksStartedRequest request, StreamObserver<?> streamObserver, int maxCountPerEntry) {
+        final StringBuilder errorMessage = initErrorString(request);
+        boolean isValid = true;
+        if (request.getVideoId() == null || isBlank(request.getVideoId().getValue())) {
+            errorMessage.append("\t\tvideo id should be provided for each entry of record playbacks started request\n");
+            isValid = false;
+        }
+        if (request.getCount() < 0 || request.getCount() > maxCountPerEntry) {
+            errorMessage.append("\t\tcount should be between 0 and " + maxCountPerEntry + " for each entry of record playbacks started request\n");
+            isValid = false;
+        }
+        if (request.hasViewerId() && !isValidUuid(request.getViewerId())) {
+            errorMessage.append("\t\tviewer id should be a valid UUID when provided for each entry of record playbacks started request\n");
+            isValid = false;
+        }
+        Assert.isTrue(validate(logger, streamObserver, errorMessage, isValid), "Invalid parameter for 'recordPlaybacksStarted'");
+    }
+    
+    /**
+     * Optional identifiers are parsed only when present.
+     */
+    private static boolean isValidUuid(CommonTypes.Uuid uuid) {
+        if (isBlank(uuid.getValue())) {
+            return false;
+        }
+        try {
+            UUID.fromString(uuid.getValue());
+            return true;
+        } catch (IllegalArgumentException invalidUuid) {
+            return false;
+        }
+    }
 }
@@ -0,0 +1,70 @@
+package com.killrvideo.service.statistic.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link HotVideoDetector}.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class HotVideoDetectorTest {
+
+    /** Threshold and retention used by tests. */
+    private static final long THRESHOLD        = 50;
+    private static final long RETENTION_MILLIS = 10000;
+
+    private final AtomicLong now = new AtomicLong(1000000);
+
+    private final HotVideoDetector detector = new HotVideoDetector(THRESHOLD, RETENTION_MILLIS, 100, now::get);
+
+    private final UUID video = UUID.randomUUID();
+
+    @Test
+    public void singlePlaysBelowThresholdAreNotHot() {
+        for (int i = 0; i < THRESHOLD - 1; i++) {
+            assertFalse(detector.recordPlays(video, 1));
+        }
+        assertEquals(0, detector.getHotVideoCount());
+    }
+
+    @Test
+    public void singlePlaysReachingThresholdAreHot() {
+        for (int i = 0; i < THRESHOLD - 1; i++) {
+            detector.recordPlays(video, 1);
+        }
+        assertTrue(detector.recordPlays(video, 1));
+        assertEquals(1, detector.getHotVideoCount());
+    }
+
+    @Test
+    public void aggregatedPlaysCountAsPlays() {
+        // One mutation per flush carrying all the plays of the second
+        assertTrue(detector.recordPlays(video, THRESHOLD));
+        assertFalse(detector.recordPlays(UUID.randomUUID(), THRESHOLD - 1));
+    }
+
+    @Test
+    public void playsOfPreviousSecondAreForgotten() {
+        detector.recordPlays(video, THRESHOLD - 1);
+        now.addAndGet(1000);
+        assertFalse(detector.recordPlays(video, 1));
+    }
+
+    @Test
+    public void videoStaysHotDuringRetention() {
+        assertTrue(detector.recordPlays(video, THRESHOLD));
+        now.addAndGet(RETENTION_MILLIS - 1);
+        assertTrue(detector.recordPlays(video, 1));
+        now.addAndGet(RETENTION_MILLIS + 1);
+        assertFalse(detector.recordPlays(video, 1));
+        assertEquals(0, detector.getHotVideoCount());
+    }
+
+}
@@ -0,0 +1,189 @@
+package com.killrvideo.service.statistic.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.WriteType;
+import com.datastax.driver.core.exceptions.NoHostAvailableException;
+import com.datastax.driver.core.exceptions.UnavailableException;
+import com.datastax.driver.core.exceptions.WriteTimeoutException;
+
+/**
+ * Unit tests of {@link PlaybackCounterAggregator}.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class PlaybackCounterAggregatorTest {
+
+    /** Long enough for flushes to be triggered by tests only. */
+    private static final long FLUSH_INTERVAL_MILLIS = 3600000;
+
+    private final StubStatisticsDseDao dao = new StubStatisticsDseDao();
+
+    private final UUID video      = UUID.randomUUID();
+    private final UUID otherVideo = UUID.randomUUID();
+
+    private PlaybackCounterAggregator aggregator;
+
+    @AfterEach
+    public void stop() {
+        if (aggregator != null) {
+            aggregator.stop();
+        }
+    }
+
+    @Test
+    public void playsAreFlushedAsOneIncrementPerVideo() {
+        aggregator = start(100);
+        Map<UUID, Long> notified = new ConcurrentHashMap<>();
+        aggregator.addFlushListener((videoId, plays) -> notified.merge(videoId, plays, Long::sum));
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(aggregator.recordPlaybackStarted(video).isDone());
+        }
+        aggregator.recordPlaybacks(otherVideo, 3);
+        assertEquals(0, dao.mutations.get());
+
+        aggregator.flush().join();
+        assertEquals(2, dao.mutations.get());
+        assertEquals(Long.valueOf(1000), dao.views.get(video));
+        assertEquals(Long.valueOf(3), dao.views.get(otherVideo));
+        assertEquals(dao.views, notified);
+        assertEquals(1003, aggregator.getLastFlushPlayCount());
+    }
+
+    @Test
+    public void idleVideosReleaseTheirSlot() {
+        aggregator = start(100);
+        aggregator.recordPlaybackStarted(video);
+        aggregator.flush().join();
+        assertEquals(1, aggregator.getPendingVideoCount());
+        // No play during the interval
+        aggregator.flush().join();
+        assertEquals(0, aggregator.getPendingVideoCount());
+        aggregator.flush().join();
+        assertEquals(1, dao.mutations.get());
+    }
+
+    @Test
+    public void newVideosAreWrittenThroughWhenFull() {
+        aggregator = start(1);
+        aggregator.recordPlaybacks(video, 5);
+        aggregator.recordPlaybacks(otherVideo, 2);
+        assertEquals(2, aggregator.getTotalPlaysWrittenThrough());
+        assertEquals(Long.valueOf(2), dao.views.get(otherVideo));
+
+        // Early flush requested, in any case nothing is lost
+        aggregator.flush().join();
+        assertEquals(Long.valueOf(5), dao.views.get(video));
+        assertEquals(7, aggregator.getTotalPlaysRecorded());
+    }
+
+    @Test
+    public void mutationNotAppliedIsRetriedOnNextFlush() {
+        aggregator = start(100);
+        aggregator.recordPlaybacks(video, 10);
+        dao.failures.put(video, new UnavailableException(ConsistencyLevel.ONE, 1, 0));
+        assertThrows(CompletionException.class, () -> aggregator.flush().join());
+        aggregator.recordPlaybacks(video, 4);
+
+        aggregator.flush().join();
+        assertEquals(Long.valueOf(14), dao.views.get(video));
+        assertEquals(1, aggregator.getTotalMutationsFailed());
+        assertEquals(0, aggregator.getTotalPlaysUnknownOutcome());
+        assertEquals(0, aggregator.getTotalPlaysDropped());
+    }
+
+    @Test
+    public void writeTimeoutIsNeverRetried() {
+        aggregator = start(100);
+        aggregator.recordPlaybacks(video, 10);
+        dao.failures.put(video, new WriteTimeoutException(ConsistencyLevel.ONE, WriteType.COUNTER, 0, 1));
+        assertThrows(CompletionException.class, () -> aggregator.flush().join());
+        assertEquals(10, aggregator.getTotalPlaysUnknownOutcome());
+
+        aggregator.flush().join();
+        assertFalse(dao.views.containsKey(video));
+        assertEquals(1, dao.mutations.get());
+    }
+
+    @Test
+    public void retriesAreBounded() {
+        aggregator = start(1);
+        NoHostAvailableException noHost = new NoHostAvailableException(Collections.<InetSocketAddress, Throwable>emptyMap());
+        aggregator.recordPlaybacks(video, 10);
+        dao.failures.put(video, noHost);
+        assertThrows(CompletionException.class, () -> aggregator.flush().join());
+        // Retried and failed again, the idle slot of the video is released
+        dao.failures.put(video, noHost);
+        assertThrows(CompletionException.class, () -> aggregator.flush().join());
+
+        // One video already waits for a retry, the failed delta of another one is dropped
+        aggregator.recordPlaybacks(otherVideo, 7);
+        dao.failures.put(video, noHost);
+        dao.failures.put(otherVideo, noHost);
+        assertThrows(CompletionException.class, () -> aggregator.flush().join());
+        assertEquals(7, aggregator.getTotalPlaysDropped());
+
+        aggregator.flush().join();
+        assertEquals(Long.valueOf(10), dao.views.get(video));
+        assertFalse(dao.views.containsKey(otherVideo));
+        assertEquals(0, aggregator.getTotalPlaysUnknownOutcome());
+    }
+
+    @Test
+    public void pendingPlaysAreFlushedOnStop() {
+        aggregator = start(100);
+        aggregator.recordPlaybacks(video, 42);
+        aggregator.stop();
+        aggregator = null;
+        assertEquals(Long.valueOf(42), dao.views.get(video));
+    }
+
+    private PlaybackCounterAggregator start(int maxKeys) {
+        PlaybackCounterAggregator started = new PlaybackCounterAggregator(dao, maxKeys, FLUSH_INTERVAL_MILLIS);
+        started.start();
+        return started;
+    }
+
+    /**
+     * Counters in memory, the next increment of a video can be made to fail.
+     */
+    private static final class StubStatisticsDseDao extends StatisticsDseDao {
+
+        private final Map<UUID, Long> views = new ConcurrentHashMap<>();
+
+        private final Map<UUID, RuntimeException> failures = new ConcurrentHashMap<>();
+
+        private final AtomicInteger mutations = new AtomicInteger();
+
+        @Override
+        public CompletableFuture<Void> incrementPlaybacksAsync(UUID videoId, long delta) {
+            mutations.incrementAndGet();
+            CompletableFuture<Void> mutation = new CompletableFuture<>();
+            RuntimeException failure = failures.remove(videoId);
+            if (failure != null) {
+                mutation.completeExceptionally(failure);
+            } else {
+                views.merge(videoId, delta, Long::sum);
+                mutation.complete(null);
+            }
+            return mutation;
+        }
+    }
+
+}
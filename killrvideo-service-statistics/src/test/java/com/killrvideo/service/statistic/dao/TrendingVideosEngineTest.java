@@ -0,0 +1,155 @@
+package com.killrvideo.service.statistic.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.killrvideo.messaging.dao.MessagingDao;
+
+import killrvideo.statistics.events.StatisticsEvents.TrendingVideosSnapshot;
+
+/**
+ * Unit tests of {@link TrendingVideosEngine}.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class TrendingVideosEngineTest {
+
+    /** Long enough for rotations, publications and flushes to be triggered by tests only. */
+    private static final long NEVER_MILLIS = 3600000;
+
+    private final StubMessagingDao messagingDao = new StubMessagingDao();
+
+    private final PlaybackCounterAggregator aggregator = new PlaybackCounterAggregator(new StatisticsDseDao() {
+        @Override
+        public CompletableFuture<Void> incrementPlaybacksAsync(UUID videoId, long delta) {
+            return CompletableFuture.completedFuture(null);
+        }
+    }, 100, NEVER_MILLIS);
+
+    private final List<TrendingVideosEngine> engines = new ArrayList<>();
+
+    private final UUID first  = UUID.randomUUID();
+    private final UUID second = UUID.randomUUID();
+    private final UUID third  = UUID.randomUUID();
+
+    @AfterEach
+    public void stop() {
+        engines.forEach(TrendingVideosEngine::stop);
+    }
+
+    @Test
+    public void playsAreFedByAggregatorFlush() {
+        aggregator.start();
+        try {
+            TrendingVideosEngine engine = start(NEVER_MILLIS);
+            aggregator.recordPlaybacks(first, 30);
+            aggregator.recordPlaybacks(second, 50);
+            aggregator.recordPlaybacks(third, 10);
+            assertTrue(engine.getLocalTrendingVideos(10).isEmpty());
+            aggregator.flush().join();
+            assertEquals(Arrays.asList(second, first), new ArrayList<>(engine.getLocalTrendingVideos(2).keySet()));
+            assertEquals(Long.valueOf(50), engine.getLocalTrendingVideos(2).get(second));
+        } finally {
+            aggregator.stop();
+        }
+    }
+
+    @Test
+    public void playsLeaveTheWindowAfterLastSlot() {
+        TrendingVideosEngine engine = start(NEVER_MILLIS);
+        engine.recordPlaybacks(first, 100);
+        engine.rotate();
+        engine.recordPlaybacks(first, 5);
+        engine.recordPlaybacks(second, 20);
+        engine.rotate();
+        assertEquals(Long.valueOf(105), engine.getLocalTrendingVideos(10).get(first));
+
+        // Window of 3 slots, the slot of the first 100 plays is dropped
+        engine.rotate();
+        assertEquals(Arrays.asList(second, first), new ArrayList<>(engine.getLocalTrendingVideos(10).keySet()));
+        assertEquals(Long.valueOf(5), engine.getLocalTrendingVideos(10).get(first));
+        engine.rotate();
+        assertTrue(engine.getLocalTrendingVideos(10).isEmpty());
+    }
+
+    @Test
+    public void snapshotsOfOtherNodesAreMerged() {
+        TrendingVideosEngine local  = start(NEVER_MILLIS);
+        TrendingVideosEngine remote = start(NEVER_MILLIS);
+        local.recordPlaybacks(first, 40);
+        remote.recordPlaybacks(first, 30);
+        remote.recordPlaybacks(second, 60);
+        remote.publishSnapshot();
+        assertEquals(1, messagingDao.snapshots.size());
+
+        // Own snapshot is ignored
+        remote.onTrendingVideosSnapshot(messagingDao.snapshots.get(0));
+        assertEquals(0, remote.getRemoteNodeCount());
+
+        local.onTrendingVideosSnapshot(messagingDao.snapshots.get(0));
+        assertEquals(1, local.getRemoteNodeCount());
+        Map<UUID, Long> trending = local.getTrendingVideos(10);
+        assertEquals(Arrays.asList(first, second), new ArrayList<>(trending.keySet()));
+        assertEquals(Long.valueOf(70), trending.get(first));
+        assertEquals(Long.valueOf(40), local.getLocalTrendingVideos(10).get(first));
+    }
+
+    @Test
+    public void emptyTopIsNotPublished() {
+        start(NEVER_MILLIS).publishSnapshot();
+        assertTrue(messagingDao.snapshots.isEmpty());
+    }
+
+    @Test
+    public void silentNodeIsForgotten() throws InterruptedException {
+        TrendingVideosEngine remote = start(NEVER_MILLIS);
+        remote.recordPlaybacks(first, 30);
+        remote.publishSnapshot();
+        // Snapshots are expected every 10 millis, expired after 3 intervals without one
+        TrendingVideosEngine local = start(10);
+        local.onTrendingVideosSnapshot(messagingDao.snapshots.get(0));
+        assertEquals(Long.valueOf(30), local.getTrendingVideos(10).get(first));
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertTrue(local.getTrendingVideos(10).isEmpty());
+        assertEquals(0, local.getRemoteNodeCount());
+    }
+
+    private TrendingVideosEngine start(long publishIntervalMillis) {
+        TrendingVideosEngine engine = new TrendingVideosEngine(aggregator, messagingDao, 100, NEVER_MILLIS, 3, publishIntervalMillis);
+        engine.start();
+        engines.add(engine);
+        return engine;
+    }
+
+    /**
+     * Keep snapshots sent.
+     */
+    private static final class StubMessagingDao implements MessagingDao {
+
+        private final List<TrendingVideosSnapshot> snapshots = new CopyOnWriteArrayList<>();
+
+        @Override
+        public CompletableFuture<Object> sendEvent(String targetDestination, Object event) {
+            snapshots.add((TrendingVideosSnapshot) event);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public String getErrorDestination() {
+            return "ERROR";
+        }
+    }
+
+}
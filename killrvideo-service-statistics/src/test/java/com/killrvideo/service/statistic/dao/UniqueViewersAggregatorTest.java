@@ -0,0 +1,200 @@
+package com.killrvideo.service.statistic.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.killrvideo.service.statistic.dto.VideoUniqueViewers;
+import com.killrvideo.utils.HyperLogLog;
+
+/**
+ * Unit tests of {@link UniqueViewersAggregator}.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class UniqueViewersAggregatorTest {
+
+    /** Long enough for flushes to be triggered by tests only. */
+    private static final long FLUSH_INTERVAL_MILLIS = 3600000;
+
+    /** Standard error at the default precision is about 1.6%, tolerate 3 of them. */
+    private static final double MAX_RELATIVE_ERROR = 0.05;
+
+    private final StubStatisticsDseDao dao = new StubStatisticsDseDao();
+
+    private final Random random = new Random(42);
+
+    private final UUID video      = UUID.randomUUID();
+    private final UUID otherVideo = UUID.randomUUID();
+
+    private UniqueViewersAggregator aggregator;
+    private UniqueViewersAggregator otherAggregator;
+
+    @AfterEach
+    public void stop() {
+        for (UniqueViewersAggregator started : Arrays.asList(aggregator, otherAggregator)) {
+            if (started != null) {
+                started.stop();
+            }
+        }
+    }
+
+    @Test
+    public void flushMergesIntoTheRowOfTheWriter() {
+        aggregator = start("backend-1", 100);
+        recordDistinctViewers(aggregator, video, 1000);
+        aggregator.flush().join();
+        assertEquals(0, aggregator.getPendingVideoCount());
+        assertEstimate(1000, dao.rows.get(video).get("backend-1").cardinality());
+
+        recordDistinctViewers(aggregator, video, 1000);
+        aggregator.flush().join();
+        assertEstimate(2000, dao.rows.get(video).get("backend-1").cardinality());
+    }
+
+    @Test
+    public void repeatedViewerIsCountedOnce() {
+        aggregator = start("backend-1", 100);
+        UUID viewer = UUID.randomUUID();
+        for (int i = 0; i < 100; i++) {
+            aggregator.recordViewer(video, viewer);
+        }
+        aggregator.flush().join();
+        aggregator.recordViewer(video, viewer);
+        aggregator.flush().join();
+        assertEquals(1, uniqueViewers(aggregator, video));
+    }
+
+    @Test
+    public void readMergesAllWritersAndPendingViewers() {
+        aggregator      = start("backend-1", 100);
+        otherAggregator = start("backend-2", 100);
+        recordDistinctViewers(aggregator, video, 3000);
+        recordDistinctViewers(otherAggregator, video, 2000);
+        aggregator.flush().join();
+        otherAggregator.flush().join();
+        // Not flushed yet
+        recordDistinctViewers(aggregator, video, 1000);
+        assertEstimate(6000, uniqueViewers(aggregator, video));
+        assertEstimate(5000, uniqueViewers(otherAggregator, video));
+        assertEquals(0, uniqueViewers(aggregator, otherVideo));
+    }
+
+    @Test
+    public void sketchesAreBounded() {
+        aggregator = start("backend-1", 1);
+        aggregator.recordViewer(video, UUID.randomUUID());
+        aggregator.recordViewer(otherVideo, UUID.randomUUID());
+        assertEquals(1, aggregator.getTotalViewersDropped());
+        assertEquals(1, aggregator.getTotalViewersRecorded());
+
+        // Early flush requested, in any case the slot is free after a flush
+        aggregator.flush().join();
+        assertEquals(0, aggregator.getPendingVideoCount());
+        aggregator.recordViewer(otherVideo, UUID.randomUUID());
+        assertEquals(1, aggregator.getPendingVideoCount());
+        assertEquals(1, aggregator.getTotalViewersDropped());
+    }
+
+    @Test
+    public void failedFlushIsRetried() {
+        aggregator = start("backend-1", 100);
+        recordDistinctViewers(aggregator, video, 500);
+        dao.failingSaves.add(video);
+        aggregator.flush().join();
+        assertEquals(1, aggregator.getTotalFlushesFailed());
+        assertEquals(1, aggregator.getPendingVideoCount());
+
+        recordDistinctViewers(aggregator, video, 500);
+        aggregator.flush().join();
+        assertEquals(0, aggregator.getPendingVideoCount());
+        assertEstimate(1000, dao.rows.get(video).get("backend-1").cardinality());
+    }
+
+    @Test
+    public void pendingViewersAreFlushedOnStop() {
+        aggregator = start("backend-1", 100);
+        aggregator.recordViewer(video, UUID.randomUUID());
+        aggregator.stop();
+        aggregator = null;
+        assertEquals(1, dao.rows.get(video).get("backend-1").cardinality());
+    }
+
+    @Test
+    public void writerIdIsRequired() {
+        assertThrows(IllegalArgumentException.class, () -> new UniqueViewersAggregator(dao, null, 100, FLUSH_INTERVAL_MILLIS).start());
+        assertThrows(IllegalArgumentException.class, () -> new UniqueViewersAggregator(dao, " ", 100, FLUSH_INTERVAL_MILLIS).start());
+    }
+
+    private UniqueViewersAggregator start(String writerId, int maxSketches) {
+        UniqueViewersAggregator started = new UniqueViewersAggregator(dao, writerId, maxSketches, FLUSH_INTERVAL_MILLIS);
+        started.start();
+        return started;
+    }
+
+    private void recordDistinctViewers(UniqueViewersAggregator target, UUID videoId, int count) {
+        for (int i = 0; i < count; i++) {
+            target.recordViewer(videoId, new UUID(random.nextLong(), random.nextLong()));
+        }
+    }
+
+    private static long uniqueViewers(UniqueViewersAggregator target, UUID videoId) {
+        List<VideoUniqueViewers> result = target.getUniqueViewersAsync(Arrays.asList(videoId)).join();
+        assertEquals(videoId, result.get(0).getVideoid());
+        return result.get(0).getUniqueViewers();
+    }
+
+    private static void assertEstimate(long expected, long estimate) {
+        double error = Math.abs(estimate - expected) / (double) expected;
+        assertTrue(error < MAX_RELATIVE_ERROR, expected + " distinct viewers estimated " + estimate);
+    }
+
+    /**
+     * Rows of 'video_unique_viewers' in memory, saves of a video can be made to fail once.
+     */
+    private static final class StubStatisticsDseDao extends StatisticsDseDao {
+
+        private final Map<UUID, Map<String, HyperLogLog>> rows = new ConcurrentHashMap<>();
+
+        private final Set<UUID> failingSaves = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public CompletableFuture<HyperLogLog> findUniqueViewersAsync(UUID videoId, int precision) {
+            HyperLogLog merged = new HyperLogLog(precision);
+            rows.getOrDefault(videoId, new ConcurrentHashMap<>()).values().forEach(merged::merge);
+            return CompletableFuture.completedFuture(merged);
+        }
+
+        @Override
+        public CompletableFuture<Optional<HyperLogLog>> findUniqueViewersAsync(UUID videoId, String writer, int precision) {
+            HyperLogLog stored = rows.getOrDefault(videoId, new ConcurrentHashMap<>()).get(writer);
+            return CompletableFuture.completedFuture(Optional.ofNullable(stored).map(hll -> HyperLogLog.fromBytes(hll.toBytes())));
+        }
+
+        @Override
+        public CompletableFuture<Void> saveUniqueViewersAsync(UUID videoId, String writer, HyperLogLog sketch) {
+            CompletableFuture<Void> save = new CompletableFuture<>();
+            if (failingSaves.remove(videoId)) {
+                save.completeExceptionally(new IllegalStateException("Write timeout"));
+            } else {
+                rows.computeIfAbsent(videoId, id -> new ConcurrentHashMap<>()).put(writer, HyperLogLog.fromBytes(sketch.toBytes()));
+                save.complete(null);
+            }
+            return save;
+        }
+    }
+
+}
@@ -0,0 +1,537 @@
+package com.killrvideo.service.sugestedvideo.dao;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import com.datastax.driver.dse.DseSession;
+import com.datastax.driver.dse.graph.GraphResultSet;
+import com.datastax.driver.dse.graph.GraphStatement;
+import com.killrvideo.messaging.conf.KillrVideoThreadFactory;
+import com.killrvideo.utils.FutureUtils;
+
+/**
+ * Write graph mutations of suggested videos events (new users, videos and ratings) in batches.
+ *
+ * Mutations wait in a queue of 'queueCapacity'; when full, the event consumer is blocked up to
+ * 'enqueueTimeoutMillis' (back pressure) before the mutation is dead-lettered. A single thread drains the queue:
+ * up to 'maxBatchSize' queued mutations are sent as one {@link SuggestedVideosGraphStatements#SCRIPT_MUTATIONS}
+ * request (one transaction, same script whatever the batch size). Users and videos of the drained mutations are
+ * sent first, their ratings are sent once every user and video batch drained so far is written or dead-lettered
+ * (retries included), so that ratings find their vertices. At most 'maxInFlight' batches are sent or waiting at
+ * the same time.
+ *
+ * A failed batch is sent again after an exponential backoff, 'maxRetries' times. Then each mutation is tried
+ * alone once, so that one invalid mutation does not lose the others, and failed ones are appended to
+ * 'deadLetterFile', one JSON object per line with their kind and bindings (dates in ISO-8601), to be replayed
+ * with the same script. 'deadLetterFile' is required and must survive redeployments, the writer does not start
+ * when it cannot be opened. Ratings are upserts, a replayed
+ * rating updates the edge written before.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Component
+@ManagedResource(objectName = "killrvideo:type=SuggestedVideos,name=GraphMutationWriter")
+public class GraphMutationWriter {
+
+    /** Loger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(GraphMutationWriter.class);
+
+    /** Kinds of mutations, in their order within a batch. */
+    public enum Kind { USER, VIDEO, RATING }
+
+    @Value("${killrvideo.suggestedVideo.graphWriter.queueCapacity: 10000}")
+    private int queueCapacity = 10000;
+
+    @Value("${killrvideo.suggestedVideo.graphWriter.enqueueTimeoutMillis: 1000}")
+    private long enqueueTimeoutMillis = 1000;
+
+    @Value("${killrvideo.suggestedVideo.graphWriter.maxBatchSize: 50}")
+    private int maxBatchSize = 50;
+
+    @Value("${killrvideo.suggestedVideo.graphWriter.maxInFlight: 8}")
+    private int maxInFlight = 8;
+
+    @Value("${killrvideo.suggestedVideo.graphWriter.maxRetries: 5}")
+    private int maxRetries = 5;
+
+    @Value("${killrvideo.suggestedVideo.graphWriter.initialBackoffMillis: 200}")
+    private long initialBackoffMillis = 200;
+
+    @Value("${killrvideo.suggestedVideo.graphWriter.maxBackoffMillis: 10000}")
+    private long maxBackoffMillis = 10000;
+
+    @Value("${killrvideo.suggestedVideo.graphWriter.deadLetterFile: }")
+    private String deadLetterFile;
+
+    @Value("${killrvideo.suggestedVideo.graphWriter.shutdownTimeoutMillis: 10000}")
+    private long shutdownTimeoutMillis = 10000;
+
+    /** Hold Connectivity to DSE. */
+    @Autowired
+    private DseSession dseSession;
+
+    /** Mutations waiting for a batch. */
+    private BlockingQueue<GraphMutation> queue;
+
+    /** Bound number of batches sent to DSE Graph. */
+    private Semaphore inFlight;
+
+    /** Draining thread, and retries after backoff. */
+    private ExecutorService drainer;
+    private ScheduledExecutorService retryScheduler;
+
+    /** Batches waiting for their backoff (or ratings for their vertices), dead-lettered if still waiting at shutdown. */
+    private final Set<GraphBatch> waiting = ConcurrentHashMap.newKeySet();
+
+    /** Completes when every user and video batch drained so far is done, only replaced by the draining thread. */
+    private volatile CompletableFuture<Void> vertexBatchesDone = CompletableFuture.completedFuture(null);
+
+    /** Draining until shutdown. */
+    private volatile boolean running = false;
+
+    /** Mutations not written. */
+    private PrintWriter deadLetters;
+
+    /** Metrics. */
+    private final LongAdder     submittedMutations    = new LongAdder();
+    private final LongAdder     writtenMutations      = new LongAdder();
+    private final LongAdder     sentBatches           = new LongAdder();
+    private final LongAdder     failedAttempts        = new LongAdder();
+    private final LongAdder     deadLetteredMutations = new LongAdder();
+    private final AtomicInteger lastBatchSize         = new AtomicInteger();
+
+    /**
+     * Open dead-letter file and start draining.
+     */
+    @PostConstruct
+    public void start() {
+        Assert.hasText(deadLetterFile, "killrvideo.suggestedVideo.graphWriter.deadLetterFile is required (durable path)");
+        try {
+            deadLetters = new PrintWriter(new FileWriter(deadLetterFile, true));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open graph dead-letter file '" + deadLetterFile + "' for writing", e);
+        }
+        queue          = new ArrayBlockingQueue<>(queueCapacity);
+        inFlight       = new Semaphore(maxInFlight);
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(new KillrVideoThreadFactory());
+        drainer        = Executors.newSingleThreadExecutor(new KillrVideoThreadFactory());
+        running        = true;
+        drainer.execute(this::drain);
+        LOGGER.info("Graph mutations written in batches of {} with {} requests in flight, dead letters in '{}'",
+                maxBatchSize, maxInFlight, deadLetterFile);
+    }
+
+    /**
+     * Queue a mutation, waits if the queue is full.
+     *
+     * @param kind
+     *      kind of mutation, to order a batch
+     * @param bindings
+     *      bindings of the mutation (see {@link SuggestedVideosGraphStatements})
+     */
+    public void submit(Kind kind, Map<String, Object> bindings) {
+        GraphMutation mutation = new GraphMutation(kind, bindings);
+        submittedMutations.increment();
+        try {
+            if (!queue.offer(mutation, enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                deadLetter(mutation, "queue full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            deadLetter(mutation, "interrupted");
+        }
+    }
+
+    /**
+     * Send batches until shutdown and queue is empty.
+     */
+    private void drain() {
+        while (running || !queue.isEmpty()) {
+            List<GraphMutation> drained = new ArrayList<>(maxBatchSize);
+            try {
+                GraphMutation first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                drained.add(first);
+                queue.drainTo(drained, maxBatchSize - 1);
+                lastBatchSize.set(drained.size());
+                // Stable: order of events is kept within a kind, the script follows the order of kinds
+                drained.sort(Comparator.comparing(m -> m.kind));
+                int firstRating = 0;
+                while (firstRating < drained.size() && drained.get(firstRating).kind != Kind.RATING) {
+                    firstRating++;
+                }
+                if (firstRating > 0) {
+                    inFlight.acquire();
+                    GraphBatch vertices = new GraphBatch(new ArrayList<>(drained.subList(0, firstRating)));
+                    drained.subList(0, firstRating).clear();
+                    // Earlier vertex batches hold their permit, ratings waiting for them never starve them
+                    vertexBatchesDone = vertexBatchesDone.isDone()
+                            ? vertices.done
+                            : CompletableFuture.allOf(vertexBatchesDone, vertices.done);
+                    send(vertices, 0);
+                }
+                if (!drained.isEmpty()) {
+                    inFlight.acquire();
+                    GraphBatch ratings = new GraphBatch(drained);
+                    drained = Collections.emptyList();
+                    waiting.add(ratings);
+                    vertexBatchesDone.thenRun(() -> {
+                        if (waiting.remove(ratings)) {
+                            send(ratings, 0);
+                        }
+                    });
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                drained.forEach(mutation -> deadLetter(mutation, "shutdown"));
+                break;
+            } catch (RuntimeException e) {
+                LOGGER.error("Unexpected error while draining graph mutations", e);
+            }
+        }
+    }
+
+    /**
+     * Send a batch, the permit is released once written or dead-lettered.
+     */
+    private void send(GraphBatch batch, int attempt) {
+        sentBatches.increment();
+        execute(batch.mutations).whenComplete((rs, error) -> {
+            if (error == null) {
+                writtenMutations.add(batch.mutations.size());
+                release(batch);
+            } else {
+                failedAttempts.increment();
+                onFailure(batch, attempt, error);
+            }
+        });
+    }
+
+    /**
+     * Retry after backoff, then alone, then dead-letter.
+     */
+    private void onFailure(GraphBatch batch, int attempt, Throwable error) {
+        List<GraphMutation> mutations = batch.mutations;
+        if (attempt < maxRetries && !retryScheduler.isShutdown()) {
+            long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt, 20));
+            LOGGER.warn("Graph batch of {} mutations failed (attempt {}), retry in {} millis: {}",
+                    mutations.size(), attempt + 1, backoff, error.getMessage());
+            waiting.add(batch);
+            retryScheduler.schedule(() -> {
+                if (waiting.remove(batch)) {
+                    send(batch, attempt + 1);
+                }
+            }, backoff, TimeUnit.MILLISECONDS);
+        } else if (mutations.size() > 1) {
+            LOGGER.warn("Graph batch of {} mutations failed {} times, trying each mutation alone", mutations.size(), attempt + 1);
+            AtomicInteger remaining = new AtomicInteger(mutations.size());
+            for (GraphMutation mutation : mutations) {
+                execute(Collections.singletonList(mutation)).whenComplete((rs, singleError) -> {
+                    if (singleError == null) {
+                        writtenMutations.increment();
+                    } else {
+                        deadLetter(mutation, singleError.getMessage());
+                    }
+                    if (remaining.decrementAndGet() == 0) {
+                        release(batch);
+                    }
+                });
+            }
+        } else {
+            deadLetter(mutations.get(0), error.getMessage());
+            release(batch);
+        }
+    }
+
+    /**
+     * Batch written or dead-lettered: release its permit, then ratings waiting for it may be sent.
+     */
+    private void release(GraphBatch batch) {
+        inFlight.release();
+        batch.done.complete(null);
+    }
+
+    /**
+     * Send mutations in one request, failures (even synchronous) complete the future.
+     */
+    private CompletableFuture<GraphResultSet> execute(List<GraphMutation> mutations) {
+        List<Map<String, Object>> users   = new ArrayList<>();
+        List<Map<String, Object>> videos  = new ArrayList<>();
+        List<Map<String, Object>> ratings = new ArrayList<>();
+        for (GraphMutation mutation : mutations) {
+            switch (mutation.kind) {
+                case USER:  users.add(mutation.bindings);   break;
+                case VIDEO: videos.add(mutation.bindings);  break;
+                default:    ratings.add(mutation.bindings); break;
+            }
+        }
+        GraphStatement statement = SuggestedVideosGraphStatements.mutations(users, videos, ratings);
+        try {
+            return FutureUtils.asCompletableFuture(dseSession.executeGraphAsync(statement));
+        } catch (RuntimeException e) {
+            CompletableFuture<GraphResultSet> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
+        }
+    }
+
+    /**
+     * Append a mutation to the dead-letter file, with its bindings.
+     */
+    private void deadLetter(GraphMutation mutation, String reason) {
+        deadLetteredMutations.increment();
+        LOGGER.error("Graph mutation {} not written ({}), see '{}'", mutation.kind, reason, deadLetterFile);
+        String line = toJsonLine(Instant.now(), mutation.kind, reason, mutation.bindings);
+        synchronized (deadLetters) {
+            deadLetters.append(line).append('\n');
+            deadLetters.flush();
+        }
+    }
+
+    /**
+     * Dead letter as one JSON object: {"date":..., "kind":..., "reason":..., "bindings":{...}}.
+     *
+     * @param date
+     *      date of failure
+     * @param kind
+     *      kind of mutation
+     * @param reason
+     *      error, may be null
+     * @param bindings
+     *      bindings of the mutation
+     * @return
+     *      JSON without line break
+     */
+    static String toJsonLine(Instant date, Kind kind, String reason, Map<String, Object> bindings) {
+        StringBuilder json = new StringBuilder("{\"date\":");
+        appendJson(json, date.toString());
+        json.append(",\"kind\":");
+        appendJson(json, kind.name());
+        json.append(",\"reason\":");
+        appendJson(json, reason);
+        json.append(",\"bindings\":");
+        appendJson(json, bindings);
+        return json.append('}').toString();
+    }
+
+    /**
+     * Values of bindings: maps, lists, numbers and booleans as is, dates in ISO-8601, others (UUIDs) as strings.
+     */
+    private static void appendJson(StringBuilder json, Object value) {
+        if (value == null) {
+            json.append("null");
+        } else if (value instanceof Number || value instanceof Boolean) {
+            json.append(value);
+        } else if (value instanceof Date) {
+            appendJson(json, ((Date) value).toInstant().toString());
+        } else if (value instanceof Map) {
+            json.append('{');
+            Iterator<? extends Map.Entry<?, ?>> entries = ((Map<?, ?>) value).entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<?, ?> entry = entries.next();
+                appendJson(json, String.valueOf(entry.getKey()));
+                json.append(':');
+                appendJson(json, entry.getValue());
+                if (entries.hasNext()) {
+                    json.append(',');
+                }
+            }
+            json.append('}');
+        } else if (value instanceof Collection) {
+            json.append('[');
+            Iterator<?> elements = ((Collection<?>) value).iterator();
+            while (elements.hasNext()) {
+                appendJson(json, elements.next());
+                if (elements.hasNext()) {
+                    json.append(',');
+                }
+            }
+            json.append(']');
+        } else {
+            json.append('"');
+            for (char c : value.toString().toCharArray()) {
+                switch (c) {
+                    case '"':  json.append("\\\""); break;
+                    case '\\': json.append("\\\\"); break;
+                    case '\n': json.append("\\n"); break;
+                    case '\r': json.append("\\r"); break;
+                    case '\t': json.append("\\t"); break;
+                    default:
+                        if (c < 0x20) {
+                            json.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            json.append(c);
+                        }
+                }
+            }
+            json.append('"');
+        }
+    }
+
+    /**
+     * Write queued mutations, dead-letter what is left after 'shutdownTimeoutMillis'.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        drainer.shutdown();
+        long deadline = System.currentTimeMillis() + shutdownTimeoutMillis;
+        if (!drainer.awaitTermination(shutdownTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            drainer.shutdownNow();
+        }
+        long remaining = Math.max(0, deadline - System.currentTimeMillis());
+        if (inFlight.tryAcquire(maxInFlight, remaining, TimeUnit.MILLISECONDS)) {
+            inFlight.release(maxInFlight);
+        } else {
+            LOGGER.warn("Graph batches still in flight at shutdown");
+        }
+        retryScheduler.shutdownNow();
+        List<GraphBatch> waitingBatches = new ArrayList<>();
+        for (GraphBatch batch : waiting) {
+            if (waiting.remove(batch)) {
+                waitingBatches.add(batch);
+            }
+        }
+        List<GraphMutation> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.forEach(mutation -> deadLetter(mutation, "shutdown"));
+        for (GraphBatch batch : waitingBatches) {
+            batch.mutations.forEach(mutation -> deadLetter(mutation, "shutdown"));
+            release(batch);
+        }
+        synchronized (deadLetters) {
+            deadLetters.close();
+        }
+    }
+
+    /**
+     * Number of mutations waiting in the queue.
+     */
+    @ManagedAttribute
+    public int getQueueDepth() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    /**
+     * Number of batches being sent or retried.
+     */
+    @ManagedAttribute
+    public int getInFlightBatches() {
+        return inFlight == null ? 0 : maxInFlight - inFlight.availablePermits();
+    }
+
+    /**
+     * Getter for attribute 'lastBatchSize'.
+     */
+    @ManagedAttribute
+    public int getLastBatchSize() {
+        return lastBatchSize.get();
+    }
+
+    /**
+     * Average number of mutations per request sent, retries included.
+     */
+    @ManagedAttribute
+    public double getAverageBatchSize() {
+        long batches = sentBatches.sum();
+        return batches == 0 ? 0 : (double) writtenMutations.sum() / batches;
+    }
+
+    /**
+     * Getter for attribute 'submittedMutations'.
+     */
+    @ManagedAttribute
+    public long getSubmittedMutations() {
+        return submittedMutations.sum();
+    }
+
+    /**
+     * Getter for attribute 'writtenMutations'.
+     */
+    @ManagedAttribute
+    public long getWrittenMutations() {
+        return writtenMutations.sum();
+    }
+
+    /**
+     * Getter for attribute 'failedAttempts'.
+     */
+    @ManagedAttribute
+    public long getFailedAttempts() {
+        return failedAttempts.sum();
+    }
+
+    /**
+     * Getter for attribute 'deadLetteredMutations'.
+     */
+    @ManagedAttribute
+    public long getDeadLetteredMutations() {
+        return deadLetteredMutations.sum();
+    }
+
+    /**
+     * Mutations sent in one request, and retried together.
+     */
+    private static final class GraphBatch {
+
+        private final List<GraphMutation> mutations;
+
+        /** Completes once written or dead-lettered. */
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private GraphBatch(List<GraphMutation> mutations) {
+            this.mutations = mutations;
+        }
+    }
+
+    /**
+     * Mutation waiting in the queue.
+     */
+    private static final class GraphMutation {
+
+        private final Kind kind;
+        private final Map<String, Object> bindings;
+
+        private GraphMutation(Kind kind, Map<String, Object> bindings) {
+            this.kind     = kind;
+            this.bindings = bindings;
+        }
+    }
+
+}
@@ -0,0 +1,147 @@
+package com.killrvideo.service.sugestedvideo.dao;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.killrvideo.dse.dto.Video;
+import com.killrvideo.messaging.conf.KillrVideoThreadFactory;
+import com.killrvideo.utils.FutureUtils;
+
+/**
+ * Most played recent videos, suggested to any user when personal suggestions are late.
+ *
+ * Every 'refreshSeconds' at most 'candidates' videos are read from table 'latest_videos' (newest days first, at
+ * most 'days' partitions) and ranked by lifetime playbacks (shards of hot videos summed, at most 'maxConcurrentQueries'
+ * reads running); the first 'maxVideos' are kept. The list is empty until the first refresh completes and the
+ * previous list is kept when a refresh fails.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Component
+public class PopularVideosCache {
+
+    /** Loger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(PopularVideosCache.class);
+
+    /** Partitions of table 'latest_videos', same as video catalog. */
+    private static final DateTimeFormatter DATEFORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    @Value("${killrvideo.suggestedVideo.popular.refreshSeconds: 300}")
+    private long refreshSeconds = 300;
+
+    @Value("${killrvideo.suggestedVideo.popular.days: 7}")
+    private int days = 7;
+
+    @Value("${killrvideo.suggestedVideo.popular.candidates: 100}")
+    private int candidates = 100;
+
+    @Value("${killrvideo.suggestedVideo.popular.maxConcurrentQueries: 4}")
+    private int maxConcurrentQueries = 4;
+
+    @Value("${killrvideo.suggestedVideo.popular.maxVideos: 5}")
+    private int maxVideos = 5;
+
+    @Autowired
+    private SuggestedVideosDseDao suggestedVideosDseDao;
+
+    /** Current list, replaced as a whole. */
+    private volatile List<Video> popularVideos = Collections.emptyList();
+
+    /** Refreshes. */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Default constructor.
+     */
+    public PopularVideosCache() {
+    }
+
+    /**
+     * Explicit initialization for test purpose.
+     */
+    PopularVideosCache(SuggestedVideosDseDao suggestedVideosDseDao, int days, int candidates, int maxVideos) {
+        this.suggestedVideosDseDao = suggestedVideosDseDao;
+        this.days                  = days;
+        this.candidates            = candidates;
+        this.maxVideos             = maxVideos;
+    }
+
+    /**
+     * Schedule refreshes, first one immediately.
+     */
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(new KillrVideoThreadFactory());
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Most played recent videos, never blocks.
+     *
+     * @return
+     *      videos, most played first
+     */
+    public List<Video> getPopularVideos() {
+        return popularVideos;
+    }
+
+    /**
+     * Read candidates and their playbacks, errors are logged (exceptions would cancel the schedule).
+     */
+    void refresh() {
+        final long start = System.currentTimeMillis();
+        try {
+            List<Video> latest = new ArrayList<>(candidates);
+            Instant now = Instant.now();
+            for (int day = 0; day < days && latest.size() < candidates; day++) {
+                String yyyymmdd = now.atZone(ZoneId.systemDefault()).minusDays(day).format(DATEFORMATTER);
+                latest.addAll(suggestedVideosDseDao.getLatestVideos(yyyymmdd, candidates - latest.size()).join());
+            }
+            List<Long> views = FutureUtils.mapWithBoundedConcurrency(latest, maxConcurrentQueries,
+                    video -> suggestedVideosDseDao.getPlaybackViews(video.getVideoid())).join();
+            List<Integer> ranks = new ArrayList<>(latest.size());
+            for (int i = 0; i < latest.size(); i++) {
+                ranks.add(i);
+            }
+            // Most played first, newest first (order of 'latest_videos') when equal
+            ranks.sort(Comparator.comparing(views::get, Comparator.reverseOrder()));
+            List<Video> popular = new ArrayList<>(maxVideos);
+            for (int i = 0; i < ranks.size() && popular.size() < maxVideos; i++) {
+                popular.add(latest.get(ranks.get(i)));
+            }
+            popularVideos = Collections.unmodifiableList(popular);
+            LOGGER.debug("Popular videos refreshed from {} recent videos in {} millis",
+                    latest.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Cannot refresh popular videos, keeping previous ones", e);
+        }
+    }
+
+    /**
+     * Stop refreshes.
+     */
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,336 @@
+package com.killrvideo.service.sugestedvideo.dao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.util.Assert;
+
+/**
+ * Ratings kept in memory as two adjacency lists, video to users and user to videos, to walk the co-ratings of
+ * 'recommendByUserRating' without DSE Graph.
+ *
+ * Users and videos are numbered in insertion order, each adjacency list is a pair of primitive arrays (ids and
+ * ratings) doubling when full: about 10 bytes per rating. A user rating a video again updates the rating in
+ * place, as table 'video_ratings_by_user' does. Writes take an exclusive lock, recommendations a shared one.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class RatingAdjacencyIndex {
+
+    /** Ids of users and videos. */
+    private final Map<UUID, Integer> userIds  = new HashMap<>();
+    private final Map<UUID, Integer> videoIds = new HashMap<>();
+    private final List<UUID> users  = new ArrayList<>();
+    private final List<UUID> videos = new ArrayList<>();
+
+    /** Videos rated by each user, in rating order. */
+    private Adjacency[] userAdjacency  = new Adjacency[1024];
+
+    /** Users who rated each video. */
+    private Adjacency[] videoAdjacency = new Adjacency[1024];
+
+    /** Number of (user, video) ratings. */
+    private long ratingCount;
+
+    /** Concurrent recommendations, exclusive writes. */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Ids and ratings of one adjacency list.
+     */
+    private static final class Adjacency {
+
+        private int[] ids = new int[4];
+
+        private byte[] ratings = new byte[4];
+
+        private int size;
+
+        private int indexOf(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private void add(int id, byte rating) {
+            if (size == ids.length) {
+                ids     = Arrays.copyOf(ids, size * 2);
+                ratings = Arrays.copyOf(ratings, size * 2);
+            }
+            ids[size]     = id;
+            ratings[size] = rating;
+            size++;
+        }
+    }
+
+    /**
+     * Add or update the rating of a video by a user.
+     *
+     * @param userid
+     *      user
+     * @param videoid
+     *      video
+     * @param rating
+     *      rating, 1 to 5
+     */
+    public void addRating(UUID userid, UUID videoid, int rating) {
+        Assert.notNull(userid, "userid is required to add a rating");
+        Assert.notNull(videoid, "videoid is required to add a rating");
+        Assert.isTrue(rating >= 1 && rating <= 5, "rating value must be between 1 and 5");
+        lock.writeLock().lock();
+        try {
+            int u = userIds.computeIfAbsent(userid, id -> {
+                users.add(id);
+                return users.size() - 1;
+            });
+            int v = videoIds.computeIfAbsent(videoid, id -> {
+                videos.add(id);
+                return videos.size() - 1;
+            });
+            userAdjacency  = ensureCapacity(userAdjacency, u);
+            videoAdjacency = ensureCapacity(videoAdjacency, v);
+            Adjacency byUser  = userAdjacency[u];
+            Adjacency byVideo = videoAdjacency[v];
+            int i = byUser.indexOf(v);
+            if (i >= 0) {
+                byUser.ratings[i] = (byte) rating;
+                byVideo.ratings[byVideo.indexOf(u)] = (byte) rating;
+            } else {
+                byUser.add(v, (byte) rating);
+                byVideo.add(u, (byte) rating);
+                ratingCount++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Same steps as the traversal 'recommendByUserRating': videos I rated at least 'minRating', their ratings of at
+     * least 'minRating' sampled ('numRatingsToSample', weighted by rating) to find users sharing my taste (except
+     * me), first 'localUserRatingsToSample' videos each of them rated at least 'minRating', excluding the videos I
+     * rated, ranked by sum of ratings.
+     *
+     * @param userid
+     *      current user
+     * @param recommendations
+     *      maximum number of videos
+     * @param minRating
+     *      minimum rating to follow
+     * @param numRatingsToSample
+     *      ratings of my videos sampled to find similar users
+     * @param localUserRatingsToSample
+     *      videos taken from each similar user
+     * @return
+     *      videos, best first, empty for an unknown user
+     */
+    public List<UUID> recommendByUserRating(UUID userid, int recommendations, int minRating, int numRatingsToSample, int localUserRatingsToSample) {
+        Assert.isTrue(recommendations > 0, "recommendations must be greater than zero");
+        Assert.isTrue(minRating > 0, "minRating must be greater than zero");
+        Assert.isTrue(numRatingsToSample > 0, "numRatingsToSample must be greater than zero");
+        Assert.isTrue(localUserRatingsToSample > 0, "localUserRatingsToSample must be greater than zero");
+        lock.readLock().lock();
+        try {
+            Integer currentUser = userIds.get(userid);
+            if (currentUser == null) {
+                return Collections.emptyList();
+            }
+            Adjacency watched = userAdjacency[currentUser];
+            int[] similarUsers = sampleSimilarUsers(watched, minRating, numRatingsToSample);
+
+            // Sum of ratings of similar users per video not watched
+            Map<Integer, Integer> scores = new HashMap<>();
+            for (int similarUser : similarUsers) {
+                if (similarUser == currentUser) {
+                    continue;
+                }
+                Adjacency rated = userAdjacency[similarUser];
+                int taken = 0;
+                for (int i = 0; i < rated.size && taken < localUserRatingsToSample; i++) {
+                    if (rated.ratings[i] >= minRating) {
+                        taken++;
+                        if (watched.indexOf(rated.ids[i]) < 0) {
+                            scores.merge(rated.ids[i], (int) rated.ratings[i], Integer::sum);
+                        }
+                    }
+                }
+            }
+
+            // Best scores, ties by first video indexed
+            PriorityQueue<Map.Entry<Integer, Integer>> best = new PriorityQueue<>(recommendations + 1,
+                    (e1, e2) -> e1.getValue().equals(e2.getValue())
+                            ? Integer.compare(e2.getKey(), e1.getKey())
+                            : Integer.compare(e1.getValue(), e2.getValue()));
+            for (Map.Entry<Integer, Integer> score : scores.entrySet()) {
+                best.offer(score);
+                if (best.size() > recommendations) {
+                    best.poll();
+                }
+            }
+            UUID[] result = new UUID[best.size()];
+            for (int i = result.length - 1; i >= 0; i--) {
+                result[i] = videos.get(best.poll().getKey());
+            }
+            return Arrays.asList(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Users of the ratings of at least 'minRating' of the videos I rated at least 'minRating': all of them if there
+     * are at most 'numRatingsToSample', else a weighted sample without replacement (key random^(1/rating), highest
+     * keys kept) like 'sample(n).by(rating)'. A user appears once per sampled rating.
+     */
+    private int[] sampleSimilarUsers(Adjacency watched, int minRating, int numRatingsToSample) {
+        int candidates = 0;
+        for (int i = 0; i < watched.size; i++) {
+            if (watched.ratings[i] >= minRating) {
+                Adjacency raters = videoAdjacency[watched.ids[i]];
+                for (int j = 0; j < raters.size; j++) {
+                    if (raters.ratings[j] >= minRating) {
+                        candidates++;
+                    }
+                }
+            }
+        }
+        int[] sampled = new int[Math.min(candidates, numRatingsToSample)];
+        if (candidates <= numRatingsToSample) {
+            int n = 0;
+            for (int i = 0; i < watched.size; i++) {
+                if (watched.ratings[i] >= minRating) {
+                    Adjacency raters = videoAdjacency[watched.ids[i]];
+                    for (int j = 0; j < raters.size; j++) {
+                        if (raters.ratings[j] >= minRating) {
+                            sampled[n++] = raters.ids[j];
+                        }
+                    }
+                }
+            }
+            return sampled;
+        }
+        // Min heap of keys (lowest key evicted), user at the same position
+        double[] keys = new double[numRatingsToSample];
+        int size = 0;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < watched.size; i++) {
+            if (watched.ratings[i] >= minRating) {
+                Adjacency raters = videoAdjacency[watched.ids[i]];
+                for (int j = 0; j < raters.size; j++) {
+                    if (raters.ratings[j] >= minRating) {
+                        double key = Math.pow(random.nextDouble(), 1.0 / raters.ratings[j]);
+                        if (size < numRatingsToSample) {
+                            keys[size]    = key;
+                            sampled[size] = raters.ids[j];
+                            siftUp(keys, sampled, size++);
+                        } else if (key > keys[0]) {
+                            keys[0]    = key;
+                            sampled[0] = raters.ids[j];
+                            siftDown(keys, sampled, size);
+                        }
+                    }
+                }
+            }
+        }
+        return sampled;
+    }
+
+    private static void siftUp(double[] keys, int[] values, int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (keys[parent] <= keys[i]) {
+                return;
+            }
+            swap(keys, values, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(double[] keys, int[] values, int size) {
+        int i = 0;
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && keys[left] < keys[smallest]) {
+                smallest = left;
+            }
+            if (right < size && keys[right] < keys[smallest]) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(keys, values, i, smallest);
+            i = smallest;
+        }
+    }
+
+    private static void swap(double[] keys, int[] values, int i, int j) {
+        double key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        int value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    private static Adjacency[] ensureCapacity(Adjacency[] adjacency, int id) {
+        if (id >= adjacency.length) {
+            adjacency = Arrays.copyOf(adjacency, Math.max(adjacency.length * 2, id + 1));
+        }
+        if (adjacency[id] == null) {
+            adjacency[id] = new Adjacency();
+        }
+        return adjacency;
+    }
+
+    /**
+     * Number of (user, video) ratings.
+     */
+    public long getRatingCount() {
+        lock.readLock().lock();
+        try {
+            return ratingCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of users with ratings.
+     */
+    public int getUserCount() {
+        lock.readLock().lock();
+        try {
+            return users.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of rated videos.
+     */
+    public int getVideoCount() {
+        lock.readLock().lock();
+        try {
+            return videos.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+}
@@ -0,0 +1,270 @@
+package com.killrvideo.service.sugestedvideo.dao;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.killrvideo.dse.dto.ResultListPage;
+import com.killrvideo.dse.dto.Video;
+import com.killrvideo.messaging.conf.KillrVideoThreadFactory;
+import com.killrvideo.service.sugestedvideo.dto.RelatedVideo;
+import com.killrvideo.utils.FutureUtils;
+
+/**
+ * Precompute related videos into table 'related_videos_by_video'.
+ *
+ * Related videos are computed when 'YouTubeVideoAdded' is consumed. When a first page is read and the list is
+ * older than 'refreshAfterHours' (newer videos may be related) the video is queued, at most 'maxPendingVideos',
+ * and computed again every 'intervalSeconds' with at most 'maxConcurrentQueries' DSE Search queries running.
+ *
+ * 'GetRelatedVideos' reads one partition with paging. Videos never computed (added before this table) are
+ * computed on their first request, then read from the table like the others.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Component
+@ManagedResource(objectName = "killrvideo:type=SuggestedVideos,name=RelatedVideosJob")
+public class RelatedVideosJob {
+
+    /** Loger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(RelatedVideosJob.class);
+
+    @Value("${killrvideo.suggestedVideo.related.enabled: true}")
+    private boolean enabled = true;
+
+    @Value("${killrvideo.suggestedVideo.related.maxRelated: 50}")
+    private int maxRelated = 50;
+
+    @Value("${killrvideo.suggestedVideo.related.refreshAfterHours: 24}")
+    private long refreshAfterHours = 24;
+
+    @Value("${killrvideo.suggestedVideo.related.intervalSeconds: 60}")
+    private long intervalSeconds = 60;
+
+    @Value("${killrvideo.suggestedVideo.related.maxConcurrentQueries: 4}")
+    private int maxConcurrentQueries = 4;
+
+    @Value("${killrvideo.suggestedVideo.related.maxPendingVideos: 10000}")
+    private int maxPendingVideos = 10000;
+
+    @Autowired
+    private SuggestedVideosDseDao suggestedVideosDseDao;
+
+    /** Videos to refresh at next run. */
+    private final Set<UUID> pendingVideos = ConcurrentHashMap.newKeySet();
+
+    /** Runs. */
+    private ScheduledExecutorService scheduler;
+
+    /** Metrics. */
+    private final LongAdder precomputedReads = new LongAdder();
+    private final LongAdder computedOnRead   = new LongAdder();
+    private final LongAdder computedVideos   = new LongAdder();
+    private final LongAdder failedVideos     = new LongAdder();
+
+    /**
+     * Schedule refreshes.
+     */
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new KillrVideoThreadFactory());
+            scheduler.scheduleWithFixedDelay(this::refreshPendingVideos, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Page of related videos.
+     *
+     * @param videoId
+     *      source video
+     * @param fetchSize
+     *      page size
+     * @param pagingState
+     *      paging state of the previous page, if any
+     * @return
+     *      page of related videos
+     */
+    public CompletableFuture<ResultListPage<Video>> getRelatedVideos(UUID videoId, int fetchSize, Optional<String> pagingState) {
+        if (!enabled) {
+            return suggestedVideosDseDao.getRelatedVideos(videoId, fetchSize, pagingState);
+        }
+        return suggestedVideosDseDao.getPrecomputedRelatedVideos(videoId, fetchSize, pagingState).thenCompose(page -> {
+            if (pagingState.isPresent() || !page.getResults().isEmpty()) {
+                precomputedReads.increment();
+                if (!pagingState.isPresent()) {
+                    refreshIfOutdated(videoId, page.getResults().get(0));
+                }
+                return CompletableFuture.completedFuture(mapRelatedVideos(page));
+            }
+            // Never computed: compute, then read as usual so that paging states always come from the table
+            return suggestedVideosDseDao.computeRelatedVideos(videoId, maxRelated).thenCompose(related -> {
+                if (!related.isPresent()) {
+                    // Unknown video, nothing written for it
+                    return CompletableFuture.completedFuture(new ResultListPage<Video>());
+                }
+                computedOnRead.increment();
+                return suggestedVideosDseDao.saveRelatedVideos(videoId, related.get())
+                        .thenCompose(v -> suggestedVideosDseDao.getPrecomputedRelatedVideos(videoId, fetchSize, pagingState))
+                        .thenApply(this::mapRelatedVideos);
+            });
+        });
+    }
+
+    /**
+     * Compute related videos of a new video.
+     *
+     * @param video
+     *      video added to the catalog
+     */
+    public void onVideoAdded(Video video) {
+        if (!enabled) {
+            return;
+        }
+        suggestedVideosDseDao.computeRelatedVideos(video, maxRelated)
+                .thenCompose(related -> suggestedVideosDseDao.saveRelatedVideos(video.getVideoid(), related))
+                .whenComplete((v, error) -> {
+                    if (error != null) {
+                        // Computed on first request
+                        LOGGER.warn("Cannot compute related videos of new video {}", video.getVideoid(), error);
+                    } else {
+                        computedVideos.increment();
+                    }
+                });
+    }
+
+    /**
+     * Queue the video if its related videos are outdated.
+     */
+    private void refreshIfOutdated(UUID videoId, RelatedVideo first) {
+        if (first.getComputedDate() != null
+                && System.currentTimeMillis() - first.getComputedDate().getTime() > TimeUnit.HOURS.toMillis(refreshAfterHours)
+                && pendingVideos.size() < maxPendingVideos) {
+            pendingVideos.add(videoId);
+        }
+    }
+
+    /**
+     * Related videos of a page, without the row of the computation date.
+     */
+    private ResultListPage<Video> mapRelatedVideos(ResultListPage<RelatedVideo> page) {
+        List<Video> videos = new ArrayList<>(page.getResults().size());
+        for (RelatedVideo related : page.getResults()) {
+            if (related.getRank() != null) {
+                videos.add(related.toVideo());
+            }
+        }
+        ResultListPage<Video> result = new ResultListPage<>();
+        result.setresults(videos);
+        result.setPagingState(page.getPagingState());
+        return result;
+    }
+
+    /**
+     * Compute pending videos, errors are logged (exceptions would cancel the schedule).
+     */
+    private void refreshPendingVideos() {
+        if (pendingVideos.isEmpty()) {
+            return;
+        }
+        List<UUID> videoIds = new ArrayList<>(pendingVideos.size());
+        Iterator<UUID> it = pendingVideos.iterator();
+        while (it.hasNext()) {
+            videoIds.add(it.next());
+            it.remove();
+        }
+        final long start = System.currentTimeMillis();
+        try {
+            List<Boolean> results = FutureUtils.mapWithBoundedConcurrency(videoIds, maxConcurrentQueries,
+                    videoId -> suggestedVideosDseDao.computeRelatedVideos(videoId, maxRelated)
+                                // Video deleted since it was queued, its partition is left as is
+                                .thenCompose(related -> related.isPresent()
+                                        ? suggestedVideosDseDao.saveRelatedVideos(videoId, related.get())
+                                        : CompletableFuture.<Void>completedFuture(null))
+                                .handle((v, error) -> {
+                                    if (error != null) {
+                                        LOGGER.warn("Cannot refresh related videos of video {}", videoId, error);
+                                    }
+                                    return error == null;
+                                })).join();
+            long computed = results.stream().filter(Boolean::booleanValue).count();
+            computedVideos.add(computed);
+            failedVideos.add(results.size() - computed);
+            LOGGER.info("Related videos refreshed for {}/{} videos in {} millis",
+                    computed, results.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            LOGGER.error("Refresh of related videos interrupted", e);
+        }
+    }
+
+    /**
+     * Stop refreshes, outdated videos are queued again when read.
+     */
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Getter for attribute 'precomputedReads'.
+     */
+    @ManagedAttribute
+    public long getPrecomputedReads() {
+        return precomputedReads.sum();
+    }
+
+    /**
+     * Getter for attribute 'computedOnRead'.
+     */
+    @ManagedAttribute
+    public long getComputedOnRead() {
+        return computedOnRead.sum();
+    }
+
+    /**
+     * Getter for attribute 'computedVideos'.
+     */
+    @ManagedAttribute
+    public long getComputedVideos() {
+        return computedVideos.sum();
+    }
+
+    /**
+     * Getter for attribute 'failedVideos'.
+     */
+    @ManagedAttribute
+    public long getFailedVideos() {
+        return failedVideos.sum();
+    }
+
+    /**
+     * Number of videos waiting for next refresh.
+     */
+    @ManagedAttribute
+    public int getPendingVideos() {
+        return pendingVideos.size();
+    }
+
+}
@@ -1,10 +1,16 @@
 package com.killrvideo.service.sugestedvideo.dao;
 
+import static com.datastax.driver.mapping.Mapper.Option.saveNullFields;
+import static com.datastax.driver.mapping.Mapper.Option.timestamp;
+import static com.datastax.driver.mapping.Mapper.Option.ttl;
+
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
@@ -19,7 +25,9 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 import org.springframework.util.Assert;
 
+import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.PagingState;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.RegularStatement;
@@ -31,16 +39,13 @@ import com.datastax.driver.dse.graph.GraphStatement;
 import com.datastax.driver.dse.graph.Vertex;
 import com.datastax.driver.mapping.Mapper;
 import com.datastax.driver.mapping.Result;
-import com.datastax.dse.graph.api.DseGraph;
-import com.google.common.collect.Sets;
 import com.killrvideo.dse.dao.DseDaoSupport;
+import com.killrvideo.dse.dao.PlaybackCounterDseDao;
 import com.killrvideo.dse.dto.ResultListPage;
 import com.killrvideo.dse.dto.Video;
-import com.killrvideo.dse.graph.KillrVideoTraversal;
 import com.killrvideo.dse.graph.KillrVideoTraversalConstants;
-import com.killrvideo.dse.graph.KillrVideoTraversalSource;
-import com.killrvideo.dse.graph.__;
-import com.killrvideo.dse.utils.DseUtils;
+import com.killrvideo.service.sugestedvideo.dto.RelatedVideo;
+import com.killrvideo.service.sugestedvideo.dto.VideoRecommendation;
 import com.killrvideo.utils.FutureUtils;
 
 /**
@@ -54,14 +59,33 @@ public class SuggestedVideosDseDao extends DseDaoSupport implements KillrVideoTr
     /** Logger for DAO. */
     private static final Logger LOGGER = LoggerFactory.getLogger(SuggestedVideosDseDao.class);
 
+    /** Table names. */
+    public static final String TABLENAME_VIDEO_RECOMMENDATIONS = "video_recommendations";
+    public static final String TABLENAME_RELATED_VIDEOS        = "related_videos_by_video";
+    public static final String TABLENAME_LATEST_VIDEOS         = "latest_videos";
+    
     /** Mapper to ease queries. */
     protected Mapper< Video > mapperVideo;
+    protected Mapper< VideoRecommendation > mapperVideoRecommendation;
+    protected Mapper< RelatedVideo > mapperRelatedVideo;
     
     /** Precompile statements to speed up queries. */
     private PreparedStatement findRelatedVideos;
+    private PreparedStatement findRecommendationsForUser;
+    private PreparedStatement deleteRecommendationsForUser;
+    private PreparedStatement insertRecommendationsComputedDate;
+    private PreparedStatement findPrecomputedRelatedVideos;
+    private PreparedStatement deleteRelatedVideos;
+    private PreparedStatement insertRelatedVideosComputedDate;
+    private PreparedStatement findLatestVideos;
+    
+    /** Graph mutations of events, batched. */
+    @Autowired
+    private GraphMutationWriter graphMutationWriter;
     
+    /** Playback counters, sharded by the statistics service. */
     @Autowired
-    private KillrVideoTraversalSource traversalSource;
+    private PlaybackCounterDseDao playbackCounterDseDao;
     
     /**
      * Wrap search queries with "paging":"driver" to dynamically enable
@@ -92,6 +116,7 @@ public class SuggestedVideosDseDao extends DseDaoSupport implements KillrVideoTr
      */
     public SuggestedVideosDseDao(DseSession dseSession) {
         super(dseSession);
+        this.playbackCounterDseDao = new PlaybackCounterDseDao(dseSession);
     }
 
     /** {@inheritDoc} */
@@ -105,6 +130,70 @@ public class SuggestedVideosDseDao extends DseDaoSupport implements KillrVideoTr
                 .from(keyspaceVideo, tableNameVideo)
                 .where(QueryBuilder.eq(SOLR_QUERY, QueryBuilder.bindMarker()));
         findRelatedVideos = dseSession.prepare(queryFindRelatedVideos);
+        prepareStatementsVideoRecommendation();
+        prepareStatementsRelatedVideo();
+        prepareStatementsPopularVideos(keyspaceVideo);
+    }
+    
+    /**
+     * Statements on table 'latest_videos', popular videos.
+     */
+    private void prepareStatementsPopularVideos(String keyspace) {
+        findLatestVideos = dseSession.prepare(QueryBuilder
+                .select(Video.COLUMN_VIDEOID, Video.COLUMN_USERID, Video.COLUMN_NAME,
+                        Video.COLUMN_PREVIEW, Video.COLUMN_ADDED_DATE)
+                .from(keyspace, TABLENAME_LATEST_VIDEOS)
+                .where(QueryBuilder.eq("yyyymmdd", QueryBuilder.bindMarker()))
+                .limit(QueryBuilder.bindMarker()));
+        findLatestVideos.setConsistencyLevel(ConsistencyLevel.LOCAL_ONE);
+    }
+    
+    /**
+     * Statements on table 'related_videos_by_video', one partition per source video.
+     */
+    private void prepareStatementsRelatedVideo() {
+        mapperRelatedVideo = mappingManager.mapper(RelatedVideo.class);
+        String keyspace  = mapperRelatedVideo.getTableMetadata().getKeyspace().getName();
+        String tableName = mapperRelatedVideo.getTableMetadata().getName();
+        findPrecomputedRelatedVideos = dseSession.prepare(QueryBuilder
+                .select().all()
+                .from(keyspace, tableName)
+                .where(QueryBuilder.eq(RelatedVideo.COLUMN_VIDEOID, QueryBuilder.bindMarker())));
+        findPrecomputedRelatedVideos.setConsistencyLevel(ConsistencyLevel.LOCAL_ONE);
+        deleteRelatedVideos = dseSession.prepare(QueryBuilder
+                .delete().from(keyspace, tableName)
+                .using(QueryBuilder.timestamp(QueryBuilder.bindMarker()))
+                .where(QueryBuilder.eq(RelatedVideo.COLUMN_VIDEOID, QueryBuilder.bindMarker())));
+        insertRelatedVideosComputedDate = dseSession.prepare(QueryBuilder
+                .insertInto(keyspace, tableName)
+                .value(RelatedVideo.COLUMN_VIDEOID, QueryBuilder.bindMarker())
+                .value(RelatedVideo.COLUMN_COMPUTEDDATE, QueryBuilder.bindMarker())
+                .using(QueryBuilder.timestamp(QueryBuilder.bindMarker())));
+    }
+    
+    /**
+     * Statements on table 'video_recommendations', one partition per user.
+     */
+    private void prepareStatementsVideoRecommendation() {
+        mapperVideoRecommendation = mappingManager.mapper(VideoRecommendation.class);
+        String keyspace  = mapperVideoRecommendation.getTableMetadata().getKeyspace().getName();
+        String tableName = mapperVideoRecommendation.getTableMetadata().getName();
+        findRecommendationsForUser = dseSession.prepare(QueryBuilder
+                .select().all()
+                .from(keyspace, tableName)
+                .where(QueryBuilder.eq(VideoRecommendation.COLUMN_USERID, QueryBuilder.bindMarker()))
+                .limit(QueryBuilder.bindMarker()));
+        findRecommendationsForUser.setConsistencyLevel(ConsistencyLevel.LOCAL_ONE);
+        deleteRecommendationsForUser = dseSession.prepare(QueryBuilder
+                .delete().from(keyspace, tableName)
+                .using(QueryBuilder.timestamp(QueryBuilder.bindMarker()))
+                .where(QueryBuilder.eq(VideoRecommendation.COLUMN_USERID, QueryBuilder.bindMarker())));
+        insertRecommendationsComputedDate = dseSession.prepare(QueryBuilder
+                .insertInto(keyspace, tableName)
+                .value(VideoRecommendation.COLUMN_USERID, QueryBuilder.bindMarker())
+                .value(VideoRecommendation.COLUMN_COMPUTEDDATE, QueryBuilder.bindMarker())
+                .using(QueryBuilder.ttl(QueryBuilder.bindMarker()))
+                .and(QueryBuilder.timestamp(QueryBuilder.bindMarker())));
     }
     
     /**
@@ -120,25 +209,116 @@ public class SuggestedVideosDseDao extends DseDaoSupport implements KillrVideoTr
     }
     
     /**
-     * Search for videos.
+     * Page of related videos precomputed for a video, single partition read.
+     *
+     * @param videoId
+     *      source video
+     * @param fetchSize
+     *      page size
+     * @param pagingState
+     *      paging state of the previous page, if any
+     * @return
+     *      page of rows; first page is empty if the video has not been computed yet, a video without related videos
+     *      only has a row with its 'computedDate' (no rank)
+     */
+    public CompletableFuture< ResultListPage<RelatedVideo> > getPrecomputedRelatedVideos(UUID videoId, int fetchSize, Optional<String> pagingState) {
+        Assert.notNull(videoId, "videoid is required to read related videos");
+        BoundStatement stmt = findPrecomputedRelatedVideos.bind().setUUID(0, videoId);
+        pagingState.ifPresent(x -> stmt.setPagingState(PagingState.fromString(x)));
+        stmt.setFetchSize(fetchSize);
+        return FutureUtils.asCompletableFuture(mapperRelatedVideo.mapAsync(dseSession.executeAsync(stmt)))
+                          .thenApply(ResultListPage::new);
+    }
+    
+    /**
+     * Related videos of a video, with the DSE Search query of {@link #getRelatedVideos(UUID, int, Optional)}.
+     *
+     * @param videoId
+     *      source video
+     * @param maxRelated
+     *      maximum number of related videos
+     * @return
+     *      related videos, best first, empty if the video does not exist
+     */
+    public CompletableFuture< Optional<List<Video>> > computeRelatedVideos(UUID videoId, int maxRelated) {
+        return findVideoById(videoId).thenCompose(video -> video == null
+                ? CompletableFuture.completedFuture(Optional.<List<Video>>empty())
+                : computeRelatedVideos(video, maxRelated).thenApply(Optional::of));
+    }
+    
+    /**
+     * Related videos of a video, with the DSE Search query of {@link #getRelatedVideos(UUID, int, Optional)}.
+     *
+     * @param video
+     *      source video (name, tags and description)
+     * @param maxRelated
+     *      maximum number of related videos
+     * @return
+     *      related videos, best first
+     */
+    public CompletableFuture< List<Video> > computeRelatedVideos(Video video, int maxRelated) {
+        // One more as the video itself is usually the best match
+        BoundStatement stmt = createStatementToSearchVideos(video, maxRelated + 1, Optional.empty());
+        return FutureUtils.asCompletableFuture(mapperVideo.mapAsync(dseSession.executeAsync(stmt)))
+                .thenApply(rs -> {
+                    List<Video> related = new ArrayList<>(maxRelated);
+                    for (Video candidate : new ResultListPage<>(rs).getResults()) {
+                        if (related.size() < maxRelated && !video.getVideoid().equals(candidate.getVideoid())) {
+                            related.add(candidate);
+                        }
+                    }
+                    return related;
+                });
+    }
+    
+    /**
+     * Replace the related videos of a video: previous partition is deleted just before the new rows are written,
+     * in the same single partition batch. The computation date is written even without related videos.
+     *
+     * @param videoId
+     *      source video
+     * @param related
+     *      related videos, best first
+     * @return
+     *      completion
+     */
+    public CompletableFuture<Void> saveRelatedVideos(UUID videoId, List<Video> related) {
+        Assert.notNull(videoId, "videoid is required to save related videos");
+        // Microseconds, deletion strictly before insertions so that it does not shadow them
+        final long writeTime = System.currentTimeMillis() * 1000;
+        BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+        batch.add(deleteRelatedVideos.bind().setLong(0, writeTime - 1).setUUID(1, videoId));
+        batch.add(insertRelatedVideosComputedDate.bind()
+                .setUUID(0, videoId)
+                .setTimestamp(1, new Date(writeTime / 1000))
+                .setLong(2, writeTime));
+        for (int rank = 0; rank < related.size(); rank++) {
+            batch.add(mapperRelatedVideo.saveQuery(new RelatedVideo(videoId, rank, related.get(rank)),
+                    timestamp(writeTime), saveNullFields(false)));
+        }
+        batch.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+        return FutureUtils.asCompletableFuture(dseSession.executeAsync(batch)).thenApply(rs -> null);
+    }
+    
+    /**
+     * Compute suggestions for a user with the graph traversal 'recommendByUserRating' (heavy, bounded by the graph
+     * timeout). Prefer {@link #getPrecomputedSuggestedVideosForUser(UUID, int)} on the request path.
      *
      * @param userid
      *      current userid,
      * @return
      *         Async Page
      */
-    @SuppressWarnings({"rawtypes", "unchecked"})
-    public CompletableFuture< List<Video> > getSuggestedVideosForUser(UUID userid) {
+    public CompletableFuture< List<Video> > computeSuggestedVideosForUser(UUID userid) {
         
         // Parameters validation
-        Assert.notNull(userid, "videoid is required to update statistics");
+        Assert.notNull(userid, "userid is required");
         
-        // Build statement
-        KillrVideoTraversal graphTraversal = traversalSource.users(userid.toString()).recommendByUserRating(5, 4, 1000, 5);
-        GraphStatement graphStatement = DseGraph.statementFromTraversal(graphTraversal);
-        if (LOGGER.isDebugEnabled()) {
-            LOGGER.debug("Recommend TRAVERSAL is {} ",  DseUtils.displayGraphTranserval(graphTraversal));
-        }
+        // Build statement, script compiled once by DSE Graph
+        GraphStatement graphStatement = SuggestedVideosGraphStatements.recommendByUserRating(userid,
+                UserRecommendationDao.RECOMMENDATIONS, UserRecommendationDao.MIN_RATING,
+                UserRecommendationDao.NUM_RATINGS_TO_SAMPLE, UserRecommendationDao.LOCAL_USER_RATINGS_TO_SAMPLE);
+        LOGGER.debug("Recommend script for user {}", userid);
         
         // Execute Sync
         CompletableFuture<GraphResultSet> futureRs = 
@@ -149,96 +329,156 @@ public class SuggestedVideosDseDao extends DseDaoSupport implements KillrVideoTr
                rs -> rs.all().stream().map(this::mapGraphNode2Video).collect(Collectors.toList()));   
     }
     
+    /**
+     * Suggestions precomputed for a user, newest videos first, single partition read.
+     *
+     * @param userid
+     *      current userid
+     * @param limit
+     *      maximum number of videos
+     * @return
+     *      videos (possibly none), empty if the user has not been computed yet (or suggestions expired)
+     */
+    public CompletableFuture< Optional<List<Video>> > getPrecomputedSuggestedVideosForUser(UUID userid, int limit) {
+        Assert.notNull(userid, "userid is required to read recommendations");
+        BoundStatement stmt = findRecommendationsForUser.bind()
+                .setUUID(0, userid)
+                .setInt(1, limit);
+        return FutureUtils.asCompletableFuture(mapperVideoRecommendation.mapAsync(dseSession.executeAsync(stmt)))
+                .thenApply(rs -> {
+                    boolean computed = false;
+                    List<Video> videos = new ArrayList<>();
+                    for (VideoRecommendation reco : rs) {
+                        computed |= reco.getComputedDate() != null;
+                        // Without suggestions the partition only has a row with its 'computedDate' (no video)
+                        if (reco.getVideoid() != null) {
+                            videos.add(reco.toVideo());
+                        }
+                    }
+                    return computed ? Optional.of(videos) : Optional.<List<Video>>empty();
+                });
+    }
+    
+    /**
+     * Replace the suggestions of a user: previous partition is deleted just before the new rows are written, in
+     * the same single partition batch. The computation date is written even without suggestions, so that the user
+     * is not computed again on each request before 'ttlSeconds'.
+     *
+     * @param userid
+     *      current userid
+     * @param videos
+     *      suggested videos
+     * @param ttlSeconds
+     *      time to live of suggestions, user is computed again after
+     * @return
+     *      completion
+     */
+    public CompletableFuture<Void> saveSuggestedVideosForUser(UUID userid, List<Video> videos, int ttlSeconds) {
+        Assert.notNull(userid, "userid is required to save recommendations");
+        // Microseconds, deletion strictly before insertions so that it does not shadow them
+        final long writeTime = System.currentTimeMillis() * 1000;
+        BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+        batch.add(deleteRecommendationsForUser.bind().setLong(0, writeTime - 1).setUUID(1, userid));
+        batch.add(insertRecommendationsComputedDate.bind()
+                .setUUID(0, userid)
+                .setTimestamp(1, new Date(writeTime / 1000))
+                .setInt(2, ttlSeconds)
+                .setLong(3, writeTime));
+        videos.stream()
+              .filter(video -> video.getVideoid() != null && video.getAddedDate() != null)
+              .map(video -> mapperVideoRecommendation.saveQuery(new VideoRecommendation(userid, video),
+                      timestamp(writeTime), ttl(ttlSeconds), saveNullFields(false)))
+              .forEach(batch::add);
+        batch.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+        return FutureUtils.asCompletableFuture(dseSession.executeAsync(batch)).thenApply(rs -> null);
+    }
+    
+    /**
+     * Videos added on a day, newest first.
+     *
+     * @param yyyymmdd
+     *      day of the partition
+     * @param limit
+     *      maximum number of videos
+     * @return
+     *      videos without description nor tags
+     */
+    public CompletableFuture< List<Video> > getLatestVideos(String yyyymmdd, int limit) {
+        BoundStatement stmt = findLatestVideos.bind().setString(0, yyyymmdd).setInt(1, limit);
+        return FutureUtils.asCompletableFuture(dseSession.executeAsync(stmt)).thenApply(rs -> {
+            List<Video> videos = new ArrayList<>();
+            rs.forEach(row -> {
+                Video video = new Video();
+                video.setVideoid(row.getUUID(Video.COLUMN_VIDEOID));
+                video.setUserid(row.getUUID(Video.COLUMN_USERID));
+                video.setName(row.getString(Video.COLUMN_NAME));
+                video.setPreviewImageLocation(row.getString(Video.COLUMN_PREVIEW));
+                video.setAddedDate(row.getTimestamp(Video.COLUMN_ADDED_DATE));
+                videos.add(video);
+            });
+            return videos;
+        });
+    }
+    
+    /**
+     * Lifetime playbacks of a video, summing the shards of hot videos (see {@link PlaybackCounterDseDao}).
+     *
+     * @param videoid
+     *      video
+     * @return
+     *      number of playbacks, 0 if never played
+     */
+    public CompletableFuture<Long> getPlaybackViews(UUID videoid) {
+        return playbackCounterDseDao.findLifetimeViewsAsync(videoid);
+    }
+    
     /**
      * Subscription is done in dedicated service 
      * {@link EventConsumerService}. (killrvideo-messaging)
      * 
-     * Below we are using our KillrVideoTraversal DSL (Domain Specific Language)
-     * to create our video vertex, then within add() we connect up the user responsible
-     * for uploading the video with the "uploaded" edge, and then follow up with
-     * any and all tags using the "taggedWith" edge.  Since we may have multiple
-     * tags make sure to loop through and get them all in there.
+     * The video is queued to the {@link GraphMutationWriter}, which sends it in a batch with the script
+     * {@link SuggestedVideosGraphStatements#SCRIPT_MUTATIONS}: the video vertex is created if it does not exist
+     * and its properties updated, then within sideEffect() the user responsible for uploading the video is
+     * connected with the "uploaded" edge, and each tag (created if needed) with the "taggedWith" edge. Since the
+     * video vertex passes through each sideEffect() step, we do not need to traverse back to it for each edge.
      *
-     * Also note the use of add().  Take a look at Stephen's blog here
-     * -> https://www.datastax.com/dev/blog/gremlin-dsls-in-java-with-dse-graph for more information.
-     * This essentially allows us to chain multiple commands (uploaded and (n * taggedWith) in this case)
-     * while "preserving" our initial video traversal position. Since the video vertex passes
-     * through each step we do not need to worry about traversing back to video for each step
-     * in the chain.
+     * The script is compiled once by DSE Graph, values are bindings. For one video, element of 'videos':
+     * {videoId: 6741b34e-03c7-4d83-bf55-deed496d6e03, userId: 8a70e329-59f8-4e2e-aae8-1788c94e8410,
+     *  added_date: 2018-08-09T09:00:44Z, name: "Paris JHipster Meetup #9", description: "xxxxxx",
+     *  preview_image_location: "//img.youtube.com/vi/hOTjLOPXg48/hqdefault.jpg", tags: ["X", "ff4j"]}
      * 
-     * May be relevant to have a full sample traversal:
-     * g.V().has("video","videoId", 6741b34e-03c7-4d83-bf55-deed496d6e03)
-     *  .fold()
-     *  .coalesce(__.unfold(),
-     *   __.addV("video")
-     *     .property("videoId",6741b34e-03c7-4d83-bf55-deed496d6e03))
-     *     .property("added_date",Thu Aug 09 11:00:44 CEST 2018)
-     *     .property("name","Paris JHipster Meetup #9")
-     *     .property("description","xxxxxx")
-     *     .property("preview_image_location","//img.youtube.com/vi/hOTjLOPXg48/hqdefault.jpg")
-     *     // Add Edge
-     *     .sideEffect(
-     *        __.as("^video").coalesce(
-     *           __.in("uploaded")
-     *             .hasLabel("user")
-     *             .has("userId",8a70e329-59f8-4e2e-aae8-1788c94e8410),
-     *           __.V()
-     *             .has("user","userId",8a70e329-59f8-4e2e-aae8-1788c94e8410)
-     *             .addE("uploaded")
-     *             .to("^video").inV())
-     *      )
-     *      // Tag with X (multiple times)
-     *      .sideEffect(
-     *        __.as("^video").coalesce(
-     *          __.out("taggedWith")
-     *            .hasLabel("tag")
-     *            .has("name","X"),
-     *          __.coalesce(
-     *            __.V().has("tag","name","X"),
-     *            __.addV("tag")
-     *              .property("name","X")
-     *               .property("tagged_date",Thu Aug 09 11:00:44 CEST 2018)
-     *              ).addE("taggedWith").from("^video").inV())
-     *       )
-     *       // Tag with FF4j
-     *       .sideEffect(
-     *         __.as("^video").coalesce(
-     *           __.out("taggedWith")
-     *             .hasLabel("tag")
-     *             .has("name","ff4j"),
-     *           __.coalesce(
-     *            __.V().has("tag","name","ff4j"),
-     *            __.addV("tag")
-     *              .property("name","ff4j")
-     *              .property("tagged_date",Thu Aug 09 11:00:44 CEST 2018))
-     *              .addE("taggedWith").from("^video").inV()))
+     * the script runs for it:
+     * def t = g.V().has('video', 'videoId', v.videoId).fold()
+     *  .coalesce(unfold(), addV('video').property('videoId', v.videoId))
+     *  .property('added_date', v.added_date)
+     *  .property('name', v.name)
+     *  .property('description', v.description)
+     *  .property('preview_image_location', v.preview_image_location)
+     *  // Add Edge
+     *  .sideEffect(__.as('^video').coalesce(
+     *     __.in('uploaded').hasLabel('user').has('userId', v.userId),
+     *     V().has('user', 'userId', v.userId).addE('uploaded').to('^video').inV()))
+     * // Tag with X, then ff4j
+     * v.tags.each { tag ->
+     *   t = t.sideEffect(__.as('^video').coalesce(
+     *     out('taggedWith').hasLabel('tag').has('name', tag),
+     *     coalesce(V().has('tag', 'name', tag),
+     *              addV('tag').property('name', tag).property('tagged_date', v.added_date))
+     *       .addE('taggedWith').from('^video').inV()))
+     * }
+     * t.iterate()
      */
-    @SuppressWarnings({"rawtypes","unchecked"})
     public void updateGraphNewVideo(Video video) {
-        final KillrVideoTraversal traversal =
-          // Add video Node
-          traversalSource.video(video.getVideoid(), video.getName(), new Date(), video.getDescription(), video.getPreviewImageLocation())
-          // Add Uploaded Edge
-          .add(__.uploaded(video.getUserid()));
-          // Add Tags Nodes and edges
-          Sets.newHashSet(video.getTags()).forEach(tag -> {
-            traversal.add(__.taggedWith(tag,  new Date()));
-          });
+        // Video node, uploaded edge, tags nodes and edges
+        final Map<String, Object> bindings = SuggestedVideosGraphStatements.videoBindings(video, new Date());
 
         /**
          * Now that our video is successfully applied lets
          * insert that video into our graph for the recommendation engine
+         * (batched, retried then dead-lettered by the writer)
          */
-        GraphStatement gStatement = DseGraph.statementFromTraversal(traversal);
-        LOGGER.info("Traversal for 'updateGraphNewVideo' : {}", DseUtils.displayGraphTranserval(traversal));
-        FutureUtils.asCompletableFuture(dseSession.executeGraphAsync(gStatement)).whenComplete((graphResultSet, ex) -> {
-            if (graphResultSet != null) {
-                LOGGER.debug("Added video vertex, uploaded, and taggedWith edges: " + graphResultSet.all());
-            }  else {
-                //TODO: Potentially add some robustness code here
-                LOGGER.warn("Error handling YouTubeVideoAdded for graph: " + ex);
-            }
-        });
+        LOGGER.debug("Bindings for 'updateGraphNewVideo' : {}", bindings);
+        graphMutationWriter.submit(GraphMutationWriter.Kind.VIDEO, bindings);
     }
     
     /**
@@ -250,18 +490,10 @@ public class SuggestedVideosDseDao extends DseDaoSupport implements KillrVideoTr
      * @param user
      *      current user
      */
-    @SuppressWarnings({"rawtypes","unchecked"})
     public void updateGraphNewUser(UUID userId, String email, Date userCreation) {
-        final KillrVideoTraversal traversal = traversalSource.user(userId, email, userCreation);
-        GraphStatement gStatement = DseGraph.statementFromTraversal(traversal);
-        LOGGER.info("Executed transversal for 'updateGraphNewUser' : {}", DseUtils.displayGraphTranserval(traversal));
-        FutureUtils.asCompletableFuture(dseSession.executeGraphAsync(gStatement)).whenComplete((graphResultSet, ex) -> {
-            if (graphResultSet != null) {
-                LOGGER.debug("Added user vertex: " + graphResultSet.one());
-            } else {
-                LOGGER.warn("Error creating user vertex: " + ex);
-            }
-        });
+        final Map<String, Object> bindings = SuggestedVideosGraphStatements.userBindings(userId, email, userCreation);
+        LOGGER.debug("Bindings for 'updateGraphNewUser' : {}", bindings);
+        graphMutationWriter.submit(GraphMutationWriter.Kind.USER, bindings);
     }
     
     /**
@@ -273,19 +505,10 @@ public class SuggestedVideosDseDao extends DseDaoSupport implements KillrVideoTr
      * automatically created in this case.  This assumes both the user and video
      * already exist.
      */
-    @SuppressWarnings({"rawtypes","unchecked"})
     public void updateGraphNewUserRating(String videoId, UUID userId, int rate) {
-        final KillrVideoTraversal traversal = traversalSource.videos(videoId).add(__.rated(userId, rate));
-        GraphStatement gStatement = DseGraph.statementFromTraversal(traversal);
-        LOGGER.info("Executed transversal for 'updateGraphNewUserRating' : {}", DseUtils.displayGraphTranserval(traversal));
-        FutureUtils.asCompletableFuture(dseSession.executeGraphAsync(gStatement)).whenComplete((graphResultSet, ex) -> {
-            if (graphResultSet != null) {
-                LOGGER.debug("Added rating between user and video: " + graphResultSet.one());
-            } else {
-                //TODO: Potentially add some robustness code here
-                LOGGER.warn("Error Adding rating between user and video: " + ex);
-            }
-        });
+        final Map<String, Object> bindings = SuggestedVideosGraphStatements.ratingBindings(UUID.fromString(videoId), userId, rate);
+        LOGGER.debug("Bindings for 'updateGraphNewUserRating' : {}", bindings);
+        graphMutationWriter.submit(GraphMutationWriter.Kind.RATING, bindings);
     }
     
     private Video mapGraphNode2Video(GraphNode node) {
@@ -301,7 +524,7 @@ public class SuggestedVideosDseDao extends DseDaoSupport implements KillrVideoTr
     }
     
     private CompletableFuture<Video> findVideoById(UUID videoId) {
-       Assert.notNull(videoId, "videoid is required to update statistics");
+       Assert.notNull(videoId, "videoid is required");
        return FutureUtils.asCompletableFuture(mapperVideo.getAsync(videoId));
     }
     
@@ -317,16 +540,7 @@ public class SuggestedVideosDseDao extends DseDaoSupport implements KillrVideoTr
      */
     private BoundStatement createStatementToSearchVideos(Video video, int fetchSize, Optional<String> pagingState) {
         final String space = " ";
-        final String eachWordRegEx = "[^\\w]";
-        final String eachWordPattern = Pattern.compile(eachWordRegEx).pattern();
-
-        final HashSet<String> termSet = new HashSet<>(50);
-        Collections.addAll(termSet, video.getName().toLowerCase().split(eachWordPattern));
-        Collections.addAll(video.getTags()); // getTags already returns a set
-        Collections.addAll(termSet, video.getDescription().toLowerCase().split(eachWordPattern));
-        termSet.removeAll(ignoredWords);
-        termSet.removeIf(String::isEmpty);
-
+        final Set<String> termSet = extractTerms(video, ignoredWords);
         final String delimitedTermList = termSet.stream().map(Object::toString).collect(Collectors.joining(","));
         LOGGER.debug("delimitedTermList is : " + delimitedTermList);
        
@@ -343,4 +557,30 @@ public class SuggestedVideosDseDao extends DseDaoSupport implements KillrVideoTr
         return statement;
     }
   
+    /**
+     * Terms of the name, tags and description of a video, without ignored words. Tags and description are optional.
+     *
+     * @param video
+     *      source video
+     * @param ignoredWords
+     *      words removed from the terms
+     * @return
+     *      distinct terms
+     */
+    static Set<String> extractTerms(Video video, Set<String> ignoredWords) {
+        final String eachWordPattern = Pattern.compile("[^\\w]").pattern();
+        final Set<String> termSet = new HashSet<>(50);
+        Collections.addAll(termSet, video.getName().toLowerCase().split(eachWordPattern));
+        if (video.getTags() != null) {
+            // getTags already returns a set
+            termSet.addAll(video.getTags());
+        }
+        if (video.getDescription() != null) {
+            Collections.addAll(termSet, video.getDescription().toLowerCase().split(eachWordPattern));
+        }
+        termSet.removeAll(ignoredWords);
+        termSet.removeIf(String::isEmpty);
+        return termSet;
+    }
+  
 }
@@ -0,0 +1,232 @@
+package com.killrvideo.service.sugestedvideo.dao;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.util.Assert;
+
+import com.datastax.driver.dse.graph.GraphStatement;
+import com.datastax.driver.dse.graph.SimpleGraphStatement;
+import com.killrvideo.dse.dto.Video;
+
+/**
+ * Gremlin scripts of suggested videos, with the same steps as {@link com.killrvideo.dse.graph.KillrVideoTraversalDsl}.
+ *
+ * Scripts are constants and values are bindings, so that DSE Graph compiles each script once and keeps it in its
+ * script cache: no traversal is built nor translated per call. Bindings are sent typed (GraphSON 2.0), UUIDs and
+ * dates are not converted.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public final class SuggestedVideosGraphStatements {
+
+    /** Binding names. */
+    public static final String BINDING_USERS    = "users";
+    public static final String BINDING_VIDEOS   = "videos";
+    public static final String BINDING_RATINGS  = "ratings";
+    public static final String BINDING_USERID   = "userId";
+    public static final String BINDING_VIDEOID  = "videoId";
+    public static final String BINDING_EMAIL    = "email";
+    public static final String BINDING_ADDED    = "added_date";
+    public static final String BINDING_NAME     = "name";
+    public static final String BINDING_DESC     = "description";
+    public static final String BINDING_PREVIEW  = "preview_image_location";
+    public static final String BINDING_TAGS     = "tags";
+    public static final String BINDING_RATING   = "rating";
+
+    /**
+     * Upsert users (no update of an existing user), upsert videos with their uploader and tags, then upsert ratings
+     * (bindings 'users', 'videos' and 'ratings', lists of maps). One request is one transaction. 'rated' edges have
+     * multiple cardinality: the edge of the user and video is updated if any, so that a retried or replayed batch
+     * does not duplicate it.
+     */
+    public static final String SCRIPT_MUTATIONS =
+            "users.each { u ->\n"
+          + "  g.V().has('user', 'userId', u.userId).fold()\n"
+          + "   .coalesce(unfold(), addV('user').property('userId', u.userId)\n"
+          + "                                   .property('added_date', u.added_date)\n"
+          + "                                   .property('email', u.email))\n"
+          + "   .iterate()\n"
+          + "}\n"
+          + "videos.each { v ->\n"
+          + "  def t = g.V().has('video', 'videoId', v.videoId).fold()\n"
+          + "   .coalesce(unfold(), addV('video').property('videoId', v.videoId))\n"
+          + "   .property('added_date', v.added_date)\n"
+          + "   .property('name', v.name)\n"
+          + "   .property('description', v.description)\n"
+          + "   .property('preview_image_location', v.preview_image_location)\n"
+          + "   .sideEffect(__.as('^video').coalesce(\n"
+          + "      __.in('uploaded').hasLabel('user').has('userId', v.userId),\n"
+          + "      V().has('user', 'userId', v.userId).addE('uploaded').to('^video').inV()))\n"
+          + "  v.tags.each { tag ->\n"
+          + "    t = t.sideEffect(__.as('^video').coalesce(\n"
+          + "      out('taggedWith').hasLabel('tag').has('name', tag),\n"
+          + "      coalesce(V().has('tag', 'name', tag),\n"
+          + "               addV('tag').property('name', tag).property('tagged_date', v.added_date))\n"
+          + "        .addE('taggedWith').from('^video').inV()))\n"
+          + "  }\n"
+          + "  t.iterate()\n"
+          + "}\n"
+          + "ratings.each { r ->\n"
+          + "  g.V().has('user', 'userId', r.userId).as('^user')\n"
+          + "   .V().has('video', 'videoId', r.videoId)\n"
+          + "   .coalesce(__.inE('rated').where(outV().as('^user')),\n"
+          + "             __.addE('rated').from('^user'))\n"
+          + "   .property('rating', r.rating)\n"
+          + "   .iterate()\n"
+          + "}\n"
+          + "users.size() + videos.size() + ratings.size()";
+
+    /**
+     * 'recommendByUserRating' from user 'userId', returns maps of 'video' and 'user' (uploader) vertices.
+     */
+    public static final String SCRIPT_RECOMMEND_BY_USER_RATING =
+            "g.V().has('user', 'userId', userId).as('^currentUser')\n"
+          + " .map(out('rated').dedup().fold()).as('^watchedVideos')\n"
+          + " .select('^currentUser')\n"
+          + " .outE('rated').has('rating', gte(minRating)).inV()\n"
+          + " .inE('rated').has('rating', gte(minRating))\n"
+          + " .sample(numRatingsToSample).by('rating').outV()\n"
+          + " .where(neq('^currentUser'))\n"
+          + " .local(outE('rated').has('rating', gte(minRating)).limit(localUserRatingsToSample))\n"
+          + " .sack(assign).by('rating').inV()\n"
+          + " .not(where(within('^watchedVideos')))\n"
+          + " .filter(__.in('uploaded').hasLabel('user'))\n"
+          + " .group().by().by(sack().sum())\n"
+          + " .order(local).by(values, decr).limit(local, recommendations).select(keys).unfold()\n"
+          + " .project('video', 'user').by().by(__.in('uploaded'))";
+
+    /**
+     * Hide constructor.
+     */
+    private SuggestedVideosGraphStatements() {}
+
+    /**
+     * Bindings of a new user.
+     *
+     * @param userId
+     *      user identifier
+     * @param email
+     *      email
+     * @param addedDate
+     *      creation date
+     * @return
+     *      bindings of an element of 'users'
+     */
+    public static Map<String, Object> userBindings(UUID userId, String email, Date addedDate) {
+        Assert.notNull(userId, "The userId must not be null");
+        Assert.notNull(addedDate, "The added_date must not be null");
+        Assert.hasLength(email, "The email must not be null or empty");
+        Map<String, Object> bindings = new HashMap<>();
+        bindings.put(BINDING_USERID, userId);
+        bindings.put(BINDING_EMAIL, email);
+        bindings.put(BINDING_ADDED, addedDate);
+        return bindings;
+    }
+
+    /**
+     * Bindings of a new video.
+     *
+     * @param video
+     *      video, its user is the uploader
+     * @param addedDate
+     *      date of the vertex and of its new tags
+     * @return
+     *      bindings of an element of 'videos'
+     */
+    public static Map<String, Object> videoBindings(Video video, Date addedDate) {
+        Assert.notNull(video.getVideoid(), "The videoId must not be null");
+        Assert.notNull(video.getUserid(), "The userId must not be null");
+        Assert.notNull(addedDate, "The added_date must not be null");
+        Assert.hasLength(video.getName(), "The name must not be null or empty");
+        Assert.hasLength(video.getDescription(), "The description must not be null or empty");
+        Assert.hasLength(video.getPreviewImageLocation(), "The previewImageLocation must not be null or empty");
+        Map<String, Object> bindings = new HashMap<>();
+        bindings.put(BINDING_VIDEOID, video.getVideoid());
+        bindings.put(BINDING_USERID, video.getUserid());
+        bindings.put(BINDING_ADDED, addedDate);
+        bindings.put(BINDING_NAME, video.getName());
+        bindings.put(BINDING_DESC, video.getDescription());
+        bindings.put(BINDING_PREVIEW, video.getPreviewImageLocation());
+        bindings.put(BINDING_TAGS, video.getTags() == null ? new ArrayList<String>() : new ArrayList<>(video.getTags()));
+        return bindings;
+    }
+
+    /**
+     * Bindings of a rating.
+     *
+     * @param videoId
+     *      rated video
+     * @param userId
+     *      user
+     * @param rating
+     *      rating, 1 to 5
+     * @return
+     *      bindings of an element of 'ratings'
+     */
+    public static Map<String, Object> ratingBindings(UUID videoId, UUID userId, int rating) {
+        Assert.notNull(videoId, "The videoId must not be null");
+        Assert.notNull(userId, "The userId must not be null");
+        Assert.isTrue(rating >= 1 && rating <= 5, "rating value must be between 1 and 5");
+        Map<String, Object> bindings = new HashMap<>();
+        bindings.put(BINDING_VIDEOID, videoId);
+        bindings.put(BINDING_USERID, userId);
+        bindings.put(BINDING_RATING, rating);
+        return bindings;
+    }
+
+    /**
+     * Mutations in one request, users first then videos then ratings.
+     *
+     * @param users
+     *      bindings of users
+     * @param videos
+     *      bindings of videos
+     * @param ratings
+     *      bindings of ratings
+     * @return
+     *      statement
+     */
+    public static GraphStatement mutations(List<Map<String, Object>> users, List<Map<String, Object>> videos, List<Map<String, Object>> ratings) {
+        return new SimpleGraphStatement(SCRIPT_MUTATIONS)
+                .set(BINDING_USERS, users)
+                .set(BINDING_VIDEOS, videos)
+                .set(BINDING_RATINGS, ratings);
+    }
+
+    /**
+     * Recommendations for a user.
+     *
+     * @param userId
+     *      current user
+     * @param recommendations
+     *      the number of recommended videos to return
+     * @param minRating
+     *      the minimum rating to allow for
+     * @param numRatingsToSample
+     *      the number of global user ratings to sample
+     * @param localUserRatingsToSample
+     *      the number of local user ratings to limit by
+     * @return
+     *      statement
+     */
+    public static GraphStatement recommendByUserRating(UUID userId, int recommendations, int minRating,
+            int numRatingsToSample, int localUserRatingsToSample) {
+        Assert.notNull(userId, "The userId must not be null");
+        Assert.isTrue(recommendations > 0, "recommendations must be greater than zero");
+        Assert.isTrue(minRating > 0, "minRating must be greater than zero");
+        Assert.isTrue(numRatingsToSample > 0, "numRatingsToSample must be greater than zero");
+        Assert.isTrue(localUserRatingsToSample > 0, "localUserRatingsToSample must be greater than zero");
+        return new SimpleGraphStatement(SCRIPT_RECOMMEND_BY_USER_RATING)
+                .set(BINDING_USERID, userId)
+                .set("recommendations", recommendations)
+                .set("minRating", minRating)
+                .set("numRatingsToSample", numRatingsToSample)
+                .set("localUserRatingsToSample", localUserRatingsToSample);
+    }
+
+}
@@ -9,6 +9,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.killrvideo.dse.dto.Video;
 import com.killrvideo.utils.GrpcMappingUtils;
 
 import killrvideo.ratings.events.RatingsEvents.UserRatedVideo;
@@ -25,8 +26,17 @@ public abstract class SuggestedVideosMessagingDaoSupport {
     /** Loger for that class. */
     private static Logger LOGGER = LoggerFactory.getLogger(SuggestedVideosMessagingDaoSupport.class);
     
+    /** Graph updates, or in-process ratings with profile 'suggested_local'. */
     @Autowired
-    protected SuggestedVideosDseDao sugestedVideoDseDao;
+    protected UserRecommendationDao userRecommendationDao;
+    
+    /** Suggestions of users who rate are computed again. */
+    @Autowired
+    protected UserRecommendationsJob userRecommendationsJob;
+    
+    /** Related videos are computed when a video is added. */
+    @Autowired
+    protected RelatedVideosJob relatedVideosJob;
     
     /**
      * Message is consumed from specialized class but treatment is the same, updating graph.
@@ -41,7 +51,8 @@ public abstract class SuggestedVideosMessagingDaoSupport {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("[NewUserEvent] Processing rating with user {} and video {}", userId, videoId);
         }
-        sugestedVideoDseDao.updateGraphNewUserRating(videoId, userId, rating);
+        userRecommendationDao.onVideoRated(videoId, userId, rating);
+        userRecommendationsJob.markUserActive(userId);
     }
     
     /**
@@ -57,7 +68,7 @@ public abstract class SuggestedVideosMessagingDaoSupport {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("[NewUserEvent] Processing for user {} ", userId);
         }
-        sugestedVideoDseDao.updateGraphNewUser(userId, email, userCreation);
+        userRecommendationDao.onUserCreated(userId, email, userCreation);
     }
     
     /**
@@ -67,7 +78,9 @@ public abstract class SuggestedVideosMessagingDaoSupport {
      *      a video has been created
      */
     protected void onYoutubeVideoAddingMessage(YouTubeVideoAdded videoAdded) {
-       sugestedVideoDseDao.updateGraphNewVideo(mapVideoAddedtoVideoDTO(videoAdded));
+       Video video = mapVideoAddedtoVideoDTO(videoAdded);
+       userRecommendationDao.onVideoAdded(video);
+       relatedVideosJob.onVideoAdded(video);
     }
     
 
@@ -0,0 +1,66 @@
+package com.killrvideo.service.sugestedvideo.dao;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import com.killrvideo.dse.dto.Video;
+
+/**
+ * Recommender of videos to a user, DSE Graph ({@link UserRecommendationGraphDao}) by default or in-process
+ * ratings ({@link UserRecommendationLocalDao}) with profile 'suggested_local'.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public interface UserRecommendationDao {
+
+    /** Parameters of 'recommendByUserRating', same for both recommenders. */
+    int RECOMMENDATIONS              = 5;
+    int MIN_RATING                   = 4;
+    int NUM_RATINGS_TO_SAMPLE        = 1000;
+    int LOCAL_USER_RATINGS_TO_SAMPLE = 5;
+
+    /**
+     * Compute suggestions for a user with 'recommendByUserRating'.
+     *
+     * @param userid
+     *      current user
+     * @return
+     *      suggested videos, best first
+     */
+    CompletableFuture< List<Video> > computeSuggestedVideosForUser(UUID userid);
+
+    /**
+     * A user has been created.
+     *
+     * @param userid
+     *      new user
+     * @param email
+     *      email of the user
+     * @param userCreation
+     *      creation date
+     */
+    void onUserCreated(UUID userid, String email, Date userCreation);
+
+    /**
+     * A video has been added to the catalog.
+     *
+     * @param video
+     *      new video
+     */
+    void onVideoAdded(Video video);
+
+    /**
+     * A user has rated a video.
+     *
+     * @param videoId
+     *      rated video
+     * @param userid
+     *      user
+     * @param rating
+     *      rating, 1 to 5
+     */
+    void onVideoRated(String videoId, UUID userid, int rating);
+
+}
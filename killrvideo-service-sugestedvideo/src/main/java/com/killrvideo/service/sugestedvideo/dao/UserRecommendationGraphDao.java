@@ -0,0 +1,51 @@
+package com.killrvideo.service.sugestedvideo.dao;
+
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import com.killrvideo.conf.KillrVideoConfiguration;
+import com.killrvideo.dse.dto.Video;
+
+/**
+ * Recommend videos with the DSE Graph traversal, events are written to the graph.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Repository
+@Profile("!" + KillrVideoConfiguration.PROFILE_SUGGESTED_LOCAL)
+public class UserRecommendationGraphDao implements UserRecommendationDao {
+
+    @Autowired
+    private SuggestedVideosDseDao suggestedVideosDseDao;
+
+    /** {@inheritDoc} */
+    @Override
+    public CompletableFuture< List<Video> > computeSuggestedVideosForUser(UUID userid) {
+        return suggestedVideosDseDao.computeSuggestedVideosForUser(userid);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onUserCreated(UUID userid, String email, Date userCreation) {
+        suggestedVideosDseDao.updateGraphNewUser(userid, email, userCreation);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onVideoAdded(Video video) {
+        suggestedVideosDseDao.updateGraphNewVideo(video);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onVideoRated(String videoId, UUID userid, int rating) {
+        suggestedVideosDseDao.updateGraphNewUserRating(videoId, userid, rating);
+    }
+
+}
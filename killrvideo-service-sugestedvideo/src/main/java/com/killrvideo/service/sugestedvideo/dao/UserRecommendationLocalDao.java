@@ -0,0 +1,225 @@
+package com.killrvideo.service.sugestedvideo.dao;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.Assert;
+
+import com.datastax.driver.core.ConsistencyLevel;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TokenRange;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+import com.datastax.driver.mapping.Mapper;
+import com.killrvideo.conf.KillrVideoConfiguration;
+import com.killrvideo.dse.dao.DseDaoSupport;
+import com.killrvideo.dse.dto.Video;
+import com.killrvideo.messaging.conf.KillrVideoThreadFactory;
+import com.killrvideo.messaging.dao.KafkaBroadcastConsumer;
+import com.killrvideo.utils.FutureUtils;
+
+import killrvideo.ratings.events.RatingsEvents.UserRatedVideo;
+
+/**
+ * Recommend videos from ratings kept in a {@link RatingAdjacencyIndex} instead of DSE Graph, no graph is required
+ * (and none is written).
+ *
+ * At startup table 'video_ratings_by_user' is scanned token range by token range, ratings of 'UserRatedVideo'
+ * events are added as they are consumed (a rating both scanned and received is only updated). With Kafka, each node
+ * holds every rating: events are read by this node without consumer group (see {@link KafkaBroadcastConsumer}),
+ * not from the group shared with the other nodes which only delivers a share of them. Names, preview and
+ * author of the recommended videos are read from table 'videos': like the traversal, which drops videos without
+ * uploader, videos missing there are skipped.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Repository
+@ManagedResource(objectName = "killrvideo:type=SuggestedVideos,name=UserRecommendationLocalDao")
+@Profile(KillrVideoConfiguration.PROFILE_SUGGESTED_LOCAL)
+public class UserRecommendationLocalDao extends DseDaoSupport implements UserRecommendationDao {
+
+    /** Logger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(UserRecommendationLocalDao.class);
+
+    /** Table scanned at startup. */
+    public static final String TABLENAME_VIDEO_RATINGS_BYUSER = "video_ratings_by_user";
+
+    @Value("${killrvideo.suggestedVideo.local.scanPageSize: 1000}")
+    private int scanPageSize = 1000;
+
+    @Value("${killrvideo.messaging.destinations.videoRated : topic-kv-videoRating}")
+    private String topicVideoRated;
+
+    /** Consumer without group, only with profile 'kafka'. */
+    @Autowired(required = false)
+    @Qualifier("kafka.consumer.ratingIndex")
+    private KafkaConsumer<String, byte[]> consumerVideoRatingProtobuf;
+
+    /** Polling of ratings with Kafka, null otherwise (events of the messaging DAO are used). */
+    private KafkaBroadcastConsumer<UserRatedVideo> videoRatingConsumer;
+
+    /** Mapper to ease queries. */
+    protected Mapper < Video > mapperVideo;
+
+    /** Precompile statements to speed up queries. */
+    private PreparedStatement scanRatingsByTokenRange;
+
+    /** Ratings. */
+    private final RatingAdjacencyIndex index = new RatingAdjacencyIndex();
+
+    /** Loading. */
+    private ExecutorService loader;
+
+    /**
+     * Default constructor.
+     */
+    public UserRecommendationLocalDao() {
+        super();
+    }
+
+    /** {@inheritDoc} */
+    @PostConstruct
+    protected void initialize() {
+        mapperVideo = mappingManager.mapper(Video.class);
+        scanRatingsByTokenRange = dseSession.prepare(QueryBuilder
+                .select("videoid", "userid", "rating")
+                .from(mapperVideo.getTableMetadata().getKeyspace().getName(), TABLENAME_VIDEO_RATINGS_BYUSER)
+                .where(QueryBuilder.gt(QueryBuilder.token("videoid"), QueryBuilder.bindMarker()))
+                .and(QueryBuilder.lte(QueryBuilder.token("videoid"), QueryBuilder.bindMarker())));
+        scanRatingsByTokenRange.setConsistencyLevel(ConsistencyLevel.LOCAL_ONE);
+
+        // Before the scan, so that no rating is missed in between
+        if (consumerVideoRatingProtobuf != null) {
+            videoRatingConsumer = new KafkaBroadcastConsumer<>(consumerVideoRatingProtobuf,
+                    topicVideoRated, UserRatedVideo.parser(), this::onVideoRatedEvent);
+            videoRatingConsumer.start();
+        }
+        loader = Executors.newSingleThreadExecutor(new KillrVideoThreadFactory());
+        loader.execute(this::loadRatings);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public CompletableFuture< List<Video> > computeSuggestedVideosForUser(UUID userid) {
+        Assert.notNull(userid, "userid is required to compute recommendations");
+        long start = System.nanoTime();
+        // Twice as many candidates, some may be missing in table 'videos'
+        List<UUID> candidates = index.recommendByUserRating(userid, 2 * RECOMMENDATIONS,
+                MIN_RATING, NUM_RATINGS_TO_SAMPLE, LOCAL_USER_RATINGS_TO_SAMPLE);
+        LOGGER.debug("Local recommendation for user {} in {} micros", userid, (System.nanoTime() - start) / 1000);
+        List<CompletableFuture<Video>> videos = candidates.stream()
+                .map(videoid -> FutureUtils.asCompletableFuture(mapperVideo.getAsync(videoid)))
+                .collect(Collectors.toList());
+        return CompletableFuture.allOf(videos.toArray(new CompletableFuture[0])).thenApply(v -> {
+            List<Video> result = new ArrayList<>(RECOMMENDATIONS);
+            for (CompletableFuture<Video> video : videos) {
+                Video found = video.join();
+                if (found != null && found.getUserid() != null && result.size() < RECOMMENDATIONS) {
+                    result.add(found);
+                }
+            }
+            return result;
+        });
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onUserCreated(UUID userid, String email, Date userCreation) {
+        // Users only matter once they rate
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onVideoAdded(Video video) {
+        // Videos are read from table 'videos' when recommended
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onVideoRated(String videoId, UUID userid, int rating) {
+        if (videoRatingConsumer == null) {
+            index.addRating(userid, UUID.fromString(videoId), rating);
+        }
+    }
+
+    /**
+     * Rating received by this node, every rating with Kafka.
+     */
+    private void onVideoRatedEvent(UserRatedVideo userVideoRated) {
+        index.addRating(UUID.fromString(userVideoRated.getUserId().getValue()),
+                UUID.fromString(userVideoRated.getVideoId().getValue()), userVideoRated.getRating());
+    }
+
+    /**
+     * Scan table 'video_ratings_by_user', recommendations use the ratings loaded so far meanwhile.
+     */
+    private void loadRatings() {
+        try {
+            long start = System.currentTimeMillis();
+            long count = 0;
+            for (TokenRange range : dseSession.getCluster().getMetadata().getTokenRanges()) {
+                // Range wrapping around the ring is split in two
+                for (TokenRange subRange : range.unwrap()) {
+                    Statement stmt = scanRatingsByTokenRange.bind()
+                            .setToken(0, subRange.getStart())
+                            .setToken(1, subRange.getEnd())
+                            .setFetchSize(scanPageSize);
+                    for (Row row : dseSession.execute(stmt)) {
+                        int rating = row.getInt("rating");
+                        if (rating >= 1 && rating <= 5) {
+                            index.addRating(row.getUUID("userid"), row.getUUID("videoid"), rating);
+                            count++;
+                        }
+                    }
+                }
+            }
+            LOGGER.info("Ratings loaded from table '{}' with {} ratings ({} users, {} videos) in {} millis",
+                    TABLENAME_VIDEO_RATINGS_BYUSER, count, index.getUserCount(), index.getVideoCount(),
+                    System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            LOGGER.error("Cannot scan table '{}', recommendations only use new ratings", TABLENAME_VIDEO_RATINGS_BYUSER, e);
+        }
+    }
+
+    /**
+     * Stop loading and consuming.
+     */
+    @PreDestroy
+    public void stop() {
+        if (loader != null) {
+            loader.shutdownNow();
+        }
+        if (videoRatingConsumer != null) {
+            videoRatingConsumer.stop();
+        }
+    }
+
+    /**
+     * Number of ratings in memory.
+     */
+    @ManagedAttribute
+    public long getRatingCount() {
+        return index.getRatingCount();
+    }
+
+}
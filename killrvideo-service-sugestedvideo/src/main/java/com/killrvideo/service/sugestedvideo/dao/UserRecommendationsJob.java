@@ -0,0 +1,294 @@
+package com.killrvideo.service.sugestedvideo.dao;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.killrvideo.dse.dto.Video;
+import com.killrvideo.messaging.conf.KillrVideoThreadFactory;
+import com.killrvideo.utils.FutureUtils;
+
+/**
+ * Precompute suggestions of recently active users into table 'video_recommendations'.
+ *
+ * Users who rated a video since the last run are marked active (at most 'maxPendingUsers', others wait for the
+ * next rating or request). Every 'intervalSeconds' their suggestions are computed with the recommender, with
+ * at most 'maxConcurrentTraversals' traversals running, and written with a TTL of 'ttlSeconds'.
+ *
+ * 'GetSuggestedForUser' reads one partition; the live computation is only a fallback for users not computed yet (or
+ * expired), its result is written for the next requests.
+ *
+ * Suggestions are returned within 'deadlineMillis' (0 to wait for the graph timeout): popular videos are returned
+ * instead when the deadline passes or the computation fails, a late computation still completes in the background
+ * and is written for the next requests.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Component
+@ManagedResource(objectName = "killrvideo:type=SuggestedVideos,name=UserRecommendationsJob")
+public class UserRecommendationsJob {
+
+    /** Loger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(UserRecommendationsJob.class);
+
+    @Value("${killrvideo.suggestedVideo.precompute.enabled: true}")
+    private boolean enabled = true;
+
+    @Value("${killrvideo.suggestedVideo.precompute.intervalSeconds: 60}")
+    private long intervalSeconds = 60;
+
+    @Value("${killrvideo.suggestedVideo.precompute.maxConcurrentTraversals: 4}")
+    private int maxConcurrentTraversals = 4;
+
+    @Value("${killrvideo.suggestedVideo.precompute.maxPendingUsers: 10000}")
+    private int maxPendingUsers = 10000;
+
+    @Value("${killrvideo.suggestedVideo.precompute.maxSuggestions: 20}")
+    private int maxSuggestions = 20;
+
+    @Value("${killrvideo.suggestedVideo.precompute.ttlSeconds: 604800}")
+    private int ttlSeconds = 604800;
+
+    @Value("${killrvideo.suggestedVideo.deadlineMillis: 500}")
+    private long deadlineMillis = 500;
+
+    @Autowired
+    private SuggestedVideosDseDao suggestedVideosDseDao;
+
+    /** Graph traversal, or in-process ratings with profile 'suggested_local'. */
+    @Autowired
+    private UserRecommendationDao userRecommendationDao;
+
+    /** Suggestions when personal ones are late. */
+    @Autowired
+    private PopularVideosCache popularVideosCache;
+
+    /** Users to compute at next run. */
+    private final Set<UUID> pendingUsers = ConcurrentHashMap.newKeySet();
+
+    /** Runs. */
+    private ScheduledExecutorService scheduler;
+
+    /** Metrics. */
+    private final LongAdder precomputedReads = new LongAdder();
+    private final LongAdder liveTraversals   = new LongAdder();
+    private final LongAdder computedUsers    = new LongAdder();
+    private final LongAdder failedUsers      = new LongAdder();
+    private final LongAdder droppedUsers     = new LongAdder();
+    private final LongAdder deadlineExceeded = new LongAdder();
+    private final LongAdder failedRequests   = new LongAdder();
+
+    /**
+     * Schedule runs.
+     */
+    @PostConstruct
+    public void start() {
+        if (enabled) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(new KillrVideoThreadFactory());
+            scheduler.scheduleWithFixedDelay(this::computePendingUsers, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Suggestions for a user within the deadline: precomputed partition, or live computation if not computed yet,
+     * or popular videos if late.
+     *
+     * @param userid
+     *      current user
+     * @return
+     *      suggested videos
+     */
+    public CompletableFuture<List<Video>> getSuggestedVideosForUser(UUID userid) {
+        CompletableFuture<List<Video>> suggestions = readOrComputeSuggestedVideos(userid);
+        if (deadlineMillis <= 0) {
+            return suggestions;
+        }
+        CompletableFuture<List<Video>> bounded = new CompletableFuture<>();
+        suggestions.whenComplete((videos, error) -> {
+            if (error == null) {
+                bounded.complete(videos);
+            } else if (bounded.complete(popularVideosCache.getPopularVideos())) {
+                failedRequests.increment();
+                LOGGER.warn("Cannot compute suggestions of user {}, popular videos returned", userid, error);
+            }
+        });
+        CompletableFuture.delayedExecutor(deadlineMillis, TimeUnit.MILLISECONDS).execute(() -> {
+            if (bounded.complete(popularVideosCache.getPopularVideos())) {
+                deadlineExceeded.increment();
+                LOGGER.debug("Suggestions of user {} late after {} millis, popular videos returned", userid, deadlineMillis);
+            }
+        });
+        return bounded;
+    }
+
+    /**
+     * Precomputed partition, or live computation if not computed yet (written for the next requests).
+     */
+    private CompletableFuture<List<Video>> readOrComputeSuggestedVideos(UUID userid) {
+        if (!enabled) {
+            return userRecommendationDao.computeSuggestedVideosForUser(userid);
+        }
+        return suggestedVideosDseDao.getPrecomputedSuggestedVideosForUser(userid, maxSuggestions).thenCompose(videos -> {
+            // Computed, even without suggestions
+            if (videos.isPresent()) {
+                precomputedReads.increment();
+                return CompletableFuture.completedFuture(videos.get());
+            }
+            liveTraversals.increment();
+            return userRecommendationDao.computeSuggestedVideosForUser(userid).thenApply(computed -> {
+                // Next requests read the partition, a failed write only means another traversal
+                suggestedVideosDseDao.saveSuggestedVideosForUser(userid, computed, ttlSeconds).whenComplete((v, error) -> {
+                    if (error != null) {
+                        LOGGER.warn("Cannot save suggestions of user {}", userid, error);
+                    }
+                });
+                return computed;
+            });
+        });
+    }
+
+    /**
+     * Suggestions of a user should be computed again (new rating).
+     *
+     * @param userid
+     *      active user
+     */
+    public void markUserActive(UUID userid) {
+        if (!enabled) {
+            return;
+        }
+        if (pendingUsers.size() < maxPendingUsers) {
+            pendingUsers.add(userid);
+        } else {
+            droppedUsers.increment();
+        }
+    }
+
+    /**
+     * Compute pending users, errors are logged (exceptions would cancel the schedule).
+     */
+    private void computePendingUsers() {
+        if (pendingUsers.isEmpty()) {
+            return;
+        }
+        List<UUID> users = new ArrayList<>(pendingUsers.size());
+        Iterator<UUID> it = pendingUsers.iterator();
+        while (it.hasNext()) {
+            users.add(it.next());
+            it.remove();
+        }
+        final long start = System.currentTimeMillis();
+        try {
+            List<Boolean> results = FutureUtils.mapWithBoundedConcurrency(users, maxConcurrentTraversals,
+                    userid -> userRecommendationDao.computeSuggestedVideosForUser(userid)
+                                .thenCompose(videos -> suggestedVideosDseDao.saveSuggestedVideosForUser(userid, videos, ttlSeconds))
+                                .handle((v, error) -> {
+                                    if (error != null) {
+                                        LOGGER.warn("Cannot precompute suggestions of user {}", userid, error);
+                                    }
+                                    return error == null;
+                                })).join();
+            long computed = results.stream().filter(Boolean::booleanValue).count();
+            computedUsers.add(computed);
+            failedUsers.add(results.size() - computed);
+            LOGGER.info("Suggestions precomputed for {}/{} active users in {} millis",
+                    computed, results.size(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            LOGGER.error("Suggestions precomputation interrupted", e);
+        }
+    }
+
+    /**
+     * Stop runs, pending users are computed on demand.
+     */
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Getter for attribute 'precomputedReads'.
+     */
+    @ManagedAttribute
+    public long getPrecomputedReads() {
+        return precomputedReads.sum();
+    }
+
+    /**
+     * Getter for attribute 'liveTraversals'.
+     */
+    @ManagedAttribute
+    public long getLiveTraversals() {
+        return liveTraversals.sum();
+    }
+
+    /**
+     * Getter for attribute 'computedUsers'.
+     */
+    @ManagedAttribute
+    public long getComputedUsers() {
+        return computedUsers.sum();
+    }
+
+    /**
+     * Getter for attribute 'failedUsers'.
+     */
+    @ManagedAttribute
+    public long getFailedUsers() {
+        return failedUsers.sum();
+    }
+
+    /**
+     * Users not marked active because too many were pending.
+     */
+    @ManagedAttribute
+    public long getDroppedUsers() {
+        return droppedUsers.sum();
+    }
+
+    /**
+     * Requests answered with popular videos because the deadline passed.
+     */
+    @ManagedAttribute
+    public long getDeadlineExceeded() {
+        return deadlineExceeded.sum();
+    }
+
+    /**
+     * Requests answered with popular videos because the computation failed.
+     */
+    @ManagedAttribute
+    public long getFailedRequests() {
+        return failedRequests.sum();
+    }
+
+    /**
+     * Number of users waiting for next run.
+     */
+    @ManagedAttribute
+    public int getPendingUsers() {
+        return pendingUsers.size();
+    }
+
+}
@@ -0,0 +1,208 @@
+package com.killrvideo.service.sugestedvideo.dto;
+
+import java.util.Date;
+import java.util.UUID;
+
+import com.datastax.driver.mapping.annotations.ClusteringColumn;
+import com.datastax.driver.mapping.annotations.Column;
+import com.datastax.driver.mapping.annotations.PartitionKey;
+import com.datastax.driver.mapping.annotations.Table;
+import com.killrvideo.dse.dto.AbstractVideo;
+import com.killrvideo.dse.dto.Video;
+import com.killrvideo.model.CommonConstants;
+import com.killrvideo.service.sugestedvideo.dao.SuggestedVideosDseDao;
+
+/**
+ * Pojo representing DTO for table 'related_videos_by_video', related videos precomputed for a video.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Table(keyspace = CommonConstants.KILLRVIDEO_KEYSPACE,
+       name = SuggestedVideosDseDao.TABLENAME_RELATED_VIDEOS)
+public class RelatedVideo extends AbstractVideo {
+
+    /** Serial. */
+    private static final long serialVersionUID = 6183402511097282364L;
+
+    /** Column names in the DB. */
+    public static final String COLUMN_VIDEOID         = "videoid";
+    public static final String COLUMN_RANK            = "rank";
+    public static final String COLUMN_RELATEDVIDEOID  = "related_videoid";
+    public static final String COLUMN_ADDEDDATE       = "added_date";
+    public static final String COLUMN_USERID          = "userid";
+    public static final String COLUMN_COMPUTEDDATE    = "computed_date";
+
+    @PartitionKey
+    private UUID videoid;
+
+    @ClusteringColumn
+    private Integer rank;
+
+    @Column(name = COLUMN_RELATEDVIDEOID)
+    private UUID relatedVideoid;
+
+    @Column(name = COLUMN_ADDEDDATE)
+    private Date addedDate;
+
+    @Column
+    private UUID userid;
+
+    /** Static column, same for all the rows of the video. */
+    @Column(name = COLUMN_COMPUTEDDATE)
+    private Date computedDate;
+
+    /**
+     * Default constructor.
+     */
+    public RelatedVideo() {}
+
+    /**
+     * Video related to another one.
+     *
+     * @param videoid
+     *      source video
+     * @param rank
+     *      position in the related videos, best first
+     * @param related
+     *      related video
+     */
+    public RelatedVideo(UUID videoid, int rank, Video related) {
+        super(related.getName(), related.getPreviewImageLocation());
+        this.videoid        = videoid;
+        this.rank           = rank;
+        this.relatedVideoid = related.getVideoid();
+        this.addedDate      = related.getAddedDate();
+        this.userid         = related.getUserid();
+    }
+
+    /**
+     * Related video.
+     *
+     * @return
+     *      video
+     */
+    public Video toVideo() {
+        Video video = new Video();
+        video.setVideoid(relatedVideoid);
+        video.setUserid(userid);
+        video.setAddedDate(addedDate);
+        video.setName(name);
+        video.setPreviewImageLocation(previewImageLocation);
+        return video;
+    }
+
+    /**
+     * Getter for attribute 'videoid'.
+     *
+     * @return
+     *       current value of 'videoid'
+     */
+    public UUID getVideoid() {
+        return videoid;
+    }
+
+    /**
+     * Setter for attribute 'videoid'.
+     * @param videoid
+     *      new value for 'videoid '
+     */
+    public void setVideoid(UUID videoid) {
+        this.videoid = videoid;
+    }
+
+    /**
+     * Getter for attribute 'rank'.
+     *
+     * @return
+     *       current value of 'rank', null for the static row of a video without related videos
+     */
+    public Integer getRank() {
+        return rank;
+    }
+
+    /**
+     * Setter for attribute 'rank'.
+     * @param rank
+     *      new value for 'rank '
+     */
+    public void setRank(Integer rank) {
+        this.rank = rank;
+    }
+
+    /**
+     * Getter for attribute 'relatedVideoid'.
+     *
+     * @return
+     *       current value of 'relatedVideoid'
+     */
+    public UUID getRelatedVideoid() {
+        return relatedVideoid;
+    }
+
+    /**
+     * Setter for attribute 'relatedVideoid'.
+     * @param relatedVideoid
+     *      new value for 'relatedVideoid '
+     */
+    public void setRelatedVideoid(UUID relatedVideoid) {
+        this.relatedVideoid = relatedVideoid;
+    }
+
+    /**
+     * Getter for attribute 'addedDate'.
+     *
+     * @return
+     *       current value of 'addedDate'
+     */
+    public Date getAddedDate() {
+        return addedDate;
+    }
+
+    /**
+     * Setter for attribute 'addedDate'.
+     * @param addedDate
+     *      new value for 'addedDate '
+     */
+    public void setAddedDate(Date addedDate) {
+        this.addedDate = addedDate;
+    }
+
+    /**
+     * Getter for attribute 'userid'.
+     *
+     * @return
+     *       current value of 'userid'
+     */
+    public UUID getUserid() {
+        return userid;
+    }
+
+    /**
+     * Setter for attribute 'userid'.
+     * @param userid
+     *      new value for 'userid '
+     */
+    public void setUserid(UUID userid) {
+        this.userid = userid;
+    }
+
+    /**
+     * Getter for attribute 'computedDate'.
+     *
+     * @return
+     *       current value of 'computedDate'
+     */
+    public Date getComputedDate() {
+        return computedDate;
+    }
+
+    /**
+     * Setter for attribute 'computedDate'.
+     * @param computedDate
+     *      new value for 'computedDate '
+     */
+    public void setComputedDate(Date computedDate) {
+        this.computedDate = computedDate;
+    }
+
+}
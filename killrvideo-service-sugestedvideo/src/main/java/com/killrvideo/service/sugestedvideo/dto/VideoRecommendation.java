@@ -0,0 +1,206 @@
+package com.killrvideo.service.sugestedvideo.dto;
+
+import java.util.Date;
+import java.util.UUID;
+
+import com.datastax.driver.mapping.annotations.ClusteringColumn;
+import com.datastax.driver.mapping.annotations.Column;
+import com.datastax.driver.mapping.annotations.PartitionKey;
+import com.datastax.driver.mapping.annotations.Table;
+import com.killrvideo.dse.dto.AbstractVideo;
+import com.killrvideo.dse.dto.Video;
+import com.killrvideo.model.CommonConstants;
+import com.killrvideo.service.sugestedvideo.dao.SuggestedVideosDseDao;
+
+/**
+ * Pojo representing DTO for table 'video_recommendations', suggestions precomputed for a user.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Table(keyspace = CommonConstants.KILLRVIDEO_KEYSPACE,
+       name = SuggestedVideosDseDao.TABLENAME_VIDEO_RECOMMENDATIONS)
+public class VideoRecommendation extends AbstractVideo {
+
+    /** Serial. */
+    private static final long serialVersionUID = -2486329118203743171L;
+
+    /** Column names in the DB. */
+    public static final String COLUMN_USERID    = "userid";
+    public static final String COLUMN_ADDEDDATE = "added_date";
+    public static final String COLUMN_VIDEOID   = "videoid";
+    public static final String COLUMN_RATING    = "rating";
+    public static final String COLUMN_AUTHORID  = "authorid";
+    public static final String COLUMN_COMPUTEDDATE = "computed_date";
+
+    @PartitionKey
+    private UUID userid;
+
+    @ClusteringColumn(0)
+    @Column(name = COLUMN_ADDEDDATE)
+    private Date addedDate;
+
+    @ClusteringColumn(1)
+    private UUID videoid;
+
+    @Column
+    private Float rating;
+
+    @Column
+    private UUID authorid;
+
+    /** Static column, same for all the rows of the user. */
+    @Column(name = COLUMN_COMPUTEDDATE)
+    private Date computedDate;
+
+    /**
+     * Default constructor.
+     */
+    public VideoRecommendation() {}
+
+    /**
+     * Recommendation of a video to a user.
+     *
+     * @param userid
+     *      user the video is recommended to
+     * @param video
+     *      recommended video, its user is the author
+     */
+    public VideoRecommendation(UUID userid, Video video) {
+        super(video.getName(), video.getPreviewImageLocation());
+        this.userid    = userid;
+        this.addedDate = video.getAddedDate();
+        this.videoid   = video.getVideoid();
+        this.authorid  = video.getUserid();
+    }
+
+    /**
+     * Recommended video, its user is the author.
+     *
+     * @return
+     *      video
+     */
+    public Video toVideo() {
+        Video video = new Video();
+        video.setVideoid(videoid);
+        video.setUserid(authorid);
+        video.setAddedDate(addedDate);
+        video.setName(name);
+        video.setPreviewImageLocation(previewImageLocation);
+        return video;
+    }
+
+    /**
+     * Getter for attribute 'userid'.
+     *
+     * @return
+     *       current value of 'userid'
+     */
+    public UUID getUserid() {
+        return userid;
+    }
+
+    /**
+     * Setter for attribute 'userid'.
+     * @param userid
+     *      new value for 'userid '
+     */
+    public void setUserid(UUID userid) {
+        this.userid = userid;
+    }
+
+    /**
+     * Getter for attribute 'addedDate'.
+     *
+     * @return
+     *       current value of 'addedDate'
+     */
+    public Date getAddedDate() {
+        return addedDate;
+    }
+
+    /**
+     * Setter for attribute 'addedDate'.
+     * @param addedDate
+     *      new value for 'addedDate '
+     */
+    public void setAddedDate(Date addedDate) {
+        this.addedDate = addedDate;
+    }
+
+    /**
+     * Getter for attribute 'videoid'.
+     *
+     * @return
+     *       current value of 'videoid'
+     */
+    public UUID getVideoid() {
+        return videoid;
+    }
+
+    /**
+     * Setter for attribute 'videoid'.
+     * @param videoid
+     *      new value for 'videoid '
+     */
+    public void setVideoid(UUID videoid) {
+        this.videoid = videoid;
+    }
+
+    /**
+     * Getter for attribute 'rating'.
+     *
+     * @return
+     *       current value of 'rating'
+     */
+    public Float getRating() {
+        return rating;
+    }
+
+    /**
+     * Setter for attribute 'rating'.
+     * @param rating
+     *      new value for 'rating '
+     */
+    public void setRating(Float rating) {
+        this.rating = rating;
+    }
+
+    /**
+     * Getter for attribute 'authorid'.
+     *
+     * @return
+     *       current value of 'authorid'
+     */
+    public UUID getAuthorid() {
+        return authorid;
+    }
+
+    /**
+     * Setter for attribute 'authorid'.
+     * @param authorid
+     *      new value for 'authorid '
+     */
+    public void setAuthorid(UUID authorid) {
+        this.authorid = authorid;
+    }
+
+    /**
+     * Getter for attribute 'computedDate'.
+     *
+     * @return
+     *       current value of 'computedDate'
+     */
+    public Date getComputedDate() {
+        return computedDate;
+    }
+
+    /**
+     * Setter for attribute 'computedDate'.
+     * @param computedDate
+     *      new value for 'computedDate '
+     */
+    public void setComputedDate(Date computedDate) {
+        this.computedDate = computedDate;
+    }
+
+}
@@ -20,7 +20,8 @@ import org.springframework.stereotype.Service;
 
 import com.killrvideo.dse.dto.ResultListPage;
 import com.killrvideo.dse.dto.Video;
-import com.killrvideo.service.sugestedvideo.dao.SuggestedVideosDseDao;
+import com.killrvideo.service.sugestedvideo.dao.RelatedVideosJob;
+import com.killrvideo.service.sugestedvideo.dao.UserRecommendationsJob;
 
 import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
@@ -45,8 +46,13 @@ public class SuggestedVideosServiceGrpc extends SuggestedVideoServiceImplBase {
     @Value("${killrvideo.discovery.services.suggestedVideo : SuggestedVideoService}")
     private String serviceKey;
     
+    /** Precomputed related videos, one partition per video. */
     @Autowired
-    private SuggestedVideosDseDao suggestedVideosDseDao;
+    private RelatedVideosJob relatedVideosJob;
+    
+    /** Precomputed suggestions, live traversal as fallback, popular videos when late. */
+    @Autowired
+    private UserRecommendationsJob userRecommendationsJob;
     
     /** {@inheritDoc} */
     @Override
@@ -65,7 +71,7 @@ public class SuggestedVideosServiceGrpc extends SuggestedVideoServiceImplBase {
         
         // Invoke DAO Async
         CompletableFuture<ResultListPage<Video>> futureDao = 
-                suggestedVideosDseDao.getRelatedVideos(videoId, videoPageSize, videoPagingState);
+                relatedVideosJob.getRelatedVideos(videoId, videoPageSize, videoPagingState);
         
         // Map Result back to GRPC
         futureDao.whenComplete((resultPage, error) -> {
@@ -105,7 +111,7 @@ public class SuggestedVideosServiceGrpc extends SuggestedVideoServiceImplBase {
         final UUID userid = UUID.fromString(grpcReq.getUserId().getValue());
         
         // Invoke DAO Async
-        CompletableFuture<List<Video>> futureDao = suggestedVideosDseDao.getSuggestedVideosForUser(userid);
+        CompletableFuture<List<Video>> futureDao = userRecommendationsJob.getSuggestedVideosForUser(userid);
         
         // Map Result back to GRPC
         futureDao.whenComplete((videos, error) -> {
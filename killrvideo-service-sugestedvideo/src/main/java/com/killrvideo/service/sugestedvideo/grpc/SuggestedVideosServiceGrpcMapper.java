@@ -40,10 +40,11 @@ public class SuggestedVideosServiceGrpcMapper {
     public static Video mapVideoAddedtoVideoDTO(YouTubeVideoAdded videoAdded) {
         // Convert Stub to Dto, dao must not be related to interface GRPC
         Video video = new Video();
-        video.setVideoid(UUID.fromString(videoAdded.getVideoId().toString()));
+        video.setVideoid(UUID.fromString(videoAdded.getVideoId().getValue()));
         video.setAddedDate(GrpcMappingUtils.timestampToDate(videoAdded.getAddedDate()));
-        video.setUserid(UUID.fromString(videoAdded.getUserId().toString()));
+        video.setUserid(UUID.fromString(videoAdded.getUserId().getValue()));
         video.setName(videoAdded.getName());
+        video.setDescription(videoAdded.getDescription());
         video.setTags(new HashSet<String>(videoAdded.getTagsList()));
         video.setPreviewImageLocation(videoAdded.getPreviewImageLocation());
         video.setLocation(videoAdded.getLocation());
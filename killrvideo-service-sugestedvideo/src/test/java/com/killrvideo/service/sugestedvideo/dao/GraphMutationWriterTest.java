@@ -0,0 +1,45 @@
+package com.killrvideo.service.sugestedvideo.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of the dead letters of {@link GraphMutationWriter}.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class GraphMutationWriterTest {
+
+    @Test
+    public void deadLetterIsOneJsonObjectWithIsoDates() {
+        Map<String, Object> bindings = new LinkedHashMap<>();
+        bindings.put("videoId", UUID.fromString("6741b34e-03c7-4d83-bf55-deed496d6e03"));
+        bindings.put("added_date", Date.from(Instant.parse("2018-08-09T09:00:44Z")));
+        bindings.put("tags", Arrays.asList("X", "ff4j"));
+        bindings.put("rating", 4);
+        assertEquals("{\"date\":\"2026-10-18T10:00:00Z\",\"kind\":\"VIDEO\",\"reason\":null,\"bindings\":{"
+                + "\"videoId\":\"6741b34e-03c7-4d83-bf55-deed496d6e03\",\"added_date\":\"2018-08-09T09:00:44Z\","
+                + "\"tags\":[\"X\",\"ff4j\"],\"rating\":4}}",
+                GraphMutationWriter.toJsonLine(Instant.parse("2026-10-18T10:00:00Z"),
+                        GraphMutationWriter.Kind.VIDEO, null, bindings));
+    }
+
+    @Test
+    public void stringsAreEscapedOnOneLine() {
+        Map<String, Object> bindings = new LinkedHashMap<>();
+        bindings.put("description", "say \"hi\"\\\n\tbye\u0001");
+        assertEquals("{\"date\":\"2026-10-18T10:00:00Z\",\"kind\":\"USER\",\"reason\":\"queue full\",\"bindings\":{"
+                + "\"description\":\"say \\\"hi\\\"\\\\\\n\\tbye\\u0001\"}}",
+                GraphMutationWriter.toJsonLine(Instant.parse("2026-10-18T10:00:00Z"),
+                        GraphMutationWriter.Kind.USER, "queue full", bindings));
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.killrvideo.service.sugestedvideo.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+
+import com.killrvideo.dse.dto.Video;
+
+/**
+ * Unit tests of {@link PopularVideosCache}.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class PopularVideosCacheTest {
+
+    private static final DateTimeFormatter DATEFORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final StubSuggestedVideosDseDao dao = new StubSuggestedVideosDseDao();
+
+    @Test
+    public void emptyUntilFirstRefresh() {
+        assertTrue(new PopularVideosCache(dao, 7, 100, 5).getPopularVideos().isEmpty());
+    }
+
+    @Test
+    public void mostPlayedFirstThenNewest() {
+        Video newest = video(10);
+        Video mostPlayed = video(50);
+        Video older = video(10);
+        Video neverPlayed = video(0);
+        dao.partitions.put(day(0), Arrays.asList(newest, mostPlayed, older, neverPlayed));
+        PopularVideosCache cache = new PopularVideosCache(dao, 7, 100, 3);
+        cache.refresh();
+        assertEquals(Arrays.asList(mostPlayed, newest, older), cache.getPopularVideos());
+    }
+
+    @Test
+    public void candidatesAreReadFromNewestDays() {
+        Video today      = video(1);
+        Video twoDaysAgo = video(3);
+        dao.partitions.put(day(0), Arrays.asList(today));
+        dao.partitions.put(day(1), Collections.emptyList());
+        dao.partitions.put(day(2), Arrays.asList(twoDaysAgo, video(1), video(1)));
+        dao.partitions.put(day(3), Arrays.asList(video(100)));
+        PopularVideosCache cache = new PopularVideosCache(dao, 3, 3, 5);
+        cache.refresh();
+        // 3 partitions at most, each one asked for the number of candidates still missing
+        assertEquals(Arrays.asList(day(0) + "/3", day(1) + "/2", day(2) + "/2"), dao.reads);
+        assertEquals(Arrays.asList(twoDaysAgo, today, dao.partitions.get(day(2)).get(1)), cache.getPopularVideos());
+    }
+
+    @Test
+    public void noMoreDaysReadOnceEnoughCandidates() {
+        dao.partitions.put(day(0), Arrays.asList(video(1), video(2)));
+        PopularVideosCache cache = new PopularVideosCache(dao, 7, 2, 5);
+        cache.refresh();
+        assertEquals(Arrays.asList(day(0) + "/2"), dao.reads);
+        assertEquals(2, cache.getPopularVideos().size());
+    }
+
+    @Test
+    public void failedRefreshKeepsPreviousVideos() {
+        Video video = video(5);
+        dao.partitions.put(day(0), Arrays.asList(video));
+        PopularVideosCache cache = new PopularVideosCache(dao, 7, 100, 5);
+        cache.refresh();
+        dao.partitions.put(day(0), Arrays.asList(video, video(50)));
+        dao.failingViews = true;
+        cache.refresh();
+        assertEquals(Arrays.asList(video), cache.getPopularVideos());
+    }
+
+    private Video video(long views) {
+        Video video = new Video(UUID.randomUUID(), UUID.randomUUID(), "Video", null, 0, null, null);
+        dao.views.put(video.getVideoid(), views);
+        return video;
+    }
+
+    /**
+     * Partition of 'latest_videos' some days ago, in the time zone used by the cache.
+     */
+    private static String day(int daysAgo) {
+        return LocalDate.now().minusDays(daysAgo).format(DATEFORMATTER);
+    }
+
+    /**
+     * Partitions of 'latest_videos' and playbacks in memory.
+     */
+    private static final class StubSuggestedVideosDseDao extends SuggestedVideosDseDao {
+
+        private final Map<String, List<Video>> partitions = new ConcurrentHashMap<>();
+
+        private final Map<UUID, Long> views = new ConcurrentHashMap<>();
+
+        private final List<String> reads = Collections.synchronizedList(new ArrayList<>());
+
+        private volatile boolean failingViews;
+
+        @Override
+        public CompletableFuture<List<Video>> getLatestVideos(String yyyymmdd, int limit) {
+            reads.add(yyyymmdd + "/" + limit);
+            List<Video> videos = partitions.getOrDefault(yyyymmdd, Collections.emptyList());
+            return CompletableFuture.completedFuture(videos.subList(0, Math.min(limit, videos.size())));
+        }
+
+        @Override
+        public CompletableFuture<Long> getPlaybackViews(UUID videoid) {
+            CompletableFuture<Long> read = new CompletableFuture<>();
+            if (failingViews) {
+                read.completeExceptionally(new IllegalStateException("Read timeout"));
+            } else {
+                read.complete(views.getOrDefault(videoid, 0L));
+            }
+            return read;
+        }
+    }
+
+}
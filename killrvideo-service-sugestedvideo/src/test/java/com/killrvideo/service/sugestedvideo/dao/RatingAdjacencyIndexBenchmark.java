@@ -0,0 +1,97 @@
+package com.killrvideo.service.sugestedvideo.dao;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Heap and latency of {@link RatingAdjacencyIndex} (profile 'suggested_local') on synthetic ratings: users rate
+ * videos with a skewed popularity (a few videos get most ratings), recommendations use the parameters of
+ * {@link UserRecommendationDao}.
+ *
+ * No DSE node is required, e.g. 'java -Xmx1g RatingAdjacencyIndexBenchmark 100000 20000 2000000 10000'.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class RatingAdjacencyIndexBenchmark {
+
+    /** Recommendations before measuring. */
+    private static final int WARMUP = 1000;
+
+    public static void main(String[] args) {
+        int users      = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int videos     = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int ratings    = args.length > 2 ? Integer.parseInt(args[2]) : 2000000;
+        int iterations = args.length > 3 ? Integer.parseInt(args[3]) : 10000;
+
+        Random random = new Random(42);
+        UUID[] userIds  = new UUID[users];
+        UUID[] videoIds = new UUID[videos];
+        for (int i = 0; i < users; i++) {
+            userIds[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+        for (int i = 0; i < videos; i++) {
+            videoIds[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+
+        long heapBefore = usedHeap();
+        long start = System.currentTimeMillis();
+        RatingAdjacencyIndex index = new RatingAdjacencyIndex();
+        for (int i = 0; i < ratings; i++) {
+            // Cube of a uniform value: the first tenth of videos gets about half of the ratings
+            double popularity = random.nextDouble();
+            index.addRating(userIds[random.nextInt(users)],
+                    videoIds[(int) (videos * popularity * popularity * popularity)], 1 + random.nextInt(5));
+        }
+        long loadMillis = System.currentTimeMillis() - start;
+        long heapAfter = usedHeap();
+        System.out.println(String.format("%d ratings (%d users, %d videos) indexed in %d millis, about %d MB of heap",
+                index.getRatingCount(), index.getUserCount(), index.getVideoCount(), loadMillis,
+                (heapAfter - heapBefore) / (1024 * 1024)));
+
+        for (int i = 0; i < WARMUP; i++) {
+            recommend(index, userIds[random.nextInt(users)]);
+        }
+        long[] micros = new long[iterations];
+        long found = 0;
+        for (int i = 0; i < iterations; i++) {
+            UUID userid = userIds[random.nextInt(users)];
+            long t0 = System.nanoTime();
+            found += recommend(index, userid);
+            micros[i] = (System.nanoTime() - t0) / 1000;
+        }
+        System.out.println(String.format("%d recommendations: p50 %d us, p99 %d us, max %d us, %.1f videos on average",
+                iterations, percentile(micros, 50), percentile(micros, 99), percentile(micros, 100),
+                (double) found / iterations));
+    }
+
+    /**
+     * Recommendation with the parameters of the traversal, twice as many candidates as the local DAO.
+     */
+    private static int recommend(RatingAdjacencyIndex index, UUID userid) {
+        return index.recommendByUserRating(userid, 2 * UserRecommendationDao.RECOMMENDATIONS,
+                UserRecommendationDao.MIN_RATING, UserRecommendationDao.NUM_RATINGS_TO_SAMPLE,
+                UserRecommendationDao.LOCAL_USER_RATINGS_TO_SAMPLE).size();
+    }
+
+    /**
+     * Heap used after garbage collection (best effort).
+     */
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Value below which 'percent' of the samples fall.
+     */
+    private static long percentile(long[] samples, int percent) {
+        long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+    }
+
+}
@@ -0,0 +1,140 @@
+package com.killrvideo.service.sugestedvideo.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link RatingAdjacencyIndex}.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class RatingAdjacencyIndexTest {
+
+    private final UUID me       = UUID.randomUUID();
+    private final UUID similar  = UUID.randomUUID();
+    private final UUID other    = UUID.randomUUID();
+    private final UUID watched1 = UUID.randomUUID();
+    private final UUID watched2 = UUID.randomUUID();
+    private final UUID video1   = UUID.randomUUID();
+    private final UUID video2   = UUID.randomUUID();
+    private final UUID video3   = UUID.randomUUID();
+
+    @Test
+    public void unknownUserHasNoRecommendation() {
+        RatingAdjacencyIndex index = new RatingAdjacencyIndex();
+        index.addRating(similar, video1, 5);
+        assertEquals(Collections.emptyList(), index.recommendByUserRating(me, 5, 4, 1000, 5));
+    }
+
+    @Test
+    public void ratingAgainUpdatesInPlace() {
+        RatingAdjacencyIndex index = new RatingAdjacencyIndex();
+        index.addRating(me, video1, 2);
+        index.addRating(me, video1, 5);
+        index.addRating(similar, video1, 5);
+        assertEquals(2, index.getRatingCount());
+        assertEquals(2, index.getUserCount());
+        assertEquals(1, index.getVideoCount());
+    }
+
+    @Test
+    public void watchedVideosAreExcluded() {
+        RatingAdjacencyIndex index = new RatingAdjacencyIndex();
+        index.addRating(me, watched1, 5);
+        index.addRating(me, watched2, 1);
+        index.addRating(similar, watched1, 5);
+        index.addRating(similar, watched2, 5);
+        index.addRating(similar, video1, 4);
+        // 'watched2' is not followed (rated below minRating) but still watched
+        assertEquals(Arrays.asList(video1), index.recommendByUserRating(me, 5, 4, 1000, 5));
+    }
+
+    @Test
+    public void bestSumOfRatingsFirst() {
+        RatingAdjacencyIndex index = new RatingAdjacencyIndex();
+        index.addRating(me, watched1, 5);
+        index.addRating(similar, watched1, 5);
+        index.addRating(similar, video1, 4);
+        index.addRating(similar, video2, 5);
+        index.addRating(other, watched1, 4);
+        index.addRating(other, video1, 4);
+        // Ratings below minRating are not followed
+        index.addRating(other, video3, 3);
+        assertEquals(Arrays.asList(video1, video2), index.recommendByUserRating(me, 5, 4, 1000, 5));
+        assertEquals(Arrays.asList(video1), index.recommendByUserRating(me, 1, 4, 1000, 5));
+    }
+
+    @Test
+    public void tiesByFirstVideoIndexed() {
+        RatingAdjacencyIndex index = new RatingAdjacencyIndex();
+        index.addRating(other, video3, 1);
+        index.addRating(other, video1, 1);
+        index.addRating(me, watched1, 5);
+        index.addRating(similar, watched1, 5);
+        index.addRating(similar, video1, 5);
+        index.addRating(similar, video2, 5);
+        index.addRating(similar, video3, 5);
+        assertEquals(Arrays.asList(video3, video1, video2), index.recommendByUserRating(me, 5, 4, 1000, 5));
+    }
+
+    @Test
+    public void firstRatingsOfEachSimilarUser() {
+        RatingAdjacencyIndex index = new RatingAdjacencyIndex();
+        index.addRating(me, watched1, 5);
+        index.addRating(similar, watched1, 5);
+        index.addRating(similar, video1, 2);
+        index.addRating(similar, video2, 5);
+        index.addRating(similar, video3, 5);
+        // 'watched1' and 'video2' are the first 2 ratings of at least minRating, 'video1' is skipped
+        assertEquals(Arrays.asList(video2), index.recommendByUserRating(me, 5, 4, 1000, 2));
+    }
+
+    @Test
+    public void samplingIsWeightedByRating() {
+        RatingAdjacencyIndex index = new RatingAdjacencyIndex();
+        UUID lowRater = UUID.randomUUID();
+        index.addRating(me, watched1, 5);
+        index.addRating(similar, watched1, 5);
+        index.addRating(similar, video1, 5);
+        index.addRating(lowRater, watched1, 1);
+        index.addRating(lowRater, video2, 5);
+        // One rating of 'watched1' sampled among 5 (me, skipped), 5 (similar) and 1 (lowRater)
+        int similarSampled = 0;
+        int lowRaterSampled = 0;
+        for (int i = 0; i < 6000; i++) {
+            List<UUID> videos = index.recommendByUserRating(me, 5, 1, 1, 5);
+            if (videos.equals(Arrays.asList(video1))) {
+                similarSampled++;
+            } else if (videos.equals(Arrays.asList(video2))) {
+                lowRaterSampled++;
+            } else {
+                assertEquals(Collections.emptyList(), videos);
+            }
+        }
+        // Expected 5/6 of the similar users sampled
+        double share = (double) similarSampled / (similarSampled + lowRaterSampled);
+        assertTrue(share > 0.75 && share < 0.91, "share of rating 5 sampled: " + share);
+        assertTrue(lowRaterSampled > 0);
+    }
+
+    @Test
+    public void allRatingsFollowedWhenFewerThanSample() {
+        RatingAdjacencyIndex index = new RatingAdjacencyIndex();
+        index.addRating(me, watched1, 5);
+        index.addRating(similar, watched1, 4);
+        index.addRating(similar, video1, 5);
+        index.addRating(other, watched1, 4);
+        index.addRating(other, video2, 4);
+        for (int i = 0; i < 20; i++) {
+            assertEquals(Arrays.asList(video1, video2), index.recommendByUserRating(me, 5, 4, 3, 5));
+        }
+    }
+
+}
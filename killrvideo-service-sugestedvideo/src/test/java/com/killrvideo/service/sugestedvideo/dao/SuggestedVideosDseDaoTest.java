@@ -0,0 +1,42 @@
+package com.killrvideo.service.sugestedvideo.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import com.killrvideo.dse.dto.Video;
+
+/**
+ * Unit tests of the terms used by {@link SuggestedVideosDseDao} to search related videos.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class SuggestedVideosDseDaoTest {
+
+    private final Set<String> ignoredWords = new HashSet<>(Arrays.asList("the", "of"));
+
+    @Test
+    public void tagsAreSearchedTerms() {
+        Video video = new Video(UUID.randomUUID(), UUID.randomUUID(), "The Art of Cassandra",
+                "Data modeling, the basics", 0, new HashSet<>(Arrays.asList("nosql", "dse")), null);
+        assertEquals(new HashSet<>(Arrays.asList("art", "cassandra", "nosql", "dse", "data", "modeling", "basics")),
+                SuggestedVideosDseDao.extractTerms(video, ignoredWords));
+    }
+
+    @Test
+    public void descriptionAndTagsAreOptional() {
+        Video video = new Video(UUID.randomUUID(), UUID.randomUUID(), "Graph traversals", null, 0, null, null);
+        assertEquals(new HashSet<>(Arrays.asList("graph", "traversals")),
+                SuggestedVideosDseDao.extractTerms(video, ignoredWords));
+        video.setTags(Collections.singleton("gremlin"));
+        assertEquals(new HashSet<>(Arrays.asList("graph", "traversals", "gremlin")),
+                SuggestedVideosDseDao.extractTerms(video, ignoredWords));
+    }
+
+}
@@ -0,0 +1,245 @@
+package com.killrvideo.service.user.dao;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.killrvideo.messaging.conf.KillrVideoThreadFactory;
+
+/**
+ * In-memory Bloom filter of the emails registered in 'user_credentials'.
+ *
+ * A negative answer proves the email is not registered (as of the last scan plus local creations), a positive
+ * answer only means 'probably registered' and must be confirmed by a read. The filter is built by scanning
+ * 'user_credentials' token range by token range at startup and then every 'rebuildIntervalMinutes', which
+ * picks up users created on other nodes. Until the first scan completes the filter answers 'not registered'
+ * so that callers fall back to the lightweight transaction.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Component
+@ManagedResource(objectName = "killrvideo:type=Users,name=RegisteredEmailsFilter")
+public class RegisteredEmailsFilter {
+
+    /** Loger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(RegisteredEmailsFilter.class);
+
+    @Value("${killrvideo.users.emailFilter.enabled: true}")
+    private boolean enabled = true;
+
+    @Value("${killrvideo.users.emailFilter.expectedEmails: 1000000}")
+    private int expectedEmails = 1000000;
+
+    @Value("${killrvideo.users.emailFilter.falsePositiveRate: 0.01}")
+    private double falsePositiveRate = 0.01;
+
+    @Value("${killrvideo.users.emailFilter.rebuildIntervalMinutes: 60}")
+    private long rebuildIntervalMinutes = 60;
+
+    @Value("${killrvideo.users.emailFilter.scanPageSize: 5000}")
+    private int scanPageSize = 5000;
+
+    @Autowired
+    private UserDseDao userDseDao;
+
+    /** Filter in use, replaced at each rebuild. */
+    private volatile BloomFilter<String> filter;
+
+    /** Filter being rebuilt, emails created during the scan are added to both. */
+    private volatile BloomFilter<String> rebuildingFilter;
+
+    /** False until the first scan completed. */
+    private volatile boolean ready = false;
+
+    /** Rebuilding thread. */
+    private ScheduledExecutorService scheduler;
+
+    /** Metrics. */
+    private final LongAdder  totalChecks             = new LongAdder();
+    private final LongAdder  totalProbablyRegistered = new LongAdder();
+    private final AtomicLong lastScanEmailCount      = new AtomicLong();
+    private final AtomicLong lastScanMillis          = new AtomicLong();
+
+    /**
+     * Default constructor.
+     */
+    public RegisteredEmailsFilter() {
+    }
+
+    /**
+     * Explicit initialization for test purpose.
+     */
+    RegisteredEmailsFilter(UserDseDao userDseDao, int expectedEmails, double falsePositiveRate) {
+        this.userDseDao        = userDseDao;
+        this.expectedEmails    = expectedEmails;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * Schedule first scan and periodic rebuilds.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            LOGGER.info("Registered emails filter is disabled");
+            return;
+        }
+        filter    = newFilter();
+        scheduler = Executors.newSingleThreadScheduledExecutor(new KillrVideoThreadFactory());
+        scheduler.scheduleWithFixedDelay(this::rebuildSafely, 0, rebuildIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Stop rebuilding thread.
+     */
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Test if an email may already be registered.
+     *
+     * @param email
+     *      user email
+     * @return
+     *      false if the email is definitely not registered or if the filter is not ready
+     */
+    public boolean isProbablyRegistered(String email) {
+        if (!enabled || !ready) {
+            return false;
+        }
+        totalChecks.increment();
+        boolean probablyRegistered = filter.mightContain(email);
+        if (probablyRegistered) {
+            totalProbablyRegistered.increment();
+        }
+        return probablyRegistered;
+    }
+
+    /**
+     * Account a newly registered email.
+     *
+     * @param email
+     *      user email
+     */
+    public void add(String email) {
+        if (!enabled) {
+            return;
+        }
+        put(filter, email);
+        BloomFilter<String> rebuilding = rebuildingFilter;
+        if (rebuilding != null) {
+            put(rebuilding, email);
+        }
+    }
+
+    /**
+     * Scan 'user_credentials' into a new filter and swap it.
+     */
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        BloomFilter<String> newFilter = newFilter();
+        rebuildingFilter = newFilter;
+        try {
+            long count = userDseDao.forEachRegisteredEmail(email -> put(newFilter, email), scanPageSize);
+            filter = newFilter;
+            ready  = true;
+            lastScanEmailCount.set(count);
+            lastScanMillis.set(System.currentTimeMillis() - start);
+            LOGGER.info("Registered emails filter rebuilt with {} emails in {} millis", count, lastScanMillis.get());
+            if (count > expectedEmails) {
+                LOGGER.warn("{} emails registered, more than the {} expected: false positive rate is above {}, "
+                        + "increase 'killrvideo.users.emailFilter.expectedEmails'", count, expectedEmails, falsePositiveRate);
+            }
+        } finally {
+            rebuildingFilter = null;
+        }
+    }
+
+    /**
+     * Scheduled rebuild, exceptions would cancel the schedule.
+     */
+    private void rebuildSafely() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            LOGGER.error("Cannot rebuild registered emails filter, will retry in {} minutes", rebuildIntervalMinutes, e);
+        }
+    }
+
+    /**
+     * Guava filters are not thread-safe for writes.
+     */
+    private static void put(BloomFilter<String> target, String email) {
+        synchronized (target) {
+            target.put(email);
+        }
+    }
+
+    /**
+     * Empty filter sized with configuration.
+     */
+    private BloomFilter<String> newFilter() {
+        return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedEmails, falsePositiveRate);
+    }
+
+    /**
+     * Getter for attribute 'ready'.
+     */
+    @ManagedAttribute
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Getter for attribute 'totalChecks'.
+     */
+    @ManagedAttribute
+    public long getTotalChecks() {
+        return totalChecks.sum();
+    }
+
+    /**
+     * Getter for attribute 'totalProbablyRegistered'.
+     */
+    @ManagedAttribute
+    public long getTotalProbablyRegistered() {
+        return totalProbablyRegistered.sum();
+    }
+
+    /**
+     * Getter for attribute 'lastScanEmailCount'.
+     */
+    @ManagedAttribute
+    public long getLastScanEmailCount() {
+        return lastScanEmailCount.get();
+    }
+
+    /**
+     * Getter for attribute 'lastScanMillis'.
+     */
+    @ManagedAttribute
+    public long getLastScanMillis() {
+        return lastScanMillis.get();
+    }
+
+}
@@ -0,0 +1,23 @@
+package com.killrvideo.service.user.dao;
+
+/**
+ * User not created because its email or its userid is already used (mapped to ALREADY_EXISTS).
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class UserAlreadyExistsException extends IllegalArgumentException {
+
+    /** Serial. */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor.
+     *
+     * @param message
+     *      error message
+     */
+    public UserAlreadyExistsException(String message) {
+        super(message);
+    }
+
+}
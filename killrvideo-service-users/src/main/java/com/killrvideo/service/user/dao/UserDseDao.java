@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 
 import javax.annotation.PostConstruct;
 
@@ -17,7 +18,9 @@ import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.RegularStatement;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
 import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TokenRange;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.datastax.driver.dse.DseSession;
 import com.datastax.driver.mapping.Mapper;
@@ -41,6 +44,12 @@ public class UserDseDao extends DseDaoSupport {
     /** Data model constants. */
     public static final String TABLENAME_USERS                         = "users";
     public static final String TABLENAME_USER_CREDENTIALS              = "user_credentials";
+    public static final String TABLENAME_USER_IMPORTS                  = "user_imports";
+    public static final String USER_IMPORTS_COLUMN_IMPORT_ID           = "import_id";
+    public static final String USER_IMPORTS_COLUMN_CHECKPOINT          = "checkpoint";
+    public static final String USER_IMPORTS_COLUMN_IMPORTED            = "imported";
+    public static final String USER_IMPORTS_COLUMN_FAILED              = "failed";
+    public static final String USER_IMPORTS_COLUMN_UPDATED_DATE        = "updated_date";
     
     /** Mapper to ease queries. */
     protected Mapper < User >             mapperUsers;
@@ -49,7 +58,12 @@ public class UserDseDao extends DseDaoSupport {
     /** Precompile statements to speed up queries. */
     private PreparedStatement insertCredentialsStatement;
     private PreparedStatement insertUserStatement;
+    private PreparedStatement deleteCredentialsStatement;
     private PreparedStatement findUsersByIdsStatement;
+    private PreparedStatement findUserByIdStatement;
+    private PreparedStatement scanEmailsByTokenRangeStatement;
+    private PreparedStatement findImportCheckpointStatement;
+    private PreparedStatement saveImportCheckpointStatement;
    
     /**
      * Default constructor.
@@ -84,7 +98,8 @@ public class UserDseDao extends DseDaoSupport {
         insertCredentialsStatement = dseSession.prepare(stmt);
         insertCredentialsStatement.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
         
-        // Create User
+        // Create User, the lightweight transaction on credentials is keyed on email: userid (chosen by the client) 
+        // must be checked as well
         RegularStatement stmt2 =  QueryBuilder.insertInto(
                 mapperUsers.getTableMetadata().getKeyspace().getName(), 
                 mapperUsers.getTableMetadata().getName())
@@ -93,10 +108,19 @@ public class UserDseDao extends DseDaoSupport {
                 .value(User.COLUMN_LASTNAME,  QueryBuilder.bindMarker())
                 .value(User.COLUMN_EMAIL, QueryBuilder.bindMarker())
                 .value(User.COLUMN_CREATE, QueryBuilder.bindMarker())
-                .ifNotExists(); // use lightweight transaction
+                .ifNotExists();
         insertUserStatement = dseSession.prepare(stmt2);
         insertUserStatement.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
         
+        // Remove credentials of a user not created (userid already used), only if still owned by that userid
+        RegularStatement stmtDeleteCredentials = QueryBuilder.delete()
+                .from(mapperUserCredentials.getTableMetadata().getKeyspace().getName(), 
+                      mapperUserCredentials.getTableMetadata().getName())
+                .where(QueryBuilder.eq(UserCredentials.COLUMN_EMAIL, QueryBuilder.bindMarker()))
+                .onlyIf(QueryBuilder.eq(UserCredentials.COLUMN_USERID, QueryBuilder.bindMarker()));
+        deleteCredentialsStatement = dseSession.prepare(stmtDeleteCredentials);
+        deleteCredentialsStatement.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+        
         // Find User profiles
         RegularStatement stmt3 =  QueryBuilder.select().all()
                 .from(mapperUsers.getTableMetadata().getKeyspace().getName(), 
@@ -104,11 +128,48 @@ public class UserDseDao extends DseDaoSupport {
                 .where(QueryBuilder.in(User.COLUMN_USERID, QueryBuilder.bindMarker()));
         findUsersByIdsStatement = dseSession.prepare(stmt3);
         findUsersByIdsStatement.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+        
+        // Find one User profile, single partition so the request is routed to a replica (token aware)
+        RegularStatement stmt4 =  QueryBuilder.select().all()
+                .from(mapperUsers.getTableMetadata().getKeyspace().getName(), 
+                      mapperUsers.getTableMetadata().getName())
+                .where(QueryBuilder.eq(User.COLUMN_USERID, QueryBuilder.bindMarker()));
+        findUserByIdStatement = dseSession.prepare(stmt4);
+        findUserByIdStatement.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+        
+        // Scan of registered emails, one token range at a time
+        RegularStatement stmt5 = QueryBuilder.select(UserCredentials.COLUMN_EMAIL)
+                .from(mapperUserCredentials.getTableMetadata().getKeyspace().getName(), 
+                      mapperUserCredentials.getTableMetadata().getName())
+                .where(QueryBuilder.gt(QueryBuilder.token(UserCredentials.COLUMN_EMAIL), QueryBuilder.bindMarker()))
+                .and(QueryBuilder.lte(QueryBuilder.token(UserCredentials.COLUMN_EMAIL), QueryBuilder.bindMarker()));
+        scanEmailsByTokenRangeStatement = dseSession.prepare(stmt5);
+        scanEmailsByTokenRangeStatement.setConsistencyLevel(ConsistencyLevel.LOCAL_ONE);
+        
+        // Checkpoints of bulk imports
+        String keyspace = mapperUsers.getTableMetadata().getKeyspace().getName();
+        RegularStatement stmt6 = QueryBuilder.select(USER_IMPORTS_COLUMN_CHECKPOINT)
+                .from(keyspace, TABLENAME_USER_IMPORTS)
+                .where(QueryBuilder.eq(USER_IMPORTS_COLUMN_IMPORT_ID, QueryBuilder.bindMarker()));
+        findImportCheckpointStatement = dseSession.prepare(stmt6);
+        findImportCheckpointStatement.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+        RegularStatement stmt7 = QueryBuilder.insertInto(keyspace, TABLENAME_USER_IMPORTS)
+                .value(USER_IMPORTS_COLUMN_IMPORT_ID,    QueryBuilder.bindMarker())
+                .value(USER_IMPORTS_COLUMN_CHECKPOINT,   QueryBuilder.bindMarker())
+                .value(USER_IMPORTS_COLUMN_IMPORTED,     QueryBuilder.bindMarker())
+                .value(USER_IMPORTS_COLUMN_FAILED,       QueryBuilder.bindMarker())
+                .value(USER_IMPORTS_COLUMN_UPDATED_DATE, QueryBuilder.bindMarker());
+        saveImportCheckpointStatement = dseSession.prepare(stmt7);
+        saveImportCheckpointStatement.setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
     }
     
     /**
      * Create user Asynchronously composing things. (with Mappers)
      * 
+     * Credentials then profile are inserted with lightweight transactions. When the profile is not inserted (userid
+     * already used) credentials are deleted. The future fails with {@link UserAlreadyExistsException} when
+     * the email or the userid is already used.
+     * 
      * @param user
      *      user Management
      * @param hashedPassword
@@ -118,6 +179,7 @@ public class UserDseDao extends DseDaoSupport {
     public CompletableFuture<Void> createUserAsync(User user, String hashedPassword) {
         
         String errMsg = String.format("Exception creating user because it already exists with email %s", user.getEmail());
+        String errMsgUserid = String.format("Exception creating user because it already exists with userid %s", user.getUserid());
         
         final BoundStatement insertCredentialsQuery = insertCredentialsStatement.bind()
                 .setString(UserCredentials.COLUMN_EMAIL, user.getEmail())
@@ -134,7 +196,19 @@ public class UserDseDao extends DseDaoSupport {
                                 .setUUID(User.COLUMN_USERID, user.getUserid())
                                 .setString(User.COLUMN_FIRSTNAME, user.getFirstname()).setString(User.COLUMN_LASTNAME, user.getLastname())
                                 .setString(User.COLUMN_EMAIL, user.getEmail()).setTimestamp(User.COLUMN_CREATE, new Date());
-                    return FutureUtils.asCompletableFuture(dseSession.executeAsync(insertUserQuery));
+                return FutureUtils.asCompletableFuture(dseSession.executeAsync(insertUserQuery)).thenCompose(rsUser -> {
+                    if (rsUser != null && !rsUser.wasApplied()) {
+                        // Userid already used: give the email back before reporting the duplicate
+                        LOGGER.error(errMsgUserid);
+                        return deleteCredentialsAsync(user).<ResultSet>handle((deleted, deleteError) -> {
+                            if (deleteError != null) {
+                                LOGGER.error("Cannot delete credentials of user not created with email {}", user.getEmail(), deleteError);
+                            }
+                            throw new CompletionException(errMsgUserid, new UserAlreadyExistsException(errMsgUserid));
+                        });
+                    }
+                    return CompletableFuture.completedFuture(rsUser);
+                });
             }
             return future1;
         });
@@ -145,11 +219,49 @@ public class UserDseDao extends DseDaoSupport {
         return future2.thenAccept(rs -> {
             if (rs != null && !rs.wasApplied()) {
                 LOGGER.error(errMsg);
-                throw new CompletionException(errMsg, new IllegalArgumentException(errMsg));
+                throw new CompletionException(errMsg, new UserAlreadyExistsException(errMsg));
             }
         });
     }
+    
+    /**
+     * Delete credentials inserted for a user which has not been created.
+     */
+    private CompletableFuture<ResultSet> deleteCredentialsAsync(User user) {
+        BoundStatement deleteCredentialsQuery = deleteCredentialsStatement.bind()
+                .setString(UserCredentials.COLUMN_EMAIL, user.getEmail())
+                .setUUID(UserCredentials.COLUMN_USERID, user.getUserid());
+        return FutureUtils.asCompletableFuture(dseSession.executeAsync(deleteCredentialsQuery));
+    }
 
+    /**
+     * Read all registered emails, token range by token range (blocking, to be run on a background thread).
+     *
+     * @param consumer
+     *      invoked for each email
+     * @param fetchSize
+     *      page size
+     * @return
+     *      number of emails read
+     */
+    public long forEachRegisteredEmail(Consumer<String> consumer, int fetchSize) {
+        long count = 0;
+        for (TokenRange range : dseSession.getCluster().getMetadata().getTokenRanges()) {
+            // Range wrapping around the ring is split in two
+            for (TokenRange subRange : range.unwrap()) {
+                Statement stmt = scanEmailsByTokenRangeStatement.bind()
+                        .setToken(0, subRange.getStart())
+                        .setToken(1, subRange.getEnd())
+                        .setFetchSize(fetchSize);
+                for (Row row : dseSession.execute(stmt)) {
+                    consumer.accept(row.getString(UserCredentials.COLUMN_EMAIL));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+    
     /**
      * Get user Credentials 
      * @param email
@@ -169,5 +281,56 @@ public class UserDseDao extends DseDaoSupport {
         Statement stmt = findUsersByIdsStatement.bind().setList(0, userids, UUID.class);
         return FutureUtils.asCompletableFuture(mapperUsers.mapAsync(dseSession.executeAsync(stmt))).thenApply(Result::all);
     }
+    
+    /**
+     * Retrieve a single user profile.
+     *
+     * @param userid
+     *      user unique identifier
+     * @return
+     *      user profile, null if not found
+     */
+    public CompletableFuture < User > getUserProfileAsync(UUID userid) {
+        Statement stmt = findUserByIdStatement.bind().setUUID(User.COLUMN_USERID, userid);
+        return FutureUtils.asCompletableFuture(mapperUsers.mapAsync(dseSession.executeAsync(stmt))).thenApply(Result::one);
+    }
+    
+    /**
+     * Read the checkpoint of a bulk import.
+     *
+     * @param importId
+     *      import unique identifier
+     * @return
+     *      number of records of the source already processed, 0 if the import never ran
+     */
+    public CompletableFuture < Long > findImportCheckpointAsync(String importId) {
+        Statement stmt = findImportCheckpointStatement.bind().setString(USER_IMPORTS_COLUMN_IMPORT_ID, importId);
+        return FutureUtils.asCompletableFuture(dseSession.executeAsync(stmt)).thenApply(rs -> {
+            Row row = rs.one();
+            return (row == null || row.isNull(USER_IMPORTS_COLUMN_CHECKPOINT)) ? 0L : row.getLong(USER_IMPORTS_COLUMN_CHECKPOINT);
+        });
+    }
+    
+    /**
+     * Save the checkpoint of a bulk import.
+     *
+     * @param importId
+     *      import unique identifier
+     * @param checkpoint
+     *      number of records of the source already processed
+     * @param imported
+     *      number of users created so far
+     * @param failed
+     *      number of records rejected so far
+     */
+    public CompletableFuture < Void > saveImportCheckpointAsync(String importId, long checkpoint, long imported, long failed) {
+        Statement stmt = saveImportCheckpointStatement.bind()
+                .setString(USER_IMPORTS_COLUMN_IMPORT_ID, importId)
+                .setLong(USER_IMPORTS_COLUMN_CHECKPOINT, checkpoint)
+                .setLong(USER_IMPORTS_COLUMN_IMPORTED, imported)
+                .setLong(USER_IMPORTS_COLUMN_FAILED, failed)
+                .setTimestamp(USER_IMPORTS_COLUMN_UPDATED_DATE, new Date());
+        return FutureUtils.asCompletableFuture(dseSession.executeAsync(stmt)).thenApply(rs -> null);
+    }
        
 }
@@ -0,0 +1,259 @@
+package com.killrvideo.service.user.dao;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import com.killrvideo.service.user.dto.User;
+import com.killrvideo.utils.FutureUtils;
+
+/**
+ * Bounded cache of user profiles in front of {@link UserDseDao}.
+ *
+ * Comment threads and video pages ask for largely overlapping lists of users. Hits are served from memory,
+ * misses are read one partition at a time (token aware, replica chosen by the driver) with a bounded number
+ * of concurrent reads instead of a single multi-partition IN query. Concurrent lookups of the same user share
+ * the same read.
+ *
+ * Entries expire after 'ttlSeconds' and are invalidated when a user is created (UserCreated event).
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Component
+@ManagedResource(objectName = "killrvideo:type=Users,name=UserProfileCache")
+public class UserProfileCache {
+
+    /** Loger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(UserProfileCache.class);
+
+    @Value("${killrvideo.users.profileCache.enabled: true}")
+    private boolean enabled = true;
+
+    @Value("${killrvideo.users.profileCache.maxSize: 10000}")
+    private int maxSize = 10000;
+
+    @Value("${killrvideo.users.profileCache.ttlSeconds: 300}")
+    private long ttlSeconds = 300;
+
+    @Value("${killrvideo.users.profileCache.maxConcurrentReads: 16}")
+    private int maxConcurrentReads = 16;
+
+    @Autowired
+    private UserDseDao userDseDao;
+
+    /** Profiles, least recently used first. */
+    private final Map<UUID, CachedProfile> profiles = new LinkedHashMap<UUID, CachedProfile>(256, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, CachedProfile> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    /** Reads in progress, shared by concurrent lookups. */
+    private final Map<UUID, CompletableFuture<User>> inFlightReads = new ConcurrentHashMap<>();
+
+    /** Incremented on each invalidation, a read started before an invalidation is not cached. */
+    private final AtomicLong invalidationCount = new AtomicLong();
+
+    /** Metrics. */
+    private final LongAdder hits      = new LongAdder();
+    private final LongAdder misses    = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Default constructor.
+     */
+    public UserProfileCache() {
+    }
+
+    /**
+     * Explicit initialization for test purpose.
+     */
+    UserProfileCache(UserDseDao userDseDao, int maxSize, long ttlSeconds) {
+        this.userDseDao = userDseDao;
+        this.maxSize    = maxSize;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    /**
+     * Retrieve user profiles, unknown users are omitted.
+     *
+     * @param userids
+     *      user unique identifiers
+     * @return
+     *      profiles found, in the order of the request
+     */
+    public CompletableFuture<List<User>> getUserProfilesAsync(List<UUID> userids) {
+        Assert.notNull(userids, "userid list cannot be null");
+        if (!enabled) {
+            return userDseDao.getUserProfilesAsync(userids);
+        }
+        final long now = System.currentTimeMillis();
+        final List<CompletableFuture<User>> results = new ArrayList<>();
+        final List<UUID> toRead = new ArrayList<>();
+        final Map<UUID, CompletableFuture<User>> newReads = new LinkedHashMap<>();
+        for (UUID userid : new LinkedHashSet<>(userids)) {
+            User cached = getIfPresent(userid, now);
+            if (cached != null) {
+                hits.increment();
+                results.add(CompletableFuture.completedFuture(cached));
+                continue;
+            }
+            CompletableFuture<User> read = new CompletableFuture<>();
+            CompletableFuture<User> existing = inFlightReads.putIfAbsent(userid, read);
+            if (existing != null) {
+                coalesced.increment();
+                results.add(existing);
+            } else {
+                misses.increment();
+                toRead.add(userid);
+                newReads.put(userid, read);
+                results.add(read);
+            }
+        }
+        if (!toRead.isEmpty()) {
+            final long invalidationsBefore = invalidationCount.get();
+            // thenCompose so that an exception raised by the DAO still completes the shared read
+            FutureUtils.mapWithBoundedConcurrency(toRead, maxConcurrentReads, userid -> CompletableFuture
+                    .completedFuture(userid)
+                    .thenCompose(userDseDao::getUserProfileAsync)
+                    .whenComplete((user, error) -> {
+                        CompletableFuture<User> read = newReads.get(userid);
+                        inFlightReads.remove(userid, read);
+                        if (error != null) {
+                            read.completeExceptionally(error);
+                        } else {
+                            if (user != null && invalidationCount.get() == invalidationsBefore) {
+                                put(user, System.currentTimeMillis());
+                            }
+                            read.complete(user);
+                        }
+                    }));
+        }
+        return CompletableFuture.allOf(results.toArray(new CompletableFuture[results.size()]))
+                .thenApply(v -> results.stream()
+                                       .map(CompletableFuture::join)
+                                       .filter(Objects::nonNull)
+                                       .collect(Collectors.toList()));
+    }
+
+    /**
+     * Remove a user from the cache.
+     *
+     * @param userid
+     *      user unique identifier
+     */
+    public void invalidate(UUID userid) {
+        invalidationCount.incrementAndGet();
+        synchronized (profiles) {
+            profiles.remove(userid);
+        }
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("User profile {} invalidated", userid);
+        }
+    }
+
+    /**
+     * Cached profile if not expired.
+     */
+    private User getIfPresent(UUID userid, long now) {
+        synchronized (profiles) {
+            CachedProfile cached = profiles.get(userid);
+            if (cached == null) {
+                return null;
+            }
+            if (now - cached.loadedAt > ttlSeconds * 1000) {
+                profiles.remove(userid);
+                return null;
+            }
+            return cached.user;
+        }
+    }
+
+    /**
+     * Add a profile, evicting the least recently used if full.
+     */
+    private void put(User user, long now) {
+        synchronized (profiles) {
+            profiles.put(user.getUserid(), new CachedProfile(user, now));
+        }
+    }
+
+    /**
+     * Ratio of profiles served from memory (coalesced lookups are counted as hits).
+     */
+    @ManagedAttribute
+    public double getHitRatio() {
+        long served = hits.sum() + coalesced.sum();
+        long total  = served + misses.sum();
+        return total == 0 ? 0 : (double) served / total;
+    }
+
+    /**
+     * Number of cached profiles.
+     */
+    @ManagedAttribute
+    public int getSize() {
+        synchronized (profiles) {
+            return profiles.size();
+        }
+    }
+
+    /**
+     * Getter for attribute 'hits'.
+     */
+    @ManagedAttribute
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Getter for attribute 'misses'.
+     */
+    @ManagedAttribute
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Getter for attribute 'coalesced'.
+     */
+    @ManagedAttribute
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    /**
+     * Profile with its loading time.
+     */
+    private static final class CachedProfile {
+
+        private final User user;
+        private final long loadedAt;
+
+        private CachedProfile(User user, long loadedAt) {
+            this.user     = user;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+}
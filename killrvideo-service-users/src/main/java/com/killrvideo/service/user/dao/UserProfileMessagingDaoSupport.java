@@ -0,0 +1,37 @@
+package com.killrvideo.service.user.dao;
+
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import killrvideo.user_management.events.UserManagementEvents.UserCreated;
+
+/**
+ * Message processing for user profile cache invalidation.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public abstract class UserProfileMessagingDaoSupport {
+    
+    /** Loger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(UserProfileMessagingDaoSupport.class);
+    
+    @Autowired
+    protected UserProfileCache userProfileCache;
+    
+    /**
+     * Message is consumed from specialized class but treatment is the same, invalidating the profile.
+     * 
+     * @param userCreated
+     *      user created on any node
+     */
+    protected void onUserCreatingMessage(UserCreated userCreated) {
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("[UserCreatedEvent] Invalidating profile of user {}", userCreated.getUserId().getValue());
+        }
+        userProfileCache.invalidate(UUID.fromString(userCreated.getUserId().getValue()));
+    }
+    
+}
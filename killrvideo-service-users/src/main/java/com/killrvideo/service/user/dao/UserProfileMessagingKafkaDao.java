@@ -0,0 +1,50 @@
+package com.killrvideo.service.user.dao;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import com.killrvideo.conf.KillrVideoConfiguration;
+import com.killrvideo.messaging.dao.KafkaBroadcastConsumer;
+
+import killrvideo.user_management.events.UserManagementEvents.UserCreated;
+
+/**
+ * Each node caches profiles: every node reads every partition without consumer group (see
+ * {@link KafkaBroadcastConsumer}) so that every node invalidates its cache.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Repository("killrvideo.user.dao.messaging")
+@Profile(KillrVideoConfiguration.PROFILE_MESSAGING_KAFKA)
+public class UserProfileMessagingKafkaDao extends UserProfileMessagingDaoSupport {
+    
+    @Value("${killrvideo.messaging.destinations.userCreated : topic-kv-userCreation}")
+    private String topicUserCreated;
+    
+    @Autowired
+    @Qualifier("kafka.consumer.userProfileInvalidation")
+    private KafkaConsumer<String, byte[]> consumerUserCreatedProtobuf;
+    
+    /** Polling of user creations. */
+    private KafkaBroadcastConsumer<UserCreated> userCreatedConsumer;
+    
+    @PostConstruct
+    public void registerConsumerUserCreated() {
+        userCreatedConsumer = new KafkaBroadcastConsumer<>(consumerUserCreatedProtobuf, 
+                topicUserCreated, UserCreated.parser(), super::onUserCreatingMessage);
+        userCreatedConsumer.start();
+    }
+    
+    @PreDestroy
+    public void stopConsumerUserCreated() {
+        userCreatedConsumer.stop();
+    }
+    
+}
@@ -0,0 +1,74 @@
+package com.killrvideo.service.user.grpc;
+
+import java.util.TreeSet;
+
+/**
+ * Position from which a bulk import resumes: every record before it is processed and none of them failed to be
+ * written.
+ *
+ * Records complete out of order, a position done after a gap waits for the gap to close. A record whose write
+ * failed closes the gap (next records keep moving) but the checkpoint stays at its position, so that the next run
+ * retries it. Not thread safe, used under the lock of the import.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+final class ImportCheckpoint {
+
+    /** All records before this position are processed. */
+    private long processed;
+
+    /** Records processed after a gap. */
+    private final TreeSet<Long> processedAfterGap = new TreeSet<>();
+
+    /** Oldest record which could not be written. */
+    private long oldestFailed = Long.MAX_VALUE;
+
+    /**
+     * Constructor.
+     *
+     * @param resumeFrom
+     *      checkpoint of the previous run
+     */
+    ImportCheckpoint(long resumeFrom) {
+        this.processed = resumeFrom;
+    }
+
+    /**
+     * Record processed: imported, already imported, duplicate or invalid (retrying would not change anything).
+     *
+     * @param position
+     *      position of the record in the source
+     */
+    void done(long position) {
+        if (position == processed) {
+            processed++;
+            while (processedAfterGap.remove(processed)) {
+                processed++;
+            }
+        } else if (position > processed) {
+            processedAfterGap.add(position);
+        }
+    }
+
+    /**
+     * Record which could not be written, to be retried by the next run.
+     *
+     * @param position
+     *      position of the record in the source
+     */
+    void failed(long position) {
+        oldestFailed = Math.min(oldestFailed, position);
+        done(position);
+    }
+
+    /**
+     * Position to resume from.
+     *
+     * @return
+     *      checkpoint
+     */
+    long value() {
+        return Math.min(processed, oldestFailed);
+    }
+
+}
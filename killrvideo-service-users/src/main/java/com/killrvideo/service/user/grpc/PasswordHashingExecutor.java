@@ -0,0 +1,248 @@
+package com.killrvideo.service.user.grpc;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.killrvideo.messaging.conf.KillrVideoThreadFactory;
+import com.killrvideo.utils.HashUtils;
+
+/**
+ * Run password hashing and verification on a dedicated, bounded pool instead of the gRPC threads.
+ *
+ * Hashing is CPU bound, a burst of logins would otherwise steal CPU from every service hosted in the same
+ * server. When all threads are busy and the queue is full, or when a task waited too long in the queue,
+ * the returned future fails fast with a {@link RejectedExecutionException} (mapped to RESOURCE_EXHAUSTED).
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Component
+@ManagedResource(objectName = "killrvideo:type=Users,name=PasswordHashingExecutor")
+public class PasswordHashingExecutor {
+
+    /** Loger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(PasswordHashingExecutor.class);
+
+    @Value("${killrvideo.users.hashing.threads: 2}")
+    private int threads = 2;
+
+    @Value("${killrvideo.users.hashing.queueSize: 64}")
+    private int queueSize = 64;
+
+    @Value("${killrvideo.users.hashing.maxQueueWaitMillis: 1000}")
+    private long maxQueueWaitMillis = 1000;
+
+    /** Dedicated pool. */
+    private ThreadPoolExecutor executor;
+
+    /** Metrics. */
+    private final LongAdder  totalTasks            = new LongAdder();
+    private final LongAdder  totalRejected         = new LongAdder();
+    private final LongAdder  totalExpired          = new LongAdder();
+    private final LongAdder  totalQueueWaitMillis  = new LongAdder();
+    private final LongAdder  totalExecutionMillis  = new LongAdder();
+    private final AtomicLong lastQueueWaitMillis   = new AtomicLong();
+    private final AtomicLong lastExecutionMillis   = new AtomicLong();
+
+    /**
+     * Default constructor.
+     */
+    public PasswordHashingExecutor() {
+    }
+    
+    /**
+     * Constructor with the size of the pool, for test purpose.
+     */
+    PasswordHashingExecutor(int threads, int queueSize, long maxQueueWaitMillis) {
+        this.threads            = threads;
+        this.queueSize          = queueSize;
+        this.maxQueueWaitMillis = maxQueueWaitMillis;
+    }
+
+    /**
+     * Create the pool.
+     */
+    @PostConstruct
+    public void start() {
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), new KillrVideoThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        LOGGER.info("Password hashing on {} threads with a queue of {} tasks", threads, queueSize);
+    }
+
+    /**
+     * Stop the pool.
+     */
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Hash a password.
+     *
+     * @param password
+     *      clear text password
+     * @return
+     *      future with the hash
+     */
+    public CompletableFuture<String> hashPasswordAsync(String password) {
+        return submit(() -> HashUtils.hashPassword(password));
+    }
+
+    /**
+     * Test a password against its hash.
+     *
+     * @param realPassword
+     *      clear text password
+     * @param hash
+     *      stored hash
+     * @return
+     *      future with the result
+     */
+    public CompletableFuture<Boolean> isPasswordValidAsync(String realPassword, String hash) {
+        return submit(() -> HashUtils.isPasswordValid(realPassword, hash));
+    }
+
+    /**
+     * Pool was saturated (queue full or task expired in queue), answered as RESOURCE_EXHAUSTED.
+     *
+     * @param error
+     *      failure of a future returned by this executor, or of a stage depending on it
+     * @return
+     *      if the task was rejected
+     */
+    public static boolean isSaturated(Throwable error) {
+        Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+        return cause instanceof RejectedExecutionException;
+    }
+
+    /**
+     * Execute a task on the pool, the future fails immediately if the pool is saturated.
+     */
+    <T> CompletableFuture<T> submit(Supplier<T> task) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final long submittedAt = System.currentTimeMillis();
+        totalTasks.increment();
+        try {
+            executor.execute(() -> {
+                long startedAt = System.currentTimeMillis();
+                long queueWait = startedAt - submittedAt;
+                totalQueueWaitMillis.add(queueWait);
+                lastQueueWaitMillis.set(queueWait);
+                if (queueWait > maxQueueWaitMillis) {
+                    // Caller has probably given up, do not burn CPU for nothing
+                    totalExpired.increment();
+                    result.completeExceptionally(new RejectedExecutionException(
+                            "Password hashing task waited " + queueWait + " millis in queue"));
+                    return;
+                }
+                try {
+                    result.complete(task.get());
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    long execution = System.currentTimeMillis() - startedAt;
+                    totalExecutionMillis.add(execution);
+                    lastExecutionMillis.set(execution);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            totalRejected.increment();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Number of tasks waiting for a thread.
+     */
+    @ManagedAttribute
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Number of threads hashing right now.
+     */
+    @ManagedAttribute
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Average time spent in queue by executed tasks.
+     */
+    @ManagedAttribute
+    public double getAverageQueueWaitMillis() {
+        long executed = totalTasks.sum() - totalRejected.sum();
+        return executed == 0 ? 0 : (double) totalQueueWaitMillis.sum() / executed;
+    }
+
+    /**
+     * Average time spent hashing by executed tasks.
+     */
+    @ManagedAttribute
+    public double getAverageExecutionMillis() {
+        long executed = totalTasks.sum() - totalRejected.sum() - totalExpired.sum();
+        return executed == 0 ? 0 : (double) totalExecutionMillis.sum() / executed;
+    }
+
+    /**
+     * Getter for attribute 'lastQueueWaitMillis'.
+     */
+    @ManagedAttribute
+    public long getLastQueueWaitMillis() {
+        return lastQueueWaitMillis.get();
+    }
+
+    /**
+     * Getter for attribute 'lastExecutionMillis'.
+     */
+    @ManagedAttribute
+    public long getLastExecutionMillis() {
+        return lastExecutionMillis.get();
+    }
+
+    /**
+     * Getter for attribute 'totalTasks'.
+     */
+    @ManagedAttribute
+    public long getTotalTasks() {
+        return totalTasks.sum();
+    }
+
+    /**
+     * Getter for attribute 'totalRejected'.
+     */
+    @ManagedAttribute
+    public long getTotalRejected() {
+        return totalRejected.sum();
+    }
+
+    /**
+     * Getter for attribute 'totalExpired'.
+     */
+    @ManagedAttribute
+    public long getTotalExpired() {
+        return totalExpired.sum();
+    }
+
+}
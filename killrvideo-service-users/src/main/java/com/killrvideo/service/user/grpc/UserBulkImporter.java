@@ -0,0 +1,592 @@
+package com.killrvideo.service.user.grpc;
+
+import static com.killrvideo.service.user.grpc.UserManagementServiceGrpcMapper.mapUserRequest2User;
+import static com.killrvideo.service.user.grpc.UserManagementServiceGrpcValidator.isValidGrpcRequest_createUser;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.google.protobuf.Timestamp;
+import com.killrvideo.messaging.conf.KillrVideoThreadFactory;
+import com.killrvideo.messaging.dao.MessagingDao;
+import com.killrvideo.service.user.dao.RegisteredEmailsFilter;
+import com.killrvideo.service.user.dao.UserAlreadyExistsException;
+import com.killrvideo.service.user.dao.UserDseDao;
+import com.killrvideo.service.user.dto.User;
+import com.killrvideo.service.user.dto.UserCredentials;
+import com.killrvideo.utils.HashUtils;
+
+import killrvideo.user_management.UserManagementServiceOuterClass.CreateUserRequest;
+import killrvideo.user_management.events.UserManagementEvents.UserCreated;
+
+/**
+ * Create users in bulk.
+ *
+ * Records are hashed on a dedicated pool (interactive logins keep {@link PasswordHashingExecutor} for themselves)
+ * and written with a bounded number of records in flight: when the bound is reached the next message of the
+ * client stream is not requested until records complete (see {@link ImportJob#readyForMore()}), no thread
+ * blocks. 'UserCreated' events are sent by batches.
+ *
+ * An import is identified by the client: every 'checkpointInterval' records, once the events of all records
+ * before the checkpoint have been sent, the checkpoint is saved in table 'user_imports'. A new run of the
+ * same import skips records before the checkpoint. Records processed after the checkpoint are found in
+ * 'user_credentials' with the same userid, they are counted as already imported and their event is sent
+ * again (at least once). A record which could not be written holds the checkpoint at its position (see
+ * {@link ImportCheckpoint}), the next run retries it; invalid records are reported and never retried.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Component
+@ManagedResource(objectName = "killrvideo:type=Users,name=UserBulkImporter")
+public class UserBulkImporter {
+
+    /** Loger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(UserBulkImporter.class);
+
+    @Value("${killrvideo.messaging.destinations.userCreated : topic-kv-userCreation}")
+    private String topicUserCreated;
+
+    @Value("${killrvideo.users.import.hashingThreads: 4}")
+    private int hashingThreads = 4;
+
+    @Value("${killrvideo.users.import.maxInFlight: 128}")
+    private int maxInFlight = 128;
+
+    @Value("${killrvideo.users.import.eventBatchSize: 500}")
+    private int eventBatchSize = 500;
+
+    @Value("${killrvideo.users.import.checkpointInterval: 1000}")
+    private int checkpointInterval = 1000;
+
+    @Value("${killrvideo.users.import.maxReportedFailures: 100}")
+    private int maxReportedFailures = 100;
+
+    @Autowired
+    private UserDseDao userDseDao;
+
+    @Autowired
+    private RegisteredEmailsFilter registeredEmailsFilter;
+
+    @Autowired
+    private MessagingDao messagingDao;
+
+    /** Hashing pool, queue is bounded by the number of records in flight. */
+    private ExecutorService hashingExecutor;
+
+    /** Only one run per import at a time. */
+    private final Set<String> runningImports = ConcurrentHashMap.newKeySet();
+
+    /** Metrics, all runs. */
+    private final LongAdder totalImported = new LongAdder();
+    private final LongAdder totalFailed   = new LongAdder();
+
+    /**
+     * Default constructor.
+     */
+    public UserBulkImporter() {
+    }
+
+    /**
+     * Explicit initialization for test purpose.
+     */
+    UserBulkImporter(UserDseDao userDseDao, RegisteredEmailsFilter registeredEmailsFilter, MessagingDao messagingDao,
+            int maxInFlight, int eventBatchSize, int checkpointInterval) {
+        this.userDseDao             = userDseDao;
+        this.registeredEmailsFilter = registeredEmailsFilter;
+        this.messagingDao           = messagingDao;
+        this.topicUserCreated       = "topic-kv-userCreation";
+        this.hashingThreads         = 1;
+        this.maxInFlight            = maxInFlight;
+        this.eventBatchSize         = eventBatchSize;
+        this.checkpointInterval     = checkpointInterval;
+    }
+
+    /**
+     * Create the hashing pool.
+     */
+    @PostConstruct
+    public void start() {
+        hashingExecutor = Executors.newFixedThreadPool(hashingThreads, new KillrVideoThreadFactory());
+    }
+
+    /**
+     * Stop the hashing pool.
+     */
+    @PreDestroy
+    public void stop() {
+        if (hashingExecutor != null) {
+            hashingExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Start or resume an import.
+     *
+     * @param importId
+     *      import unique identifier, chosen by the client
+     * @return
+     *      job to submit records to
+     * @throws IllegalStateException
+     *      if the import is already running
+     */
+    public ImportJob startImport(String importId) {
+        if (!runningImports.add(importId)) {
+            throw new IllegalStateException("Import '" + importId + "' is already running");
+        }
+        try {
+            long checkpoint = userDseDao.findImportCheckpointAsync(importId).join();
+            if (checkpoint > 0) {
+                LOGGER.info("Resuming import '{}' from record {}", importId, checkpoint);
+            }
+            return new ImportJob(importId, checkpoint);
+        } catch (RuntimeException e) {
+            runningImports.remove(importId);
+            throw e;
+        }
+    }
+
+    /**
+     * Result of a record.
+     */
+    private enum Outcome { IMPORTED, ALREADY_IMPORTED, DUPLICATE }
+
+    /**
+     * A run of an import. Records are submitted sequentially by a single thread, then {@link #close()} is called.
+     * The submitting thread never blocks, it waits for {@link #readyForMore()} before reading more records.
+     */
+    public final class ImportJob {
+
+        /** Import unique identifier. */
+        private final String importId;
+
+        /** Checkpoint of the previous run. */
+        private final long resumeFrom;
+
+        /** Stands as stopwatch for throughput. */
+        private final Instant starts = Instant.now();
+
+        /** Records in flight, and the wait for one of them to complete when there are too many. */
+        private final AtomicInteger pendingRecords = new AtomicInteger();
+        private CompletableFuture<Void> capacityWaiter;
+
+        /** Position of next record, only used by the submitting thread. */
+        private long nextPosition = 0;
+
+        /** No more records. */
+        private volatile boolean closed = false;
+        private final AtomicBoolean finishing = new AtomicBoolean(false);
+        private final CompletableFuture<ImportJob> completion = new CompletableFuture<>();
+
+        /** Position to resume from, records which could not be written are retried. */
+        private final ImportCheckpoint checkpoint;
+        private long lastSavedCheckpoint;
+
+        /** Events not sent yet, and sending of all previous batches. */
+        private final List<UserCreated> pendingEvents = new ArrayList<>();
+        private CompletableFuture<Void> eventsSent = CompletableFuture.completedFuture(null);
+
+        /** Saves are chained, a checkpoint is never overwritten by an older one. */
+        private CompletableFuture<Void> checkpointSaves = CompletableFuture.completedFuture(null);
+        private final AtomicLong savedCheckpoint = new AtomicLong();
+
+        /** Metrics. */
+        private final LongAdder imported        = new LongAdder();
+        private final LongAdder alreadyImported = new LongAdder();
+        private final LongAdder duplicates      = new LongAdder();
+        private final LongAdder failed          = new LongAdder();
+        private final LongAdder skipped         = new LongAdder();
+        private final List<ImportFailure> failures = Collections.synchronizedList(new ArrayList<>());
+        private volatile long elapsedMillis = -1;
+
+        private ImportJob(String importId, long resumeFrom) {
+            this.importId            = importId;
+            this.resumeFrom          = resumeFrom;
+            this.checkpoint          = new ImportCheckpoint(resumeFrom);
+            this.lastSavedCheckpoint = resumeFrom;
+            this.savedCheckpoint.set(resumeFrom);
+        }
+
+        /**
+         * Import next record of the source, never blocks.
+         *
+         * @param record
+         *      user to create
+         */
+        public void submit(CreateUserRequest record) {
+            final long position = nextPosition++;
+            if (position < resumeFrom) {
+                skipped.increment();
+                return;
+            }
+            if (!isValidGrpcRequest_createUser(record)) {
+                // Retrying would not make it valid, the checkpoint moves on
+                fail(position, record.getEmail(), "user id (UUID), email and password are required");
+                done(position, null, false);
+                return;
+            }
+            pendingRecords.incrementAndGet();
+            final User user = mapUserRequest2User(record);
+            importUser(user, record.getPassword().trim()).whenComplete((outcome, error) -> {
+                UserCreated event = null;
+                boolean writeFailed = (error != null);
+                if (writeFailed) {
+                    Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+                    fail(position, user.getEmail(), cause.getMessage());
+                } else if (outcome == Outcome.DUPLICATE) {
+                    duplicates.increment();
+                } else {
+                    if (outcome == Outcome.IMPORTED) {
+                        imported.increment();
+                        totalImported.increment();
+                        registeredEmailsFilter.add(user.getEmail());
+                    } else {
+                        alreadyImported.increment();
+                    }
+                    event = UserCreated.newBuilder()
+                            .setEmail(record.getEmail())
+                            .setFirstName(record.getFirstName())
+                            .setLastName(record.getLastName())
+                            .setUserId(record.getUserId())
+                            .setTimestamp(Timestamp.newBuilder().setSeconds(Instant.now().getEpochSecond()))
+                            .build();
+                }
+                done(position, event, writeFailed);
+                int pending = pendingRecords.decrementAndGet();
+                releaseCapacity(pending);
+                if (pending == 0 && closed) {
+                    finish();
+                }
+            });
+        }
+
+        /**
+         * Wait for room before submitting more records: a message of the client stream may carry more records
+         * than 'maxInFlight', the next one is requested once the records in flight are below the bound.
+         *
+         * @return
+         *      future completing when more records can be submitted, completed if they can right now
+         */
+        public synchronized CompletableFuture<Void> readyForMore() {
+            if (pendingRecords.get() < maxInFlight) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (capacityWaiter == null) {
+                capacityWaiter = new CompletableFuture<>();
+            }
+            return capacityWaiter;
+        }
+
+        /**
+         * A record completed, wake up the submitter if it waits and records in flight are below the bound.
+         */
+        private void releaseCapacity(int pending) {
+            CompletableFuture<Void> waiter;
+            synchronized (this) {
+                if (pending >= maxInFlight || capacityWaiter == null) {
+                    return;
+                }
+                waiter = capacityWaiter;
+                capacityWaiter = null;
+            }
+            // Outside of the lock, the submitter reads the stream from here
+            waiter.complete(null);
+        }
+
+        /**
+         * No more records, the returned future completes when all records are processed and the checkpoint saved.
+         *
+         * @return
+         *      this job, to read its report
+         */
+        public CompletableFuture<ImportJob> close() {
+            closed = true;
+            if (pendingRecords.get() == 0) {
+                finish();
+            }
+            return completion;
+        }
+
+        /**
+         * Same sequence as 'createUser' without hashing for records already known.
+         */
+        private CompletableFuture<Outcome> importUser(User user, String password) {
+            CompletableFuture<UserCredentials> existingCredentials = registeredEmailsFilter.isProbablyRegistered(user.getEmail()) ?
+                    userDseDao.getUserCredentialAsync(user.getEmail()) :
+                    CompletableFuture.<UserCredentials>completedFuture(null);
+            return existingCredentials.thenCompose(credentials -> {
+                if (credentials != null) {
+                    return CompletableFuture.completedFuture(outcomeOf(credentials, user));
+                }
+                return CompletableFuture.supplyAsync(() -> HashUtils.hashPassword(password), hashingExecutor)
+                        .thenCompose(hashedPassword -> userDseDao.createUserAsync(user, hashedPassword))
+                        .handle((result, error) -> error)
+                        .thenCompose(error -> {
+                            if (error == null) {
+                                return CompletableFuture.completedFuture(Outcome.IMPORTED);
+                            }
+                            if (error.getCause() instanceof UserAlreadyExistsException) {
+                                // Lightweight transaction not applied, was it created by a previous run ?
+                                return userDseDao.getUserCredentialAsync(user.getEmail())
+                                                 .thenApply(existing -> outcomeOf(existing, user));
+                            }
+                            throw (error instanceof CompletionException) ? (CompletionException) error : new CompletionException(error);
+                        });
+            });
+        }
+
+        /**
+         * Same userid means the record has been imported by a previous run.
+         */
+        private Outcome outcomeOf(UserCredentials credentials, User user) {
+            return (credentials != null && user.getUserid().equals(credentials.getUserid())) ? Outcome.ALREADY_IMPORTED : Outcome.DUPLICATE;
+        }
+
+        /**
+         * Record processed, move checkpoint forward when there is no gap nor failed write before it.
+         */
+        private synchronized void done(long position, UserCreated event, boolean writeFailed) {
+            if (event != null) {
+                pendingEvents.add(event);
+            }
+            if (writeFailed) {
+                checkpoint.failed(position);
+            } else {
+                checkpoint.done(position);
+            }
+            if (pendingEvents.size() >= eventBatchSize) {
+                sendEvents();
+            }
+            if (checkpoint.value() - lastSavedCheckpoint >= checkpointInterval) {
+                saveCheckpoint();
+            }
+        }
+
+        /**
+         * Send pending events as one batch.
+         */
+        private synchronized void sendEvents() {
+            if (pendingEvents.isEmpty()) {
+                return;
+            }
+            CompletableFuture<?>[] batch = pendingEvents.stream()
+                    .map(event -> messagingDao.sendEvent(topicUserCreated, event))
+                    .toArray(size -> new CompletableFuture<?>[size]);
+            pendingEvents.clear();
+            eventsSent = CompletableFuture.allOf(eventsSent, CompletableFuture.allOf(batch));
+        }
+
+        /**
+         * Save current checkpoint once the events of the records before it have been sent.
+         */
+        private synchronized void saveCheckpoint() {
+            final long value = checkpoint.value();
+            lastSavedCheckpoint = value;
+            sendEvents();
+            final CompletableFuture<Void> events = eventsSent;
+            checkpointSaves = checkpointSaves
+                    .thenCompose(v -> events)
+                    .thenCompose(v -> userDseDao.saveImportCheckpointAsync(importId, value, imported.sum(), failed.sum()))
+                    .thenRun(() -> {
+                        savedCheckpoint.set(value);
+                        LOGGER.info("Import '{}' checkpoint {} ({} users/s)", importId, value, String.format("%.1f", getUsersPerSecond()));
+                    });
+        }
+
+        /**
+         * Last save, once all records are processed.
+         */
+        private void finish() {
+            if (!finishing.compareAndSet(false, true)) {
+                return;
+            }
+            saveCheckpoint();
+            checkpointSaves.whenComplete((v, error) -> {
+                elapsedMillis = Instant.now().toEpochMilli() - starts.toEpochMilli();
+                runningImports.remove(importId);
+                if (error != null) {
+                    LOGGER.error("Import '{}' could not save its checkpoint, resume will start from record {}", importId, savedCheckpoint.get(), error);
+                    completion.completeExceptionally(error);
+                } else {
+                    LOGGER.info("Import '{}' done in {} millis: {} imported, {} already imported, {} duplicates, {} failed, {} skipped",
+                            importId, elapsedMillis, imported.sum(), alreadyImported.sum(), duplicates.sum(), failed.sum(), skipped.sum());
+                    completion.complete(this);
+                }
+            });
+        }
+
+        /**
+         * Account a failed record, only the first ones are reported.
+         */
+        private void fail(long position, String email, String reason) {
+            failed.increment();
+            totalFailed.increment();
+            synchronized (failures) {
+                if (failures.size() < maxReportedFailures) {
+                    failures.add(new ImportFailure(position, email, reason));
+                }
+            }
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Import '{}' record {} failed: {}", importId, position, reason);
+            }
+        }
+
+        /**
+         * Records processed per second, skipped records excluded.
+         */
+        public double getUsersPerSecond() {
+            long millis = elapsedMillis >= 0 ? elapsedMillis : Instant.now().toEpochMilli() - starts.toEpochMilli();
+            long processed = imported.sum() + alreadyImported.sum() + duplicates.sum() + failed.sum();
+            return millis == 0 ? 0 : processed * 1000d / millis;
+        }
+
+        /**
+         * Getter for attribute 'importId'.
+         */
+        public String getImportId() {
+            return importId;
+        }
+
+        /**
+         * Last checkpoint saved.
+         */
+        public long getCheckpoint() {
+            return savedCheckpoint.get();
+        }
+
+        /**
+         * Getter for attribute 'elapsedMillis'.
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * Getter for attribute 'imported'.
+         */
+        public long getImported() {
+            return imported.sum();
+        }
+
+        /**
+         * Getter for attribute 'alreadyImported'.
+         */
+        public long getAlreadyImported() {
+            return alreadyImported.sum();
+        }
+
+        /**
+         * Getter for attribute 'duplicates'.
+         */
+        public long getDuplicates() {
+            return duplicates.sum();
+        }
+
+        /**
+         * Getter for attribute 'failed'.
+         */
+        public long getFailed() {
+            return failed.sum();
+        }
+
+        /**
+         * Getter for attribute 'skipped'.
+         */
+        public long getSkipped() {
+            return skipped.sum();
+        }
+
+        /**
+         * Getter for attribute 'failures'.
+         */
+        public List<ImportFailure> getFailures() {
+            synchronized (failures) {
+                return new ArrayList<>(failures);
+            }
+        }
+    }
+
+    /**
+     * Number of imports running.
+     */
+    @ManagedAttribute
+    public int getRunningImports() {
+        return runningImports.size();
+    }
+
+    /**
+     * Users imported by all runs.
+     */
+    @ManagedAttribute
+    public long getTotalImported() {
+        return totalImported.sum();
+    }
+
+    /**
+     * Records which could not be imported by all runs, invalid ones included.
+     */
+    @ManagedAttribute
+    public long getTotalFailed() {
+        return totalFailed.sum();
+    }
+
+    /**
+     * A record which could not be imported.
+     */
+    public static final class ImportFailure {
+
+        private final long position;
+        private final String email;
+        private final String reason;
+
+        private ImportFailure(long position, String email, String reason) {
+            this.position = position;
+            this.email    = email;
+            this.reason   = reason;
+        }
+
+        /**
+         * Getter for attribute 'position'.
+         */
+        public long getPosition() {
+            return position;
+        }
+
+        /**
+         * Getter for attribute 'email'.
+         */
+        public String getEmail() {
+            return email;
+        }
+
+        /**
+         * Getter for attribute 'reason'.
+         */
+        public String getReason() {
+            return reason;
+        }
+    }
+
+}
@@ -1,7 +1,11 @@
 package com.killrvideo.service.user.grpc;
 
+import static com.killrvideo.service.user.grpc.UserManagementServiceGrpcMapper.mapResponseImportUsers;
+import static com.killrvideo.service.user.grpc.UserManagementServiceGrpcMapper.mapResponseValidateSession;
 import static com.killrvideo.service.user.grpc.UserManagementServiceGrpcMapper.mapResponseVerifyCredentials;
 import static com.killrvideo.service.user.grpc.UserManagementServiceGrpcMapper.mapUserRequest2User;
+import static com.killrvideo.service.user.grpc.UserManagementServiceGrpcValidator.validateGrpcRequest_ImportUsers;
+import static com.killrvideo.service.user.grpc.UserManagementServiceGrpcValidator.validateGrpcRequest_ValidateSession;
 import static com.killrvideo.service.user.grpc.UserManagementServiceGrpcValidator.validateGrpcRequest_VerifyCredentials;
 import static com.killrvideo.service.user.grpc.UserManagementServiceGrpcValidator.validateGrpcRequest_createUser;
 import static com.killrvideo.service.user.grpc.UserManagementServiceGrpcValidator.validateGrpcRequest_getUserProfile;
@@ -10,10 +14,15 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import javax.annotation.PostConstruct;
 
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,19 +30,31 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.google.protobuf.Timestamp;
+import com.killrvideo.conf.KillrVideoConfiguration;
 import com.killrvideo.messaging.dao.MessagingDao;
+import com.killrvideo.service.user.dao.RegisteredEmailsFilter;
+import com.killrvideo.service.user.dao.UserAlreadyExistsException;
 import com.killrvideo.service.user.dao.UserDseDao;
+import com.killrvideo.service.user.dao.UserProfileCache;
 import com.killrvideo.service.user.dto.User;
 import com.killrvideo.service.user.dto.UserCredentials;
-import com.killrvideo.utils.HashUtils;
+import com.killrvideo.service.user.grpc.UserBulkImporter.ImportJob;
+import com.killrvideo.utils.SessionTokenSigner;
+import com.killrvideo.utils.SessionTokenSigner.Session;
 
 import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 import killrvideo.user_management.UserManagementServiceGrpc.UserManagementServiceImplBase;
 import killrvideo.user_management.UserManagementServiceOuterClass.CreateUserRequest;
 import killrvideo.user_management.UserManagementServiceOuterClass.CreateUserResponse;
 import killrvideo.user_management.UserManagementServiceOuterClass.GetUserProfileRequest;
 import killrvideo.user_management.UserManagementServiceOuterClass.GetUserProfileResponse;
+import killrvideo.user_management.UserManagementServiceOuterClass.ImportUsersRequest;
+import killrvideo.user_management.UserManagementServiceOuterClass.ImportUsersResponse;
+import killrvideo.user_management.UserManagementServiceOuterClass.ValidateSessionRequest;
+import killrvideo.user_management.UserManagementServiceOuterClass.ValidateSessionResponse;
 import killrvideo.user_management.UserManagementServiceOuterClass.VerifyCredentialsRequest;
 import killrvideo.user_management.UserManagementServiceOuterClass.VerifyCredentialsResponse;
 import killrvideo.user_management.events.UserManagementEvents.UserCreated;
@@ -58,9 +79,40 @@ public class UserManagementServiceGrpc extends UserManagementServiceImplBase {
     @Autowired
     private UserDseDao userDseDao;
     
+    @Autowired
+    private UserProfileCache userProfileCache;
+    
+    @Autowired
+    private RegisteredEmailsFilter registeredEmailsFilter;
+    
     @Autowired
     private MessagingDao messagingDao;
     
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
+    
+    @Autowired
+    private UserBulkImporter userBulkImporter;
+    
+    @Autowired
+    private KillrVideoConfiguration config;
+    
+    /** Issue and verify session tokens. */
+    private SessionTokenSigner sessionTokenSigner;
+    
+    /**
+     * Initialize session tokens signature.
+     */
+    @PostConstruct
+    public void initSessionTokenSigner() {
+        String signingKey = config.getSessionSigningKey();
+        if (StringUtils.isBlank(signingKey)) {
+            LOGGER.warn("No 'killrvideo.security.sessionSigningKey' provided, session tokens are only valid on this node until restart");
+            signingKey = UUID.randomUUID().toString() + UUID.randomUUID().toString();
+        }
+        sessionTokenSigner = new SessionTokenSigner(signingKey, Duration.ofSeconds(config.getSessionTtlSeconds()));
+    }
+    
      /** {@inheritDoc} */
     @Override
     public void createUser(
@@ -75,16 +127,39 @@ public class UserManagementServiceGrpc extends UserManagementServiceImplBase {
         
         // Mapping GRPC => Domain (Dao)
         User user = mapUserRequest2User(grpcReq);
-        final String hashedPassword = HashUtils.hashPassword(grpcReq.getPassword().trim());
         
-         // Invoke DAO Async
-        userDseDao.createUserAsync(user, hashedPassword).whenComplete((result, error) -> {
-            if (error != null ) {
+        // Email definitely not registered: no read, uniqueness is enforced by the lightweight transaction.
+        // Email probably registered: confirm with a plain read and reject duplicates before hashing and LWT.
+        CompletableFuture<UserCredentials> existingCredentials = registeredEmailsFilter.isProbablyRegistered(user.getEmail()) ?
+                userDseDao.getUserCredentialAsync(user.getEmail()) : 
+                CompletableFuture.<UserCredentials>completedFuture(null);
+        
+        // Hashing on dedicated pool, then invoke DAO Async
+        existingCredentials.thenCompose(credentials -> {
+                                   if (credentials != null) {
+                                       String errMsg = String.format("Exception creating user because it already exists with email %s", user.getEmail());
+                                       throw new CompletionException(errMsg, new UserAlreadyExistsException(errMsg));
+                                   }
+                                   return passwordHashingExecutor.hashPasswordAsync(grpcReq.getPassword().trim());
+                               })
+                               .thenCompose(hashedPassword -> userDseDao.createUserAsync(user, hashedPassword))
+                               .whenComplete((result, error) -> {
+            if (error != null && isResourceExhausted(error)) {
+                traceError("createUser", starts, error);
+                grpcResObserver.onError(Status.RESOURCE_EXHAUSTED
+                               .withDescription("Too many concurrent requests, please retry later").asRuntimeException());
+            } else if (error != null && isAlreadyExists(error)) {
+                traceError("createUser", starts, error);
+                grpcResObserver.onError(Status.ALREADY_EXISTS.augmentDescription(error.getMessage())
+                               .asRuntimeException());
+            } else if (error != null ) {
                 traceError("createUser", starts, error);
                 grpcResObserver.onError(Status.INVALID_ARGUMENT.augmentDescription(error.getMessage())
                                .asRuntimeException());
             } else {
                 traceSuccess("createUser", starts);
+                registeredEmailsFilter.add(user.getEmail());
+                userProfileCache.invalidate(user.getUserid());
                 messagingDao.sendEvent(topicUserCreated, UserCreated.newBuilder()
                         .setEmail(grpcReq.getEmail())
                         .setFirstName(grpcReq.getFirstName())
@@ -112,27 +187,70 @@ public class UserManagementServiceGrpc extends UserManagementServiceImplBase {
         // Mapping GRPC => Domain (Dao)
         String email = grpcReq.getEmail();
         
-        // Invoke Async
-        CompletableFuture<UserCredentials> futureCredential = userDseDao.getUserCredentialAsync(email);
+        // Invoke Async, password is checked on dedicated pool (null if unknown email or invalid password)
+        CompletableFuture<UserCredentials> futureCredential = userDseDao.getUserCredentialAsync(email)
+                .thenCompose(credential -> {
+                    if (credential == null) {
+                        return CompletableFuture.<UserCredentials>completedFuture(null);
+                    }
+                    return passwordHashingExecutor.isPasswordValidAsync(grpcReq.getPassword(), credential.getPassword())
+                                                  .thenApply(valid -> valid ? credential : null);
+                });
         
         // Map back as GRPC (if correct invalid credential otherwize)
         futureCredential.whenComplete((credential, error) -> {
-            if (error != null ) {
+            if (error != null && isResourceExhausted(error)) {
                 traceError("verifyCredentials", starts, error);
-                if (!HashUtils.isPasswordValid(grpcReq.getPassword(), credential.getPassword())) {
-                    grpcResObserver.onError(Status.INVALID_ARGUMENT
-                                   .withDescription("Email address or password are not correct").asRuntimeException());
-                } else {
-                    grpcResObserver.onError(Status.INTERNAL.withCause(error).asRuntimeException());
-                }
+                grpcResObserver.onError(Status.RESOURCE_EXHAUSTED
+                               .withDescription("Too many concurrent requests, please retry later").asRuntimeException());
+            } else if (error != null ) {
+                traceError("verifyCredentials", starts, error);
+                grpcResObserver.onError(Status.INTERNAL.withCause(error).asRuntimeException());
+            } else if (credential == null) {
+                StatusRuntimeException invalidCredentials = Status.INVALID_ARGUMENT
+                               .withDescription("Email address or password are not correct").asRuntimeException();
+                traceError("verifyCredentials", starts, invalidCredentials);
+                grpcResObserver.onError(invalidCredentials);
             } else {
                 traceSuccess("verifyCredentials", starts);
-                grpcResObserver.onNext(mapResponseVerifyCredentials(credential.getUserid()));
+                if (grpcReq.getIssueSessionToken()) {
+                    Instant now = Instant.now();
+                    grpcResObserver.onNext(mapResponseVerifyCredentials(credential.getUserid(),
+                            sessionTokenSigner.issue(credential.getUserid(), now), sessionTokenSigner.expirationOf(now)));
+                } else {
+                    grpcResObserver.onNext(mapResponseVerifyCredentials(credential.getUserid()));
+                }
                 grpcResObserver.onCompleted();
             }
         });
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void validateSession(
+            final ValidateSessionRequest grpcReq, 
+            final StreamObserver<ValidateSessionResponse> grpcResObserver) {
+        
+        // Validate Parameters
+        validateGrpcRequest_ValidateSession(LOGGER, grpcReq, grpcResObserver);
+        
+        // Stands as stopwatch for logging and messaging 
+        final Instant starts = Instant.now();
+        
+        // Signature and expiration checked in memory, no DSE read and no hashing
+        Optional<Session> session = sessionTokenSigner.verify(grpcReq.getSessionToken(), starts);
+        if (session.isPresent()) {
+            traceSuccess("validateSession", starts);
+            grpcResObserver.onNext(mapResponseValidateSession(session.get()));
+            grpcResObserver.onCompleted();
+        } else {
+            StatusRuntimeException invalidSession = Status.UNAUTHENTICATED
+                           .withDescription("Session token is invalid or expired").asRuntimeException();
+            traceError("validateSession", starts, invalidSession);
+            grpcResObserver.onError(invalidSession);
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public void getUserProfile(
@@ -162,8 +280,8 @@ public class UserManagementServiceGrpc extends UserManagementServiceImplBase {
                     .map(uuid -> UUID.fromString(uuid.getValue()))
                     .toArray(size -> new UUID[size]));
             
-            // Execute Async
-            CompletableFuture<List<User>> userListFuture = userDseDao.getUserProfilesAsync(listOfUserId);
+            // Execute Async, served from cache when possible
+            CompletableFuture<List<User>> userListFuture = userProfileCache.getUserProfilesAsync(listOfUserId);
             
             // Mapping back to GRPC objects
             userListFuture.whenComplete((users, error) -> {
@@ -182,6 +300,119 @@ public class UserManagementServiceGrpc extends UserManagementServiceImplBase {
         }
     }
     
+    /** {@inheritDoc} */
+    @Override
+    public StreamObserver<ImportUsersRequest> importUsers(StreamObserver<ImportUsersResponse> grpcResObserver) {
+        // Messages are requested one by one, when the job has room for more users
+        ServerCallStreamObserver<ImportUsersResponse> serverObserver = (ServerCallStreamObserver<ImportUsersResponse>) grpcResObserver;
+        serverObserver.disableAutoInboundFlowControl();
+        serverObserver.request(1);
+        return new ImportUsersStreamObserver(serverObserver);
+    }
+    
+    /**
+     * Feed an import job with the users of a client stream. The next message is requested once the job has
+     * room for more users, gRPC stops reading the stream meanwhile (backpressure up to the client).
+     * gRPC calls onNext/onCompleted sequentially for a call, fields do not need synchronization.
+     */
+    private class ImportUsersStreamObserver implements StreamObserver<ImportUsersRequest> {
+        
+        /** Stands as stopwatch for logging. */
+        private final Instant starts = Instant.now();
+        
+        /** Response. */
+        private final ServerCallStreamObserver<ImportUsersResponse> grpcResObserver;
+        
+        /** Started on first message. */
+        private ImportJob job;
+        
+        /** Stream has been rejected, ignore next entries. */
+        private boolean failed = false;
+        
+        private ImportUsersStreamObserver(ServerCallStreamObserver<ImportUsersResponse> grpcResObserver) {
+            this.grpcResObserver = grpcResObserver;
+        }
+        
+        /** {@inheritDoc} */
+        @Override
+        public void onNext(ImportUsersRequest grpcReq) {
+            if (failed) {
+                return;
+            }
+            if (job == null) {
+                try {
+                    validateGrpcRequest_ImportUsers(LOGGER, grpcReq, grpcResObserver);
+                    job = userBulkImporter.startImport(grpcReq.getImportId());
+                } catch (IllegalArgumentException invalidRequest) {
+                    failed = true;
+                    return;
+                } catch (IllegalStateException alreadyRunning) {
+                    failed = true;
+                    grpcResObserver.onError(Status.FAILED_PRECONDITION
+                                   .withDescription(alreadyRunning.getMessage()).asRuntimeException());
+                    return;
+                } catch (RuntimeException e) {
+                    failed = true;
+                    traceError("importUsers", starts, e);
+                    grpcResObserver.onError(Status.INTERNAL.withCause(e).asRuntimeException());
+                    return;
+                }
+            }
+            grpcReq.getUsersList().forEach(job::submit);
+            job.readyForMore().thenRun(() -> grpcResObserver.request(1));
+        }
+        
+        /** {@inheritDoc} */
+        @Override
+        public void onError(Throwable t) {
+            // Users received before the client failed are imported and the checkpoint saved, to resume later
+            LOGGER.warn("Stream of users interrupted by client", t);
+            if (job != null) {
+                job.close();
+            }
+        }
+        
+        /** {@inheritDoc} */
+        @Override
+        public void onCompleted() {
+            if (failed) {
+                return;
+            }
+            if (job == null) {
+                grpcResObserver.onError(Status.INVALID_ARGUMENT
+                               .withDescription("No user to import").asRuntimeException());
+                return;
+            }
+            job.close().whenComplete((result, error) -> {
+                if (error != null) {
+                    traceError("importUsers", starts, error);
+                    grpcResObserver.onError(Status.UNAVAILABLE
+                                   .withDescription("Import could not complete, stream the same source again to resume")
+                                   .withCause(error).asRuntimeException());
+                } else {
+                    traceSuccess("importUsers", starts);
+                    grpcResObserver.onNext(mapResponseImportUsers(result));
+                    grpcResObserver.onCompleted();
+                }
+            });
+        }
+    }
+    
+    /**
+     * Hashing pool is saturated.
+     */
+    private boolean isResourceExhausted(Throwable error) {
+        return PasswordHashingExecutor.isSaturated(error);
+    }
+    
+    /**
+     * Email or userid already used.
+     */
+    private boolean isAlreadyExists(Throwable error) {
+        Throwable cause = (error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error;
+        return cause instanceof UserAlreadyExistsException;
+    }
+    
     /**
      * Utility to TRACE.
      *
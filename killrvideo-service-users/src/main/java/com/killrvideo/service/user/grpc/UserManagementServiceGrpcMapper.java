@@ -1,13 +1,19 @@
 package com.killrvideo.service.user.grpc;
 
+import java.time.Instant;
 import java.util.Date;
 import java.util.UUID;
 
 import com.killrvideo.service.user.dto.User;
+import com.killrvideo.service.user.grpc.UserBulkImporter.ImportJob;
 import com.killrvideo.utils.GrpcMappingUtils;
+import com.killrvideo.utils.SessionTokenSigner.Session;
 
 import killrvideo.user_management.UserManagementServiceOuterClass.CreateUserRequest;
+import killrvideo.user_management.UserManagementServiceOuterClass.ImportUserFailure;
+import killrvideo.user_management.UserManagementServiceOuterClass.ImportUsersResponse;
 import killrvideo.user_management.UserManagementServiceOuterClass.UserProfile;
+import killrvideo.user_management.UserManagementServiceOuterClass.ValidateSessionResponse;
 import killrvideo.user_management.UserManagementServiceOuterClass.VerifyCredentialsResponse;
 
 /**
@@ -43,5 +49,38 @@ public class UserManagementServiceGrpcMapper {
     public static VerifyCredentialsResponse mapResponseVerifyCredentials(UUID userid) {
         return VerifyCredentialsResponse.newBuilder().setUserId(GrpcMappingUtils.uuidToUuid(userid)).build();
     }
+    
+    public static VerifyCredentialsResponse mapResponseVerifyCredentials(UUID userid, String sessionToken, Instant expiresAt) {
+        return VerifyCredentialsResponse.newBuilder()
+                    .setUserId(GrpcMappingUtils.uuidToUuid(userid))
+                    .setSessionToken(sessionToken)
+                    .setSessionExpiresAt(GrpcMappingUtils.instantToTimeStamp(expiresAt))
+                    .build();
+    }
+    
+    public static ValidateSessionResponse mapResponseValidateSession(Session session) {
+        return ValidateSessionResponse.newBuilder()
+                    .setUserId(GrpcMappingUtils.uuidToUuid(session.getUserid()))
+                    .setSessionExpiresAt(GrpcMappingUtils.instantToTimeStamp(session.getExpiresAt()))
+                    .build();
+    }
+    
+    public static ImportUsersResponse mapResponseImportUsers(ImportJob job) {
+        ImportUsersResponse.Builder builder = ImportUsersResponse.newBuilder()
+                    .setImportId(job.getImportId())
+                    .setImported(job.getImported())
+                    .setAlreadyImported(job.getAlreadyImported())
+                    .setDuplicates(job.getDuplicates())
+                    .setFailed(job.getFailed())
+                    .setSkipped(job.getSkipped())
+                    .setCheckpoint(job.getCheckpoint())
+                    .setElapsedMillis(job.getElapsedMillis())
+                    .setUsersPerSecond(job.getUsersPerSecond());
+        job.getFailures().forEach(failure -> builder.addFailures(ImportUserFailure.newBuilder()
+                    .setPosition(failure.getPosition())
+                    .setEmail(failure.getEmail())
+                    .setReason(String.valueOf(failure.getReason()))));
+        return builder.build();
+    }
 
 }
@@ -2,6 +2,8 @@ package com.killrvideo.service.user.grpc;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
+import java.util.UUID;
+
 import org.slf4j.Logger;
 import org.springframework.util.Assert;
 
@@ -9,6 +11,8 @@ import io.grpc.stub.StreamObserver;
 import killrvideo.common.CommonTypes;
 import killrvideo.user_management.UserManagementServiceOuterClass.CreateUserRequest;
 import killrvideo.user_management.UserManagementServiceOuterClass.GetUserProfileRequest;
+import killrvideo.user_management.UserManagementServiceOuterClass.ImportUsersRequest;
+import killrvideo.user_management.UserManagementServiceOuterClass.ValidateSessionRequest;
 import killrvideo.user_management.UserManagementServiceOuterClass.VerifyCredentialsRequest;
 
 import static com.killrvideo.utils.ValidationUtils.initErrorString;
@@ -49,6 +53,31 @@ public class UserManagementServiceGrpcValidator {
         Assert.isTrue(validate(logger, streamObserver, errorMessage, isValid), "Invalid parameter for 'createUser'");
     }
     
+    /**
+     * Called for each user of an import, a record is only counted as failed when invalid.
+     */
+    public static boolean isValidGrpcRequest_createUser(CreateUserRequest request) {
+        return isValidUuid(request.getUserId()) 
+                && !isBlank(request.getPassword()) 
+                && !isBlank(request.getEmail());
+    }
+    
+    /**
+     * Validate first message of an import stream.
+     */
+    public static void validateGrpcRequest_ImportUsers(Logger logger, ImportUsersRequest request, StreamObserver<?> streamObserver) {
+        final StringBuilder errorMessage = initErrorString(request);
+        boolean isValid = true;
+        if (isBlank(request.getImportId())) {
+            errorMessage.append("\t\timport id should be provided on first message of import users request\n");
+            isValid = false;
+        } else if (request.getImportId().length() > 128) {
+            errorMessage.append("\t\timport id is too long for import users request\n");
+            isValid = false;
+        }
+        Assert.isTrue(validate(logger, streamObserver, errorMessage, isValid), "Invalid parameter for 'importUsers'");
+    }
+    
     public static void validateGrpcRequest_VerifyCredentials(Logger logger, VerifyCredentialsRequest request, StreamObserver<?> streamObserver) {
         final StringBuilder errorMessage = initErrorString(request);
         boolean isValid = true;
@@ -65,6 +94,19 @@ public class UserManagementServiceGrpcValidator {
         Assert.isTrue(validate(logger, streamObserver, errorMessage, isValid), "Invalid parameter for 'verifyCredentials'");
     }
     
+    public static void validateGrpcRequest_ValidateSession(Logger logger, ValidateSessionRequest request, StreamObserver<?> streamObserver) {
+        final StringBuilder errorMessage = initErrorString(request);
+        boolean isValid = true;
+        if (isBlank(request.getSessionToken())) {
+            errorMessage.append("\t\tsession token should be provided for validate session request\n");
+            isValid = false;
+        } else if (request.getSessionToken().length() > 256) {
+            errorMessage.append("\t\tsession token is too long for validate session request\n");
+            isValid = false;
+        }
+        Assert.isTrue(validate(logger, streamObserver, errorMessage, isValid), "Invalid parameter for 'validateSession'");
+    }
+    
     public static void validateGrpcRequest_getUserProfile(Logger logger, GetUserProfileRequest request, StreamObserver<?> streamObserver) {
         final StringBuilder errorMessage = initErrorString(request);
         boolean isValid = true;
@@ -80,5 +122,17 @@ public class UserManagementServiceGrpcValidator {
         }
         Assert.isTrue(validate(logger, streamObserver, errorMessage, isValid), "Invalid parameter for 'getUserProfile'");
     }
+    
+    private static boolean isValidUuid(CommonTypes.Uuid uuid) {
+        if (uuid == null || isBlank(uuid.getValue())) {
+            return false;
+        }
+        try {
+            UUID.fromString(uuid.getValue());
+            return true;
+        } catch (IllegalArgumentException invalidUuid) {
+            return false;
+        }
+    }
 
 }
@@ -0,0 +1,144 @@
+package com.killrvideo.service.user.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link RegisteredEmailsFilter}.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class RegisteredEmailsFilterTest {
+
+    private static final int    EMAILS              = 20000;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final StubUserDseDao dao = new StubUserDseDao();
+
+    private RegisteredEmailsFilter filter;
+
+    @AfterEach
+    public void stop() {
+        dao.release.countDown();
+        if (filter != null) {
+            filter.stop();
+        }
+    }
+
+    @Test
+    public void registeredEmailsAreNeverReportedAsNew() throws Exception {
+        for (int i = 0; i < EMAILS; i++) {
+            dao.emails.add("user" + i + "@killrvideo.com");
+        }
+        filter = startAndScan();
+        for (String email : dao.emails) {
+            assertTrue(filter.isProbablyRegistered(email), email);
+        }
+        assertEquals(EMAILS, filter.getLastScanEmailCount());
+    }
+
+    @Test
+    public void falsePositiveRateIsBounded() throws Exception {
+        for (int i = 0; i < EMAILS; i++) {
+            dao.emails.add("user" + i + "@killrvideo.com");
+        }
+        filter = startAndScan();
+        int falsePositives = 0;
+        for (int i = 0; i < EMAILS; i++) {
+            if (filter.isProbablyRegistered("visitor" + i + "@killrvideo.com")) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < EMAILS * FALSE_POSITIVE_RATE * 3, falsePositives + " false positives");
+    }
+
+    @Test
+    public void filterIsNotUsedBeforeFirstScan() throws Exception {
+        dao.emails.add("jane@killrvideo.com");
+        dao.blocked = true;
+        filter = new RegisteredEmailsFilter(dao, EMAILS, FALSE_POSITIVE_RATE);
+        filter.start();
+        assertTrue(dao.scanning.await(5, TimeUnit.SECONDS));
+        assertFalse(filter.isReady());
+        assertFalse(filter.isProbablyRegistered("jane@killrvideo.com"));
+        dao.release.countDown();
+        awaitReady(filter);
+        assertTrue(filter.isProbablyRegistered("jane@killrvideo.com"));
+    }
+
+    @Test
+    public void emailRegisteredDuringScanIsKept() throws Exception {
+        dao.emails.add("jane@killrvideo.com");
+        dao.blocked = true;
+        filter = new RegisteredEmailsFilter(dao, EMAILS, FALSE_POSITIVE_RATE);
+        filter.start();
+        assertTrue(dao.scanning.await(5, TimeUnit.SECONDS));
+        // Created on this node while the scan was running, missed by the scan
+        filter.add("john@killrvideo.com");
+        dao.release.countDown();
+        awaitReady(filter);
+        assertTrue(filter.isProbablyRegistered("jane@killrvideo.com"));
+        assertTrue(filter.isProbablyRegistered("john@killrvideo.com"));
+    }
+
+    @Test
+    public void emailRegisteredAfterScanIsReported() throws Exception {
+        filter = startAndScan();
+        filter.add("jane@killrvideo.com");
+        assertTrue(filter.isProbablyRegistered("jane@killrvideo.com"));
+    }
+
+    private RegisteredEmailsFilter startAndScan() throws InterruptedException {
+        RegisteredEmailsFilter started = new RegisteredEmailsFilter(dao, EMAILS, FALSE_POSITIVE_RATE);
+        started.start();
+        awaitReady(started);
+        return started;
+    }
+
+    private static void awaitReady(RegisteredEmailsFilter filter) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!filter.isReady() && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertTrue(filter.isReady());
+    }
+
+    /**
+     * Registered emails in memory, the scan can be held until released by the test.
+     */
+    private static final class StubUserDseDao extends UserDseDao {
+
+        private final List<String> emails = new ArrayList<>();
+
+        private final CountDownLatch scanning = new CountDownLatch(1);
+
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        private volatile boolean blocked;
+
+        @Override
+        public long forEachRegisteredEmail(Consumer<String> consumer, int fetchSize) {
+            scanning.countDown();
+            if (blocked) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            emails.forEach(consumer);
+            return emails.size();
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.killrvideo.service.user.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import com.killrvideo.service.user.dto.User;
+
+/**
+ * Unit tests of {@link UserProfileCache}.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class UserProfileCacheTest {
+
+    private final UUID userid = UUID.fromString("6741b34e-03c7-4d83-bf55-deed496d6e03");
+
+    private final StubUserDseDao dao = new StubUserDseDao();
+
+    private final UserProfileCache cache = new UserProfileCache(dao, 100, 300);
+
+    @Test
+    public void secondLookupIsServedFromMemory() {
+        dao.save(user(userid, "Jane"));
+        assertEquals("Jane", lookup(userid).get(0).getFirstname());
+        assertEquals("Jane", lookup(userid).get(0).getFirstname());
+        assertEquals(1, dao.reads.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void updatedProfileIsReadAfterInvalidation() {
+        dao.save(user(userid, "Jane"));
+        assertEquals("Jane", lookup(userid).get(0).getFirstname());
+        dao.save(user(userid, "Janet"));
+        // Stale until invalidated
+        assertEquals("Jane", lookup(userid).get(0).getFirstname());
+        cache.invalidate(userid);
+        assertEquals("Janet", lookup(userid).get(0).getFirstname());
+        assertEquals(2, dao.reads.get());
+    }
+
+    @Test
+    public void readInFlightDuringInvalidationIsNotCached() {
+        CompletableFuture<User> pending = new CompletableFuture<>();
+        dao.pending.put(userid, pending);
+        CompletableFuture<List<User>> result = cache.getUserProfilesAsync(Collections.singletonList(userid));
+        cache.invalidate(userid);
+        pending.complete(user(userid, "Jane"));
+        assertEquals("Jane", result.join().get(0).getFirstname());
+        assertEquals(0, cache.getSize());
+
+        dao.save(user(userid, "Janet"));
+        assertEquals("Janet", lookup(userid).get(0).getFirstname());
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void concurrentLookupsShareTheRead() {
+        CompletableFuture<User> pending = new CompletableFuture<>();
+        dao.pending.put(userid, pending);
+        CompletableFuture<List<User>> first  = cache.getUserProfilesAsync(Collections.singletonList(userid));
+        CompletableFuture<List<User>> second = cache.getUserProfilesAsync(Collections.singletonList(userid));
+        assertFalse(second.isDone());
+        pending.complete(user(userid, "Jane"));
+        assertEquals("Jane", first.join().get(0).getFirstname());
+        assertEquals("Jane", second.join().get(0).getFirstname());
+        assertEquals(1, dao.reads.get());
+        assertEquals(1, cache.getCoalesced());
+    }
+
+    @Test
+    public void unknownUsersAreOmittedAndOrderIsKept() {
+        UUID other   = UUID.randomUUID();
+        UUID unknown = UUID.randomUUID();
+        dao.save(user(userid, "Jane"));
+        dao.save(user(other, "John"));
+        List<User> users = cache.getUserProfilesAsync(Arrays.asList(other, unknown, userid, other)).join();
+        assertEquals(2, users.size());
+        assertEquals(other, users.get(0).getUserid());
+        assertEquals(userid, users.get(1).getUserid());
+    }
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        UserProfileCache small = new UserProfileCache(dao, 2, 300);
+        UUID second = UUID.randomUUID();
+        UUID third  = UUID.randomUUID();
+        for (UUID id : Arrays.asList(userid, second, third)) {
+            dao.save(user(id, "User"));
+        }
+        small.getUserProfilesAsync(Collections.singletonList(userid)).join();
+        small.getUserProfilesAsync(Collections.singletonList(second)).join();
+        small.getUserProfilesAsync(Collections.singletonList(userid)).join();
+        small.getUserProfilesAsync(Collections.singletonList(third)).join();
+        assertEquals(2, small.getSize());
+        assertEquals(3, dao.reads.get());
+        // 'second' was the least recently used
+        small.getUserProfilesAsync(Collections.singletonList(userid)).join();
+        assertEquals(3, dao.reads.get());
+        small.getUserProfilesAsync(Collections.singletonList(second)).join();
+        assertEquals(4, dao.reads.get());
+    }
+
+    @Test
+    public void failedReadIsNotCached() {
+        CompletableFuture<User> pending = new CompletableFuture<>();
+        dao.pending.put(userid, pending);
+        CompletableFuture<List<User>> result = cache.getUserProfilesAsync(Collections.singletonList(userid));
+        pending.completeExceptionally(new IllegalStateException("read failed"));
+        assertTrue(result.isCompletedExceptionally());
+        assertEquals(0, cache.getSize());
+    }
+
+    private List<User> lookup(UUID id) {
+        return cache.getUserProfilesAsync(Collections.singletonList(id)).join();
+    }
+
+    private static User user(UUID id, String firstname) {
+        return new User(id, firstname, "Doe", firstname.toLowerCase() + "@killrvideo.com", new Date());
+    }
+
+    /**
+     * Profiles in memory, a read can be left pending until completed by the test.
+     */
+    private static final class StubUserDseDao extends UserDseDao {
+
+        private final Map<UUID, User> users = new ConcurrentHashMap<>();
+
+        private final Map<UUID, CompletableFuture<User>> pending = new ConcurrentHashMap<>();
+
+        private final AtomicInteger reads = new AtomicInteger();
+
+        private void save(User user) {
+            users.put(user.getUserid(), user);
+        }
+
+        @Override
+        public CompletableFuture<User> getUserProfileAsync(UUID userid) {
+            reads.incrementAndGet();
+            CompletableFuture<User> read = pending.remove(userid);
+            return read != null ? read : CompletableFuture.completedFuture(users.get(userid));
+        }
+    }
+
+}
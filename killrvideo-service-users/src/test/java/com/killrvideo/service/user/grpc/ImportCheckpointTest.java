@@ -0,0 +1,77 @@
+package com.killrvideo.service.user.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link ImportCheckpoint}.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class ImportCheckpointTest {
+
+    @Test
+    public void startsFromPreviousRun() {
+        ImportCheckpoint checkpoint = new ImportCheckpoint(42);
+        assertEquals(42, checkpoint.value());
+        checkpoint.done(42);
+        assertEquals(43, checkpoint.value());
+    }
+
+    @Test
+    public void waitsForGapToClose() {
+        ImportCheckpoint checkpoint = new ImportCheckpoint(0);
+        checkpoint.done(1);
+        checkpoint.done(2);
+        assertEquals(0, checkpoint.value());
+        checkpoint.done(0);
+        assertEquals(3, checkpoint.value());
+    }
+
+    @Test
+    public void failedWriteHoldsCheckpoint() {
+        ImportCheckpoint checkpoint = new ImportCheckpoint(0);
+        checkpoint.done(0);
+        checkpoint.failed(1);
+        checkpoint.done(2);
+        checkpoint.done(3);
+        assertEquals(1, checkpoint.value());
+    }
+
+    @Test
+    public void oldestFailedWriteWins() {
+        ImportCheckpoint checkpoint = new ImportCheckpoint(10);
+        checkpoint.failed(15);
+        checkpoint.failed(12);
+        checkpoint.failed(17);
+        for (long position = 10; position < 20; position++) {
+            if (position != 12 && position != 15 && position != 17) {
+                checkpoint.done(position);
+            }
+        }
+        assertEquals(12, checkpoint.value());
+    }
+
+    @Test
+    public void gapBeforeFailedWriteStillHolds() {
+        ImportCheckpoint checkpoint = new ImportCheckpoint(0);
+        checkpoint.failed(3);
+        checkpoint.done(4);
+        assertEquals(0, checkpoint.value());
+        checkpoint.done(1);
+        checkpoint.done(0);
+        assertEquals(2, checkpoint.value());
+        checkpoint.done(2);
+        assertEquals(3, checkpoint.value());
+    }
+
+    @Test
+    public void positionsBeforeCheckpointAreIgnored() {
+        ImportCheckpoint checkpoint = new ImportCheckpoint(5);
+        checkpoint.done(3);
+        checkpoint.done(5);
+        assertEquals(6, checkpoint.value());
+    }
+
+}
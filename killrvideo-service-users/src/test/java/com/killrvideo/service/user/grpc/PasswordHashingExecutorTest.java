@@ -0,0 +1,105 @@
+package com.killrvideo.service.user.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests of {@link PasswordHashingExecutor}.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class PasswordHashingExecutorTest {
+
+    private PasswordHashingExecutor executor;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    public void stop() {
+        release.countDown();
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+
+    @Test
+    public void hashIsVerified() {
+        executor = start(2, 4, 1000);
+        String hash = executor.hashPasswordAsync("secret").join();
+        assertTrue(executor.isPasswordValidAsync("secret", hash).join());
+        assertFalse(executor.isPasswordValidAsync("guess", hash).join());
+        assertEquals(3, executor.getTotalTasks());
+    }
+
+    @Test
+    public void fullQueueIsResourceExhausted() throws Exception {
+        executor = start(1, 1, 10000);
+        CountDownLatch started = new CountDownLatch(1);
+        // One task hashing, one waiting in queue
+        CompletableFuture<Boolean> running = executor.submit(() -> {
+            started.countDown();
+            return await(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> queued = executor.submit(() -> true);
+
+        CompletableFuture<String> rejected = executor.hashPasswordAsync("secret");
+        assertTrue(rejected.isCompletedExceptionally());
+        CompletionException error = assertThrows(CompletionException.class, rejected::join);
+        assertTrue(PasswordHashingExecutor.isSaturated(error));
+        assertEquals(1, executor.getTotalRejected());
+
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void taskExpiredInQueueIsResourceExhausted() throws Exception {
+        executor = start(1, 4, 20);
+        CompletableFuture<Boolean> running = executor.submit(() -> await(release));
+        CompletableFuture<String> expired = executor.hashPasswordAsync("secret");
+        TimeUnit.MILLISECONDS.sleep(100);
+        release.countDown();
+        running.get(5, TimeUnit.SECONDS);
+        CompletionException error = assertThrows(CompletionException.class, expired::join);
+        assertTrue(PasswordHashingExecutor.isSaturated(error));
+        assertEquals(1, executor.getTotalExpired());
+    }
+
+    @Test
+    public void otherFailuresAreNotSaturation() {
+        executor = start(1, 1, 1000);
+        CompletableFuture<Boolean> failed = executor.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+        CompletionException error = assertThrows(CompletionException.class, failed::join);
+        assertFalse(PasswordHashingExecutor.isSaturated(error));
+    }
+
+    private static PasswordHashingExecutor start(int threads, int queueSize, long maxQueueWaitMillis) {
+        PasswordHashingExecutor executor = new PasswordHashingExecutor(threads, queueSize, maxQueueWaitMillis);
+        executor.start();
+        return executor;
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,287 @@
+package com.killrvideo.service.user.grpc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import com.killrvideo.messaging.dao.MessagingDao;
+import com.killrvideo.service.user.dao.RegisteredEmailsFilter;
+import com.killrvideo.service.user.dao.UserAlreadyExistsException;
+import com.killrvideo.service.user.dao.UserDseDao;
+import com.killrvideo.service.user.dto.User;
+import com.killrvideo.service.user.dto.UserCredentials;
+import com.killrvideo.service.user.grpc.UserBulkImporter.ImportJob;
+
+import killrvideo.common.CommonTypes.Uuid;
+import killrvideo.user_management.UserManagementServiceOuterClass.CreateUserRequest;
+import killrvideo.user_management.events.UserManagementEvents.UserCreated;
+
+/**
+ * Unit tests of {@link UserBulkImporter}.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+public class UserBulkImporterTest {
+
+    private static final String IMPORT_ID = "import-2026-10";
+
+    private final StubUserDseDao dao = new StubUserDseDao();
+
+    private final StubMessagingDao messagingDao = new StubMessagingDao();
+
+    private final List<UserBulkImporter> importers = new ArrayList<>();
+
+    @AfterEach
+    public void stop() {
+        dao.pendingWrites.forEach(write -> write.complete(null));
+        importers.forEach(UserBulkImporter::stop);
+    }
+
+    @Test
+    public void recordsAreImportedAndCheckpointSaved() {
+        List<CreateUserRequest> records = records(10);
+        ImportJob job = run(newImporter(128, 4), records);
+        assertEquals(10, job.getImported());
+        assertEquals(10, job.getCheckpoint());
+        assertEquals(Long.valueOf(10), dao.checkpoints.get(IMPORT_ID));
+        assertEquals(emailsOf(records), messagingDao.emails());
+    }
+
+    @Test
+    public void failedWriteHoldsCheckpointAndIsRetriedOnResume() {
+        List<CreateUserRequest> records = records(10);
+        dao.failingEmails.add(records.get(5).getEmail());
+        ImportJob firstRun = run(newImporter(128, 4), records);
+        assertEquals(9, firstRun.getImported());
+        assertEquals(1, firstRun.getFailed());
+        assertEquals(5, firstRun.getFailures().get(0).getPosition());
+        assertEquals(5, firstRun.getCheckpoint());
+
+        // New process: empty emails filter, records after the checkpoint are found by the lightweight transaction
+        dao.failingEmails.clear();
+        messagingDao.events.clear();
+        ImportJob secondRun = run(newImporter(128, 4), records);
+        assertEquals(5, secondRun.getSkipped());
+        assertEquals(1, secondRun.getImported());
+        assertEquals(4, secondRun.getAlreadyImported());
+        assertEquals(0, secondRun.getFailed());
+        assertEquals(10, secondRun.getCheckpoint());
+        // Events of records after the checkpoint are sent again
+        assertEquals(emailsOf(records.subList(5, 10)), messagingDao.emails());
+    }
+
+    @Test
+    public void resumeFromCheckpointWithKnownEmails() {
+        List<CreateUserRequest> records = records(6);
+        UserBulkImporter importer = newImporter(128, 100);
+        dao.failingEmails.add(records.get(2).getEmail());
+        run(importer, records);
+        dao.failingEmails.clear();
+        ImportJob secondRun = run(importer, records);
+        assertEquals(2, secondRun.getSkipped());
+        assertEquals(1, secondRun.getImported());
+        assertEquals(3, secondRun.getAlreadyImported());
+        assertEquals(6, secondRun.getCheckpoint());
+    }
+
+    @Test
+    public void emailOfAnotherUserIsDuplicate() {
+        List<CreateUserRequest> records = records(3);
+        dao.credentials.put(records.get(1).getEmail(), new UserCredentials(records.get(1).getEmail(), "hash", UUID.randomUUID()));
+        ImportJob job = run(newImporter(128, 100), records);
+        assertEquals(2, job.getImported());
+        assertEquals(1, job.getDuplicates());
+        assertEquals(3, job.getCheckpoint());
+        assertFalse(messagingDao.emails().contains(records.get(1).getEmail()));
+    }
+
+    @Test
+    public void invalidRecordIsReportedAndNotRetried() {
+        List<CreateUserRequest> records = new ArrayList<>(records(3));
+        records.set(1, records.get(1).toBuilder().clearPassword().build());
+        ImportJob job = run(newImporter(128, 100), records);
+        assertEquals(2, job.getImported());
+        assertEquals(1, job.getFailed());
+        assertEquals(1, job.getFailures().get(0).getPosition());
+        assertEquals(3, job.getCheckpoint());
+    }
+
+    @Test
+    public void recordsInFlightAreBounded() throws Exception {
+        dao.holdWrites = true;
+        UserBulkImporter importer = newImporter(2, 100);
+        ImportJob job = importer.startImport(IMPORT_ID);
+        List<CreateUserRequest> records = records(3);
+        job.submit(records.get(0));
+        assertTrue(job.readyForMore().isDone());
+        job.submit(records.get(1));
+        CompletableFuture<Void> ready = job.readyForMore();
+        assertFalse(ready.isDone());
+
+        awaitPendingWrites(2);
+        dao.pendingWrites.get(0).complete(null);
+        ready.get(5, TimeUnit.SECONDS);
+        job.submit(records.get(2));
+        awaitPendingWrites(3);
+        dao.pendingWrites.forEach(write -> write.complete(null));
+        assertEquals(3, job.close().get(5, TimeUnit.SECONDS).getImported());
+    }
+
+    @Test
+    public void importRunsOnceAtATime() {
+        UserBulkImporter importer = newImporter(128, 100);
+        ImportJob job = importer.startImport(IMPORT_ID);
+        assertThrows(IllegalStateException.class, () -> importer.startImport(IMPORT_ID));
+        assertEquals(1, importer.getRunningImports());
+        job.close().join();
+        assertEquals(0, importer.getRunningImports());
+        importer.startImport(IMPORT_ID).close().join();
+    }
+
+    private UserBulkImporter newImporter(int maxInFlight, int checkpointInterval) {
+        UserBulkImporter importer = new UserBulkImporter(dao, new StubRegisteredEmailsFilter(), messagingDao,
+                maxInFlight, 3, checkpointInterval);
+        importer.start();
+        importers.add(importer);
+        return importer;
+    }
+
+    private static ImportJob run(UserBulkImporter importer, List<CreateUserRequest> records) {
+        ImportJob job = importer.startImport(IMPORT_ID);
+        records.forEach(job::submit);
+        return job.close().join();
+    }
+
+    private void awaitPendingWrites(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (dao.pendingWrites.size() < count && System.currentTimeMillis() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        assertEquals(count, dao.pendingWrites.size());
+    }
+
+    private static List<CreateUserRequest> records(int count) {
+        List<CreateUserRequest> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            records.add(CreateUserRequest.newBuilder()
+                    .setUserId(Uuid.newBuilder().setValue(UUID.randomUUID().toString()))
+                    .setFirstName("User")
+                    .setLastName(String.valueOf(i))
+                    .setEmail("user" + i + "@killrvideo.com")
+                    .setPassword("password" + i)
+                    .build());
+        }
+        return records;
+    }
+
+    private static Set<String> emailsOf(List<CreateUserRequest> records) {
+        return records.stream().map(CreateUserRequest::getEmail).collect(Collectors.toSet());
+    }
+
+    /**
+     * Credentials and checkpoints in memory, writes can fail or be held until completed by the test.
+     */
+    private static final class StubUserDseDao extends UserDseDao {
+
+        private final Map<String, UserCredentials> credentials = new ConcurrentHashMap<>();
+
+        private final Map<String, Long> checkpoints = new ConcurrentHashMap<>();
+
+        private final Set<String> failingEmails = ConcurrentHashMap.newKeySet();
+
+        private final List<CompletableFuture<Void>> pendingWrites = new CopyOnWriteArrayList<>();
+
+        private volatile boolean holdWrites;
+
+        @Override
+        public CompletableFuture<Void> createUserAsync(User user, String hashedPassword) {
+            CompletableFuture<Void> write = new CompletableFuture<>();
+            if (failingEmails.contains(user.getEmail())) {
+                write.completeExceptionally(new IllegalStateException("Write timeout"));
+            } else if (credentials.putIfAbsent(user.getEmail(), new UserCredentials(user.getEmail(), hashedPassword, user.getUserid())) != null) {
+                write.completeExceptionally(new UserAlreadyExistsException("Email already registered"));
+            } else if (holdWrites) {
+                pendingWrites.add(write);
+            } else {
+                write.complete(null);
+            }
+            return write;
+        }
+
+        @Override
+        public CompletableFuture<UserCredentials> getUserCredentialAsync(String email) {
+            return CompletableFuture.completedFuture(credentials.get(email));
+        }
+
+        @Override
+        public CompletableFuture<Long> findImportCheckpointAsync(String importId) {
+            return CompletableFuture.completedFuture(checkpoints.getOrDefault(importId, 0L));
+        }
+
+        @Override
+        public CompletableFuture<Void> saveImportCheckpointAsync(String importId, long checkpoint, long imported, long failed) {
+            checkpoints.put(importId, checkpoint);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Exact set of the emails added.
+     */
+    private static final class StubRegisteredEmailsFilter extends RegisteredEmailsFilter {
+
+        private final Set<String> emails = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public boolean isProbablyRegistered(String email) {
+            return emails.contains(email);
+        }
+
+        @Override
+        public void add(String email) {
+            emails.add(email);
+        }
+    }
+
+    /**
+     * Keep events sent.
+     */
+    private static final class StubMessagingDao implements MessagingDao {
+
+        private final List<Object> events = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public CompletableFuture<Object> sendEvent(String targetDestination, Object event) {
+            events.add(event);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public String getErrorDestination() {
+            return "ERROR";
+        }
+
+        private Set<String> emails() {
+            synchronized (events) {
+                return events.stream().map(event -> ((UserCreated) event).getEmail()).collect(Collectors.toSet());
+            }
+        }
+    }
+
+}
@@ -12,6 +12,7 @@ import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.LongStream;
@@ -30,6 +31,8 @@ import com.datastax.driver.core.ConsistencyLevel;
 import com.datastax.driver.core.PagingState;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.TokenRange;
 import com.datastax.driver.core.querybuilder.QueryBuilder;
 import com.datastax.driver.dse.DseSession;
 import com.datastax.driver.mapping.Mapper;
@@ -42,6 +45,7 @@ import com.killrvideo.dse.dto.ResultListPage;
 import com.killrvideo.dse.dto.Video;
 import com.killrvideo.service.video.dto.LatestVideo;
 import com.killrvideo.service.video.dto.LatestVideosPage;
+import com.killrvideo.service.video.dto.TagVideo;
 import com.killrvideo.service.video.dto.UserVideo;
 import com.killrvideo.utils.FutureUtils;
 
@@ -65,6 +69,7 @@ public class VideoCatalogDseDao extends DseDaoSupport {
     /** Table Name of Latest Video. */
     public static final String TABLENAME_LATEST_VIDEOS = "latest_videos";
     public static final String TABLENAME_USER_VIDEOS   = "user_videos";
+    public static final String TABLENAME_VIDEOS_BY_TAG = "videos_by_tag";
     
     /** Loger for that class. */
     private static Logger LOGGER = LoggerFactory.getLogger(VideoCatalogDseDao.class);
@@ -73,6 +78,7 @@ public class VideoCatalogDseDao extends DseDaoSupport {
     private Mapper< Video >       videoMapper;
     private Mapper< UserVideo >   userVideosMapper;
     private Mapper< LatestVideo > latestVideosMapper;
+    private Mapper< TagVideo >    tagVideosMapper;
     
     /** Related table name. */
     private String videoTableName;
@@ -100,6 +106,7 @@ public class VideoCatalogDseDao extends DseDaoSupport {
     private PreparedStatement submitYouTubeVideo_insertVideo;
     private PreparedStatement submitYouTubeVideo_insertUserVideo;
     private PreparedStatement submitYouTubeVideo_insertLatestVideo;
+    private PreparedStatement submitYouTubeVideo_insertVideoByTag;
     
     /** Prepare Statements 'getLatestVideso'. */
     private PreparedStatement latestVideoPreview_startingPointPrepared;
@@ -109,6 +116,12 @@ public class VideoCatalogDseDao extends DseDaoSupport {
     protected PreparedStatement userVideoPreview_startingPointPrepared;
     protected PreparedStatement userVideoPreview_noStartingPointPrepared;
     
+    /** Prepare Statements 'getVideosByTag'. */
+    private PreparedStatement tagVideoPreview_byTagPrepared;
+    
+    /** Prepare Statements to scan table 'videos'. */
+    private PreparedStatement scanVideosByTokenRange;
+    
     /**
      * Default constructor.
      */
@@ -159,7 +172,9 @@ public class VideoCatalogDseDao extends DseDaoSupport {
         videoMapper = mappingManager.mapper(Video.class);
         videoTableName = videoMapper.getTableMetadata().getName();
         videoKeyspace  = videoMapper.getTableMetadata().getKeyspace().getName();
+        tagVideosMapper = mappingManager.mapper(TagVideo.class);
         prepareStatementsInsertVideo();
+        prepareStatementsTagVideo();
     }
     
     /**
@@ -271,6 +286,78 @@ public class VideoCatalogDseDao extends DseDaoSupport {
                           .< ResultListPage<UserVideo> > thenApply(ResultListPage::new);
     }
     
+    /**
+     * Read a page of videos with a tag (exact match), a single partition of 'videos_by_tag'.
+     * 
+     * @param tag
+     *      tag as submitted with the videos
+     * @param pageSize
+     *      page size
+     * @param pagingState
+     *      paging state if paging
+     * @return
+     *      requested videos (page), ordered by video id
+     */
+    public CompletableFuture< ResultListPage <TagVideo> > getVideosByTagAsync(String tag,
+            Optional<Integer> pageSize,
+            Optional<String>  pagingState) {
+        BoundStatement bound = tagVideoPreview_byTagPrepared.bind().setString(TagVideo.COLUMN_TAG, tag);
+        pageSize.ifPresent(bound::setFetchSize);
+        pagingState.ifPresent( x -> bound.setPagingState(PagingState.fromString(x)));
+        return FutureUtils.asCompletableFuture(tagVideosMapper.mapAsync(dseSession.executeAsync(bound)))
+                          .< ResultListPage<TagVideo> > thenApply(ResultListPage::new);
+    }
+    
+    /**
+     * Write the rows of 'videos_by_tag' of an existing video (backfill), 'tagged_date' is the 'added_date'.
+     * Rows are idempotent, writing them again is harmless.
+     *
+     * @param v
+     *      video read from table 'videos'
+     * @return
+     *      completed when all the tags are written
+     */
+    public CompletableFuture<Void> insertVideoTagsAsync(Video v) {
+        if (v.getTags() == null || v.getTags().isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // One partition per tag, no batch
+        List<CompletableFuture<ResultSet>> futures = v.getTags().stream()
+                .map(tag -> createStatementInsertVideoByTag(v, tag, v.getAddedDate(), v.getAddedDate()))
+                .map(dseSession::executeAsync)
+                .map(FutureUtils::asCompletableFuture)
+                .collect(Collectors.toList());
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]));
+    }
+    
+    /**
+     * Read all the videos, token range by token range.
+     *
+     * @param consumer
+     *      called for each video
+     * @param fetchSize
+     *      page size
+     * @return
+     *      number of videos read
+     */
+    public long forEachVideo(Consumer<Video> consumer, int fetchSize) {
+        long count = 0;
+        for (TokenRange range : dseSession.getCluster().getMetadata().getTokenRanges()) {
+            // Range wrapping around the ring is split in two
+            for (TokenRange subRange : range.unwrap()) {
+                Statement stmt = scanVideosByTokenRange.bind()
+                        .setToken(0, subRange.getStart())
+                        .setToken(1, subRange.getEnd())
+                        .setFetchSize(fetchSize);
+                for (Video video : videoMapper.map(dseSession.execute(stmt))) {
+                    consumer.accept(video);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+    
     /**
      * Latest video partition key is the Date. As such we need to perform a query per date. As the user
      * ask for a number of video on a given page we may have to trigger several queries, on for each day.
@@ -385,7 +472,7 @@ public class VideoCatalogDseDao extends DseDaoSupport {
     }
     
     /**
-     * Create statment to populate 3 tables in the same time.
+     * Create statment to populate 3 tables, and 'videos_by_tag' for each tag, in the same time.
      *
      * @param v
      *      current video to create
@@ -425,10 +512,27 @@ public class VideoCatalogDseDao extends DseDaoSupport {
         batchStatement.add(insertVideo);
         batchStatement.add(insertUserVideo);
         batchStatement.add(insertLatestVideo);
+        if (v.getTags() != null) {
+            v.getTags().forEach(tag -> batchStatement.add(createStatementInsertVideoByTag(v, tag, now, now)));
+        }
         batchStatement.setDefaultTimestamp(now.getTime());
         return batchStatement;
     }
     
+    /**
+     * Row of 'videos_by_tag'.
+     */
+    private BoundStatement createStatementInsertVideoByTag(Video v, String tag, Date addedDate, Date taggedDate) {
+        return submitYouTubeVideo_insertVideoByTag.bind()
+                .setString(TagVideo.COLUMN_TAG, tag)
+                .setUUID(TagVideo.COLUMN_VIDEOID, v.getVideoid())
+                .setTimestamp(TagVideo.COLUMN_ADDEDDATE, addedDate)
+                .setUUID(TagVideo.COLUMN_USERID, v.getUserid())
+                .setString(TagVideo.COLUMN_NAME, v.getName())
+                .setString(TagVideo.COLUMN_PREVIEW, v.getPreviewImageLocation())
+                .setTimestamp(TagVideo.COLUMN_TAGGEDDATE, taggedDate);
+    }
+    
     /**
      * Build statements.
      */
@@ -482,6 +586,33 @@ public class VideoCatalogDseDao extends DseDaoSupport {
                         .value("added_date", QueryBuilder.bindMarker())
                         .using(QueryBuilder.ttl(LATEST_VIDEOS_TTL_SECONDS))
         ).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+        submitYouTubeVideo_insertVideoByTag = dseSession.prepare(
+                QueryBuilder.insertInto(videoKeyspace, TABLENAME_VIDEOS_BY_TAG)
+                        .value(TagVideo.COLUMN_TAG, QueryBuilder.bindMarker())
+                        .value(TagVideo.COLUMN_VIDEOID, QueryBuilder.bindMarker())
+                        .value(TagVideo.COLUMN_ADDEDDATE, QueryBuilder.bindMarker())
+                        .value(TagVideo.COLUMN_USERID, QueryBuilder.bindMarker())
+                        .value(TagVideo.COLUMN_NAME, QueryBuilder.bindMarker())
+                        .value(TagVideo.COLUMN_PREVIEW, QueryBuilder.bindMarker())
+                        .value(TagVideo.COLUMN_TAGGEDDATE, QueryBuilder.bindMarker())
+        ).setConsistencyLevel(ConsistencyLevel.LOCAL_QUORUM);
+    }
+    
+    /**
+     * Statements for 'videos_by_tag'.
+     */
+    private void prepareStatementsTagVideo() {
+        tagVideoPreview_byTagPrepared = dseSession.prepare(
+                QueryBuilder.select().all()
+                        .from(videoKeyspace, TABLENAME_VIDEOS_BY_TAG)
+                        .where(QueryBuilder.eq(TagVideo.COLUMN_TAG, QueryBuilder.bindMarker(TagVideo.COLUMN_TAG)))
+        ).setConsistencyLevel(ConsistencyLevel.LOCAL_ONE);
+        scanVideosByTokenRange = dseSession.prepare(
+                QueryBuilder.select().all()
+                        .from(videoKeyspace, videoTableName)
+                        .where(QueryBuilder.gt(QueryBuilder.token(Video.COLUMN_VIDEOID), QueryBuilder.bindMarker()))
+                        .and(QueryBuilder.lte(QueryBuilder.token(Video.COLUMN_VIDEOID), QueryBuilder.bindMarker()))
+        ).setConsistencyLevel(ConsistencyLevel.LOCAL_ONE);
     }
     
     /**
@@ -0,0 +1,132 @@
+package com.killrvideo.service.video.dao;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import com.killrvideo.messaging.conf.KillrVideoThreadFactory;
+
+/**
+ * Populate 'videos_by_tag' for videos inserted before the table was written by {@link VideoCatalogDseDao}.
+ *
+ * Table 'videos' is scanned token range by token range and the rows of each tag are written with at most
+ * 'maxConcurrentWrites' writes in flight. Rows are idempotent: the job can be stopped and run again at the next
+ * start. Disabled by default, enable it once after upgrading.
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Component
+@ManagedResource(objectName = "killrvideo:type=VideoCatalog,name=VideosByTagBackfill")
+public class VideosByTagBackfill {
+
+    /** Loger for that class. */
+    private static Logger LOGGER = LoggerFactory.getLogger(VideosByTagBackfill.class);
+
+    @Value("${killrvideo.videoCatalog.videosByTag.backfillOnStartup: false}")
+    private boolean backfillOnStartup = false;
+
+    @Value("${killrvideo.videoCatalog.videosByTag.scanPageSize: 1000}")
+    private int scanPageSize = 1000;
+
+    @Value("${killrvideo.videoCatalog.videosByTag.maxConcurrentWrites: 32}")
+    private int maxConcurrentWrites = 32;
+
+    @Autowired
+    private VideoCatalogDseDao videoCatalogDao;
+
+    /** Backfill thread. */
+    private ExecutorService executor;
+
+    /** Progress. */
+    private volatile boolean running = false;
+    private final LongAdder scannedVideos = new LongAdder();
+    private final LongAdder failedVideos  = new LongAdder();
+
+    /**
+     * Start backfill in background if enabled.
+     */
+    @PostConstruct
+    public void start() {
+        if (backfillOnStartup) {
+            executor = Executors.newSingleThreadExecutor(new KillrVideoThreadFactory());
+            executor.execute(this::backfill);
+        }
+    }
+
+    /**
+     * Scan table 'videos' and write their tags.
+     */
+    private void backfill() {
+        final long start = System.currentTimeMillis();
+        final Semaphore inFlight = new Semaphore(maxConcurrentWrites);
+        running = true;
+        try {
+            long count = videoCatalogDao.forEachVideo(video -> {
+                inFlight.acquireUninterruptibly();
+                scannedVideos.increment();
+                videoCatalogDao.insertVideoTagsAsync(video).whenComplete((v, error) -> {
+                    inFlight.release();
+                    if (error != null) {
+                        failedVideos.increment();
+                        LOGGER.warn("Cannot write tags of video {}", video.getVideoid(), error);
+                    }
+                });
+            }, scanPageSize);
+            // Wait for last writes
+            inFlight.acquireUninterruptibly(maxConcurrentWrites);
+            LOGGER.info("Table 'videos_by_tag' backfilled from {} videos ({} failed) in {} millis",
+                    count, failedVideos.sum(), System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            LOGGER.error("Backfill of table 'videos_by_tag' interrupted, run it again", e);
+        } finally {
+            running = false;
+        }
+    }
+
+    /**
+     * Stop backfill.
+     */
+    @PreDestroy
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Backfill in progress.
+     */
+    @ManagedAttribute
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Videos read from table 'videos' so far.
+     */
+    @ManagedAttribute
+    public long getScannedVideos() {
+        return scannedVideos.sum();
+    }
+
+    /**
+     * Videos whose tags could not be written, run the backfill again.
+     */
+    @ManagedAttribute
+    public long getFailedVideos() {
+        return failedVideos.sum();
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.killrvideo.service.video.dto;
+
+import java.util.Date;
+import java.util.UUID;
+
+import com.datastax.driver.mapping.annotations.ClusteringColumn;
+import com.datastax.driver.mapping.annotations.Column;
+import com.datastax.driver.mapping.annotations.PartitionKey;
+import com.datastax.driver.mapping.annotations.Table;
+import com.killrvideo.dse.dto.AbstractVideo;
+import com.killrvideo.model.CommonConstants;
+import com.killrvideo.service.video.dao.VideoCatalogDseDao;
+
+/**
+ * Pojo representing DTO for table 'videos_by_tag'
+ *
+ * @author DataStax Developer Advocates team.
+ */
+@Table(keyspace = CommonConstants.KILLRVIDEO_KEYSPACE,
+       name = VideoCatalogDseDao.TABLENAME_VIDEOS_BY_TAG)
+public class TagVideo extends AbstractVideo {
+
+    /** Serial. */
+    private static final long serialVersionUID = 2939618375270435287L;
+
+    /** Column names in the DB. */
+    public static final String COLUMN_TAG        = "tag";
+    public static final String COLUMN_VIDEOID    = "videoid";
+    public static final String COLUMN_ADDEDDATE  = "added_date";
+    public static final String COLUMN_USERID     = "userid";
+    public static final String COLUMN_TAGGEDDATE = "tagged_date";
+
+    @PartitionKey
+    private String tag;
+
+    @ClusteringColumn
+    private UUID videoid;
+
+    @Column(name = COLUMN_ADDEDDATE)
+    private Date addedDate;
+
+    @Column
+    private UUID userid;
+
+    @Column(name = COLUMN_TAGGEDDATE)
+    private Date taggedDate;
+
+    /**
+     * Default constructor.
+     */
+    public TagVideo() {}
+
+    /**
+     * Getter for attribute 'tag'.
+     *
+     * @return
+     *       current value of 'tag'
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    /**
+     * Setter for attribute 'tag'.
+     * @param tag
+     *      new value for 'tag '
+     */
+    public void setTag(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * Getter for attribute 'videoid'.
+     *
+     * @return
+     *       current value of 'videoid'
+     */
+    public UUID getVideoid() {
+        return videoid;
+    }
+
+    /**
+     * Setter for attribute 'videoid'.
+     * @param videoid
+     *      new value for 'videoid '
+     */
+    public void setVideoid(UUID videoid) {
+        this.videoid = videoid;
+    }
+
+    /**
+     * Getter for attribute 'addedDate'.
+     *
+     * @return
+     *       current value of 'addedDate'
+     */
+    public Date getAddedDate() {
+        return addedDate;
+    }
+
+    /**
+     * Setter for attribute 'addedDate'.
+     * @param addedDate
+     *      new value for 'addedDate '
+     */
+    public void setAddedDate(Date addedDate) {
+        this.addedDate = addedDate;
+    }
+
+    /**
+     * Getter for attribute 'userid'.
+     *
+     * @return
+     *       current value of 'userid'
+     */
+    public UUID getUserid() {
+        return userid;
+    }
+
+    /**
+     * Setter for attribute 'userid'.
+     * @param userid
+     *      new value for 'userid '
+     */
+    public void setUserid(UUID userid) {
+        this.userid = userid;
+    }
+
+    /**
+     * Getter for attribute 'taggedDate'.
+     *
+     * @return
+     *       current value of 'taggedDate'
+     */
+    public Date getTaggedDate() {
+        return taggedDate;
+    }
+
+    /**
+     * Setter for attribute 'taggedDate'.
+     * @param taggedDate
+     *      new value for 'taggedDate '
+     */
+    public void setTaggedDate(Date taggedDate) {
+        this.taggedDate = taggedDate;
+    }
+
+}
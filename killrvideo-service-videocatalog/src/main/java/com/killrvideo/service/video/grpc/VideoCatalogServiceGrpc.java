@@ -7,6 +7,7 @@ import static com.killrvideo.service.video.grpc.VideoCatalogServiceGrpcValidator
 import static com.killrvideo.service.video.grpc.VideoCatalogServiceGrpcValidator.validateGrpcRequest_getUserVideoPreviews;
 import static com.killrvideo.service.video.grpc.VideoCatalogServiceGrpcValidator.validateGrpcRequest_getVideo;
 import static com.killrvideo.service.video.grpc.VideoCatalogServiceGrpcValidator.validateGrpcRequest_getVideoPreviews;
+import static com.killrvideo.service.video.grpc.VideoCatalogServiceGrpcValidator.validateGrpcRequest_getVideosByTag;
 import static com.killrvideo.service.video.grpc.VideoCatalogServiceGrpcValidator.validateGrpcRequest_submitYoutubeVideo;
 import static java.util.stream.Collectors.toList;
 
@@ -47,6 +48,8 @@ import killrvideo.video_catalog.VideoCatalogServiceOuterClass.GetVideoPreviewsRe
 import killrvideo.video_catalog.VideoCatalogServiceOuterClass.GetVideoPreviewsResponse;
 import killrvideo.video_catalog.VideoCatalogServiceOuterClass.GetVideoRequest;
 import killrvideo.video_catalog.VideoCatalogServiceOuterClass.GetVideoResponse;
+import killrvideo.video_catalog.VideoCatalogServiceOuterClass.GetVideosByTagRequest;
+import killrvideo.video_catalog.VideoCatalogServiceOuterClass.GetVideosByTagResponse;
 import killrvideo.video_catalog.VideoCatalogServiceOuterClass.SubmitYouTubeVideoRequest;
 import killrvideo.video_catalog.VideoCatalogServiceOuterClass.SubmitYouTubeVideoResponse;
 import killrvideo.video_catalog.events.VideoCatalogEvents.YouTubeVideoAdded;
@@ -317,6 +320,48 @@ public class VideoCatalogServiceGrpc extends VideoCatalogServiceImplBase {
         });
     }
     
+    /**
+     * Videos with a tag, read from a single partition of 'videos_by_tag' instead of a DSE Search query.
+     */
+    @Override
+    public void getVideosByTag(GetVideosByTagRequest grpcReq, StreamObserver<GetVideosByTagResponse> grpcResObserver) {
+        
+        // GRPC Parameters Validation
+        validateGrpcRequest_getVideosByTag(LOGGER, grpcReq, grpcResObserver);
+        
+        // Stands as stopwatch for logging and messaging 
+        final Instant starts = Instant.now();
+       
+        // GRPC Parameters Mappings
+        final String tag = grpcReq.getTag();
+        final Optional<String> pagingState = 
+                Optional.ofNullable(grpcReq.getPagingState()).filter(StringUtils::isNotBlank);
+        final Optional<Integer> pagingSize =
+                Optional.ofNullable(grpcReq.getPageSize());
+        
+        // Map Result back to GRPC
+        videoCatalogDao
+            .getVideosByTagAsync(tag, pagingSize, pagingState)
+            .whenComplete((resultPage, error) -> {
+            
+            if (error != null ) {
+                traceError("getVideosByTag", starts, error);
+                grpcResObserver.onError(Status.INTERNAL.withCause(error).asRuntimeException());
+                
+            } else {
+                
+                traceSuccess("getVideosByTag", starts);
+                final GetVideosByTagResponse.Builder builder = GetVideosByTagResponse.newBuilder().setTag(tag);
+                resultPage.getResults().stream()
+                      .map(VideoCatalogServiceGrpcMapper::mapFromTagVideotoVideoPreview)
+                      .forEach(builder::addVideoPreviews);
+                resultPage.getPagingState().ifPresent(builder::setPagingState);
+                grpcResObserver.onNext(builder.build());
+                grpcResObserver.onCompleted();
+            }
+        });
+    }
+    
     /**
      * Utility to TRACE.
      *
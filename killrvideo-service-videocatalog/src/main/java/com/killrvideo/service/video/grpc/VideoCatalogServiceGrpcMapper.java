@@ -11,6 +11,7 @@ import com.google.common.collect.Sets;
 import com.killrvideo.dse.dto.Video;
 import com.killrvideo.service.video.dto.LatestVideo;
 import com.killrvideo.service.video.dto.LatestVideosPage;
+import com.killrvideo.service.video.dto.TagVideo;
 import com.killrvideo.service.video.dto.UserVideo;
 
 import killrvideo.video_catalog.VideoCatalogServiceOuterClass.GetLatestVideoPreviewsResponse;
@@ -92,6 +93,19 @@ public class VideoCatalogServiceGrpcMapper {
                 .build();
     }
     
+    /**
+     * Mapping to generated GPRC beans.
+     */
+    public static VideoPreview mapFromTagVideotoVideoPreview(TagVideo v) {
+        return VideoPreview.newBuilder()
+                .setAddedDate(dateToTimestamp(v.getAddedDate()))
+                .setName(v.getName())
+                .setPreviewImageLocation(Optional.ofNullable(v.getPreviewImageLocation()).orElse("N/A"))
+                .setUserId(uuidToUuid(v.getUserid()))
+                .setVideoId(uuidToUuid(v.getVideoid()))
+                .build();
+    }
+    
     /**
      * Mapping to generated GPRC beans (Full detailed)
      */
@@ -13,6 +13,7 @@ import killrvideo.video_catalog.VideoCatalogServiceOuterClass.GetLatestVideoPrev
 import killrvideo.video_catalog.VideoCatalogServiceOuterClass.GetUserVideoPreviewsRequest;
 import killrvideo.video_catalog.VideoCatalogServiceOuterClass.GetVideoPreviewsRequest;
 import killrvideo.video_catalog.VideoCatalogServiceOuterClass.GetVideoRequest;
+import killrvideo.video_catalog.VideoCatalogServiceOuterClass.GetVideosByTagRequest;
 import killrvideo.video_catalog.VideoCatalogServiceOuterClass.SubmitYouTubeVideoRequest;
 
 /**
@@ -112,4 +113,20 @@ public class VideoCatalogServiceGrpcValidator {
         Assert.isTrue(validate(logger, streamObserver, errorMessage, isValid),  "Invalid parameter for 'getUserVideoPreview'");
     }
 
+    public static void validateGrpcRequest_getVideosByTag(Logger logger, GetVideosByTagRequest request, StreamObserver<?> streamObserver) {
+        final StringBuilder errorMessage = initErrorString(request);
+        boolean isValid = true;
+
+        if (isBlank(request.getTag())) {
+            errorMessage.append("\t\ttag should be provided for get videos by tag request\n");
+            isValid = false;
+        }
+
+        if (request.getPageSize() <= 0) {
+            errorMessage.append("\t\tpage size should be strictly positive for get videos by tag request\n");
+            isValid = false;
+        }
+        Assert.isTrue(validate(logger, streamObserver, errorMessage, isValid),  "Invalid parameter for 'getVideosByTag'");
+    }
+
 }